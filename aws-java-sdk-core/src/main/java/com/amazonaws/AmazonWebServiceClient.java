@@ -18,6 +18,8 @@ import static com.amazonaws.SDKGlobalConfiguration.PROFILING_SYSTEM_PROPERTY;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.logging.Log;
@@ -51,6 +53,13 @@ import com.amazonaws.util.HttpUtils;
 public abstract class AmazonWebServiceClient {
     private static final String AMAZON = "Amazon";
     private static final String AWS = "AWS";
+
+    /**
+     * Service names computed by the default implementation, keyed by the
+     * client class, so they are only derived once per class.
+     */
+    private static final ConcurrentMap<Class<?>, String> serviceNameCache =
+            new ConcurrentHashMap<Class<?>, String>();
     public static final boolean LOGGING_AWS_REQUEST_METRIC = true;
 
     private static final Log log =
@@ -697,7 +706,15 @@ public abstract class AmazonWebServiceClient {
      * follows the convention of <code>(Amazon|AWS).*(JavaClient|Client)</code>.
      */
     private String computeServiceName() {
-        final String httpClientName = getHttpClientName();
+        String service = serviceNameCache.get(getClass());
+        if (service == null) {
+            service = computeServiceName(getHttpClientName());
+            serviceNameCache.putIfAbsent(getClass(), service);
+        }
+        return service;
+    }
+
+    private static String computeServiceName(final String httpClientName) {
         String service = ServiceNameFactory.getServiceName(httpClientName);
         if (service != null) {
             return service; // only if it is so explicitly configured
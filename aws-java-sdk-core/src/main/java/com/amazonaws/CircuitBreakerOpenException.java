@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws;
+
+/**
+ * Thrown when a request is rejected without being sent, because the circuit
+ * breaker of the target endpoint is open after too many recent failures.
+ *
+ * @see com.amazonaws.retry.CircuitBreakerPolicy
+ */
+public class CircuitBreakerOpenException extends AmazonClientException {
+    private static final long serialVersionUID = 1L;
+
+    /** The key of the circuit breaker, ie the service name and endpoint. */
+    private final String circuitBreakerKey;
+
+    public CircuitBreakerOpenException(String message, String circuitBreakerKey) {
+        super(message);
+        this.circuitBreakerKey = circuitBreakerKey;
+    }
+
+    /**
+     * Returns the key of the open circuit breaker, which is made up of the
+     * service name and the endpoint of the rejected request.
+     */
+    public String getCircuitBreakerKey() {
+        return circuitBreakerKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     * A request rejected by an open circuit breaker is not intended to be
+     * retried, as the retry would be rejected the same way.
+     */
+    @Override
+    public boolean isRetryable() {
+        return false;
+    }
+}
@@ -19,6 +19,8 @@ import java.net.InetAddress;
 import org.apache.http.annotation.NotThreadSafe;
 
 import com.amazonaws.http.IdleConnectionReaper;
+import com.amazonaws.retry.CircuitBreakerPolicy;
+import com.amazonaws.retry.HedgingPolicy;
 import com.amazonaws.retry.PredefinedRetryPolicies;
 import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.util.VersionInfoUtils;
@@ -105,6 +107,12 @@ public class ClientConfiguration {
     /** The retry policy upon failed requests. **/
     private RetryPolicy retryPolicy = DEFAULT_RETRY_POLICY;
 
+    /** The hedging policy for slow requests; or null if hedging is disabled. **/
+    private HedgingPolicy hedgingPolicy;
+
+    /** The circuit breaker policy per endpoint; or null if disabled. **/
+    private CircuitBreakerPolicy circuitBreakerPolicy;
+
     /** Optionally specifies the local address to bind to */
     private InetAddress localAddress;
 
@@ -240,6 +248,8 @@ public class ClientConfiguration {
         this.maxConnections              = other.maxConnections;
         this.maxErrorRetry               = other.maxErrorRetry;
         this.retryPolicy                 = other.retryPolicy;
+        this.hedgingPolicy               = other.hedgingPolicy;
+        this.circuitBreakerPolicy        = other.circuitBreakerPolicy;
         this.localAddress                = other.localAddress;
         this.protocol                    = other.protocol;
         this.proxyDomain                 = other.proxyDomain;
@@ -1302,6 +1312,81 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the hedging policy used for slow requests; or null if hedging is
+     * disabled, which is the default.
+     *
+     * @see HedgingPolicy
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Sets the hedging policy used for slow requests. Requests eligible under
+     * the policy will be sent a second time on another connection if no
+     * response has been received within a latency percentile observed for the
+     * same operation. Hedging is disabled by default.
+     *
+     * @param hedgingPolicy
+     *            The hedging policy; or null to disable hedging.
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Sets the hedging policy used for slow requests, and returns the updated
+     * ClientConfiguration object.
+     *
+     * @param hedgingPolicy
+     *            The hedging policy; or null to disable hedging.
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        setHedgingPolicy(hedgingPolicy);
+        return this;
+    }
+
+    /**
+     * Returns the circuit breaker policy applied per service endpoint; or null
+     * if circuit breaking is disabled, which is the default.
+     *
+     * @see CircuitBreakerPolicy
+     */
+    public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return circuitBreakerPolicy;
+    }
+
+    /**
+     * Sets the circuit breaker policy applied per service endpoint. When the
+     * circuit breaker of an endpoint is open, requests to that endpoint fail
+     * fast with a {@link CircuitBreakerOpenException} instead of being sent.
+     * Circuit breaking is disabled by default.
+     *
+     * @param circuitBreakerPolicy
+     *            The circuit breaker policy; or null to disable circuit
+     *            breaking.
+     */
+    public void setCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+        this.circuitBreakerPolicy = circuitBreakerPolicy;
+    }
+
+    /**
+     * Sets the circuit breaker policy applied per service endpoint, and
+     * returns the updated ClientConfiguration object.
+     *
+     * @param circuitBreakerPolicy
+     *            The circuit breaker policy; or null to disable circuit
+     *            breaking.
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withCircuitBreakerPolicy(
+            CircuitBreakerPolicy circuitBreakerPolicy) {
+        setCircuitBreakerPolicy(circuitBreakerPolicy);
+        return this;
+    }
+
     /**
      * Returns the response metadata cache size.
      */
@@ -19,6 +19,8 @@ import java.util.EnumMap;
 
 import org.apache.http.annotation.NotThreadSafe;
 
+import com.amazonaws.retry.HedgingPolicy;
+
 /**
  * Client request options such as client markers for individual
  * {@link AmazonWebServiceRequest}s.
@@ -46,6 +48,11 @@ public final class RequestClientOptions {
      * Used for mark-and-reset purposes during retry.
      */
     private int readLimit = DEFAULT_STREAM_BUFFER_SIZE;
+    /**
+     * Request specific hedging policy; or null if the one of the client
+     * applies.
+     */
+    private HedgingPolicy hedgingPolicy;
 
     /**
      * Returns the value of the specified marker; or null if there is no such
@@ -103,12 +110,32 @@ public final class RequestClientOptions {
         this.readLimit = readLimit;
     }
 
+    /**
+     * Returns the request specific hedging policy; or null if the one
+     * configured on the client applies.
+     */
+    public final HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Sets the optional hedging policy for this request, overriding the one
+     * configured on the client. This can be used to opt individual requests
+     * that are safe to duplicate into hedging.
+     *
+     * @see HedgingPolicy
+     */
+    public final void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
     /**
      * Copy the internal states of this <code>RequestClientOptions</code> to the
      * target <code>RequestClientOptions</code>.
      */
     void copyTo(RequestClientOptions target) {
         target.setReadLimit(getReadLimit());
+        target.setHedgingPolicy(getHedgingPolicy());
         for (Marker marker: Marker.values())
             target.putClientMarker(marker, getClientMarker(marker));
     }
@@ -128,6 +128,61 @@ public class SDKGlobalConfiguration {
     public static final String DEFAULT_S3_STREAM_BUFFER_SIZE =
         "com.amazonaws.sdk.s3.defaultStreamBufferSize";
 
+    /**
+     * System property used when starting up the JVM to disable the pooling of
+     * the stream buffers used for request content, in which case every stream
+     * allocates its own buffers.
+     *
+     * <pre>
+     * Example:
+     *  -Dcom.amazonaws.sdk.disableBufferPool
+     * </pre>
+     */
+    public static final String DISABLE_BUFFER_POOL_SYSTEM_PROPERTY =
+        "com.amazonaws.sdk.disableBufferPool";
+
+    /**
+     * System property used when starting up the JVM to specify the minimum
+     * interval in milliseconds between the (coalesced) byte transfer events
+     * delivered asynchronously to a progress listener. Defaults to 0, in which
+     * case only the bytes transferred while a delivery is pending are
+     * coalesced.
+     *
+     * <pre>
+     * Example:
+     *  -Dcom.amazonaws.sdk.progressEventIntervalMillis=100
+     * </pre>
+     */
+    public static final String PROGRESS_EVENT_INTERVAL_SYSTEM_PROPERTY =
+        "com.amazonaws.sdk.progressEventIntervalMillis";
+
+    /**
+     * System property used when starting up the JVM to specify the number of
+     * threads used to call the progress listeners that are not safe to be
+     * called synchronously. Defaults to the number of processors, up to 4.
+     *
+     * <pre>
+     * Example:
+     *  -Dcom.amazonaws.sdk.progressListenerThreads=1
+     * </pre>
+     */
+    public static final String PROGRESS_LISTENER_THREADS_SYSTEM_PROPERTY =
+        "com.amazonaws.sdk.progressListenerThreads";
+
+    /**
+     * System property used when starting up the JVM to specify the maximum
+     * number of threads shared by the background work of the SDK, such as
+     * prefetching pages and reading ahead. Defaults to 4 per processor, and
+     * at least 16.
+     *
+     * <pre>
+     * Example:
+     *  -Dcom.amazonaws.sdk.backgroundThreads=32
+     * </pre>
+     */
+    public static final String BACKGROUND_THREADS_SYSTEM_PROPERTY =
+        "com.amazonaws.sdk.backgroundThreads";
+
     /**
      * @deprecated by {@link #DEFAULT_METRICS_SYSTEM_PROPERTY}.
      *
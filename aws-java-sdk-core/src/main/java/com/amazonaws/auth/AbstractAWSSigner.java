@@ -38,6 +38,7 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.ReadLimitInfo;
 import com.amazonaws.SDKGlobalTime;
 import com.amazonaws.SignableRequest;
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.internal.SdkDigestInputStream;
 import com.amazonaws.util.Base64;
 import com.amazonaws.util.BinaryUtils;
@@ -151,9 +152,13 @@ public abstract class AbstractAWSSigner implements Signer {
             @SuppressWarnings("resource")
             DigestInputStream digestInputStream = new SdkDigestInputStream(
                     input, md);
-            byte[] buffer = new byte[1024];
-            while (digestInputStream.read(buffer) > -1)
-                ;
+            byte[] buffer = BufferPool.borrow(1024);
+            try {
+                while (digestInputStream.read(buffer) > -1)
+                    ;
+            } finally {
+                BufferPool.release(buffer);
+            }
             return digestInputStream.getMessageDigest().digest();
         } catch (Exception e) {
             throw new AmazonClientException(
@@ -304,12 +309,16 @@ public abstract class AbstractAWSSigner implements Signer {
             ReadLimitInfo info = request.getReadLimitInfo();
             content.mark(info == null ? -1 : info.getReadLimit());
             ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024 * 5];
-            while (true) {
-                int bytesRead = content.read(buffer);
-                if (bytesRead == -1) break;
+            byte[] buffer = BufferPool.borrow(1024 * 5);
+            try {
+                while (true) {
+                    int bytesRead = content.read(buffer);
+                    if (bytesRead == -1) break;
 
-                byteArrayOutputStream.write(buffer, 0, bytesRead);
+                    byteArrayOutputStream.write(buffer, 0, bytesRead);
+                }
+            } finally {
+                BufferPool.release(buffer);
             }
 
             byteArrayOutputStream.close();
@@ -21,18 +21,36 @@ import static com.amazonaws.event.ProgressEventType.REQUEST_CONTENT_LENGTH_EVENT
 import static com.amazonaws.event.ProgressEventType.RESPONSE_BYTE_TRANSFER_EVENT;
 import static com.amazonaws.event.ProgressEventType.RESPONSE_CONTENT_LENGTH_EVENT;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.SDKGlobalConfiguration;
+
 /**
  * This class is responsible for executing the callback method of
- * ProgressListener; listener callbacks are executed sequentially in a separate
- * single thread.
+ * ProgressListener. Unless a listener is safe to be called synchronously, its
+ * callbacks are executed sequentially in a separate thread; listeners are
+ * partitioned over a small number of such threads, and each listener is always
+ * called from the same thread.
+ * <p>
+ * Byte transfer events to such a listener are coalesced: the bytes are
+ * accumulated in a per listener counter, and delivered as a single event
+ * when the thread gets to it, at most once per the interval specified via
+ * {@link SDKGlobalConfiguration#PROGRESS_EVENT_INTERVAL_SYSTEM_PROPERTY}.
+ * The bytes accumulated when any other event is published to the same
+ * listener are delivered before that event, and the bytes published afterwards
+ * after it.
  */
 public class SDKProgressPublisher {
     protected static final boolean SYNC = false;  // for testing purposes only
@@ -77,14 +95,65 @@ public class SDKProgressPublisher {
         // This is unfortunate as the listener should never block in the first
         // place, but such task submission is necessary to remain backward
         // compatible.
-        return latestFutureTask = LazyHolder.executor.submit(new Runnable() {
+        final ProgressEventType type = event.getEventType();
+        if (type == REQUEST_BYTE_TRANSFER_EVENT
+        ||  type == RESPONSE_BYTE_TRANSFER_EVENT) {
+            return latestFutureTask = coalesce(listener, type, event.getBytes());
+        }
+        // Take the bytes published so far, so that they, and only they, are
+        // delivered ahead of the event
+        final long requestBytes = takeCoalesced(listener, REQUEST_BYTE_TRANSFER_EVENT);
+        final long responseBytes = takeCoalesced(listener, RESPONSE_BYTE_TRANSFER_EVENT);
+        return latestFutureTask = getExecutorService(listener).submit(new Runnable() {
             @Override
             public void run() {
+                if (requestBytes > 0)
+                    quietlyCallListener(listener, new ProgressEvent(REQUEST_BYTE_TRANSFER_EVENT, requestBytes));
+                if (responseBytes > 0)
+                    quietlyCallListener(listener, new ProgressEvent(RESPONSE_BYTE_TRANSFER_EVENT, responseBytes));
                 listener.progressChanged(event);
             }
         });
     }
 
+    /**
+     * Adds the given number of bytes to the counter of the given listener and
+     * event type, and schedules its delivery if not already scheduled.
+     */
+    private static Future<?> coalesce(final ProgressListener listener,
+            final ProgressEventType type, final long bytes) {
+        final CoalescerKey key = new CoalescerKey(listener, type);
+        while (true) {
+            Coalescer coalescer = LazyHolder.coalescers.get(key);
+            if (coalescer == null) {
+                Coalescer created = new Coalescer(key);
+                coalescer = LazyHolder.coalescers.putIfAbsent(key, created);
+                if (coalescer == null)
+                    coalescer = created;
+            }
+            if (coalescer.add(bytes)) {
+                if (coalescer.scheduled.compareAndSet(false, true))
+                    coalescer.schedule(0);
+                return coalescer.future;
+            }
+            // Retired after being drained; replace it
+            LazyHolder.coalescers.remove(key, coalescer);
+        }
+    }
+
+    /**
+     * Returns the bytes accumulated but not yet delivered for the given
+     * listener and event type, and retires their accumulator, so that any
+     * bytes published afterwards are scheduled for delivery afresh, after
+     * whatever is submitted now.
+     */
+    private static long takeCoalesced(final ProgressListener listener,
+            final ProgressEventType type) {
+        Coalescer coalescer = LazyHolder.coalescers.get(
+                new CoalescerKey(listener, type));
+        return coalescer == null ? 0 : coalescer.retire();
+    }
+
     private static Future<?> quietlyCallListener(final ProgressListener listener,
             final ProgressEvent event) {
         try {
@@ -219,10 +288,28 @@ public class SDKProgressPublisher {
     }
 
     /**
-     * Returns the executor service used for performing the callbacks.
+     * Returns the executor service used for performing the callbacks of the
+     * first partition of listeners.
+     *
+     * @deprecated by {@link #getExecutorService(ProgressListener)}.
      */
+    @Deprecated
     protected static ExecutorService getExecutorService() {
-        return LazyHolder.executor;
+        return LazyHolder.executors[0];
+    }
+
+    /**
+     * Returns the executor service used for performing the callbacks of the
+     * given listener.
+     */
+    protected static ExecutorService getExecutorService(ProgressListener listener) {
+        return executorOf(listener);
+    }
+
+    private static ScheduledExecutorService executorOf(ProgressListener listener) {
+        final ScheduledExecutorService[] executors = LazyHolder.executors;
+        return executors[(System.identityHashCode(listener) & Integer.MAX_VALUE)
+                % executors.length];
     }
     
     protected static Future<?> setLatestFutureTask(Future<?> f) {
@@ -243,25 +330,161 @@ public class SDKProgressPublisher {
     }
 
     /**
-     * Used to avoid creating the extra thread until absolutely necessary.
+     * Used to avoid creating the extra threads until absolutely necessary.
      */
     private static final class LazyHolder {
-        /** A single thread pool for executing all ProgressListener callbacks. **/
-        private static final ExecutorService executor = createNewExecutorService();
+        /** The default number of threads for executing the callbacks. */
+        private static final int DEFAULT_THREADS =
+                Math.min(4, Runtime.getRuntime().availableProcessors());
+
+        /** Minimum interval between coalesced byte transfer events. */
+        private static final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, Long.getLong(
+                    SDKGlobalConfiguration.PROGRESS_EVENT_INTERVAL_SYSTEM_PROPERTY, 0)));
 
         /**
-         * Creates a new single threaded executor service for performing the
-         * callbacks.
+         * Single threaded executors for executing the ProgressListener
+         * callbacks, each serving a partition of the listeners.
          */
-        private static ExecutorService createNewExecutorService() {
-            return Executors.newSingleThreadExecutor(new ThreadFactory() {
-                public Thread newThread(Runnable r) {
-                    Thread t = new Thread(r);
-                    t.setName("java-sdk-progress-listener-callback-thread");
-                    t.setDaemon(true);
-                    return t;
+        private static final ScheduledExecutorService[] executors =
+                createNewExecutorServices(Math.max(1, Integer.getInteger(
+                    SDKGlobalConfiguration.PROGRESS_LISTENER_THREADS_SYSTEM_PROPERTY,
+                    DEFAULT_THREADS)));
+
+        /** The bytes accumulated per listener and event type. */
+        private static final ConcurrentMap<CoalescerKey, Coalescer> coalescers =
+                new ConcurrentHashMap<CoalescerKey, Coalescer>();
+
+        /**
+         * Creates the given number of single threaded executor services for
+         * performing the callbacks.
+         */
+        private static ScheduledExecutorService[] createNewExecutorServices(int n) {
+            ScheduledExecutorService[] executors = new ScheduledExecutorService[n];
+            for (int i = 0; i < n; i++) {
+                final String name = n == 1
+                    ? "java-sdk-progress-listener-callback-thread"
+                    : "java-sdk-progress-listener-callback-thread-" + i;
+                executors[i] = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName(name);
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            }
+            return executors;
+        }
+    }
+
+    private static final class CoalescerKey {
+        private final ProgressListener listener;
+        private final ProgressEventType type;
+
+        CoalescerKey(ProgressListener listener, ProgressEventType type) {
+            this.listener = listener;
+            this.type = type;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(listener) + type.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CoalescerKey))
+                return false;
+            CoalescerKey that = (CoalescerKey) o;
+            return listener == that.listener && type == that.type;
+        }
+    }
+
+    /**
+     * Lock free accumulator of the bytes transferred but not yet delivered to
+     * a listener. Once drained and idle, it is retired and removed, so that no
+     * state is kept for listeners that are no longer in use.
+     */
+    private static final class Coalescer implements Runnable {
+        private static final long RETIRED = -1;
+
+        private final CoalescerKey key;
+        private final ScheduledExecutorService executor;
+        private final AtomicLong pending = new AtomicLong();
+        /** True if a delivery is scheduled or in progress. */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile Future<?> future;
+
+        Coalescer(CoalescerKey key) {
+            this.key = key;
+            this.executor = executorOf(key.listener);
+        }
+
+        /** Returns false if this accumulator has been retired. */
+        boolean add(long bytes) {
+            while (true) {
+                long current = pending.get();
+                if (current == RETIRED)
+                    return false;
+                if (pending.compareAndSet(current, current + bytes))
+                    return true;
+            }
+        }
+
+        /** Returns and resets the accumulated bytes. */
+        long drain() {
+            while (true) {
+                long current = pending.get();
+                if (current == RETIRED || current == 0)
+                    return 0;
+                if (pending.compareAndSet(current, 0))
+                    return current;
+            }
+        }
+
+        /**
+         * Retires this accumulator, which is removed, and returns the bytes it
+         * had accumulated. A delivery already scheduled then delivers nothing.
+         */
+        long retire() {
+            while (true) {
+                long current = pending.get();
+                if (current == RETIRED)
+                    return 0;
+                if (pending.compareAndSet(current, RETIRED)) {
+                    LazyHolder.coalescers.remove(key, this);
+                    return current;
                 }
-            });
+            }
+        }
+
+        void schedule(long delayNanos) {
+            future = delayNanos > 0
+                ? executor.schedule(this, delayNanos, TimeUnit.NANOSECONDS)
+                : executor.submit(this);
+        }
+
+        @Override
+        public void run() {
+            final long bytes = drain();
+            if (bytes > 0) {
+                quietlyCallListener(key.listener, new ProgressEvent(key.type, bytes));
+                if (LazyHolder.intervalNanos > 0) {
+                    // Stay scheduled, so the bytes accumulated in the meantime
+                    // are delivered no sooner than the interval
+                    schedule(LazyHolder.intervalNanos);
+                    return;
+                }
+            }
+            scheduled.set(false);
+            if (pending.compareAndSet(0, RETIRED)) {
+                LazyHolder.coalescers.remove(key, this);
+            } else if (pending.get() != RETIRED
+                    && scheduled.compareAndSet(false, true)) {
+                // Bytes added after the drain, without scheduling a delivery
+                schedule(0);
+            }
         }
     }
 
@@ -277,9 +500,11 @@ public class SDKProgressPublisher {
      * @param now true if shutdown now; false otherwise.
      */
     public static void shutdown(boolean now) {
-        if (now)
-            LazyHolder.executor.shutdownNow();
-        else
-            LazyHolder.executor.shutdown();
+        for (ExecutorService executor : LazyHolder.executors) {
+            if (now)
+                executor.shutdownNow();
+            else
+                executor.shutdown();
+        }
     }
 }
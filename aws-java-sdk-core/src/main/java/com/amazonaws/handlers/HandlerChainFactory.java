@@ -19,7 +19,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.util.ClassLoaderHelper;
@@ -29,6 +32,13 @@ import com.amazonaws.util.ClassLoaderHelper;
  */
 public class HandlerChainFactory {
 
+    /**
+     * Request handler classes keyed by the factory class, the handler API and
+     * the classpath resource listing them.
+     */
+    private static final ConcurrentMap<String, List<Class<?>>> handlerClassesCache =
+            new ConcurrentHashMap<String, List<Class<?>>>();
+
     /**
      * For backward compatibility, constructs a new request handler chain
      * adapted to {@link RequestHandler2} by analyzing the specified classpath
@@ -61,12 +71,53 @@ public class HandlerChainFactory {
     }
 
     private List<RequestHandler2> createRequestHandlerChain(String resource, Class<?> handlerApiClass) {
-        List<RequestHandler2> handlers = new ArrayList<RequestHandler2>();
+        List<Class<?>> handlerClasses = getRequestHandlerClasses(resource, handlerApiClass);
+        List<RequestHandler2> handlers = new ArrayList<RequestHandler2>(handlerClasses.size());
+        try {
+            // Handlers may be stateful, so a new instance is created per chain
+            for (Class<?> requestHandlerClass : handlerClasses) {
+                Object requestHandlerObject = requestHandlerClass.newInstance();
+                if (handlerApiClass == RequestHandler2.class) {
+                    RequestHandler2 h = (RequestHandler2)requestHandlerObject;
+                    handlers.add(h);
+                } else if (handlerApiClass == RequestHandler.class) {
+                    RequestHandler h = (RequestHandler)requestHandlerObject;
+                    handlers.add(RequestHandler2.adapt(h));
+                } else {
+                    throw new IllegalStateException();
+                }
+            }
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to instantiate request handler chain for client: "
+                    + e.getMessage(), e);
+        }
+        return handlers;
+    }
+
+    /**
+     * Returns the request handler classes listed in the specified classpath
+     * resource. The resource is read and the classes are loaded only once per
+     * process, so constructing further clients of the same service does not
+     * repeat the classpath scan.
+     */
+    private List<Class<?>> getRequestHandlerClasses(String resource, Class<?> handlerApiClass) {
+        final String key = getClass().getName() + "|" + handlerApiClass.getName() + "|" + resource;
+        List<Class<?>> handlerClasses = handlerClassesCache.get(key);
+        if (handlerClasses == null) {
+            handlerClasses = Collections.unmodifiableList(
+                    loadRequestHandlerClasses(resource, handlerApiClass));
+            handlerClassesCache.putIfAbsent(key, handlerClasses);
+        }
+        return handlerClasses;
+    }
+
+    private List<Class<?>> loadRequestHandlerClasses(String resource, Class<?> handlerApiClass) {
+        List<Class<?>> handlerClasses = new ArrayList<Class<?>>();
         BufferedReader reader = null;
 
         try {
             InputStream input = getClass().getResourceAsStream(resource);
-            if (input == null) return handlers;
+            if (input == null) return handlerClasses;
 
             reader = new BufferedReader(new InputStreamReader(input));
             while (true) {
@@ -79,17 +130,8 @@ public class HandlerChainFactory {
                 Class<?> requestHandlerClass = ClassLoaderHelper.loadClass(
                     requestHandlerClassName,
                     handlerApiClass, getClass());
-                Object requestHandlerObject = requestHandlerClass.newInstance();
-                if (handlerApiClass.isInstance(requestHandlerObject)) {
-                    if (handlerApiClass == RequestHandler2.class) {
-                        RequestHandler2 h = (RequestHandler2)requestHandlerObject;
-                        handlers.add(h);
-                    } else if (handlerApiClass == RequestHandler.class) {
-                        RequestHandler h = (RequestHandler)requestHandlerObject;
-                        handlers.add(RequestHandler2.adapt(h));
-                    } else {
-                        throw new IllegalStateException();
-                    }
+                if (handlerApiClass.isAssignableFrom(requestHandlerClass)) {
+                    handlerClasses.add(requestHandlerClass);
                 } else {
                     throw new AmazonClientException(
                         "Unable to instantiate request handler chain for client.  "
@@ -110,6 +152,6 @@ public class HandlerChainFactory {
             } catch (IOException e) {
             }
         }
-        return handlers;
+        return handlerClasses;
     }
 }
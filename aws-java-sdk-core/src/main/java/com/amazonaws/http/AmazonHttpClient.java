@@ -20,7 +20,9 @@ import static com.amazonaws.event.SDKProgressPublisher.publishRequestContentLeng
 import static com.amazonaws.event.SDKProgressPublisher.publishResponseContentLength;
 import static com.amazonaws.util.AWSRequestMetrics.Field.AWSErrorCode;
 import static com.amazonaws.util.AWSRequestMetrics.Field.AWSRequestID;
+import static com.amazonaws.util.AWSRequestMetrics.Field.CircuitBreakerRejectedCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.Exception;
+import static com.amazonaws.util.AWSRequestMetrics.Field.HedgedRequestCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolAvailableCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolLeasedCount;
 import static com.amazonaws.util.AWSRequestMetrics.Field.HttpClientPoolPendingCount;
@@ -35,9 +37,12 @@ import static com.amazonaws.util.AWSRequestMetrics.Field.StatusCode;
 import static com.amazonaws.util.AWSRequestMetrics.Field.ThrottleException;
 import static com.amazonaws.util.IOUtils.closeQuietly;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -62,6 +67,7 @@ import org.apache.http.annotation.ThreadSafe;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.SSLSocketFactory;
@@ -75,6 +81,7 @@ import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonServiceException.ErrorType;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.CircuitBreakerOpenException;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.Request;
 import com.amazonaws.RequestClientOptions;
@@ -97,10 +104,14 @@ import com.amazonaws.internal.ResettableInputStream;
 import com.amazonaws.internal.SdkBufferedInputStream;
 import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.CircuitBreakerPolicy;
+import com.amazonaws.retry.HedgingPolicy;
 import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.retry.internal.AuthErrorRetryStrategy;
 import com.amazonaws.retry.internal.AuthRetryParameters;
+import com.amazonaws.retry.internal.CircuitBreaker;
+import com.amazonaws.retry.internal.CircuitBreakerRegistry;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
 import com.amazonaws.util.CollectionUtils;
@@ -150,8 +161,15 @@ public class AmazonHttpClient {
         }
     }
 
-    /** Internal client for sending HTTP requests */
-    private final HttpClient httpClient;
+    /**
+     * Internal client for sending HTTP requests; created on first use so that
+     * constructing a service client does not pay for the connection pool and
+     * SSL context set up. Guarded by this for initialization.
+     */
+    private volatile HttpClient httpClient;
+
+    /** True if this client has been shut down before it was ever used. */
+    private boolean shutdown;
 
     /** Client configuration options, such as proxy settings, max retries, etc. */
     private final ClientConfiguration config;
@@ -171,6 +189,12 @@ public class AmazonHttpClient {
     /** The time difference in seconds between this client and AWS. */
     private volatile int timeOffset = SDKGlobalTime.getGlobalTimeOffset();
 
+    /**
+     * Used to send hedged attempts for slow requests eligible for hedging;
+     * created along with the http client.
+     */
+    private volatile HedgedRequestExecutor hedgedRequestExecutor;
+
     /**
      * Constructs a new AWS client using the specified client configuration
      * options (ex: max retry attempts, proxy settings, etc).
@@ -197,7 +221,7 @@ public class AmazonHttpClient {
      *            is none.
      */
     public AmazonHttpClient(ClientConfiguration config, RequestMetricCollector requestMetricCollector) {
-        this(config, httpClientFactory.createHttpClient(config), requestMetricCollector);
+        this(config, null, requestMetricCollector);
     }
 
     /**
@@ -209,9 +233,32 @@ public class AmazonHttpClient {
             RequestMetricCollector requestMetricCollector) {
 
         this.config = config;
-        this.httpClient = httpClient;
         this.requestMetricCollector = requestMetricCollector;
         this.responseMetadataCache = new ResponseMetadataCache(config.getResponseMetadataCacheSize());
+        if (httpClient != null) {
+            this.httpClient = httpClient;
+            this.hedgedRequestExecutor = new HedgedRequestExecutor(httpClient);
+        }
+    }
+
+    /**
+     * Returns the internal http client, creating it on first use.
+     */
+    private HttpClient httpClient() {
+        HttpClient client = httpClient;
+        if (client == null) {
+            synchronized (this) {
+                client = httpClient;
+                if (client == null) {
+                    if (shutdown)
+                        throw new IllegalStateException("Connection pool shut down");
+                    client = httpClientFactory.createHttpClient(config);
+                    hedgedRequestExecutor = new HedgedRequestExecutor(client);
+                    httpClient = client;
+                }
+            }
+        }
+        return client;
     }
 
     /**
@@ -248,7 +295,7 @@ public class AmazonHttpClient {
         }
 
         try {
-            SchemeRegistry schemeRegistry = httpClient.getConnectionManager().getSchemeRegistry();
+            SchemeRegistry schemeRegistry = httpClient().getConnectionManager().getSchemeRegistry();
             SSLSocketFactory sf = config.getApacheHttpClientConfig().getSslSocketFactory();
             if (sf == null) {
                 sf = new SdkTLSSocketFactory(
@@ -485,13 +532,24 @@ public class AmazonHttpClient {
                 request.setHeaders(originalHeaders);
                 request.setContent(originalContent);
             }
+            final CircuitBreaker circuitBreaker = circuitBreaker(request);
+            if (circuitBreaker != null && !circuitBreaker.tryAcquire()) {
+                awsRequestMetrics.incrementCounter(CircuitBreakerRejectedCount);
+                throw lastReset(captureExceptionMetrics(
+                        new CircuitBreakerOpenException(
+                                "Circuit breaker is open for " + circuitBreaker.getKey(),
+                                circuitBreaker.getKey()),
+                        awsRequestMetrics), request);
+            }
             try {
                 Response<T> response = executeOneRequest(request, responseHandler,
                     errorResponseHandler, executionContext, awsRequestMetrics,
                     p);
+                recordOutcome(circuitBreaker, p.retriedException);
                 if (response != null)
                     return response;
             } catch (IOException ioe) {
+                recordOutcome(circuitBreaker, ioe);
                 if (log.isInfoEnabled()) {
                     log.info("Unable to execute HTTP request: " + ioe.getMessage(), ioe);
                 }
@@ -510,10 +568,12 @@ public class AmazonHttpClient {
                 // Cache the retryable exception
                 p.retriedException = ace;
             } catch(RuntimeException e) {
+                recordOutcome(circuitBreaker, e);
                 throw lastReset(
                         captureExceptionMetrics(e, awsRequestMetrics),
                         request);
             } catch(Error e) {
+                recordOutcome(circuitBreaker, e);
                 throw lastReset(
                         captureExceptionMetrics(e, awsRequestMetrics),
                         request);
@@ -541,6 +601,47 @@ public class AmazonHttpClient {
         } /* end while (true) */
     }
 
+    /**
+     * Returns the circuit breaker of the current endpoint of the given
+     * request; or null if circuit breaking is disabled.
+     */
+    private CircuitBreaker circuitBreaker(Request<?> request) {
+        final CircuitBreakerPolicy policy = config.getCircuitBreakerPolicy();
+        if (policy == null)
+            return null;
+        return CircuitBreakerRegistry.getCircuitBreaker(policy,
+                request.getServiceName(), request.getEndpoint());
+    }
+
+    /**
+     * Records the outcome of an attempt with the given circuit breaker, if
+     * any. I/O errors and service side (5xx) errors count as failures; client
+     * side errors from the service count as successes, as the endpoint is
+     * evidently available.
+     *
+     * @param t
+     *            the failure of the attempt; or null if it succeeded.
+     */
+    private static void recordOutcome(CircuitBreaker circuitBreaker, Throwable t) {
+        if (circuitBreaker == null)
+            return;
+        if (t == null) {
+            circuitBreaker.onSuccess();
+        } else if (t instanceof IOException) {
+            circuitBreaker.onFailure(t instanceof SocketTimeoutException
+                    || t instanceof ConnectTimeoutException);
+        } else if (t instanceof AmazonServiceException) {
+            AmazonServiceException ase = (AmazonServiceException) t;
+            if (ase.getErrorType() == ErrorType.Service
+                    || ase.getStatusCode() >= 500)
+                circuitBreaker.onFailure(false);
+            else
+                circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onIgnored();
+        }
+    }
+
     /**
      * Used to perform a last reset on the content input stream (if
      * mark-supported); this is so that, for backward compatibility reason, any
@@ -631,12 +732,28 @@ public class AmazonHttpClient {
                 final Request<?> request,
                 final ClientConfiguration config,
                 final ExecutionContext execContext) throws FakeIOException {
-            apacheRequest = httpRequestFactory.createHttpRequest(request, config, execContext);
-            if (redirectedURI != null)
-                apacheRequest.setURI(redirectedURI);
+            apacheRequest = createApacheRequest(httpRequestFactory, request,
+                    config, execContext);
             return apacheRequest;
         }
 
+        /**
+         * Returns a new apache request without changing the current one; used
+         * to create the hedge attempt of the current apache request.
+         *
+         * @throws FakeIOException thrown only during test simulation
+         */
+        HttpRequestBase createApacheRequest(
+                final HttpRequestFactory httpRequestFactory,
+                final Request<?> request,
+                final ClientConfiguration config,
+                final ExecutionContext execContext) throws FakeIOException {
+            HttpRequestBase req = httpRequestFactory.createHttpRequest(request, config, execContext);
+            if (redirectedURI != null)
+                req.setURI(redirectedURI);
+            return req;
+        }
+
         void resetBeforeHttpRequest() {
             retriedException = null;
             authRetryParam = null;
@@ -711,9 +828,16 @@ public class AmazonHttpClient {
                 awsRequestMetrics.endEvent(RequestSigningTime);
             }
         }
-        execParams.newApacheRequest(httpRequestFactory, request, config, execContext);
+        final HedgingPolicy hedgingPolicy = hedgingPolicy(request);
+        final HttpRequestBase hedgeRequest;
+        if (hedgingPolicy == null) {
+            execParams.newApacheRequest(httpRequestFactory, request, config, execContext);
+            hedgeRequest = null;
+        } else {
+            hedgeRequest = newApacheRequests(request, execContext, execParams, hedgingPolicy);
+        }
 
-        captureConnectionPoolMetrics(httpClient.getConnectionManager(), awsRequestMetrics);
+        captureConnectionPoolMetrics(httpClient().getConnectionManager(), awsRequestMetrics);
         HttpContext httpContext = new BasicHttpContext();
         httpContext.setAttribute(
             AWSRequestMetrics.class.getSimpleName(),
@@ -725,7 +849,12 @@ public class AmazonHttpClient {
         /////////// Send HTTP request ////////////
         final boolean isHeaderReqIdAvail;
         try {
-            execParams.apacheResponse = httpClient.execute(execParams.apacheRequest, httpContext);
+            if (hedgeRequest == null) {
+                execParams.apacheResponse = httpClient().execute(execParams.apacheRequest, httpContext);
+            } else {
+                executeHedged(request, hedgingPolicy, hedgeRequest, httpContext,
+                        awsRequestMetrics, execParams);
+            }
             isHeaderReqIdAvail = logHeaderRequestId(execParams.apacheResponse);
         } finally {
             awsRequestMetrics.endEvent(HttpRequestTime);
@@ -810,6 +939,112 @@ public class AmazonHttpClient {
         return null; // => retry
     }
 
+    /**
+     * Returns the hedging policy in effect for the given request; or null if
+     * the request is not eligible for hedging.
+     */
+    private HedgingPolicy hedgingPolicy(Request<?> request) {
+        final AmazonWebServiceRequest awsreq = request.getOriginalRequest();
+        HedgingPolicy policy = awsreq.getRequestClientOptions().getHedgingPolicy();
+        if (policy == null)
+            policy = config.getHedgingPolicy();
+        if (policy == null)
+            return null;
+        return policy.getHedgeCondition().shouldHedge(awsreq, request.getHttpMethod())
+             ? policy
+             : null;
+    }
+
+    /**
+     * Creates the apache request for the current attempt, and an identical
+     * apache request that can be sent concurrently as a hedge. Any request
+     * content is buffered in memory so that it can be sent by both.
+     *
+     * @return the apache request for hedging; or null if the request content
+     *         is too large or cannot be buffered.
+     * @throws FakeIOException thrown only during test simulation
+     */
+    private HttpRequestBase newApacheRequests(Request<?> request,
+            ExecutionContext execContext, ExecOneRequestParams execParams,
+            HedgingPolicy hedgingPolicy) throws FakeIOException {
+        final InputStream content = request.getContent();
+        if (content == null) {
+            execParams.newApacheRequest(httpRequestFactory, request, config, execContext);
+            return execParams.createApacheRequest(httpRequestFactory, request, config, execContext);
+        }
+        final byte[] bytes = bufferContent(content,
+                hedgingPolicy.getMaxBufferedContentLength());
+        if (bytes == null) {
+            execParams.newApacheRequest(httpRequestFactory, request, config, execContext);
+            return null;
+        }
+        try {
+            request.setContent(new ByteArrayInputStream(bytes));
+            execParams.newApacheRequest(httpRequestFactory, request, config, execContext);
+            request.setContent(new ByteArrayInputStream(bytes));
+            return execParams.createApacheRequest(httpRequestFactory, request, config, execContext);
+        } finally {
+            request.setContent(content);
+        }
+    }
+
+    /**
+     * Returns the content of the given mark-and-resettable input stream as a
+     * byte array, leaving the stream at its original position; or null if the
+     * content exceeds the given maximum length or cannot be read.
+     */
+    private static byte[] bufferContent(InputStream content, int maxLength) {
+        if (!content.markSupported())
+            return null;
+        content.mark(maxLength + 1);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[Math.min(maxLength + 1, 8192)];
+            int total = 0;
+            int n;
+            while (total <= maxLength
+                    && (n = content.read(buf, 0, Math.min(buf.length, maxLength + 1 - total))) != -1) {
+                out.write(buf, 0, n);
+                total += n;
+            }
+            return total > maxLength ? null : out.toByteArray();
+        } catch (IOException e) {
+            log.debug("Unable to buffer the request content for hedging", e);
+            return null;
+        } finally {
+            try {
+                content.reset();
+            } catch (IOException e) {
+                throw new ResetException("Failed to reset the request input stream", e);
+            }
+        }
+    }
+
+    /**
+     * Sends the current apache request with the given apache request as a
+     * hedge, and makes whichever receives a response first the current apache
+     * request and response.
+     */
+    private void executeHedged(Request<?> request, HedgingPolicy hedgingPolicy,
+            HttpRequestBase hedgeRequest, HttpContext httpContext,
+            AWSRequestMetrics awsRequestMetrics, ExecOneRequestParams execParams)
+            throws IOException {
+        final HedgedRequestExecutor.Attempt primary = hedgedRequestExecutor.new Attempt(
+                execParams.apacheRequest, httpContext);
+        // The hedge is executed on another thread, so it must not share the
+        // (non thread-safe) request metrics.
+        final HedgedRequestExecutor.Attempt hedge = hedgedRequestExecutor.new Attempt(
+                hedgeRequest, new BasicHttpContext());
+        final HedgedRequestExecutor.Attempt winner = hedgedRequestExecutor.execute(
+                request.getOriginalRequest().getClass(), hedgingPolicy, primary, hedge);
+        if (hedge.isLaunched())
+            awsRequestMetrics.incrementCounter(HedgedRequestCount);
+        if (winner == hedge && log.isDebugEnabled())
+            log.debug("Hedged request received the response first");
+        execParams.apacheRequest = winner.request;
+        execParams.apacheResponse = winner.getResponse();
+    }
+
     /**
      * Used to log the "x-amzn-RequestId" header at DEBUG level, if any, from
      * the response. This method assumes the apache http request/response has
@@ -932,8 +1167,17 @@ public class AmazonHttpClient {
      * Once a client has been shutdown, it cannot be used to make more requests.
      */
     public void shutdown() {
-        IdleConnectionReaper.removeConnectionManager(httpClient.getConnectionManager());
-        httpClient.getConnectionManager().shutdown();
+        final HttpClient client;
+        synchronized (this) {
+            client = httpClient;
+            if (client == null) {
+                // Never used, so there is no connection pool to release
+                shutdown = true;
+                return;
+            }
+        }
+        IdleConnectionReaper.removeConnectionManager(client.getConnectionManager());
+        client.getConnectionManager().shutdown();
     }
 
     /**
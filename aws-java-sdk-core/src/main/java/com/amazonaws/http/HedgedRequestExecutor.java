@@ -0,0 +1,392 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.protocol.HttpContext;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.retry.HedgingPolicy;
+
+/**
+ * Used to send an HTTP request with a hedged attempt. The primary attempt is
+ * executed on the calling thread; if it has not received a response within a
+ * latency percentile observed for the same operation, and the hedging budget
+ * permits, a second attempt is sent on another pooled connection. The first
+ * attempt to receive a response wins, and the other one is aborted.
+ * <p>
+ * Each instance keeps its own latency statistics and hedging budget, and is
+ * intended to be owned by a single {@link AmazonHttpClient}.
+ */
+@ThreadSafe
+class HedgedRequestExecutor {
+    private static final Log log = LogFactory.getLog(HedgedRequestExecutor.class);
+
+    /** Maximum number of hedges that can be accumulated by the budget. */
+    private static final long MAX_BUDGET_HEDGES = 10;
+    /** Budget units of a single hedge. */
+    private static final long HEDGE_COST = 1000;
+
+    private final HttpClient httpClient;
+    /** Latency statistics keyed by the operation, ie original request class. */
+    private final ConcurrentMap<Class<?>, LatencyTracker> trackers =
+            new ConcurrentHashMap<Class<?>, LatencyTracker>();
+    /** Available budget in units of 1/1000 of a hedge. */
+    private final AtomicLong budget = new AtomicLong();
+
+    HedgedRequestExecutor(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Returns the delay in milliseconds after which a hedge should be sent;
+     * or -1 if there are not yet enough latency samples to tell.
+     */
+    private static long hedgeDelayMillis(LatencyTracker tracker, HedgingPolicy policy) {
+        long percentile = tracker.percentile(policy.getDelayPercentile());
+        if (percentile < 0)
+            return -1;
+        return Math.max(percentile, policy.getMinDelayMillis());
+    }
+
+    /**
+     * Executes the primary request on the calling thread and the hedge
+     * request (if necessary) on a background thread.
+     *
+     * @param operation
+     *            the operation used to key the latency statistics
+     * @param policy
+     *            the hedging policy in effect for the request
+     * @param primary
+     *            the primary request and its context
+     * @param hedge
+     *            the hedge request and its context, which must be safe to
+     *            execute concurrently with the primary request
+     * @return the attempt that won, which has a non-null response
+     * @throws IOException
+     *             the failure of the primary attempt, if neither attempt
+     *             received a response
+     */
+    Attempt execute(Class<?> operation, HedgingPolicy policy,
+            Attempt primary, final Attempt hedge) throws IOException {
+        final Exchange exchange = new Exchange(primary, hedge, tracker(operation));
+        depositBudget(policy);
+        final long delay = hedgeDelayMillis(exchange.tracker, policy);
+        ScheduledFuture<?> timer = null;
+        if (delay >= 0) {
+            try {
+                timer = LazyHolder.timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        launchHedge(exchange);
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.debug("Unable to schedule hedged request", e);
+            }
+        }
+        primary.run(exchange);
+        final boolean hedgeLaunched;
+        synchronized (exchange) {
+            exchange.closed = true;
+            hedgeLaunched = exchange.hedgeLaunched;
+        }
+        if (timer != null)
+            timer.cancel(false);
+        if (exchange.winner.get() == primary)
+            return primary;
+        if (hedgeLaunched) {
+            try {
+                hedge.awaitDone();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (exchange.winner.compareAndSet(null, Exchange.ABANDONED))
+                    hedge.abort();
+                throw new AmazonClientException(e.getMessage(), e);
+            }
+            if (exchange.winner.get() == hedge)
+                return hedge;
+        }
+        primary.rethrow();
+        // Neither got a response nor failed, which can only happen if the
+        // primary attempt was aborted externally.
+        throw new IOException("Request aborted");
+    }
+
+    /**
+     * Launches the hedge attempt unless the primary attempt has already
+     * completed or the budget has run out.
+     */
+    private void launchHedge(final Exchange exchange) {
+        synchronized (exchange) {
+            if (exchange.closed || exchange.winner.get() != null)
+                return;
+            if (!withdrawBudget())
+                return;
+            try {
+                LazyHolder.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        exchange.hedge.run(exchange);
+                    }
+                });
+                exchange.hedgeLaunched = true;
+                exchange.hedge.launched = true;
+            } catch (RejectedExecutionException e) {
+                log.debug("Unable to launch hedged request", e);
+            }
+        }
+    }
+
+    private LatencyTracker tracker(Class<?> operation) {
+        LatencyTracker tracker = trackers.get(operation);
+        if (tracker == null) {
+            LatencyTracker created = new LatencyTracker(operation);
+            tracker = trackers.putIfAbsent(operation, created);
+            if (tracker == null)
+                tracker = created;
+        }
+        return tracker;
+    }
+
+    private void depositBudget(HedgingPolicy policy) {
+        final long deposit = (long) (policy.getMaxHedgeRatio() * HEDGE_COST);
+        final long max = MAX_BUDGET_HEDGES * HEDGE_COST;
+        for (;;) {
+            long current = budget.get();
+            long next = Math.min(max, current + deposit);
+            if (current == next || budget.compareAndSet(current, next))
+                return;
+        }
+    }
+
+    private boolean withdrawBudget() {
+        for (;;) {
+            long current = budget.get();
+            if (current < HEDGE_COST)
+                return false;
+            if (budget.compareAndSet(current, current - HEDGE_COST))
+                return true;
+        }
+    }
+
+    /**
+     * A single attempt of sending a request over HTTP.
+     */
+    final class Attempt {
+        final HttpRequestBase request;
+        private final HttpContext context;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile HttpResponse response;
+        private volatile Throwable failure;
+        private volatile boolean launched;
+
+        Attempt(HttpRequestBase request, HttpContext context) {
+            this.request = request;
+            this.context = context;
+        }
+
+        HttpResponse getResponse() {
+            return response;
+        }
+
+        /**
+         * Returns true if this attempt has been launched as a hedge.
+         */
+        boolean isLaunched() {
+            return launched;
+        }
+
+        void run(Exchange exchange) {
+            final long start = System.nanoTime();
+            try {
+                HttpResponse res = httpClient.execute(request, context);
+                exchange.tracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                if (exchange.winner.compareAndSet(null, this)) {
+                    response = res;
+                    exchange.other(this).abort();
+                } else {
+                    // Lost the race; release the connection without reading
+                    // the rest of the response.
+                    request.abort();
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = e;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        void abort() {
+            request.abort();
+        }
+
+        void awaitDone() throws InterruptedException {
+            done.await();
+        }
+
+        void rethrow() throws IOException {
+            Throwable t = failure;
+            if (t instanceof IOException)
+                throw (IOException) t;
+            if (t instanceof RuntimeException)
+                throw (RuntimeException) t;
+            if (t instanceof Error)
+                throw (Error) t;
+        }
+    }
+
+    /**
+     * The state shared between the primary and hedge attempts of a request.
+     */
+    private static final class Exchange {
+        /** Sentinel used to mark an exchange no longer awaiting any response. */
+        static final Object ABANDONED = new Object();
+
+        final Attempt primary;
+        final Attempt hedge;
+        final LatencyTracker tracker;
+        final AtomicReference<Object> winner = new AtomicReference<Object>();
+        /** Guarded by this. */
+        boolean closed;
+        /** Guarded by this. */
+        boolean hedgeLaunched;
+
+        Exchange(Attempt primary, Attempt hedge, LatencyTracker tracker) {
+            this.primary = primary;
+            this.hedge = hedge;
+            this.tracker = tracker;
+        }
+
+        Attempt other(Attempt attempt) {
+            return attempt == primary ? hedge : primary;
+        }
+    }
+
+    /**
+     * Keeps a window of recent latencies of an operation, and periodically
+     * recomputes the percentile used to decide when to send a hedge.
+     */
+    static final class LatencyTracker {
+        /** Number of samples kept in the window. */
+        static final int WINDOW_SIZE = 512;
+        /** Minimum number of samples before a percentile is available. */
+        static final int MIN_SAMPLES = 32;
+        /** Number of samples after which the percentile is recomputed. */
+        private static final int RECOMPUTE_INTERVAL = 64;
+
+        private final Object operation;
+        private final AtomicLongArray samples = new AtomicLongArray(WINDOW_SIZE);
+        private final AtomicInteger count = new AtomicInteger();
+        private volatile double cachedPercentile = -1;
+        private volatile long cachedValue = -1;
+        private volatile int computedAt = -1;
+
+        LatencyTracker(Object operation) {
+            this.operation = operation;
+        }
+
+        void record(long latencyMillis) {
+            int n = count.getAndIncrement();
+            samples.set(n & (WINDOW_SIZE - 1), latencyMillis);
+        }
+
+        /**
+         * Returns the given percentile of the recorded latencies in
+         * milliseconds; or -1 if there are not enough samples.
+         */
+        long percentile(double percentile) {
+            final int n = count.get();
+            if (n < MIN_SAMPLES)
+                return -1;
+            if (cachedPercentile == percentile
+                    && n - computedAt < RECOMPUTE_INTERVAL)
+                return cachedValue;
+            final int size = Math.min(n, WINDOW_SIZE);
+            long[] sorted = new long[size];
+            for (int i = 0; i < size; i++)
+                sorted[i] = samples.get(i);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * size) - 1;
+            long value = sorted[Math.max(0, Math.min(size - 1, index))];
+            cachedValue = value;
+            cachedPercentile = percentile;
+            computedAt = n;
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "LatencyTracker[" + operation + "]";
+        }
+    }
+
+    /**
+     * Used to avoid creating the extra threads until absolutely necessary.
+     */
+    private static final class LazyHolder {
+        /** A single thread used to trigger the hedges. */
+        private static final ScheduledExecutorService timer =
+                Executors.newSingleThreadScheduledExecutor(
+                        new DaemonThreadFactory("java-sdk-hedge-timer"));
+        /** The threads executing the hedged attempts. */
+        private static final ExecutorService executor =
+                Executors.newCachedThreadPool(
+                        new DaemonThreadFactory("java-sdk-hedged-request"));
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        DaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+            t.setName(name + "-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
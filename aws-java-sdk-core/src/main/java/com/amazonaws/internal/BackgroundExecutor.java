@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.SDKGlobalConfiguration;
+
+/**
+ * Process wide, bounded pool of daemon threads shared by the background work
+ * of the SDK, such as prefetching pages, sending batches concurrently and
+ * reading objects ahead, so that the threads used by such work don't grow
+ * with the load.
+ * <p>
+ * The threads are created on demand, up to the maximum specified via
+ * {@link SDKGlobalConfiguration#BACKGROUND_THREADS_SYSTEM_PROPERTY}, and
+ * reclaimed when idle; the tasks submitted beyond that wait in line. The tasks
+ * must therefore never wait for other tasks of this pool.
+ */
+@ThreadSafe
+public enum BackgroundExecutor {
+    ;
+    /**
+     * Returns the shared executor service, which can't be shut down.
+     */
+    public static ExecutorService getExecutorService() {
+        return LazyHolder.executor;
+    }
+
+    /**
+     * Used to avoid creating the threads until absolutely necessary.
+     */
+    private static final class LazyHolder {
+        private static final int DEFAULT_MAX_THREADS =
+                Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+        private static final ExecutorService executor =
+                Executors.unconfigurableExecutorService(newThreadPool(Math.max(1,
+                    Integer.getInteger(SDKGlobalConfiguration.BACKGROUND_THREADS_SYSTEM_PROPERTY,
+                        DEFAULT_MAX_THREADS))));
+
+        private static ThreadPoolExecutor newThreadPool(int maxThreads) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    maxThreads, maxThreads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger threadCount = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "java-sdk-background-"
+                                    + threadCount.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.SDKGlobalConfiguration;
+
+/**
+ * Process wide pool of byte arrays used as stream buffers, so that high rate
+ * uploads don't allocate a new buffer of up to a few hundred KB per request.
+ * <p>
+ * Buffers are pooled in power-of-two size classes from {@value #MIN_BUFFER_SIZE}
+ * bytes to {@value #MAX_BUFFER_SIZE} bytes. Each thread caches one buffer per
+ * size class of up to {@value #MAX_THREAD_CACHED_BUFFER_SIZE} bytes; the rest
+ * are shared, with a bound on the total size pooled per size class. Buffers
+ * borrowed from the pool are not cleared, and may be larger than requested.
+ * <p>
+ * A buffer must not be used after it has been released. Pooling can be
+ * disabled via the system property
+ * {@link SDKGlobalConfiguration#DISABLE_BUFFER_POOL_SYSTEM_PROPERTY}.
+ */
+@ThreadSafe
+public enum BufferPool {
+    ;
+    /** The smallest size class. */
+    public static final int MIN_BUFFER_SIZE = 1 << 9;
+    /** The largest size class; larger buffers are never pooled. */
+    public static final int MAX_BUFFER_SIZE = 1 << 20;
+    /** The largest size class cached per thread. */
+    static final int MAX_THREAD_CACHED_BUFFER_SIZE = 1 << 16;
+    /** The maximum number of bytes pooled per size class, across threads. */
+    static final int MAX_POOLED_BYTES_PER_SIZE_CLASS = 1 << 22;
+
+    private static final int MIN_SHIFT = 9;
+    private static final int NUM_SIZE_CLASSES = 20 - MIN_SHIFT + 1;
+    private static final int NUM_THREAD_CACHED_SIZE_CLASSES = 16 - MIN_SHIFT + 1;
+
+    private static final boolean disabled = System.getProperty(
+            SDKGlobalConfiguration.DISABLE_BUFFER_POOL_SYSTEM_PROPERTY) != null;
+
+    private static final SizeClass[] sizeClasses = new SizeClass[NUM_SIZE_CLASSES];
+    static {
+        for (int i = 0; i < NUM_SIZE_CLASSES; i++)
+            sizeClasses[i] = new SizeClass(MIN_BUFFER_SIZE << i);
+    }
+
+    /**
+     * Per thread cache of one buffer per (small) size class. Not a subclass
+     * of ThreadLocal, so that the pool doesn't pin the class loader via the
+     * threads.
+     */
+    private static final ThreadLocal<byte[][]> threadCache = new ThreadLocal<byte[][]>();
+
+    /**
+     * Returns a buffer of at least the given size, either from the pool or
+     * newly allocated.
+     */
+    public static byte[] borrow(int minSize) {
+        if (minSize < 0)
+            throw new IllegalArgumentException("Negative buffer size: " + minSize);
+        if (disabled || minSize > MAX_BUFFER_SIZE)
+            return new byte[minSize];
+        final int index = sizeClassIndex(minSize);
+        if (index < NUM_THREAD_CACHED_SIZE_CLASSES) {
+            byte[][] cache = threadCache.get();
+            if (cache != null && cache[index] != null) {
+                byte[] buffer = cache[index];
+                cache[index] = null;
+                return buffer;
+            }
+        }
+        return sizeClasses[index].poll();
+    }
+
+    /**
+     * Returns the given buffer to the pool. Buffers which are not of one of
+     * the size classes are simply dropped.
+     */
+    public static void release(byte[] buffer) {
+        if (disabled || buffer == null)
+            return;
+        final int length = buffer.length;
+        if (length < MIN_BUFFER_SIZE || length > MAX_BUFFER_SIZE
+                || (length & (length - 1)) != 0)
+            return;
+        final int index = sizeClassIndex(length);
+        if (index < NUM_THREAD_CACHED_SIZE_CLASSES) {
+            byte[][] cache = threadCache.get();
+            if (cache == null)
+                threadCache.set(cache = new byte[NUM_THREAD_CACHED_SIZE_CLASSES][]);
+            if (cache[index] == null) {
+                cache[index] = buffer;
+                return;
+            }
+        }
+        sizeClasses[index].offer(buffer);
+    }
+
+    /**
+     * Returns the index of the smallest size class that fits the given size.
+     */
+    static int sizeClassIndex(int size) {
+        if (size <= MIN_BUFFER_SIZE)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+    /**
+     * Shared buffers of a single size.
+     */
+    private static final class SizeClass {
+        private final int size;
+        private final int maxPooled;
+        private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+        private final AtomicInteger pooled = new AtomicInteger();
+
+        SizeClass(int size) {
+            this.size = size;
+            this.maxPooled = Math.max(2, MAX_POOLED_BYTES_PER_SIZE_CLASS / size);
+        }
+
+        byte[] poll() {
+            byte[] buffer = buffers.poll();
+            if (buffer == null)
+                return new byte[size];
+            pooled.decrementAndGet();
+            return buffer;
+        }
+
+        void offer(byte[] buffer) {
+            if (pooled.incrementAndGet() > maxPooled) {
+                pooled.decrementAndGet();
+                return;
+            }
+            buffers.offer(buffer);
+        }
+    }
+}
@@ -25,15 +25,28 @@ import com.amazonaws.AbortedException;
 /**
  * A buffered input stream that is both SDK metric aware, and can be aborted
  * via thread interrupt.
+ * <p>
+ * The buffers are borrowed from the {@link BufferPool}, including those needed
+ * to grow the buffer up to the mark limit, and returned to the pool when the
+ * stream is closed.
  */
 public class SdkBufferedInputStream extends BufferedInputStream implements
         MetricAware {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** The buffer borrowed from the pool; guarded by this. */
+    private byte[] pooled;
+
     public SdkBufferedInputStream(InputStream in) {
-        super(in);
+        this(in, DEFAULT_BUFFER_SIZE);
     }
 
     public SdkBufferedInputStream(InputStream in, int size) {
-        super(in, size);
+        // Avoid allocating a buffer only to replace it with a pooled one
+        super(in, 1);
+        if (size <= 0)
+            throw new IllegalArgumentException("Buffer size <= 0");
+        buf = pooled = BufferPool.borrow(size);
     }
 
     @Override
@@ -67,18 +80,21 @@ public class SdkBufferedInputStream extends BufferedInputStream implements
     @Override
     public int read() throws IOException {
         abortIfNeeded();
+        growIfNeeded();
         return super.read();
     }
 
     @Override
     public int read(byte b[], int off, int len) throws IOException {
         abortIfNeeded();
+        growIfNeeded();
         return super.read(b, off, len);
     }
 
     @Override
     public long skip(long n) throws IOException {
         abortIfNeeded();
+        growIfNeeded();
         return super.skip(n);
     }
 
@@ -91,6 +107,13 @@ public class SdkBufferedInputStream extends BufferedInputStream implements
     @Override
     public void close() throws IOException {
         super.close();
+        // Wait for any concurrent read to complete before the buffer can be
+        // reused by another stream.
+        synchronized (this) {
+            buf = null;
+            BufferPool.release(pooled);
+            pooled = null;
+        }
         abortIfNeeded();
     }
 
@@ -111,4 +134,21 @@ public class SdkBufferedInputStream extends BufferedInputStream implements
         abortIfNeeded();
         return super.markSupported();
     }
+
+    /**
+     * Grows a full buffer holding marked data with a pooled buffer, before
+     * {@link BufferedInputStream} would grow it with a newly allocated one.
+     */
+    private synchronized void growIfNeeded() {
+        final byte[] buffer = buf;
+        if (buffer == null || markpos != 0 || pos < buffer.length
+                || buffer.length >= marklimit
+                || buffer.length >= BufferPool.MAX_BUFFER_SIZE)
+            return;
+        byte[] grown = BufferPool.borrow(Math.min(buffer.length * 2, marklimit));
+        System.arraycopy(buffer, 0, grown, 0, pos);
+        buf = grown;
+        BufferPool.release(pooled);
+        pooled = grown;
+    }
 }
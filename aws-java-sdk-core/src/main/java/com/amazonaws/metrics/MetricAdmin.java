@@ -16,8 +16,11 @@ package com.amazonaws.metrics;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.List;
 
 import com.amazonaws.regions.Regions;
+import com.amazonaws.retry.internal.CircuitBreaker;
+import com.amazonaws.retry.internal.CircuitBreakerRegistry;
 
 /**
  *  Administration of AwsSdkMetrics as an MBean.
@@ -144,4 +147,21 @@ public class MetricAdmin implements MetricAdminMBean {
     public void setSingleMetricNamespace(boolean singleMetricNamespace) {
         AwsSdkMetrics.setSingleMetricNamespace(singleMetricNamespace);
     }
+    @Override
+    public String[] getCircuitBreakerStates() {
+        List<CircuitBreaker> breakers = CircuitBreakerRegistry.getCircuitBreakers();
+        String[] states = new String[breakers.size()];
+        for (int i = 0; i < states.length; i++)
+            states[i] = breakers.get(i).toString();
+        return states;
+    }
+    @Override
+    public int getOpenCircuitBreakerCount() {
+        int count = 0;
+        for (CircuitBreaker breaker : CircuitBreakerRegistry.getCircuitBreakers()) {
+            if (breaker.getState() == CircuitBreaker.State.OPEN)
+                count++;
+        }
+        return count;
+    }
 }
\ No newline at end of file
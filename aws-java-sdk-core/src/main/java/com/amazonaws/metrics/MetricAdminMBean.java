@@ -184,4 +184,15 @@ public interface MetricAdminMBean {
      * Used to set whether a single metric name space is to be used.
      */
     public void setSingleMetricNamespace(boolean singleMetricNamespace);
+
+    /**
+     * Returns the current state of the circuit breakers in use, one per
+     * service endpoint; or an empty array if circuit breaking is not in use.
+     */
+    public String[] getCircuitBreakerStates();
+
+    /**
+     * Returns the number of circuit breakers that are currently open.
+     */
+    public int getOpenCircuitBreakerCount();
 }
\ No newline at end of file
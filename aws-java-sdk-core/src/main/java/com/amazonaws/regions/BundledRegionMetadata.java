@@ -0,0 +1,475 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.regions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bundled region metadata, precompiled from regions.xml so that it is
+ * available without parsing XML at startup. Generated by
+ * BundledRegionMetadataGenerator; do not edit.
+ */
+final class BundledRegionMetadata {
+
+    /**
+     * Per region: the name and domain, followed by triples of service
+     * name, hostname, and the supported protocols ("h" for http, "s" for
+     * https).
+     */
+    private static final String[][] REGIONS = {
+        {
+            "us-east-1", "amazonaws.com",
+            "autoscaling", "autoscaling.us-east-1.amazonaws.com", "hs",
+            "cloudformation", "cloudformation.us-east-1.amazonaws.com", "s",
+            "cloudfront", "cloudfront.amazonaws.com", "hs",
+            "cloudhsm", "cloudhsm.us-east-1.amazonaws.com", "s",
+            "cloudsearch", "cloudsearch.us-east-1.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.us-east-1.amazonaws.com", "s",
+            "codecommit", "codecommit.us-east-1.amazonaws.com", "s",
+            "codedeploy", "codedeploy.us-east-1.amazonaws.com", "s",
+            "codepipeline", "codepipeline.us-east-1.amazonaws.com", "s",
+            "cognito-identity", "cognito-identity.us-east-1.amazonaws.com", "s",
+            "cognito-sync", "cognito-sync.us-east-1.amazonaws.com", "s",
+            "config", "config.us-east-1.amazonaws.com", "s",
+            "datapipeline", "datapipeline.us-east-1.amazonaws.com", "s",
+            "directconnect", "directconnect.us-east-1.amazonaws.com", "s",
+            "ds", "ds.us-east-1.amazonaws.com", "s",
+            "dynamodb", "dynamodb.us-east-1.amazonaws.com", "hs",
+            "ec2", "ec2.us-east-1.amazonaws.com", "hs",
+            "ecs", "ecs.us-east-1.amazonaws.com", "s",
+            "elasticache", "elasticache.us-east-1.amazonaws.com", "s",
+            "elasticbeanstalk", "elasticbeanstalk.us-east-1.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.us-east-1.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.us-east-1.amazonaws.com", "hs",
+            "elastictranscoder", "elastictranscoder.us-east-1.amazonaws.com", "s",
+            "email", "email.us-east-1.amazonaws.com", "s",
+            "glacier", "glacier.us-east-1.amazonaws.com", "hs",
+            "iam", "iam.amazonaws.com", "s",
+            "importexport", "importexport.amazonaws.com", "s",
+            "kinesis", "kinesis.us-east-1.amazonaws.com", "s",
+            "kms", "kms.us-east-1.amazonaws.com", "s",
+            "lambda", "lambda.us-east-1.amazonaws.com", "s",
+            "logs", "logs.us-east-1.amazonaws.com", "hs",
+            "machinelearning", "machinelearning.us-east-1.amazonaws.com", "s",
+            "monitoring", "monitoring.us-east-1.amazonaws.com", "hs",
+            "opsworks", "opsworks.us-east-1.amazonaws.com", "s",
+            "rds", "rds.us-east-1.amazonaws.com", "s",
+            "redshift", "redshift.us-east-1.amazonaws.com", "s",
+            "route53", "route53.amazonaws.com", "s",
+            "route53domains", "route53domains.us-east-1.amazonaws.com", "s",
+            "s3", "s3.amazonaws.com", "hs",
+            "sdb", "sdb.amazonaws.com", "hs",
+            "sns", "sns.us-east-1.amazonaws.com", "hs",
+            "sqs", "sqs.us-east-1.amazonaws.com", "hs",
+            "ssm", "ssm.us-east-1.amazonaws.com", "s",
+            "storagegateway", "storagegateway.us-east-1.amazonaws.com", "s",
+            "streams.dynamodb", "streams.dynamodb.us-east-1.amazonaws.com", "hs",
+            "sts", "sts.amazonaws.com", "s",
+            "support", "support.us-east-1.amazonaws.com", "s",
+            "swf", "swf.us-east-1.amazonaws.com", "s",
+            "workspaces", "workspaces.us-east-1.amazonaws.com", "s",
+        },
+        {
+            "us-west-1", "amazonaws.com",
+            "autoscaling", "autoscaling.us-west-1.amazonaws.com", "hs",
+            "cloudformation", "cloudformation.us-west-1.amazonaws.com", "s",
+            "cloudfront", "cloudfront.amazonaws.com", "hs",
+            "cloudsearch", "cloudsearch.us-west-1.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.us-west-1.amazonaws.com", "s",
+            "config", "config.us-west-1.amazonaws.com", "s",
+            "directconnect", "directconnect.us-west-1.amazonaws.com", "s",
+            "dynamodb", "dynamodb.us-west-1.amazonaws.com", "hs",
+            "ec2", "ec2.us-west-1.amazonaws.com", "hs",
+            "ecs", "ecs.us-west-1.amazonaws.com", "s",
+            "elasticache", "elasticache.us-west-1.amazonaws.com", "s",
+            "elasticbeanstalk", "elasticbeanstalk.us-west-1.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.us-west-1.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.us-west-1.amazonaws.com", "hs",
+            "elastictranscoder", "elastictranscoder.us-west-1.amazonaws.com", "s",
+            "glacier", "glacier.us-west-1.amazonaws.com", "hs",
+            "iam", "iam.amazonaws.com", "s",
+            "importexport", "importexport.amazonaws.com", "s",
+            "kinesis", "kinesis.us-west-1.amazonaws.com", "s",
+            "kms", "kms.us-west-1.amazonaws.com", "s",
+            "logs", "logs.us-west-1.amazonaws.com", "hs",
+            "monitoring", "monitoring.us-west-1.amazonaws.com", "hs",
+            "rds", "rds.us-west-1.amazonaws.com", "s",
+            "route53", "route53.amazonaws.com", "s",
+            "route53domains", "route53domains.us-east-1.amazonaws.com", "s",
+            "s3", "s3-us-west-1.amazonaws.com", "hs",
+            "sdb", "sdb.us-west-1.amazonaws.com", "hs",
+            "sns", "sns.us-west-1.amazonaws.com", "hs",
+            "sqs", "sqs.us-west-1.amazonaws.com", "hs",
+            "storagegateway", "storagegateway.us-west-1.amazonaws.com", "s",
+            "streams.dynamodb", "streams.dynamodb.us-west-1.amazonaws.com", "hs",
+            "sts", "sts.amazonaws.com", "s",
+            "swf", "swf.us-west-1.amazonaws.com", "s",
+        },
+        {
+            "us-west-2", "amazonaws.com",
+            "autoscaling", "autoscaling.us-west-2.amazonaws.com", "hs",
+            "cloudformation", "cloudformation.us-west-2.amazonaws.com", "s",
+            "cloudfront", "cloudfront.amazonaws.com", "hs",
+            "cloudhsm", "cloudhsm.us-west-2.amazonaws.com", "s",
+            "cloudsearch", "cloudsearch.us-west-2.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.us-west-2.amazonaws.com", "s",
+            "codedeploy", "codedeploy.us-west-2.amazonaws.com", "s",
+            "config", "config.us-west-2.amazonaws.com", "s",
+            "datapipeline", "datapipeline.us-west-2.amazonaws.com", "s",
+            "devicefarm", "devicefarm.us-west-2.amazonaws.com", "s",
+            "directconnect", "directconnect.us-west-2.amazonaws.com", "s",
+            "ds", "ds.us-west-2.amazonaws.com", "s",
+            "dynamodb", "dynamodb.us-west-2.amazonaws.com", "hs",
+            "ec2", "ec2.us-west-2.amazonaws.com", "hs",
+            "ecs", "ecs.us-west-2.amazonaws.com", "s",
+            "elasticache", "elasticache.us-west-2.amazonaws.com", "s",
+            "elasticbeanstalk", "elasticbeanstalk.us-west-2.amazonaws.com", "s",
+            "elasticfilesystem", "elasticfilesystem.us-west-2.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.us-west-2.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.us-west-2.amazonaws.com", "hs",
+            "elastictranscoder", "elastictranscoder.us-west-2.amazonaws.com", "s",
+            "email", "email.us-west-2.amazonaws.com", "s",
+            "glacier", "glacier.us-west-2.amazonaws.com", "hs",
+            "iam", "iam.amazonaws.com", "s",
+            "importexport", "importexport.amazonaws.com", "s",
+            "kinesis", "kinesis.us-west-2.amazonaws.com", "s",
+            "kms", "kms.us-west-2.amazonaws.com", "s",
+            "lambda", "lambda.us-west-2.amazonaws.com", "s",
+            "logs", "logs.us-west-2.amazonaws.com", "hs",
+            "monitoring", "monitoring.us-west-2.amazonaws.com", "hs",
+            "rds", "rds.us-west-2.amazonaws.com", "s",
+            "redshift", "redshift.us-west-2.amazonaws.com", "s",
+            "route53", "route53.amazonaws.com", "s",
+            "route53domains", "route53domains.us-east-1.amazonaws.com", "s",
+            "s3", "s3-us-west-2.amazonaws.com", "hs",
+            "sdb", "sdb.us-west-2.amazonaws.com", "hs",
+            "sns", "sns.us-west-2.amazonaws.com", "hs",
+            "sqs", "sqs.us-west-2.amazonaws.com", "hs",
+            "ssm", "ssm.us-west-2.amazonaws.com", "s",
+            "storagegateway", "storagegateway.us-west-2.amazonaws.com", "s",
+            "streams.dynamodb", "streams.dynamodb.us-west-2.amazonaws.com", "hs",
+            "sts", "sts.amazonaws.com", "s",
+            "swf", "swf.us-west-2.amazonaws.com", "s",
+            "workspaces", "workspaces.us-west-2.amazonaws.com", "s",
+        },
+        {
+            "ap-northeast-1", "amazonaws.com",
+            "autoscaling", "autoscaling.ap-northeast-1.amazonaws.com", "hs",
+            "cloudformation", "cloudformation.ap-northeast-1.amazonaws.com", "s",
+            "cloudfront", "cloudfront.amazonaws.com", "hs",
+            "cloudhsm", "cloudhsm.ap-northeast-1.amazonaws.com", "s",
+            "cloudsearch", "cloudsearch.ap-northeast-1.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.ap-northeast-1.amazonaws.com", "s",
+            "codedeploy", "codedeploy.ap-northeast-1.amazonaws.com", "s",
+            "cognito-identity", "cognito-identity.ap-northeast-1.amazonaws.com", "s",
+            "cognito-sync", "cognito-sync.ap-northeast-1.amazonaws.com", "s",
+            "config", "config.ap-northeast-1.amazonaws.com", "s",
+            "datapipeline", "datapipeline.ap-northeast-1.amazonaws.com", "s",
+            "directconnect", "directconnect.ap-northeast-1.amazonaws.com", "s",
+            "ds", "ds.ap-northeast-1.amazonaws.com", "s",
+            "dynamodb", "dynamodb.ap-northeast-1.amazonaws.com", "hs",
+            "ec2", "ec2.ap-northeast-1.amazonaws.com", "hs",
+            "ecs", "ecs.ap-northeast-1.amazonaws.com", "s",
+            "elasticache", "elasticache.ap-northeast-1.amazonaws.com", "s",
+            "elasticbeanstalk", "elasticbeanstalk.ap-northeast-1.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.ap-northeast-1.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.ap-northeast-1.amazonaws.com", "hs",
+            "elastictranscoder", "elastictranscoder.ap-northeast-1.amazonaws.com", "s",
+            "glacier", "glacier.ap-northeast-1.amazonaws.com", "hs",
+            "iam", "iam.amazonaws.com", "s",
+            "importexport", "importexport.amazonaws.com", "s",
+            "kinesis", "kinesis.ap-northeast-1.amazonaws.com", "s",
+            "kms", "kms.ap-northeast-1.amazonaws.com", "s",
+            "lambda", "lambda.ap-northeast-1.amazonaws.com", "s",
+            "logs", "logs.ap-northeast-1.amazonaws.com", "hs",
+            "monitoring", "monitoring.ap-northeast-1.amazonaws.com", "hs",
+            "rds", "rds.ap-northeast-1.amazonaws.com", "s",
+            "redshift", "redshift.ap-northeast-1.amazonaws.com", "s",
+            "route53", "route53.amazonaws.com", "s",
+            "route53domains", "route53domains.us-east-1.amazonaws.com", "s",
+            "s3", "s3-ap-northeast-1.amazonaws.com", "hs",
+            "sdb", "sdb.ap-northeast-1.amazonaws.com", "hs",
+            "sns", "sns.ap-northeast-1.amazonaws.com", "hs",
+            "sqs", "sqs.ap-northeast-1.amazonaws.com", "hs",
+            "storagegateway", "storagegateway.ap-northeast-1.amazonaws.com", "s",
+            "streams.dynamodb", "streams.dynamodb.ap-northeast-1.amazonaws.com", "hs",
+            "sts", "sts.amazonaws.com", "s",
+            "swf", "swf.ap-northeast-1.amazonaws.com", "s",
+            "workspaces", "workspaces.ap-northeast-1.amazonaws.com", "s",
+        },
+        {
+            "ap-southeast-1", "amazonaws.com",
+            "autoscaling", "autoscaling.ap-southeast-1.amazonaws.com", "hs",
+            "cloudformation", "cloudformation.ap-southeast-1.amazonaws.com", "s",
+            "cloudfront", "cloudfront.amazonaws.com", "hs",
+            "cloudhsm", "cloudhsm.ap-southeast-1.amazonaws.com", "s",
+            "cloudsearch", "cloudsearch.ap-southeast-1.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.ap-southeast-1.amazonaws.com", "s",
+            "config", "config.ap-southeast-1.amazonaws.com", "s",
+            "directconnect", "directconnect.ap-southeast-1.amazonaws.com", "s",
+            "ds", "ds.ap-southeast-1.amazonaws.com", "s",
+            "dynamodb", "dynamodb.ap-southeast-1.amazonaws.com", "hs",
+            "ec2", "ec2.ap-southeast-1.amazonaws.com", "hs",
+            "elasticache", "elasticache.ap-southeast-1.amazonaws.com", "s",
+            "elasticbeanstalk", "elasticbeanstalk.ap-southeast-1.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.ap-southeast-1.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.ap-southeast-1.amazonaws.com", "hs",
+            "elastictranscoder", "elastictranscoder.ap-southeast-1.amazonaws.com", "s",
+            "iam", "iam.amazonaws.com", "s",
+            "importexport", "importexport.amazonaws.com", "s",
+            "kinesis", "kinesis.ap-southeast-1.amazonaws.com", "s",
+            "kms", "kms.ap-southeast-1.amazonaws.com", "s",
+            "logs", "logs.ap-southeast-1.amazonaws.com", "hs",
+            "monitoring", "monitoring.ap-southeast-1.amazonaws.com", "hs",
+            "rds", "rds.ap-southeast-1.amazonaws.com", "s",
+            "redshift", "redshift.ap-southeast-1.amazonaws.com", "s",
+            "route53", "route53.amazonaws.com", "s",
+            "route53domains", "route53domains.us-east-1.amazonaws.com", "s",
+            "s3", "s3-ap-southeast-1.amazonaws.com", "hs",
+            "sdb", "sdb.ap-southeast-1.amazonaws.com", "hs",
+            "sns", "sns.ap-southeast-1.amazonaws.com", "hs",
+            "sqs", "sqs.ap-southeast-1.amazonaws.com", "hs",
+            "storagegateway", "storagegateway.ap-southeast-1.amazonaws.com", "s",
+            "streams.dynamodb", "streams.dynamodb.ap-southeast-1.amazonaws.com", "hs",
+            "sts", "sts.amazonaws.com", "s",
+            "swf", "swf.ap-southeast-1.amazonaws.com", "s",
+            "workspaces", "workspaces.ap-southeast-1.amazonaws.com", "s",
+        },
+        {
+            "ap-southeast-2", "amazonaws.com",
+            "autoscaling", "autoscaling.ap-southeast-2.amazonaws.com", "hs",
+            "cloudformation", "cloudformation.ap-southeast-2.amazonaws.com", "s",
+            "cloudfront", "cloudfront.amazonaws.com", "hs",
+            "cloudhsm", "cloudhsm.ap-southeast-2.amazonaws.com", "s",
+            "cloudsearch", "cloudsearch.ap-southeast-2.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.ap-southeast-2.amazonaws.com", "s",
+            "codedeploy", "codedeploy.ap-southeast-2.amazonaws.com", "s",
+            "config", "config.ap-southeast-2.amazonaws.com", "s",
+            "datapipeline", "datapipeline.ap-southeast-2.amazonaws.com", "s",
+            "directconnect", "directconnect.ap-southeast-2.amazonaws.com", "s",
+            "ds", "ds.ap-southeast-2.amazonaws.com", "s",
+            "dynamodb", "dynamodb.ap-southeast-2.amazonaws.com", "hs",
+            "ec2", "ec2.ap-southeast-2.amazonaws.com", "hs",
+            "ecs", "ecs.ap-southeast-2.amazonaws.com", "s",
+            "elasticache", "elasticache.ap-southeast-2.amazonaws.com", "s",
+            "elasticbeanstalk", "elasticbeanstalk.ap-southeast-2.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.ap-southeast-2.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.ap-southeast-2.amazonaws.com", "hs",
+            "glacier", "glacier.ap-southeast-2.amazonaws.com", "hs",
+            "iam", "iam.amazonaws.com", "s",
+            "importexport", "importexport.amazonaws.com", "s",
+            "kinesis", "kinesis.ap-southeast-2.amazonaws.com", "s",
+            "kms", "kms.ap-southeast-2.amazonaws.com", "s",
+            "logs", "logs.ap-southeast-2.amazonaws.com", "hs",
+            "monitoring", "monitoring.ap-southeast-2.amazonaws.com", "hs",
+            "rds", "rds.ap-southeast-2.amazonaws.com", "s",
+            "redshift", "redshift.ap-southeast-2.amazonaws.com", "s",
+            "route53", "route53.amazonaws.com", "s",
+            "route53domains", "route53domains.us-east-1.amazonaws.com", "s",
+            "s3", "s3-ap-southeast-2.amazonaws.com", "hs",
+            "sdb", "sdb.ap-southeast-2.amazonaws.com", "hs",
+            "sns", "sns.ap-southeast-2.amazonaws.com", "hs",
+            "sqs", "sqs.ap-southeast-2.amazonaws.com", "hs",
+            "storagegateway", "storagegateway.ap-southeast-2.amazonaws.com", "s",
+            "streams.dynamodb", "streams.dynamodb.ap-southeast-2.amazonaws.com", "hs",
+            "sts", "sts.amazonaws.com", "s",
+            "swf", "swf.ap-southeast-2.amazonaws.com", "s",
+            "workspaces", "workspaces.ap-southeast-2.amazonaws.com", "s",
+        },
+        {
+            "sa-east-1", "amazonaws.com",
+            "autoscaling", "autoscaling.sa-east-1.amazonaws.com", "hs",
+            "cloudformation", "cloudformation.sa-east-1.amazonaws.com", "s",
+            "cloudfront", "cloudfront.amazonaws.com", "hs",
+            "cloudsearch", "cloudsearch.sa-east-1.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.sa-east-1.amazonaws.com", "s",
+            "config", "config.sa-east-1.amazonaws.com", "s",
+            "directconnect", "directconnect.sa-east-1.amazonaws.com", "s",
+            "dynamodb", "dynamodb.sa-east-1.amazonaws.com", "hs",
+            "ec2", "ec2.sa-east-1.amazonaws.com", "hs",
+            "elasticache", "elasticache.sa-east-1.amazonaws.com", "s",
+            "elasticbeanstalk", "elasticbeanstalk.sa-east-1.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.sa-east-1.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.sa-east-1.amazonaws.com", "hs",
+            "iam", "iam.amazonaws.com", "s",
+            "importexport", "importexport.amazonaws.com", "s",
+            "kms", "kms.sa-east-1.amazonaws.com", "s",
+            "monitoring", "monitoring.sa-east-1.amazonaws.com", "hs",
+            "rds", "rds.sa-east-1.amazonaws.com", "s",
+            "route53", "route53.amazonaws.com", "s",
+            "route53domains", "route53domains.us-east-1.amazonaws.com", "s",
+            "s3", "s3-sa-east-1.amazonaws.com", "hs",
+            "sdb", "sdb.sa-east-1.amazonaws.com", "hs",
+            "sns", "sns.sa-east-1.amazonaws.com", "hs",
+            "sqs", "sqs.sa-east-1.amazonaws.com", "hs",
+            "storagegateway", "storagegateway.sa-east-1.amazonaws.com", "s",
+            "streams.dynamodb", "streams.dynamodb.sa-east-1.amazonaws.com", "hs",
+            "sts", "sts.amazonaws.com", "s",
+            "swf", "swf.sa-east-1.amazonaws.com", "s",
+        },
+        {
+            "eu-west-1", "amazonaws.com",
+            "autoscaling", "autoscaling.eu-west-1.amazonaws.com", "hs",
+            "cloudformation", "cloudformation.eu-west-1.amazonaws.com", "s",
+            "cloudfront", "cloudfront.amazonaws.com", "hs",
+            "cloudhsm", "cloudhsm.eu-west-1.amazonaws.com", "s",
+            "cloudsearch", "cloudsearch.eu-west-1.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.eu-west-1.amazonaws.com", "s",
+            "codedeploy", "codedeploy.eu-west-1.amazonaws.com", "s",
+            "cognito-identity", "cognito-identity.eu-west-1.amazonaws.com", "s",
+            "cognito-sync", "cognito-sync.eu-west-1.amazonaws.com", "s",
+            "config", "config.eu-west-1.amazonaws.com", "s",
+            "datapipeline", "datapipeline.eu-west-1.amazonaws.com", "s",
+            "directconnect", "directconnect.eu-west-1.amazonaws.com", "s",
+            "ds", "ds.eu-west-1.amazonaws.com", "s",
+            "dynamodb", "dynamodb.eu-west-1.amazonaws.com", "hs",
+            "ec2", "ec2.eu-west-1.amazonaws.com", "hs",
+            "ecs", "ecs.eu-west-1.amazonaws.com", "s",
+            "elasticache", "elasticache.eu-west-1.amazonaws.com", "s",
+            "elasticbeanstalk", "elasticbeanstalk.eu-west-1.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.eu-west-1.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.eu-west-1.amazonaws.com", "hs",
+            "elastictranscoder", "elastictranscoder.eu-west-1.amazonaws.com", "s",
+            "email", "email.eu-west-1.amazonaws.com", "s",
+            "glacier", "glacier.eu-west-1.amazonaws.com", "hs",
+            "iam", "iam.amazonaws.com", "s",
+            "importexport", "importexport.amazonaws.com", "s",
+            "kinesis", "kinesis.eu-west-1.amazonaws.com", "s",
+            "kms", "kms.eu-west-1.amazonaws.com", "s",
+            "lambda", "lambda.eu-west-1.amazonaws.com", "s",
+            "logs", "logs.eu-west-1.amazonaws.com", "hs",
+            "machinelearning", "machinelearning.eu-west-1.amazonaws.com", "s",
+            "monitoring", "monitoring.eu-west-1.amazonaws.com", "hs",
+            "rds", "rds.eu-west-1.amazonaws.com", "s",
+            "redshift", "redshift.eu-west-1.amazonaws.com", "s",
+            "route53", "route53.amazonaws.com", "s",
+            "route53domains", "route53domains.us-east-1.amazonaws.com", "s",
+            "s3", "s3-eu-west-1.amazonaws.com", "hs",
+            "sdb", "sdb.eu-west-1.amazonaws.com", "hs",
+            "sns", "sns.eu-west-1.amazonaws.com", "hs",
+            "sqs", "sqs.eu-west-1.amazonaws.com", "hs",
+            "ssm", "ssm.eu-west-1.amazonaws.com", "s",
+            "storagegateway", "storagegateway.eu-west-1.amazonaws.com", "s",
+            "streams.dynamodb", "streams.dynamodb.eu-west-1.amazonaws.com", "hs",
+            "sts", "sts.amazonaws.com", "s",
+            "swf", "swf.eu-west-1.amazonaws.com", "s",
+            "workspaces", "workspaces.eu-west-1.amazonaws.com", "s",
+        },
+        {
+            "eu-central-1", "amazonaws.com",
+            "autoscaling", "autoscaling.eu-central-1.amazonaws.com", "hs",
+            "cloudformation", "cloudformation.eu-central-1.amazonaws.com", "s",
+            "cloudfront", "cloudfront.amazonaws.com", "hs",
+            "cloudhsm", "cloudhsm.eu-central-1.amazonaws.com", "s",
+            "cloudsearch", "cloudsearch.eu-central-1.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.eu-central-1.amazonaws.com", "s",
+            "config", "config.eu-central-1.amazonaws.com", "s",
+            "directconnect", "directconnect.eu-central-1.amazonaws.com", "s",
+            "dynamodb", "dynamodb.eu-central-1.amazonaws.com", "hs",
+            "ec2", "ec2.eu-central-1.amazonaws.com", "hs",
+            "elasticache", "elasticache.eu-central-1.amazonaws.com", "s",
+            "elasticbeanstalk", "elasticbeanstalk.eu-central-1.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.eu-central-1.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.eu-central-1.amazonaws.com", "hs",
+            "glacier", "glacier.eu-central-1.amazonaws.com", "hs",
+            "iam", "iam.amazonaws.com", "s",
+            "kinesis", "kinesis.eu-central-1.amazonaws.com", "s",
+            "kms", "kms.eu-central-1.amazonaws.com", "s",
+            "logs", "logs.eu-central-1.amazonaws.com", "hs",
+            "monitoring", "monitoring.eu-central-1.amazonaws.com", "hs",
+            "rds", "rds.eu-central-1.amazonaws.com", "s",
+            "redshift", "redshift.eu-central-1.amazonaws.com", "s",
+            "route53", "route53.amazonaws.com", "s",
+            "route53domains", "route53domains.us-east-1.amazonaws.com", "s",
+            "s3", "s3.eu-central-1.amazonaws.com", "hs",
+            "sns", "sns.eu-central-1.amazonaws.com", "hs",
+            "sqs", "sqs.eu-central-1.amazonaws.com", "hs",
+            "storagegateway", "storagegateway.eu-central-1.amazonaws.com", "s",
+            "streams.dynamodb", "streams.dynamodb.eu-central-1.amazonaws.com", "hs",
+            "sts", "sts.amazonaws.com", "s",
+            "swf", "swf.eu-central-1.amazonaws.com", "s",
+        },
+        {
+            "cn-north-1", "amazonaws.com.cn",
+            "autoscaling", "autoscaling.cn-north-1.amazonaws.com.cn", "hs",
+            "cloudformation", "cloudformation.cn-north-1.amazonaws.com.cn", "s",
+            "cloudtrail", "cloudtrail.cn-north-1.amazonaws.com.cn", "s",
+            "directconnect", "directconnect.cn-north-1.amazonaws.com.cn", "s",
+            "dynamodb", "dynamodb.cn-north-1.amazonaws.com.cn", "hs",
+            "ec2", "ec2.cn-north-1.amazonaws.com.cn", "hs",
+            "elasticache", "elasticache.cn-north-1.amazonaws.com.cn", "s",
+            "elasticloadbalancing", "elasticloadbalancing.cn-north-1.amazonaws.com.cn", "hs",
+            "elasticmapreduce", "elasticmapreduce.cn-north-1.amazonaws.com.cn", "hs",
+            "glacier", "glacier.cn-north-1.amazonaws.com.cn", "hs",
+            "iam", "iam.cn-north-1.amazonaws.com", "s",
+            "kinesis", "kinesis.cn-north-1.amazonaws.com.cn", "s",
+            "monitoring", "monitoring.cn-north-1.amazonaws.com.cn", "hs",
+            "rds", "rds.cn-north-1.amazonaws.com.cn", "s",
+            "s3", "s3.cn-north-1.amazonaws.com.cn", "hs",
+            "sns", "sns.cn-north-1.amazonaws.com.cn", "hs",
+            "sqs", "sqs.cn-north-1.amazonaws.com.cn", "hs",
+            "storagegateway", "storagegateway.cn-north-1.amazonaws.com.cn", "s",
+            "streams.dynamodb", "streams.dynamodb.cn-north-1.amazonaws.com.cn", "hs",
+            "sts", "sts.cn-north-1.amazonaws.com.cn", "s",
+            "swf", "swf.cn-north-1.amazonaws.com.cn", "s",
+        },
+        {
+            "us-gov-west-1", "amazonaws.com",
+            "autoscaling", "autoscaling.us-gov-west-1.amazonaws.com", "hs",
+            "cloudhsm", "cloudhsm.us-gov-west-1.amazonaws.com", "s",
+            "cloudtrail", "cloudtrail.us-gov-west-1.amazonaws.com", "s",
+            "dynamodb", "dynamodb.us-gov-west-1.amazonaws.com", "s",
+            "ec2", "ec2.us-gov-west-1.amazonaws.com", "s",
+            "elasticloadbalancing", "elasticloadbalancing.us-gov-west-1.amazonaws.com", "hs",
+            "elasticmapreduce", "elasticmapreduce.us-gov-west-1.amazonaws.com", "hs",
+            "glacier", "glacier.us-gov-west-1.amazonaws.com", "hs",
+            "iam", "iam.us-gov.amazonaws.com", "s",
+            "kms", "kms.us-gov-west-1.amazonaws.com", "s",
+            "monitoring", "monitoring.us-gov-west-1.amazonaws.com", "s",
+            "rds", "rds.us-gov-west-1.amazonaws.com", "s",
+            "redshift", "redshift.us-gov-west-1.amazonaws.com", "s",
+            "s3", "s3-us-gov-west-1.amazonaws.com", "hs",
+            "sns", "sns.us-gov-west-1.amazonaws.com", "hs",
+            "sqs", "sqs.us-gov-west-1.amazonaws.com", "hs",
+            "streams.dynamodb", "streams.dynamodb.us-gov-west-1.amazonaws.com", "s",
+            "sts", "sts.us-gov-west-1.amazonaws.com", "s",
+            "swf", "swf.us-gov-west-1.amazonaws.com", "s",
+        },
+    };
+
+    private BundledRegionMetadata() {
+    }
+
+    /**
+     * Returns a new region metadata object equivalent to the one parsed
+     * from the bundled regions.xml.
+     */
+    static RegionMetadata create() {
+        List<Region> regions = new ArrayList<Region>(REGIONS.length);
+        for (String[] entry : REGIONS) {
+            Region region = new Region(entry[0], entry[1]);
+            for (int i = 2; i + 2 < entry.length; i += 3) {
+                String service = entry[i];
+                String flags = entry[i + 2];
+                region.getServiceEndpoints().put(service, entry[i + 1]);
+                region.getHttpSupport().put(service, flags.indexOf('h') >= 0);
+                region.getHttpsSupport().put(service, flags.indexOf('s') >= 0);
+            }
+            regions.add(region);
+        }
+        return new RegionMetadata(regions);
+    }
+}
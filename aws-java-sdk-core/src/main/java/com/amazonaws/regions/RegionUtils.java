@@ -316,8 +316,9 @@ public class RegionUtils {
             }
         }
 
-        doInitializeFromResource(RegionUtils.class,
-                                 BUNDLED_ENDPOINTS_RESOURCE_PATH);
+        // The bundled regions.xml is precompiled, so no XML parsing is needed
+        // on the default path.
+        regionMetadata = BundledRegionMetadata.create();
         source = BUNDLED_ENDPOINTS_RESOURCE_PATH;
     }
 
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import org.apache.http.annotation.Immutable;
+
+import com.amazonaws.CircuitBreakerOpenException;
+import com.amazonaws.ClientConfiguration;
+
+/**
+ * Circuit breaker policy that can be configured on a specific service client
+ * using {@link ClientConfiguration}. A circuit breaker is kept per service and
+ * endpoint, and trips open when the failure rate or the timeout rate among
+ * the recent attempts exceeds a threshold. While open, requests to the
+ * endpoint fail fast with a {@link CircuitBreakerOpenException} instead of
+ * waiting for connection or socket timeouts. After the open interval, a
+ * limited number of probe requests are let through to decide whether the
+ * circuit breaker should close again.
+ * <p>
+ * Clients configured with the same policy instance share the circuit breaker
+ * state of each endpoint. This class is immutable, therefore safe to be shared
+ * by multiple clients.
+ *
+ * @see ClientConfiguration#setCircuitBreakerPolicy(CircuitBreakerPolicy)
+ */
+@Immutable
+public final class CircuitBreakerPolicy {
+
+    /** The default number of recent attempts considered. */
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+
+    /** The default minimum number of attempts before the breaker can trip. */
+    public static final int DEFAULT_MINIMUM_ATTEMPTS = 20;
+
+    /** The default failure rate at which the breaker trips. */
+    public static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+
+    /** The default timeout rate at which the breaker trips. */
+    public static final double DEFAULT_TIMEOUT_RATE_THRESHOLD = 0.3;
+
+    /** The default time the breaker stays open before probing. */
+    public static final long DEFAULT_OPEN_INTERVAL_MILLIS = 10 * 1000;
+
+    /** The default number of probes let through when half open. */
+    public static final int DEFAULT_HALF_OPEN_PROBES = 3;
+
+    /** Circuit breaker policy with the default settings. */
+    public static final CircuitBreakerPolicy DEFAULT = new CircuitBreakerPolicy(
+            DEFAULT_WINDOW_SIZE, DEFAULT_MINIMUM_ATTEMPTS,
+            DEFAULT_FAILURE_RATE_THRESHOLD, DEFAULT_TIMEOUT_RATE_THRESHOLD,
+            DEFAULT_OPEN_INTERVAL_MILLIS, DEFAULT_HALF_OPEN_PROBES);
+
+    private final int windowSize;
+    private final int minimumAttempts;
+    private final double failureRateThreshold;
+    private final double timeoutRateThreshold;
+    private final long openIntervalMillis;
+    private final int halfOpenProbes;
+
+    /**
+     * Constructs a new circuit breaker policy.
+     *
+     * @param windowSize
+     *            Number of recent attempts over which the failure and timeout
+     *            rates are computed.
+     * @param minimumAttempts
+     *            Minimum number of recorded attempts before the breaker can
+     *            trip; must not exceed the window size.
+     * @param failureRateThreshold
+     *            Failure rate (in the range of (0, 1]) at which the breaker
+     *            trips. Failures include I/O errors and 5xx responses.
+     * @param timeoutRateThreshold
+     *            Timeout rate (in the range of (0, 1]) at which the breaker
+     *            trips. Timeouts include connection and socket timeouts.
+     * @param openIntervalMillis
+     *            Time in milliseconds the breaker stays open before probing.
+     * @param halfOpenProbes
+     *            Number of successful probes needed to close the breaker, which
+     *            is also the maximum number of concurrent probes.
+     */
+    public CircuitBreakerPolicy(int windowSize,
+                                int minimumAttempts,
+                                double failureRateThreshold,
+                                double timeoutRateThreshold,
+                                long openIntervalMillis,
+                                int halfOpenProbes) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive window size.");
+        }
+        if (minimumAttempts <= 0 || minimumAttempts > windowSize) {
+            throw new IllegalArgumentException(
+                    "Please provide a minimum number of attempts between 1 and the window size.");
+        }
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException(
+                    "Please provide a failure rate threshold between 0 exclusive and 1 inclusive.");
+        }
+        if (timeoutRateThreshold <= 0 || timeoutRateThreshold > 1) {
+            throw new IllegalArgumentException(
+                    "Please provide a timeout rate threshold between 0 exclusive and 1 inclusive.");
+        }
+        if (openIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative open interval.");
+        }
+        if (halfOpenProbes <= 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive number of half open probes.");
+        }
+        this.windowSize = windowSize;
+        this.minimumAttempts = minimumAttempts;
+        this.failureRateThreshold = failureRateThreshold;
+        this.timeoutRateThreshold = timeoutRateThreshold;
+        this.openIntervalMillis = openIntervalMillis;
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * Returns the number of recent attempts over which the failure and timeout
+     * rates are computed.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Returns the minimum number of recorded attempts before the breaker can
+     * trip.
+     */
+    public int getMinimumAttempts() {
+        return minimumAttempts;
+    }
+
+    /**
+     * Returns the failure rate at which the breaker trips.
+     */
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Returns the timeout rate at which the breaker trips.
+     */
+    public double getTimeoutRateThreshold() {
+        return timeoutRateThreshold;
+    }
+
+    /**
+     * Returns the time in milliseconds the breaker stays open before probing.
+     */
+    public long getOpenIntervalMillis() {
+        return openIntervalMillis;
+    }
+
+    /**
+     * Returns the number of successful probes needed to close the breaker.
+     */
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import org.apache.http.annotation.Immutable;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.RequestClientOptions;
+import com.amazonaws.http.HttpMethodName;
+
+/**
+ * Hedging policy that can be configured on a specific service client using
+ * {@link ClientConfiguration}, or on an individual request using
+ * {@link RequestClientOptions}. When a request is eligible for hedging and has
+ * not received a response within a latency percentile observed for the same
+ * operation, a second attempt is sent on another pooled connection. Whichever
+ * attempt responds first is used, and the other is aborted.
+ * <p>
+ * Only requests that are safe to duplicate should be hedged. By default, the
+ * {@link #IDEMPOTENT_READS} condition is used. This class is immutable,
+ * therefore safe to be shared by multiple clients.
+ *
+ * @see ClientConfiguration#setHedgingPolicy(HedgingPolicy)
+ * @see RequestClientOptions#setHedgingPolicy(HedgingPolicy)
+ */
+@Immutable
+public final class HedgingPolicy {
+
+    /** The default latency percentile after which a hedge is sent. */
+    public static final double DEFAULT_DELAY_PERCENTILE = 95.0;
+
+    /** The default lower bound on the delay before a hedge is sent. */
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 10;
+
+    /**
+     * The default maximum ratio of hedged attempts to eligible requests,
+     * ie 5% of the traffic.
+     */
+    public static final double DEFAULT_MAX_HEDGE_RATIO = 0.05;
+
+    /**
+     * The default maximum size of a request payload that would be buffered
+     * in memory so that it can be sent by both attempts.
+     */
+    public static final int DEFAULT_MAX_BUFFERED_CONTENT_LENGTH = 64 * 1024;
+
+    /**
+     * Hedges GET and HEAD requests, and requests for read-only operations
+     * such as DynamoDB GetItem, BatchGetItem, Query and Scan.
+     */
+    public static final HedgeCondition IDEMPOTENT_READS = new IdempotentReadsCondition();
+
+    /**
+     * Hedges every request. This should only be used for requests that are
+     * known to be safe to duplicate, such as SQS ReceiveMessage requests with
+     * a short visibility timeout.
+     */
+    public static final HedgeCondition ALL_REQUESTS = new HedgeCondition() {
+        @Override
+        public boolean shouldHedge(AmazonWebServiceRequest originalRequest,
+                HttpMethodName httpMethod) {
+            return true;
+        }
+    };
+
+    /** Hedging policy with the default settings. */
+    public static final HedgingPolicy DEFAULT = new HedgingPolicy(
+            IDEMPOTENT_READS, DEFAULT_DELAY_PERCENTILE,
+            DEFAULT_MIN_DELAY_MILLIS, DEFAULT_MAX_HEDGE_RATIO);
+
+    /**
+     * Condition on whether a request may be hedged. This field should not be
+     * null.
+     */
+    private final HedgeCondition hedgeCondition;
+
+    /** Percentile of the observed latency after which a hedge is sent. */
+    private final double delayPercentile;
+
+    /** Lower bound on the delay before a hedge is sent. */
+    private final long minDelayMillis;
+
+    /** Maximum ratio of hedged attempts to eligible requests. */
+    private final double maxHedgeRatio;
+
+    /**
+     * Maximum size of a request payload that would be buffered in memory for
+     * hedging purposes.
+     */
+    private final int maxBufferedContentLength;
+
+    /**
+     * Constructs a new hedging policy.
+     *
+     * @param hedgeCondition
+     *            Condition on whether a specific request may be hedged. If
+     *            null value is specified, the {@link #IDEMPOTENT_READS}
+     *            condition is used.
+     * @param delayPercentile
+     *            Percentile (in the range of (0, 100)) of the latency observed
+     *            for the same operation after which a hedge is sent.
+     * @param minDelayMillis
+     *            Lower bound on the delay before a hedge is sent.
+     * @param maxHedgeRatio
+     *            Maximum ratio (in the range of [0, 1]) of hedged attempts to
+     *            eligible requests.
+     */
+    public HedgingPolicy(HedgeCondition hedgeCondition,
+                         double delayPercentile,
+                         long minDelayMillis,
+                         double maxHedgeRatio) {
+        this(hedgeCondition, delayPercentile, minDelayMillis, maxHedgeRatio,
+                DEFAULT_MAX_BUFFERED_CONTENT_LENGTH);
+    }
+
+    /**
+     * Constructs a new hedging policy.
+     *
+     * @param hedgeCondition
+     *            Condition on whether a specific request may be hedged. If
+     *            null value is specified, the {@link #IDEMPOTENT_READS}
+     *            condition is used.
+     * @param delayPercentile
+     *            Percentile (in the range of (0, 100)) of the latency observed
+     *            for the same operation after which a hedge is sent.
+     * @param minDelayMillis
+     *            Lower bound on the delay before a hedge is sent.
+     * @param maxHedgeRatio
+     *            Maximum ratio (in the range of [0, 1]) of hedged attempts to
+     *            eligible requests.
+     * @param maxBufferedContentLength
+     *            Maximum size of a request payload that would be buffered in
+     *            memory so that it can be sent by both attempts. Requests with
+     *            larger payloads are never hedged.
+     */
+    public HedgingPolicy(HedgeCondition hedgeCondition,
+                         double delayPercentile,
+                         long minDelayMillis,
+                         double maxHedgeRatio,
+                         int maxBufferedContentLength) {
+        if (delayPercentile <= 0 || delayPercentile >= 100) {
+            throw new IllegalArgumentException(
+                    "Please provide a delay percentile between 0 and 100 exclusive.");
+        }
+        if (minDelayMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative minimum delay.");
+        }
+        if (maxHedgeRatio < 0 || maxHedgeRatio > 1) {
+            throw new IllegalArgumentException(
+                    "Please provide a max hedge ratio between 0 and 1 inclusive.");
+        }
+        if (maxBufferedContentLength < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative max buffered content length.");
+        }
+        this.hedgeCondition = hedgeCondition == null
+                            ? IDEMPOTENT_READS
+                            : hedgeCondition;
+        this.delayPercentile = delayPercentile;
+        this.minDelayMillis = minDelayMillis;
+        this.maxHedgeRatio = maxHedgeRatio;
+        this.maxBufferedContentLength = maxBufferedContentLength;
+    }
+
+    /**
+     * Returns the hedge condition included in this hedging policy.
+     */
+    public HedgeCondition getHedgeCondition() {
+        return hedgeCondition;
+    }
+
+    /**
+     * Returns the percentile of the observed latency after which a hedge is
+     * sent.
+     */
+    public double getDelayPercentile() {
+        return delayPercentile;
+    }
+
+    /**
+     * Returns the lower bound on the delay before a hedge is sent.
+     */
+    public long getMinDelayMillis() {
+        return minDelayMillis;
+    }
+
+    /**
+     * Returns the maximum ratio of hedged attempts to eligible requests.
+     */
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    /**
+     * Returns the maximum size of a request payload that would be buffered in
+     * memory for hedging purposes.
+     */
+    public int getMaxBufferedContentLength() {
+        return maxBufferedContentLength;
+    }
+
+    /**
+     * The hook for providing custom condition on whether a request may be
+     * hedged.
+     */
+    public static interface HedgeCondition {
+        /**
+         * Returns whether a request may be sent more than once concurrently.
+         *
+         * @param originalRequest
+         *            The original request object being executed.
+         * @param httpMethod
+         *            The HTTP method of the request being executed.
+         *
+         * @return True if the request is safe to duplicate.
+         */
+        public boolean shouldHedge(AmazonWebServiceRequest originalRequest,
+                HttpMethodName httpMethod);
+    }
+
+    /**
+     * Hedge condition based on the HTTP method and the name of the operation.
+     */
+    private static class IdempotentReadsCondition implements HedgeCondition {
+        private static final String[] READ_OPERATION_PREFIXES = {
+            "Get", "BatchGet", "Query", "Scan", "Describe", "List", "Head",
+        };
+
+        @Override
+        public boolean shouldHedge(AmazonWebServiceRequest originalRequest,
+                HttpMethodName httpMethod) {
+            if (httpMethod == HttpMethodName.GET
+                    || httpMethod == HttpMethodName.HEAD) {
+                return true;
+            }
+            if (originalRequest == null) {
+                return false;
+            }
+            String operation = originalRequest.getClass().getSimpleName();
+            for (String prefix : READ_OPERATION_PREFIXES) {
+                if (operation.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
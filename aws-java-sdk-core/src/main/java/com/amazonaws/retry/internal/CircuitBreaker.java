@@ -0,0 +1,218 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry.internal;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.retry.CircuitBreakerPolicy;
+
+/**
+ * Circuit breaker of a single service endpoint. Keeps the outcome of the
+ * recent attempts in a fixed size window, and trips open when the failure
+ * rate or the timeout rate exceeds the threshold of the policy.
+ * <p>
+ * Every attempt permitted by {@link #tryAcquire()} must be followed by exactly
+ * one call to {@link #onSuccess()}, {@link #onFailure(boolean)} or
+ * {@link #onIgnored()}.
+ */
+@ThreadSafe
+public class CircuitBreaker {
+    private static final Log log = LogFactory.getLog(CircuitBreaker.class);
+
+    public static enum State {
+        /** Requests are let through, and their outcomes recorded. */
+        CLOSED,
+        /** Requests are rejected. */
+        OPEN,
+        /** A limited number of probe requests are let through. */
+        HALF_OPEN,
+    }
+
+    private static final byte SUCCESS = 0;
+    private static final byte FAILURE = 1;
+    private static final byte TIMEOUT = 2;
+
+    private final String key;
+    private final CircuitBreakerPolicy policy;
+
+    // All the fields below are guarded by this.
+    private final byte[] window;
+    private int windowIndex;
+    private int recorded;
+    private int failures;
+    private int timeouts;
+    private State state = State.CLOSED;
+    private long openedAtMillis;
+    private int probesInFlight;
+    private int probeSuccesses;
+    private long rejectedCount;
+    private long openedCount;
+
+    public CircuitBreaker(String key, CircuitBreakerPolicy policy) {
+        this.key = key;
+        this.policy = policy;
+        this.window = new byte[policy.getWindowSize()];
+    }
+
+    /**
+     * Returns the key of this circuit breaker, ie the service name and
+     * endpoint.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns true if an attempt may be sent; false if it should be rejected.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (now() - openedAtMillis < policy.getOpenIntervalMillis()) {
+                rejectedCount++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+            if (log.isDebugEnabled())
+                log.debug("Circuit breaker half open: " + key);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= policy.getHalfOpenProbes()) {
+                rejectedCount++;
+                return false;
+            }
+            probesInFlight++;
+        }
+        return true;
+    }
+
+    /**
+     * Records an attempt that reached the endpoint and got a response that
+     * does not indicate a service side failure.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (++probeSuccesses >= policy.getHalfOpenProbes()) {
+                close();
+            }
+            return;
+        }
+        record(SUCCESS);
+    }
+
+    /**
+     * Records an attempt that failed with an I/O error or a service side
+     * failure.
+     *
+     * @param timeout
+     *            true if the failure was a connection or socket timeout.
+     */
+    public synchronized void onFailure(boolean timeout) {
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            open();
+            return;
+        }
+        if (state == State.CLOSED) {
+            record(timeout ? TIMEOUT : FAILURE);
+            if (recorded >= policy.getMinimumAttempts()
+                    && (failures + timeouts >= policy.getFailureRateThreshold() * recorded
+                        || timeouts >= policy.getTimeoutRateThreshold() * recorded)) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Releases an attempt whose outcome says nothing about the availability
+     * of the endpoint.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN)
+            probesInFlight--;
+    }
+
+    /** Returns the current state of this circuit breaker. */
+    public synchronized State getState() {
+        if (state == State.OPEN
+                && now() - openedAtMillis >= policy.getOpenIntervalMillis())
+            return State.HALF_OPEN;
+        return state;
+    }
+
+    /** Returns the number of attempts rejected by this circuit breaker. */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /** Returns the number of times this circuit breaker has tripped open. */
+    public synchronized long getOpenedCount() {
+        return openedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return key + ": " + getState()
+            + ", recorded=" + recorded
+            + ", failures=" + failures
+            + ", timeouts=" + timeouts
+            + ", opened=" + openedCount
+            + ", rejected=" + rejectedCount;
+    }
+
+    private void record(byte outcome) {
+        if (recorded == window.length) {
+            byte evicted = window[windowIndex];
+            if (evicted == FAILURE)
+                failures--;
+            else if (evicted == TIMEOUT)
+                timeouts--;
+        } else {
+            recorded++;
+        }
+        window[windowIndex] = outcome;
+        windowIndex = (windowIndex + 1) % window.length;
+        if (outcome == FAILURE)
+            failures++;
+        else if (outcome == TIMEOUT)
+            timeouts++;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAtMillis = now();
+        openedCount++;
+        log.warn("Circuit breaker open: " + this);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        windowIndex = 0;
+        recorded = 0;
+        failures = 0;
+        timeouts = 0;
+        if (log.isDebugEnabled())
+            log.debug("Circuit breaker closed: " + key);
+    }
+
+    /** Returns the current time in milliseconds; overridable for testing. */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry.internal;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.retry.CircuitBreakerPolicy;
+
+/**
+ * Process wide registry of the circuit breakers, keyed by the policy instance,
+ * the service name and the endpoint.
+ */
+@ThreadSafe
+public enum CircuitBreakerRegistry {
+    ;
+    private static final ConcurrentMap<Key, CircuitBreaker> breakers =
+            new ConcurrentHashMap<Key, CircuitBreaker>();
+
+    /**
+     * Returns the circuit breaker for the given policy, service and endpoint,
+     * creating it if necessary.
+     */
+    public static CircuitBreaker getCircuitBreaker(CircuitBreakerPolicy policy,
+            String serviceName, URI endpoint) {
+        final String name = serviceName + "@" + endpoint.getScheme() + "://"
+                + endpoint.getAuthority();
+        final Key key = new Key(policy, name);
+        CircuitBreaker breaker = breakers.get(key);
+        if (breaker == null) {
+            CircuitBreaker created = new CircuitBreaker(name, policy);
+            breaker = breakers.putIfAbsent(key, created);
+            if (breaker == null)
+                breaker = created;
+        }
+        return breaker;
+    }
+
+    /**
+     * Returns a snapshot of all the circuit breakers in use.
+     */
+    public static List<CircuitBreaker> getCircuitBreakers() {
+        return new ArrayList<CircuitBreaker>(breakers.values());
+    }
+
+    /**
+     * Removes all the circuit breakers; used for testing purposes.
+     */
+    static void clear() {
+        breakers.clear();
+    }
+
+    private static final class Key {
+        private final CircuitBreakerPolicy policy;
+        private final String name;
+
+        Key(CircuitBreakerPolicy policy, String name) {
+            this.policy = policy;
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(policy) + name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key that = (Key) o;
+            return policy == that.policy && name.equals(that.name);
+        }
+    }
+}
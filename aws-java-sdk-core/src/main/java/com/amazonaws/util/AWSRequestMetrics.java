@@ -94,6 +94,16 @@ public class AWSRequestMetrics {
          * request to AWS.
          */
         HttpClientRetryCount,
+        /**
+         * Number of hedged attempts sent to AWS while an earlier attempt of
+         * the same request was still outstanding.
+         */
+        HedgedRequestCount,
+        /**
+         * Number of attempts rejected without being sent because the circuit
+         * breaker of the endpoint was open.
+         */
+        CircuitBreakerRejectedCount,
         /**
          * Time taken to send a request to AWS by the http client library,
          * excluding any retry. 
@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.internal.Releasable;
 
 
@@ -110,13 +111,17 @@ public enum IOUtils {
      */
     public static long copy(InputStream in, OutputStream out)
             throws IOException {
-        byte[] buf = new byte[BUFFER_SIZE];
-        long count = 0;
-        int n = 0;
-        while ((n = in.read(buf)) > -1) {
-            out.write(buf, 0, n);
-            count += n;
+        byte[] buf = BufferPool.borrow(BUFFER_SIZE);
+        try {
+            long count = 0;
+            int n = 0;
+            while ((n = in.read(buf, 0, BUFFER_SIZE)) > -1) {
+                out.write(buf, 0, n);
+                count += n;
+            }
+            return count;
+        } finally {
+            BufferPool.release(buf);
         }
-        return count;
     }
 }
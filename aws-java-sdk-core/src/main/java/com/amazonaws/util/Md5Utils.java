@@ -28,6 +28,8 @@ import java.security.NoSuchAlgorithmException;
 
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.internal.BufferPool;
+
 /**
  * Utility methods for computing MD5 sums.
  */
@@ -42,10 +44,14 @@ public class Md5Utils {
         BufferedInputStream bis = new BufferedInputStream(is);
         try {
             MessageDigest messageDigest = MessageDigest.getInstance("MD5");
-            byte[] buffer = new byte[SIXTEEN_K];
-            int bytesRead;
-            while ( (bytesRead = bis.read(buffer, 0, buffer.length)) != -1 ) {
-                messageDigest.update(buffer, 0, bytesRead);
+            byte[] buffer = BufferPool.borrow(SIXTEEN_K);
+            try {
+                int bytesRead;
+                while ( (bytesRead = bis.read(buffer, 0, SIXTEEN_K)) != -1 ) {
+                    messageDigest.update(buffer, 0, bytesRead);
+                }
+            } finally {
+                BufferPool.release(buffer);
             }
             return messageDigest.digest();
         } catch (NoSuchAlgorithmException e) {
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+
+/**
+ * Measures the cold start of a service client: the time to construct it, and
+ * the time until its first request reaches the (local, stub) endpoint. Each
+ * run measures a single cold start, so it should be run in a fresh JVM, with
+ * the service module on the classpath:
+ *
+ * <pre>
+ * java com.amazonaws.ClientStartupBenchmark s3
+ * java com.amazonaws.ClientStartupBenchmark dynamodb
+ * java com.amazonaws.ClientStartupBenchmark sqs
+ * java com.amazonaws.ClientStartupBenchmark &lt;client class&gt; &lt;no-arg operation&gt;
+ * </pre>
+ */
+public class ClientStartupBenchmark {
+
+    private static final String[][] CLIENTS = {
+        { "s3", "com.amazonaws.services.s3.AmazonS3Client", "listBuckets" },
+        { "dynamodb", "com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient", "listTables" },
+        { "sqs", "com.amazonaws.services.sqs.AmazonSQSClient", "listQueues" },
+    };
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.err.println("Usage: ClientStartupBenchmark (s3|dynamodb|sqs|<client class> <operation>)");
+            System.exit(1);
+        }
+        final long start = System.nanoTime();
+        String clientClassName = args[0];
+        String operation = args.length > 1 ? args[1] : null;
+        for (String[] client : CLIENTS) {
+            if (client[0].equals(args[0])) {
+                clientClassName = client[1];
+                operation = client[2];
+            }
+        }
+
+        final ServerSocket server = new ServerSocket(0);
+        final AtomicLong firstRequest = new AtomicLong();
+        final CountDownLatch received = new CountDownLatch(1);
+        Thread stub = new Thread("stub-endpoint") {
+            @Override
+            public void run() {
+                try {
+                    Socket socket = server.accept();
+                    InputStream in = socket.getInputStream();
+                    in.read();
+                    firstRequest.set(System.nanoTime());
+                    received.countDown();
+                    OutputStream out = socket.getOutputStream();
+                    out.write(("HTTP/1.1 400 Bad Request\r\n"
+                            + "Content-Length: 0\r\n"
+                            + "Connection: close\r\n\r\n").getBytes("UTF-8"));
+                    out.flush();
+                    socket.close();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        stub.setDaemon(true);
+        stub.start();
+
+        Class<?> clientClass = Class.forName(clientClassName);
+        AmazonWebServiceClient client = (AmazonWebServiceClient) clientClass
+                .getConstructor(AWSCredentials.class)
+                .newInstance(new BasicAWSCredentials("akid", "skid"));
+        client.setEndpoint("http://localhost:" + server.getLocalPort());
+        final long constructed = System.nanoTime();
+
+        try {
+            clientClass.getMethod(operation).invoke(client);
+        } catch (InvocationTargetException expected) {
+            // The stub endpoint always fails the request
+        }
+        if (!received.await(10, TimeUnit.SECONDS))
+            throw new IllegalStateException("No request reached the stub endpoint");
+        client.shutdown();
+        server.close();
+
+        System.out.println(clientClassName);
+        System.out.println("  construction:          "
+                + TimeUnit.NANOSECONDS.toMillis(constructed - start) + " ms");
+        System.out.println("  time to first request: "
+                + TimeUnit.NANOSECONDS.toMillis(firstRequest.get() - start) + " ms");
+    }
+}
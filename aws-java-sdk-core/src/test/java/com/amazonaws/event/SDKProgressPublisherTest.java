@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class SDKProgressPublisherTest {
+
+    /**
+     * Collects the events delivered (asynchronously) to it; blocks on the
+     * first event until released, so that the following ones pile up.
+     */
+    private static class RecordingListener implements ProgressListener {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final List<ProgressEvent> events = new ArrayList<ProgressEvent>();
+
+        @Override
+        public void progressChanged(ProgressEvent event) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (events) {
+                events.add(event);
+            }
+            if (event.getEventType() == ProgressEventType.TRANSFER_COMPLETED_EVENT)
+                completed.countDown();
+        }
+
+        long bytesOf(ProgressEventType type) {
+            long bytes = 0;
+            synchronized (events) {
+                for (ProgressEvent event : events) {
+                    if (event.getEventType() == type)
+                        bytes += event.getBytes();
+                }
+            }
+            return bytes;
+        }
+    }
+
+    @Test
+    public void testByteTransferEventsAreCoalesced() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        SDKProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+        for (int i = 0; i < 10000; i++) {
+            SDKProgressPublisher.publishRequestBytesTransferred(listener, 8192);
+            SDKProgressPublisher.publishResponseBytesTransferred(listener, 10);
+        }
+        SDKProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+        listener.release.countDown();
+        assertTrue(listener.completed.await(10, TimeUnit.SECONDS));
+
+        List<ProgressEvent> events = listener.events;
+        // Started, then at most a few coalesced events per type, then completed
+        assertTrue("" + events.size(), events.size() <= 6);
+        assertEquals(ProgressEventType.TRANSFER_STARTED_EVENT, events.get(0).getEventType());
+        assertEquals(ProgressEventType.TRANSFER_COMPLETED_EVENT,
+                events.get(events.size() - 1).getEventType());
+        assertEquals(10000L * 8192,
+                listener.bytesOf(ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT));
+        assertEquals(10000L * 10,
+                listener.bytesOf(ProgressEventType.RESPONSE_BYTE_TRANSFER_EVENT));
+    }
+
+    @Test
+    public void testAllBytesDeliveredFromConcurrentPublishers() throws Exception {
+        final RecordingListener listener = new RecordingListener();
+        listener.release.countDown();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 5000; j++)
+                        SDKProgressPublisher.publishRequestBytesTransferred(listener, 3);
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread t : threads)
+            t.join();
+        SDKProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+        assertTrue(listener.completed.await(10, TimeUnit.SECONDS));
+        assertEquals(8L * 5000 * 3,
+                listener.bytesOf(ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT));
+    }
+}
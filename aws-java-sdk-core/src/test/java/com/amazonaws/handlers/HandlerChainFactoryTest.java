@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+
+public class HandlerChainFactoryTest {
+    private static final String RESOURCE = "/com/amazonaws/handlers/test.handlers";
+
+    public static class NoOpHandler extends RequestHandler2 {
+        @Override
+        public void beforeRequest(Request<?> request) {
+        }
+
+        @Override
+        public void afterResponse(Request<?> request, Response<?> response) {
+        }
+
+        @Override
+        public void afterError(Request<?> request, Response<?> response,
+                Exception e) {
+        }
+    }
+
+    @Test
+    public void testNewHandlerInstancesPerChain() {
+        HandlerChainFactory factory = new HandlerChainFactory();
+        List<RequestHandler2> first = factory.newRequestHandler2Chain(RESOURCE);
+        List<RequestHandler2> second = new HandlerChainFactory().newRequestHandler2Chain(RESOURCE);
+        assertEquals(1, first.size());
+        assertEquals(1, second.size());
+        assertTrue(first.get(0) instanceof NoOpHandler);
+        // The handler classes are cached, but handlers may be stateful
+        assertNotSame(first.get(0), second.get(0));
+        // The returned chain is owned by the caller
+        first.clear();
+        assertEquals(1, factory.newRequestHandler2Chain(RESOURCE).size());
+    }
+
+    @Test
+    public void testMissingResource() {
+        assertTrue(new HandlerChainFactory()
+                .newRequestHandler2Chain("/com/amazonaws/handlers/missing.handlers")
+                .isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.amazonaws.retry.HedgingPolicy;
+
+public class HedgedRequestExecutorTest {
+    private static final String SLOW = "slow";
+
+    private HedgedRequestExecutor executor;
+
+    @Before
+    public void setUp() throws IOException {
+        HttpClient httpClient = mock(HttpClient.class);
+        when(httpClient.execute(any(HttpUriRequest.class), any(HttpContext.class)))
+            .thenAnswer(new Answer<org.apache.http.HttpResponse>() {
+                @Override
+                public org.apache.http.HttpResponse answer(InvocationOnMock invocation)
+                        throws Throwable {
+                    HttpRequestBase request = (HttpRequestBase) invocation.getArguments()[0];
+                    if (request.containsHeader(SLOW)) {
+                        // Simulates a slow connection that only completes
+                        // when the request is aborted.
+                        while (!request.isAborted()) {
+                            Thread.sleep(5);
+                        }
+                        throw new IOException("Request aborted");
+                    }
+                    return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+                }
+            });
+        executor = new HedgedRequestExecutor(httpClient);
+    }
+
+    @Test
+    public void testHedgeWinsOverSlowPrimary() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(null, 50, 0, 1.0);
+        warmUp(policy);
+
+        HttpRequestBase slow = new HttpGet("http://localhost/");
+        slow.addHeader(SLOW, "true");
+        HedgedRequestExecutor.Attempt primary = attempt(slow);
+        HedgedRequestExecutor.Attempt hedge = attempt(new HttpGet("http://localhost/"));
+        HedgedRequestExecutor.Attempt winner = executor.execute(
+                HedgedRequestExecutorTest.class, policy, primary, hedge);
+
+        assertSame(hedge, winner);
+        assertTrue(hedge.isLaunched());
+        assertTrue(slow.isAborted());
+        assertEquals(HttpStatus.SC_OK, winner.getResponse().getStatusLine().getStatusCode());
+    }
+
+    @Test
+    public void testNoHedgeWithoutLatencySamples() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(null, 50, 0, 1.0);
+        HedgedRequestExecutor.Attempt primary = attempt(new HttpGet("http://localhost/"));
+        HedgedRequestExecutor.Attempt hedge = attempt(new HttpGet("http://localhost/"));
+        HedgedRequestExecutor.Attempt winner = executor.execute(
+                HedgedRequestExecutorTest.class, policy, primary, hedge);
+
+        assertSame(primary, winner);
+        assertFalse(hedge.isLaunched());
+    }
+
+    @Test
+    public void testNoHedgeWithoutBudget() throws IOException {
+        HedgingPolicy policy = new HedgingPolicy(null, 50, 0, 0);
+        warmUp(policy);
+
+        HttpRequestBase slow = new HttpGet("http://localhost/");
+        slow.addHeader(SLOW, "true");
+        final HedgedRequestExecutor.Attempt primary = attempt(slow);
+        HedgedRequestExecutor.Attempt hedge = attempt(new HttpGet("http://localhost/"));
+        Thread aborter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ignored) {
+                }
+                primary.abort();
+            }
+        };
+        aborter.start();
+        try {
+            executor.execute(HedgedRequestExecutorTest.class, policy, primary, hedge);
+            fail("Expected the failure of the primary attempt");
+        } catch (IOException expected) {
+        }
+        assertFalse(hedge.isLaunched());
+    }
+
+    private void warmUp(HedgingPolicy policy) throws IOException {
+        for (int i = 0; i < HedgedRequestExecutor.LatencyTracker.MIN_SAMPLES; i++) {
+            executor.execute(HedgedRequestExecutorTest.class, policy,
+                    attempt(new HttpGet("http://localhost/")),
+                    attempt(new HttpGet("http://localhost/")));
+        }
+    }
+
+    private HedgedRequestExecutor.Attempt attempt(HttpRequestBase request) {
+        return executor.new Attempt(request, new BasicHttpContext());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        assertEquals(0, BufferPool.sizeClassIndex(1));
+        assertEquals(0, BufferPool.sizeClassIndex(512));
+        assertEquals(1, BufferPool.sizeClassIndex(513));
+        assertEquals(4, BufferPool.sizeClassIndex(8192));
+        assertEquals(9, BufferPool.sizeClassIndex((1 << 17) + 1));
+        assertEquals(512, BufferPool.borrow(0).length);
+        assertEquals(8192, BufferPool.borrow(5 * 1024).length);
+        assertEquals(1 << 18, BufferPool.borrow((1 << 17) + 1).length);
+        // Too large to be pooled
+        assertEquals((1 << 20) + 1, BufferPool.borrow((1 << 20) + 1).length);
+    }
+
+    @Test
+    public void testReuseFromThreadCache() {
+        byte[] b = BufferPool.borrow(4096);
+        BufferPool.release(b);
+        assertSame(b, BufferPool.borrow(4000));
+        assertNotSame(b, BufferPool.borrow(4000));
+    }
+
+    @Test
+    public void testReuseAcrossThreads() throws Exception {
+        final byte[] large = BufferPool.borrow(1 << 19);
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                BufferPool.release(large);
+            }
+        };
+        t.start();
+        t.join();
+        assertSame(large, BufferPool.borrow(1 << 19));
+    }
+
+    @Test
+    public void testOddSizedBuffersAreDropped() {
+        byte[] odd = new byte[3000];
+        BufferPool.release(odd);
+        assertNotSame(odd, BufferPool.borrow(3000));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import com.amazonaws.util.IOUtils;
+
+public class SdkBufferedInputStreamTest {
+
+    private static byte[] bytes(int n) {
+        byte[] bytes = new byte[n];
+        for (int i = 0; i < n; i++)
+            bytes[i] = (byte) i;
+        return bytes;
+    }
+
+    @Test
+    public void testResetAfterGrowingBuffer() throws IOException {
+        byte[] data = bytes(100 * 1024);
+        SdkBufferedInputStream in =
+            new SdkBufferedInputStream(new ByteArrayInputStream(data));
+        in.mark((1 << 17) + 1);
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+        in.reset();
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+        in.close();
+    }
+
+    @Test
+    public void testMarkInvalidatedBeyondReadLimit() throws IOException {
+        byte[] data = bytes(64 * 1024);
+        SdkBufferedInputStream in =
+            new SdkBufferedInputStream(new ByteArrayInputStream(data), 1024);
+        in.mark(4096);
+        IOUtils.toByteArray(in);
+        try {
+            in.reset();
+            fail();
+        } catch (IOException expected) {
+            assertEquals("Resetting to invalid mark", expected.getMessage());
+        }
+        in.close();
+    }
+
+    @Test
+    public void testBufferReturnedToPoolOnClose() throws IOException {
+        byte[] data = bytes(10);
+        byte[] buffer = BufferPool.borrow(2048);
+        BufferPool.release(buffer);
+        SdkBufferedInputStream in =
+            new SdkBufferedInputStream(new ByteArrayInputStream(data), 2048);
+        assertEquals(10, in.read(new byte[20]));
+        in.close();
+        assertSame(buffer, BufferPool.borrow(2048));
+        try {
+            in.read();
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.regions;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generates the source of {@link BundledRegionMetadata} from the bundled
+ * regions.xml. Run with the path of the source file to (re)generate whenever
+ * the bundled regions.xml changes:
+ *
+ * <pre>
+ * java com.amazonaws.regions.BundledRegionMetadataGenerator \
+ *     src/main/java/com/amazonaws/regions/BundledRegionMetadata.java
+ * </pre>
+ */
+public class BundledRegionMetadataGenerator {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: BundledRegionMetadataGenerator <output file>");
+            System.exit(1);
+        }
+        Writer out = new OutputStreamWriter(new FileOutputStream(args[0]), "UTF-8");
+        try {
+            out.write(generate());
+        } finally {
+            out.close();
+        }
+    }
+
+    static String generate() throws IOException {
+        InputStream in = RegionUtils.class.getResourceAsStream(
+                "/com/amazonaws/regions/regions.xml");
+        RegionMetadata metadata = RegionMetadataParser.parse(in);
+        StringBuilder sb = new StringBuilder();
+        sb.append(HEADER);
+        for (Region region : metadata.getRegions()) {
+            sb.append("        {\n");
+            sb.append("            ").append(quote(region.getName())).append(", ")
+              .append(quote(region.getDomain())).append(",\n");
+            List<String> services =
+                new ArrayList<String>(region.getServiceEndpoints().keySet());
+            Collections.sort(services);
+            for (String service : services) {
+                sb.append("            ")
+                  .append(quote(service)).append(", ")
+                  .append(quote(region.getServiceEndpoints().get(service))).append(", ")
+                  .append(quote(flags(region, service))).append(",\n");
+            }
+            sb.append("        },\n");
+        }
+        sb.append(FOOTER);
+        return sb.toString();
+    }
+
+    private static String flags(Region region, String service) {
+        String flags = "";
+        if (Boolean.TRUE.equals(region.getHttpSupport().get(service)))
+            flags += "h";
+        if (Boolean.TRUE.equals(region.getHttpsSupport().get(service)))
+            flags += "s";
+        return flags;
+    }
+
+    private static String quote(String s) {
+        return s == null ? "null" : "\"" + s + "\"";
+    }
+
+    private static final String HEADER =
+        "/*\n"
+      + " * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.\n"
+      + " *\n"
+      + " * Licensed under the Apache License, Version 2.0 (the \"License\").\n"
+      + " * You may not use this file except in compliance with the License.\n"
+      + " * A copy of the License is located at\n"
+      + " *\n"
+      + " *  http://aws.amazon.com/apache2.0\n"
+      + " *\n"
+      + " * or in the \"license\" file accompanying this file. This file is distributed\n"
+      + " * on an \"AS IS\" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either\n"
+      + " * express or implied. See the License for the specific language governing\n"
+      + " * permissions and limitations under the License.\n"
+      + " */\n"
+      + "package com.amazonaws.regions;\n"
+      + "\n"
+      + "import java.util.ArrayList;\n"
+      + "import java.util.List;\n"
+      + "\n"
+      + "/**\n"
+      + " * The bundled region metadata, precompiled from regions.xml so that it is\n"
+      + " * available without parsing XML at startup. Generated by\n"
+      + " * BundledRegionMetadataGenerator; do not edit.\n"
+      + " */\n"
+      + "final class BundledRegionMetadata {\n"
+      + "\n"
+      + "    /**\n"
+      + "     * Per region: the name and domain, followed by triples of service\n"
+      + "     * name, hostname, and the supported protocols (\"h\" for http, \"s\" for\n"
+      + "     * https).\n"
+      + "     */\n"
+      + "    private static final String[][] REGIONS = {\n";
+
+    private static final String FOOTER =
+        "    };\n"
+      + "\n"
+      + "    private BundledRegionMetadata() {\n"
+      + "    }\n"
+      + "\n"
+      + "    /**\n"
+      + "     * Returns a new region metadata object equivalent to the one parsed\n"
+      + "     * from the bundled regions.xml.\n"
+      + "     */\n"
+      + "    static RegionMetadata create() {\n"
+      + "        List<Region> regions = new ArrayList<Region>(REGIONS.length);\n"
+      + "        for (String[] entry : REGIONS) {\n"
+      + "            Region region = new Region(entry[0], entry[1]);\n"
+      + "            for (int i = 2; i + 2 < entry.length; i += 3) {\n"
+      + "                String service = entry[i];\n"
+      + "                String flags = entry[i + 2];\n"
+      + "                region.getServiceEndpoints().put(service, entry[i + 1]);\n"
+      + "                region.getHttpSupport().put(service, flags.indexOf('h') >= 0);\n"
+      + "                region.getHttpsSupport().put(service, flags.indexOf('s') >= 0);\n"
+      + "            }\n"
+      + "            regions.add(region);\n"
+      + "        }\n"
+      + "        return new RegionMetadata(regions);\n"
+      + "    }\n"
+      + "}\n";
+}
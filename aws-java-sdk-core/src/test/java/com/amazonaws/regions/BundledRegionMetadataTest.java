@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.regions;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BundledRegionMetadataTest {
+
+    /**
+     * The precompiled metadata must match the bundled regions.xml; regenerate
+     * it with BundledRegionMetadataGenerator when this fails.
+     */
+    @Test
+    public void testMatchesBundledXml() throws Exception {
+        InputStream in = RegionUtils.class.getResourceAsStream(
+                "/com/amazonaws/regions/regions.xml");
+        List<Region> parsed;
+        try {
+            parsed = RegionMetadataParser.parse(in).getRegions();
+        } finally {
+            in.close();
+        }
+        List<Region> bundled = BundledRegionMetadata.create().getRegions();
+
+        Assert.assertEquals(parsed.size(), bundled.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            Region expected = parsed.get(i);
+            Region actual = bundled.get(i);
+            Assert.assertEquals(expected.getName(), actual.getName());
+            Assert.assertEquals(expected.getDomain(), actual.getDomain());
+            Assert.assertEquals(expected.getServiceEndpoints(),
+                    actual.getServiceEndpoints());
+            Assert.assertEquals(expected.getHttpSupport(),
+                    actual.getHttpSupport());
+            Assert.assertEquals(expected.getHttpsSupport(),
+                    actual.getHttpsSupport());
+        }
+    }
+
+    @Test
+    public void testInitializeUsesBundledMetadata() {
+        RegionUtils.initialize();
+        Assert.assertEquals("/com/amazonaws/regions/regions.xml",
+                RegionUtils.getSource());
+        Region region = RegionUtils.getRegion("cn-north-1");
+        Assert.assertEquals("amazonaws.com.cn", region.getDomain());
+        Assert.assertTrue(region.isServiceSupported("s3"));
+    }
+}
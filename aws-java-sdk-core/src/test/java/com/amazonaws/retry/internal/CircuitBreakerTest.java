@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.retry.CircuitBreakerPolicy;
+import com.amazonaws.retry.internal.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+    private static final CircuitBreakerPolicy POLICY =
+            new CircuitBreakerPolicy(10, 4, 0.5, 0.3, 1000, 2);
+
+    private long now;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setUp() {
+        breaker = new CircuitBreaker("svc@https://svc.amazonaws.com", POLICY) {
+            @Override
+            protected long now() {
+                return now;
+            }
+        };
+    }
+
+    @Test
+    public void testStaysClosedBelowMinimumAttempts() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure(false);
+        }
+        assertEquals(State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testTripsOnFailureRate() {
+        recordSuccesses(2);
+        recordFailures(2, false);
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(1, breaker.getOpenedCount());
+    }
+
+    @Test
+    public void testTripsOnTimeoutRate() {
+        recordSuccesses(5);
+        recordFailures(2, true);
+        assertEquals(State.CLOSED, breaker.getState());
+        recordFailures(1, true);
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testOldOutcomesLeaveTheWindow() {
+        recordFailures(1, false);
+        recordSuccesses(9);
+        recordSuccesses(1);
+        recordFailures(4, false);
+        // The first failure has left the window of 10 attempts
+        assertEquals(State.CLOSED, breaker.getState());
+        recordFailures(1, false);
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenProbesClose() {
+        recordFailures(4, false);
+        now += 1000;
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        // Only a limited number of concurrent probes are let through
+        assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testHalfOpenProbeFailureReopens() {
+        recordFailures(4, false);
+        now += 1000;
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure(true);
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenedCount());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testIgnoredProbeReleasesPermit() {
+        recordFailures(4, false);
+        now += 1000;
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        breaker.onIgnored();
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testRegistryKeyedByPolicyServiceAndEndpoint() {
+        URI endpoint = URI.create("https://svc.us-east-1.amazonaws.com/path");
+        CircuitBreaker cb = CircuitBreakerRegistry.getCircuitBreaker(POLICY, "svc", endpoint);
+        assertSame(cb, CircuitBreakerRegistry.getCircuitBreaker(POLICY, "svc",
+                URI.create("https://svc.us-east-1.amazonaws.com")));
+        assertEquals("svc@https://svc.us-east-1.amazonaws.com", cb.getKey());
+        assertTrue(cb != CircuitBreakerRegistry.getCircuitBreaker(
+                CircuitBreakerPolicy.DEFAULT, "svc", endpoint));
+        assertTrue(cb != CircuitBreakerRegistry.getCircuitBreaker(POLICY, "other", endpoint));
+        CircuitBreakerRegistry.clear();
+    }
+
+    private void recordSuccesses(int n) {
+        for (int i = 0; i < n; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess();
+        }
+    }
+
+    private void recordFailures(int n, boolean timeout) {
+        for (int i = 0; i < n; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure(timeout);
+        }
+    }
+}
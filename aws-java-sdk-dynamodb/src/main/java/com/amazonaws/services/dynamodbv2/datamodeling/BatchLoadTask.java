@@ -0,0 +1,269 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+
+import org.apache.http.annotation.NotThreadSafe;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.internal.BackgroundExecutor;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+
+/**
+ * Loads an arbitrary number of items, from any number of tables, using
+ * BatchGetItem requests of up to {@value #MAX_KEYS_PER_BATCH} keys each.
+ * <p>
+ * Duplicate keys are only requested once. Up to the given number of requests
+ * are kept in flight at a time, and the unprocessed keys returned by the
+ * service are merged into the next batches rather than resubmitted on their
+ * own. Loaded items are passed to {@link #onItemsLoaded(String, List)} as each
+ * response arrives, on the thread calling {@link #load()}.
+ */
+@NotThreadSafe
+abstract class BatchLoadTask {
+
+    /** The max number of keys allowed in a BatchGetItem request */
+    static final int MAX_KEYS_PER_BATCH = 100;
+
+    private final int maxConcurrency;
+    private final int maxRetriesWithoutProgress;
+    private final Boolean consistentRead;
+
+    /** Keys returned as unprocessed, to be sent before any other key. */
+    private final Deque<TableKey> unprocessed = new ArrayDeque<TableKey>();
+    /** Keys not sent yet. */
+    private final Deque<TableKey> pending = new ArrayDeque<TableKey>();
+    private final Set<TableKey> seen = new HashSet<TableKey>();
+
+    private int retriesWithoutProgress;
+
+    /**
+     * @param maxConcurrency
+     *            the max number of BatchGetItem requests in flight at a time
+     * @param maxRetriesWithoutProgress
+     *            the max number of consecutive responses without any item,
+     *            after which the load fails
+     * @param consistentRead
+     *            whether to use strongly consistent reads
+     */
+    BatchLoadTask(int maxConcurrency, int maxRetriesWithoutProgress, Boolean consistentRead) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxRetriesWithoutProgress = maxRetriesWithoutProgress;
+        this.consistentRead = consistentRead;
+    }
+
+    /**
+     * Sends the given BatchGetItem request items. Called concurrently, from
+     * worker threads, when more than one request is kept in flight.
+     */
+    protected abstract BatchGetItemResult batchGetItem(Map<String, KeysAndAttributes> requestItems);
+
+    /**
+     * Called with the items loaded from a table by a single response.
+     */
+    protected abstract void onItemsLoaded(String tableName, List<Map<String, AttributeValue>> items);
+
+    /**
+     * Called before resending unprocessed keys after a response without any
+     * item, which typically means the tables' provisioned throughput is
+     * exceeded.
+     *
+     * @param retries the number of consecutive responses without any item
+     */
+    protected abstract void pauseBeforeRetry(int retries);
+
+    /**
+     * Adds the key of an item to load, unless it has already been added.
+     */
+    void addKey(String tableName, Map<String, AttributeValue> key) {
+        TableKey tableKey = new TableKey(tableName, key);
+        if ( seen.add(tableKey) ) {
+            pending.add(tableKey);
+        }
+    }
+
+    /**
+     * Loads all the keys added, returning once all the loaded items have been
+     * passed to {@link #onItemsLoaded(String, List)}.
+     */
+    void load() {
+        if ( maxConcurrency == 1 || pending.size() <= MAX_KEYS_PER_BATCH ) {
+            while ( hasKeysToSend() ) {
+                Map<String, KeysAndAttributes> batch = nextBatch();
+                onResult(batchGetItem(batch));
+            }
+        } else {
+            loadConcurrently();
+        }
+    }
+
+    private void loadConcurrently() {
+        CompletionService<BatchGetItemResult> completionService =
+            new ExecutorCompletionService<BatchGetItemResult>(BackgroundExecutor.getExecutorService());
+        int inFlight = 0;
+        try {
+            while ( hasKeysToSend() || inFlight > 0 ) {
+                while ( inFlight < maxConcurrency && shouldSendNextBatch(inFlight) ) {
+                    final Map<String, KeysAndAttributes> batch = nextBatch();
+                    completionService.submit(new Callable<BatchGetItemResult>() {
+                        @Override
+                        public BatchGetItemResult call() {
+                            return batchGetItem(batch);
+                        }
+                    });
+                    inFlight++;
+                }
+                BatchGetItemResult result = completionService.take().get();
+                inFlight--;
+                onResult(result);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Batch load interrupted by other thread.", ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new AmazonClientException("Internal error during the batch load.", cause);
+        }
+    }
+
+    /**
+     * Whether the next batch should be sent now. A batch made only of
+     * unprocessed keys that isn't full is held back while other requests are
+     * in flight, so that their unprocessed keys can be merged into it.
+     */
+    private boolean shouldSendNextBatch(int inFlight) {
+        if ( !pending.isEmpty() ) {
+            return true;
+        }
+        return !unprocessed.isEmpty()
+                && (inFlight == 0 || unprocessed.size() >= MAX_KEYS_PER_BATCH);
+    }
+
+    private boolean hasKeysToSend() {
+        return !unprocessed.isEmpty() || !pending.isEmpty();
+    }
+
+    /**
+     * Removes the next (up to) {@value #MAX_KEYS_PER_BATCH} keys to send,
+     * unprocessed keys first, grouped by table.
+     */
+    private Map<String, KeysAndAttributes> nextBatch() {
+        Map<String, KeysAndAttributes> requestItems = new LinkedHashMap<String, KeysAndAttributes>();
+        int count = 0;
+        while ( count < MAX_KEYS_PER_BATCH && hasKeysToSend() ) {
+            TableKey tableKey = unprocessed.isEmpty() ? pending.poll() : unprocessed.poll();
+            KeysAndAttributes keysAndAttributes = requestItems.get(tableKey.tableName);
+            if ( keysAndAttributes == null ) {
+                keysAndAttributes = new KeysAndAttributes()
+                    .withConsistentRead(consistentRead)
+                    .withKeys(new ArrayList<Map<String, AttributeValue>>());
+                requestItems.put(tableKey.tableName, keysAndAttributes);
+            }
+            keysAndAttributes.getKeys().add(tableKey.key);
+            count++;
+        }
+        return requestItems;
+    }
+
+    private void onResult(BatchGetItemResult result) {
+        boolean loaded = false;
+        Map<String, List<Map<String, AttributeValue>>> responses = result.getResponses();
+        if ( responses != null ) {
+            for ( Entry<String, List<Map<String, AttributeValue>>> entry : responses.entrySet() ) {
+                if ( entry.getValue() != null ) {
+                    loaded |= !entry.getValue().isEmpty();
+                    onItemsLoaded(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        boolean hasUnprocessed = false;
+        Map<String, KeysAndAttributes> unprocessedKeys = result.getUnprocessedKeys();
+        if ( unprocessedKeys != null ) {
+            for ( Entry<String, KeysAndAttributes> entry : unprocessedKeys.entrySet() ) {
+                if ( entry.getValue() == null || entry.getValue().getKeys() == null ) {
+                    continue;
+                }
+                for ( Map<String, AttributeValue> key : entry.getValue().getKeys() ) {
+                    unprocessed.add(new TableKey(entry.getKey(), key));
+                    hasUnprocessed = true;
+                }
+            }
+        }
+
+        if ( loaded || !hasUnprocessed ) {
+            retriesWithoutProgress = 0;
+        } else {
+            retriesWithoutProgress++;
+            if ( retriesWithoutProgress > maxRetriesWithoutProgress ) {
+                throw new AmazonClientException(
+                        "Batch Get Item request to server hasn't received any data. "
+                        + "Please try again later.");
+            }
+            pauseBeforeRetry(retriesWithoutProgress);
+        }
+    }
+
+    /**
+     * The key of an item in a given table.
+     */
+    private static final class TableKey {
+        private final String tableName;
+        private final Map<String, AttributeValue> key;
+
+        TableKey(String tableName, Map<String, AttributeValue> key) {
+            this.tableName = tableName;
+            this.key = key;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tableName.hashCode() + key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if ( this == obj ) {
+                return true;
+            }
+            if ( !(obj instanceof TableKey) ) {
+                return false;
+            }
+            TableKey other = (TableKey) obj;
+            return tableName.equals(other.tableName) && key.equals(other.key);
+        }
+    }
+}
@@ -15,6 +15,7 @@
 package com.amazonaws.services.dynamodbv2.datamodeling;
 
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -22,6 +23,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +31,7 @@ import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -44,6 +47,7 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.Consi
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.PaginationLoadingStrategy;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.SaveBehavior;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTableSchemaParser.TableIndexesInfo;
+import com.amazonaws.services.dynamodbv2.document.internal.InternalUtils;
 import com.amazonaws.services.dynamodbv2.model.AttributeAction;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
@@ -74,6 +78,7 @@ import com.amazonaws.services.dynamodbv2.model.Select;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
 import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.amazonaws.services.dynamodbv2.util.ItemCache;
 import com.amazonaws.services.s3.model.Region;
 import com.amazonaws.util.VersionInfoUtils;
 
@@ -464,10 +469,21 @@ public class DynamoDBMapper {
         rq.setTableName(tableName);
         rq.setConsistentRead(config.getConsistentReads() == ConsistentReads.CONSISTENT);
 
+        ItemCache itemCache = config.getItemCache();
+        Map<String, AttributeValue> itemAttributes = null;
+        if ( itemCache != null && !rq.isConsistentRead() ) {
+            itemAttributes = itemCache.get(tableName, key);
+        }
 
-        GetItemResult item = db.getItem(applyUserAgent(rq));
-        Map<String, AttributeValue> itemAttributes = item.getItem();
         if ( itemAttributes == null ) {
+            long version = itemCache != null ? itemCache.startLoad(tableName, key) : 0;
+            GetItemResult item = db.getItem(applyUserAgent(rq));
+            itemAttributes = item.getItem();
+            if ( itemCache != null ) {
+                itemCache.putLoaded(tableName, key, itemAttributes, version);
+            }
+        }
+        if ( itemAttributes == null || itemAttributes == ItemCache.NO_ITEM ) {
             return null;
         }
 
@@ -520,6 +536,11 @@ public class DynamoDBMapper {
                     + " and " + DynamoDBRangeKey.class);
         }
 
+        WriteSharding sharding = reflector.getWriteSharding(clazz);
+        if (sharding != null) {
+            key = sharding.shardKey(key);
+        }
+
         return key;
     }
 
@@ -705,6 +726,11 @@ public class DynamoDBMapper {
         Class<T> clazz = parameters.getModelClass();
         Map<String, AttributeValue> values = untransformAttributes(parameters);
 
+        WriteSharding sharding = reflector.getWriteSharding(clazz);
+        if (sharding != null) {
+            values = sharding.unshardItem(values);
+        }
+
         return converter.unconvert(clazz, values);
     }
 
@@ -1050,6 +1076,7 @@ public class DynamoDBMapper {
             /*
              * First handle primary keys
              */
+            Map<String, AttributeValue> primaryKeyValues = new LinkedHashMap<String, AttributeValue>();
             for ( Method method : primaryKeyGetters ) {
                 Object getterResult = ReflectionUtils.safeInvoke(method, object);
                 String attributeName = reflector.getAttributeName(method);
@@ -1074,10 +1101,25 @@ public class DynamoDBMapper {
                                 + " for key " + method);
                     }
 
-                    onPrimaryKeyAttributeValue(attributeName, newAttributeValue);
+                    primaryKeyValues.put(attributeName, newAttributeValue);
                 }
             }
 
+            /*
+             * Write to the shard of the item if the hash key is write-sharded;
+             * the range key may have just been auto-generated.
+             */
+            WriteSharding sharding = reflector.getWriteSharding(clazz);
+            if ( sharding != null ) {
+                Map<String, AttributeValue> keys = convertToItem(updateValues);
+                keys.putAll(primaryKeyValues);
+                primaryKeyValues.put(sharding.getHashKeyName(),
+                        sharding.shardItem(keys).get(sharding.getHashKeyName()));
+            }
+            for ( Map.Entry<String, AttributeValue> key : primaryKeyValues.entrySet() ) {
+                onPrimaryKeyAttributeValue(key.getKey(), key.getValue());
+            }
+
             /*
              * Next construct an update for every non-key property
              */
@@ -1223,6 +1265,11 @@ public class DynamoDBMapper {
          * the returned attributes to detect silent failure on the server-side.
          */
         protected UpdateItemResult doUpdateItem() {
+            ItemCache itemCache = saveConfig.getItemCache();
+            if ( itemCache != null ) {
+                itemCache.invalidate(getTableName(), getPrimaryKeyAttributeValues());
+            }
+
             UpdateItemRequest req = new UpdateItemRequest()
                     .withTableName(getTableName())
                     .withKey(getPrimaryKeyAttributeValues())
@@ -1238,7 +1285,12 @@ public class DynamoDBMapper {
                     .withReturnValues(ReturnValue.ALL_NEW)
                     .withRequestMetricCollector(saveConfig.getRequestMetricCollector());
 
-            return db.updateItem(applyUserAgent(req));
+            UpdateItemResult result = db.updateItem(applyUserAgent(req));
+            if ( itemCache != null && result.getAttributes() != null
+                    && !result.getAttributes().isEmpty() ) {
+                itemCache.put(getTableName(), getPrimaryKeyAttributeValues(), result.getAttributes());
+            }
+            return result;
         }
 
         /**
@@ -1267,7 +1319,22 @@ public class DynamoDBMapper {
                     .withConditionalOperator(userProvidedConditionOperator)
                     .withRequestMetricCollector(saveConfig.getRequestMetricCollector());
 
-            return db.putItem(applyUserAgent(req));
+            ItemCache itemCache = saveConfig.getItemCache();
+            Map<String, AttributeValue> key = null;
+            if ( itemCache != null ) {
+                key = new HashMap<String, AttributeValue>();
+                for ( Method keyGetter : reflector.getPrimaryKeyGetters(clazz) ) {
+                    String attributeName = reflector.getAttributeName(keyGetter);
+                    key.put(attributeName, attributeValues.get(attributeName));
+                }
+                itemCache.invalidate(getTableName(), key);
+            }
+
+            PutItemResult result = db.putItem(applyUserAgent(req));
+            if ( itemCache != null ) {
+                itemCache.put(getTableName(), key, attributeValues);
+            }
+            return result;
         }
 
         private void onAutoGenerateAssignableKey(Method method, String attributeName) {
@@ -1411,7 +1478,15 @@ public class DynamoDBMapper {
                             deleteExpression.getConditionalOperator());
 
         }
+
+        ItemCache itemCache = config.getItemCache();
+        if ( itemCache != null ) {
+            itemCache.invalidate(tableName, key);
+        }
         db.deleteItem(applyUserAgent(req));
+        if ( itemCache != null ) {
+            itemCache.put(tableName, key, null);
+        }
     }
 
     /**
@@ -1541,8 +1616,6 @@ public class DynamoDBMapper {
     public List<FailedBatch> batchWrite(List<? extends Object> objectsToWrite, List<? extends Object> objectsToDelete, DynamoDBMapperConfig config) {
         config = mergeConfig(config);
 
-        List<FailedBatch> totalFailedBatches = new LinkedList<FailedBatch>();
-
         HashMap<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
 
         ItemConverter converter = getConverter(config);
@@ -1578,6 +1651,11 @@ public class DynamoDBMapper {
                 requestItems.put(tableName, new LinkedList<WriteRequest>());
             }
 
+            WriteSharding sharding = reflector.getWriteSharding(clazz);
+            if ( sharding != null ) {
+                attributeValues = sharding.shardItem(attributeValues);
+            }
+
             AttributeTransformer.Parameters<?> parameters =
                 toParameters(attributeValues, clazz, tableName, config);
 
@@ -1602,6 +1680,37 @@ public class DynamoDBMapper {
                     new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
         }
 
+        List<FailedBatch> totalFailedBatches = writeRequestItems(requestItems, config);
+
+        // Once the entire batch is processed, update assigned keys in memory
+        for ( ValueUpdate update : inMemoryUpdates ) {
+            update.apply();
+        }
+
+        return totalFailedBatches;
+    }
+
+    /**
+     * Sends the given write requests, by table name, in batches of at most 25
+     * items, and returns the batches that failed.
+     */
+    private List<FailedBatch> writeRequestItems(
+            Map<String, List<WriteRequest>> requestItems,
+            DynamoDBMapperConfig config) {
+
+        List<FailedBatch> totalFailedBatches = new LinkedList<FailedBatch>();
+
+        // Don't let the items being written be served from the cache
+        ItemCache itemCache = config.getItemCache();
+        Map<String, List<WriteRequest>> writtenItems = null;
+        if ( itemCache != null ) {
+            writtenItems = new HashMap<String, List<WriteRequest>>();
+            for ( Entry<String, List<WriteRequest>> entry : requestItems.entrySet() ) {
+                writtenItems.put(entry.getKey(), new ArrayList<WriteRequest>(entry.getValue()));
+            }
+            invalidateCachedItems(itemCache, writtenItems);
+        }
+
         // Break into chunks of 25 items and make service requests to DynamoDB
         while ( !requestItems.isEmpty() ) {
 
@@ -1649,14 +1758,32 @@ public class DynamoDBMapper {
 
 
 
-        // Once the entire batch is processed, update assigned keys in memory
-        for ( ValueUpdate update : inMemoryUpdates ) {
-            update.apply();
+        if ( itemCache != null ) {
+            invalidateCachedItems(itemCache, writtenItems);
         }
 
         return totalFailedBatches;
     }
 
+    /**
+     * Removes the items put or deleted by the given write requests from the
+     * cache.
+     */
+    private static void invalidateCachedItems(
+            ItemCache itemCache,
+            Map<String, List<WriteRequest>> requestItems) {
+
+        for ( Entry<String, List<WriteRequest>> entry : requestItems.entrySet() ) {
+            for ( WriteRequest writeRequest : entry.getValue() ) {
+                if ( writeRequest.getPutRequest() != null ) {
+                    itemCache.invalidateItem(entry.getKey(), writeRequest.getPutRequest().getItem());
+                } else if ( writeRequest.getDeleteRequest() != null ) {
+                    itemCache.invalidate(entry.getKey(), writeRequest.getDeleteRequest().getKey());
+                }
+            }
+        }
+    }
+
     /**
      * Process one batch of requests(max 25). It will divide the batch if
      * receives request too large exception(the total size of the request is beyond 1M).
@@ -1826,49 +1953,156 @@ public class DynamoDBMapper {
      *         mapping that table.
      */
     public Map<String, List<Object>> batchLoad(List<Object> itemsToGet, DynamoDBMapperConfig config) {
-        config = mergeConfig(config);
-        boolean consistentReads = (config.getConsistentReads() == ConsistentReads.CONSISTENT);
+        final Map<String, List<Object>> resultSet = new HashMap<String, List<Object>>();
+        batchLoad(itemsToGet, config, new BatchLoadListener() {
+            @Override
+            public void onItemsLoaded(String tableName, Class<?> clazz, List<Object> objects) {
+                List<Object> tableObjects = resultSet.get(tableName);
+                if ( tableObjects == null ) {
+                    tableObjects = new LinkedList<Object>();
+                    resultSet.put(tableName, tableObjects);
+                }
+                tableObjects.addAll(objects);
+            }
+        });
+        return resultSet;
+    }
+
+    /**
+     * Retrieves multiple items from multiple tables using their primary keys,
+     * passing the loaded objects to the given listener as they arrive rather
+     * than collecting them all first.
+     * <p>
+     * Duplicate keys are requested only once. The keys are sent in batches of
+     * up to 100 keys, across tables, with up to
+     * {@link DynamoDBMapperConfig#getBatchLoadConcurrency()} BatchGetItem
+     * requests in flight at a time; any unprocessed keys are merged into the
+     * next batches. Items found in the
+     * {@linkplain DynamoDBMapperConfig#getItemCache() item cache}, if any, are
+     * passed to the listener first. The listener is called on the calling
+     * thread, before this method returns.
+     *
+     * @param itemsToGet
+     *            Key objects, corresponding to the class to fetch, with their
+     *            primary key values set.
+     * @param config
+     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()},
+     *            {@link DynamoDBMapperConfig#getConsistentReads()} and
+     *            {@link DynamoDBMapperConfig#getBatchLoadConcurrency()} are
+     *            considered.
+     * @param listener
+     *            Called with the objects loaded from each table by each
+     *            BatchGetItem response.
+     */
+    public void batchLoad(
+            List<Object> itemsToGet,
+            DynamoDBMapperConfig config,
+            final BatchLoadListener listener) {
+
+        final DynamoDBMapperConfig finalConfig = mergeConfig(config);
+        boolean consistentReads = (finalConfig.getConsistentReads() == ConsistentReads.CONSISTENT);
 
         if ( itemsToGet == null || itemsToGet.isEmpty() ) {
-            return new HashMap<String, List<Object>>();
+            return;
         }
 
-        Map<String, KeysAndAttributes> requestItems = new HashMap<String, KeysAndAttributes>();
-        Map<String, Class<?>> classesByTableName = new HashMap<String, Class<?>>();
-        Map<String, List<Object>> resultSet = new HashMap<String, List<Object>>();
-        int count = 0;
+        final Map<String, Class<?>> classesByTableName = new HashMap<String, Class<?>>();
+        final ItemConverter converter = getConverter(finalConfig);
+        final ItemCache itemCache = finalConfig.getItemCache();
+        // The versions of the keys loaded, taken before they are loaded
+        final Map<String, Map<Map<String, AttributeValue>, Long>> loadVersions =
+            new HashMap<String, Map<Map<String, AttributeValue>, Long>>();
+        Integer concurrency = finalConfig.getBatchLoadConcurrency();
+
+        BatchLoadTask task = new BatchLoadTask(
+                concurrency == null ? DynamoDBMapperConfig.DEFAULT_BATCH_LOAD_CONCURRENCY : concurrency,
+                BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS,
+                consistentReads) {
+
+            @Override
+            protected BatchGetItemResult batchGetItem(Map<String, KeysAndAttributes> requestItems) {
+                BatchGetItemRequest batchGetItemRequest = new BatchGetItemRequest()
+                    .withRequestMetricCollector(finalConfig.getRequestMetricCollector());
+                batchGetItemRequest.setRequestItems(requestItems);
+                return db.batchGetItem(applyBatchOperationUserAgent(batchGetItemRequest));
+            }
 
-        ItemConverter converter = getConverter(config);
+            @Override
+            protected void onItemsLoaded(String tableName, List<Map<String, AttributeValue>> items) {
+                Class<?> clazz = classesByTableName.get(tableName);
+                List<Object> objects = new ArrayList<Object>(items.size());
+                for ( Map<String, AttributeValue> item : items ) {
+                    if ( itemCache != null ) {
+                        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+                        for ( Method keyGetter : reflector.getPrimaryKeyGetters(clazz) ) {
+                            String attributeName = reflector.getAttributeName(keyGetter);
+                            key.put(attributeName, item.get(attributeName));
+                        }
+                        Long version = loadVersions.get(tableName).get(key);
+                        if ( version != null ) {
+                            itemCache.putLoaded(tableName, key, item, version);
+                        }
+                    }
+                    AttributeTransformer.Parameters<?> parameters =
+                        toParameters(item, clazz, tableName, finalConfig);
+                    objects.add(privateMarshallIntoObject(converter, parameters));
+                }
+                listener.onItemsLoaded(tableName, clazz, objects);
+            }
+
+            @Override
+            protected void pauseBeforeRetry(int retries) {
+                pauseExponentially(retries);
+            }
+        };
+
+        Map<String, Map<Map<String, AttributeValue>, Map<String, AttributeValue>>> cachedItems =
+            new HashMap<String, Map<Map<String, AttributeValue>, Map<String, AttributeValue>>>();
 
         for ( Object keyObject : itemsToGet ) {
             Class<?> clazz = keyObject.getClass();
 
-            String tableName = getTableName(clazz, keyObject, config);
+            String tableName = getTableName(clazz, keyObject, finalConfig);
             classesByTableName.put(tableName, clazz);
 
-            if ( !requestItems.containsKey(tableName) ) {
-                requestItems.put(
-                        tableName,
-                        new KeysAndAttributes().withConsistentRead(consistentReads).withKeys(
-                                new LinkedList<Map<String, AttributeValue>>()));
+            Map<String, AttributeValue> key = getKey(converter, keyObject);
+            if ( itemCache != null && !consistentReads ) {
+                Map<String, AttributeValue> item = itemCache.get(tableName, key);
+                if ( item == ItemCache.NO_ITEM ) {
+                    continue;
+                }
+                if ( item != null ) {
+                    if ( !cachedItems.containsKey(tableName) ) {
+                        cachedItems.put(tableName,
+                                new LinkedHashMap<Map<String, AttributeValue>, Map<String, AttributeValue>>());
+                    }
+                    cachedItems.get(tableName).put(key, item);
+                    continue;
+                }
             }
 
-            requestItems.get(tableName).getKeys().add(
-                    getKey(converter, keyObject));
-
-            // Reach the maximum number which can be handled in a single batchGet
-            if ( ++count == 100 ) {
-                processBatchGetRequest(classesByTableName, requestItems, resultSet, config, converter);
-                requestItems.clear();
-                count = 0;
+            if ( itemCache != null ) {
+                if ( !loadVersions.containsKey(tableName) ) {
+                    loadVersions.put(tableName, new HashMap<Map<String, AttributeValue>, Long>());
+                }
+                loadVersions.get(tableName).put(key, itemCache.startLoad(tableName, key));
             }
+            task.addKey(tableName, key);
         }
 
-        if ( count > 0 ) {
-            processBatchGetRequest(classesByTableName, requestItems, resultSet, config, converter);
+        for ( Entry<String, Map<Map<String, AttributeValue>, Map<String, AttributeValue>>> entry
+                : cachedItems.entrySet() ) {
+            String tableName = entry.getKey();
+            Class<?> clazz = classesByTableName.get(tableName);
+            List<Object> objects = new ArrayList<Object>(entry.getValue().size());
+            for ( Map<String, AttributeValue> item : entry.getValue().values() ) {
+                objects.add(privateMarshallIntoObject(converter,
+                        toParameters(item, clazz, tableName, finalConfig)));
+            }
+            listener.onItemsLoaded(tableName, clazz, objects);
         }
 
-        return resultSet;
+        task.load();
     }
 
     /**
@@ -1924,69 +2158,6 @@ public class DynamoDBMapper {
         return batchLoad(keys, config);
     }
 
-    /**
-     * @param config never null
-     */
-    private void processBatchGetRequest(
-            final Map<String, Class<?>> classesByTableName,
-            final Map<String, KeysAndAttributes> requestItems,
-            final Map<String, List<Object>> resultSet,
-            final DynamoDBMapperConfig config,
-            final ItemConverter converter) {
-
-        BatchGetItemResult batchGetItemResult = null;
-        BatchGetItemRequest batchGetItemRequest = new BatchGetItemRequest()
-            .withRequestMetricCollector(config.getRequestMetricCollector());
-        batchGetItemRequest.setRequestItems(requestItems);
-
-        int retries = 0;
-        int noOfItemsInOriginalRequest = requestItems.size();
-
-        do {
-            if ( batchGetItemResult != null ) {
-                retries++;
-
-                if (noOfItemsInOriginalRequest == batchGetItemResult
-                        .getUnprocessedKeys().size()){
-                    pauseExponentially(retries);
-                    if (retries > BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS) {
-                        throw new AmazonClientException(
-                                "Batch Get Item request to server hasn't received any data. "
-                                + "Please try again later.");
-                    }
-                }
-
-                batchGetItemRequest.setRequestItems(
-                        batchGetItemResult.getUnprocessedKeys());
-            }
-
-            batchGetItemResult = db.batchGetItem(
-                    applyBatchOperationUserAgent(batchGetItemRequest));
-
-            Map<String, List<Map<String, AttributeValue>>> responses = batchGetItemResult.getResponses();
-            for ( String tableName : responses.keySet() ) {
-                List<Object> objects = null;
-                if ( resultSet.get(tableName) != null ) {
-                    objects = resultSet.get(tableName);
-                } else {
-                    objects = new LinkedList<Object>();
-                }
-
-                Class<?> clazz = classesByTableName.get(tableName);
-
-                for ( Map<String, AttributeValue> item : responses.get(tableName) ) {
-                    AttributeTransformer.Parameters<?> parameters =
-                        toParameters(item, clazz, tableName, config);
-                    objects.add(privateMarshallIntoObject(converter, parameters));
-                }
-
-                resultSet.put(tableName, objects);
-            }
-            // To see whether there are unprocessed keys.
-        } while ( batchGetItemResult.getUnprocessedKeys() != null && batchGetItemResult.getUnprocessedKeys().size() > 0 );
-
-    }
-
     private final class ValueUpdate {
 
         private final Method method;
@@ -2096,7 +2267,8 @@ public class DynamoDBMapper {
 
         ScanRequest scanRequest = createScanRequestFromExpression(clazz, scanExpression, config);
 
-        ScanResult scanResult = db.scan(applyUserAgent(scanRequest));
+        ScanResult scanResult = InternalUtils.scan(db, applyUserAgent(scanRequest),
+                config.getCapacityRateLimiter());
         return new PaginatedScanList<T>(this, clazz, db, scanRequest, scanResult, config.getPaginationLoadingStrategy(), config);
     }
 
@@ -2157,7 +2329,8 @@ public class DynamoDBMapper {
 
         // Create hard copies of the original scan request with difference segment number.
         List<ScanRequest> parallelScanRequests = createParallelScanRequestsFromExpression(clazz, scanExpression, totalSegments, config);
-        ParallelScanTask parallelScanTask = new ParallelScanTask(db, parallelScanRequests);
+        ParallelScanTask parallelScanTask = new ParallelScanTask(db, parallelScanRequests,
+                config.getCapacityRateLimiter());
 
         return new PaginatedParallelScanList<T>(this, clazz, db, parallelScanTask, config.getPaginationLoadingStrategy(), config);
     }
@@ -2186,7 +2359,8 @@ public class DynamoDBMapper {
 
         ScanRequest scanRequest = createScanRequestFromExpression(clazz, scanExpression, config);
 
-        ScanResult scanResult = db.scan(applyUserAgent(scanRequest));
+        ScanResult scanResult = InternalUtils.scan(db, applyUserAgent(scanRequest),
+                config.getCapacityRateLimiter());
         ScanResultPage<T> result = new ScanResultPage<T>();
         List<AttributeTransformer.Parameters<T>> parameters =
             toParameters(scanResult.getItems(), clazz, scanRequest.getTableName(), config);
@@ -2262,8 +2436,10 @@ public class DynamoDBMapper {
         config = mergeConfig(config);
 
         QueryRequest queryRequest = createQueryRequestFromExpression(clazz, queryExpression, config);
+        checkNotShardedHashKeyQuery(clazz, queryRequest);
 
-        QueryResult queryResult = db.query(applyUserAgent(queryRequest));
+        QueryResult queryResult = InternalUtils.query(db, applyUserAgent(queryRequest),
+                config.getCapacityRateLimiter());
         return new PaginatedQueryList<T>(this, clazz, db, queryRequest, queryResult, config.getPaginationLoadingStrategy(), config);
     }
 
@@ -2303,8 +2479,10 @@ public class DynamoDBMapper {
         config = mergeConfig(config);
 
         QueryRequest queryRequest = createQueryRequestFromExpression(clazz, queryExpression, config);
+        checkNotShardedHashKeyQuery(clazz, queryRequest);
 
-        QueryResult queryResult = db.query(applyUserAgent(queryRequest));
+        QueryResult queryResult = InternalUtils.query(db, applyUserAgent(queryRequest),
+                config.getCapacityRateLimiter());
         QueryResultPage<T> result = new QueryResultPage<T>();
         List<AttributeTransformer.Parameters<T>> parameters =
             toParameters(queryResult.getItems(), clazz, queryRequest.getTableName(), config);
@@ -2355,7 +2533,8 @@ public class DynamoDBMapper {
         int count = 0;
         ScanResult scanResult = null;
         do {
-            scanResult = db.scan(applyUserAgent(scanRequest));
+            scanResult = InternalUtils.scan(db, applyUserAgent(scanRequest),
+                    config.getCapacityRateLimiter());
             count += scanResult.getCount();
             scanRequest.setExclusiveStartKey(scanResult.getLastEvaluatedKey());
         } while (scanResult.getLastEvaluatedKey() != null);
@@ -2392,13 +2571,15 @@ public class DynamoDBMapper {
         config = mergeConfig(config);
 
         QueryRequest queryRequest = createQueryRequestFromExpression(clazz, queryExpression, config);
+        checkNotShardedHashKeyQuery(clazz, queryRequest);
         queryRequest.setSelect(Select.COUNT);
 
         // Count queries can also be truncated for large datasets
         int count = 0;
         QueryResult queryResult = null;
         do {
-            queryResult = db.query(applyUserAgent(queryRequest));
+            queryResult = InternalUtils.query(db, applyUserAgent(queryRequest),
+                    config.getCapacityRateLimiter());
             count += queryResult.getCount();
             queryRequest.setExclusiveStartKey(queryResult.getLastEvaluatedKey());
         } while (queryResult.getLastEvaluatedKey() != null);
@@ -2406,6 +2587,344 @@ public class DynamoDBMapper {
         return count;
     }
 
+    /**
+     * Queries all the shards of a write-sharded hash key, using the default
+     * configuration.
+     *
+     * @see DynamoDBMapper#queryAllShards(Class, DynamoDBQueryExpression, DynamoDBMapperConfig)
+     */
+    public <T> List<T> queryAllShards(Class<T> clazz, DynamoDBQueryExpression<T> queryExpression) {
+        return queryAllShards(clazz, queryExpression, config);
+    }
+
+    /**
+     * Queries all the shards of a hash key annotated with
+     * {@link DynamoDBWriteSharded} in parallel, and returns all the matching
+     * items. The hash key must be given by the hash key values of the query
+     * expression, not by a key condition expression. When querying the table,
+     * the items of all the shards are merged in range key order; when querying
+     * a local secondary index, the items of each shard follow one another.
+     * <p>
+     * The limit of the query expression, if any, applies to each page of each
+     * shard, and its exclusive start key must not be set. Classes that are not
+     * write-sharded are queried as usual.
+     *
+     * @param clazz
+     *            The class annotated with DynamoDB annotations describing how
+     *            to store the object data in AWS DynamoDB.
+     * @param queryExpression
+     *            Details on how to run the query, including any conditions on
+     *            the key values
+     * @param config
+     *            The configuration to use for this query, which overrides the
+     *            default provided at object construction.
+     * @return The objects constructed from the items of all the shards.
+     */
+    public <T> List<T> queryAllShards(Class<T> clazz, DynamoDBQueryExpression<T> queryExpression, DynamoDBMapperConfig config) {
+        config = mergeConfig(config);
+
+        QueryRequest queryRequest = createQueryRequestFromExpression(clazz, queryExpression, config);
+        WriteSharding sharding = reflector.getWriteSharding(clazz);
+        List<Map<String, AttributeValue>> items;
+        if (sharding == null) {
+            items = queryAllPages(queryRequest, config);
+        } else {
+            items = queryAllShardItems(sharding, queryRequest, config);
+        }
+        return marshallAllShardItems(clazz, items, queryRequest.getTableName(), config);
+    }
+
+    /**
+     * Loads the items of all the shards of a write-sharded hash key, using the
+     * default configuration.
+     *
+     * @see DynamoDBMapper#loadAllShards(Class, Object, DynamoDBMapperConfig)
+     */
+    public <T> List<T> loadAllShards(Class<T> clazz, Object hashKey) {
+        return loadAllShards(clazz, hashKey, config);
+    }
+
+    /**
+     * Loads the items of all the shards of a hash key annotated with
+     * {@link DynamoDBWriteSharded}, reading the shards in parallel. For tables
+     * without a range key, this returns at most one object per shard, each
+     * holding the part of the hash key data saved to that shard.
+     *
+     * @param clazz
+     *            The class to load, corresponding to a DynamoDB table.
+     * @param hashKey
+     *            The logical key of the objects.
+     * @param config
+     *            Configuration for the service calls to retrieve the objects
+     *            from DynamoDB. This configuration overrides the default given
+     *            at construction.
+     * @return The objects of all the shards, in range key order for tables
+     *         with a range key.
+     */
+    public <T> List<T> loadAllShards(Class<T> clazz, Object hashKey, DynamoDBMapperConfig config) {
+        config = mergeConfig(config);
+        T keyObject = createKeyObject(clazz, hashKey, null);
+        String tableName = getTableName(clazz, keyObject, config);
+        List<Map<String, AttributeValue>> items = loadAllShardItems(clazz, keyObject, tableName, config);
+        return marshallAllShardItems(clazz, items, tableName, config);
+    }
+
+    /**
+     * Sums a number attribute across all the shards of a write-sharded hash
+     * key, using the default configuration.
+     *
+     * @see DynamoDBMapper#sumAllShards(Class, Object, String, DynamoDBMapperConfig)
+     */
+    public <T> BigDecimal sumAllShards(Class<T> clazz, Object hashKey, String attributeName) {
+        return sumAllShards(clazz, hashKey, attributeName, config);
+    }
+
+    /**
+     * Sums a number attribute across all the items of all the shards of a hash
+     * key annotated with {@link DynamoDBWriteSharded}, such as a counter whose
+     * increments are spread across the shards. Items without the attribute
+     * count as zero.
+     *
+     * @param clazz
+     *            The class mapped to a DynamoDB table.
+     * @param hashKey
+     *            The logical key of the items.
+     * @param attributeName
+     *            The name of the number attribute in DynamoDB.
+     * @param config
+     *            Configuration for the service calls to retrieve the items from
+     *            DynamoDB. This configuration overrides the default given at
+     *            construction.
+     * @return The sum of the attribute values.
+     */
+    public <T> BigDecimal sumAllShards(Class<T> clazz, Object hashKey, String attributeName, DynamoDBMapperConfig config) {
+        config = mergeConfig(config);
+        T keyObject = createKeyObject(clazz, hashKey, null);
+        String tableName = getTableName(clazz, keyObject, config);
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Map<String, AttributeValue> item : loadAllShardItems(clazz, keyObject, tableName, config)) {
+            AttributeValue value = untransformAttributes(
+                    toParameters(item, clazz, tableName, config)).get(attributeName);
+            if (value != null && value.getN() != null) {
+                sum = sum.add(new BigDecimal(value.getN()));
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Deletes the items of all the shards of a write-sharded hash key, using
+     * the default configuration.
+     *
+     * @see DynamoDBMapper#deleteAllShards(Class, Object, DynamoDBMapperConfig)
+     */
+    public <T> List<FailedBatch> deleteAllShards(Class<T> clazz, Object hashKey) {
+        return deleteAllShards(clazz, hashKey, config);
+    }
+
+    /**
+     * Deletes the items of all the shards of a hash key annotated with
+     * {@link DynamoDBWriteSharded}, in batches. For tables without a range
+     * key, whose items can't be deleted individually, this deletes the item
+     * of each shard; for tables with a range key, this deletes all the items
+     * of the hash key, as read by
+     * {@link #loadAllShards(Class, Object, DynamoDBMapperConfig)}. Version
+     * attributes aren't checked.
+     *
+     * @param clazz
+     *            The class mapped to a DynamoDB table.
+     * @param hashKey
+     *            The logical key of the items.
+     * @param config
+     *            Configuration for the service calls to delete the items from
+     *            DynamoDB. This configuration overrides the default given at
+     *            construction.
+     * @return A list of failed batches which includes the unprocessed items and
+     *         the exceptions causing the failure.
+     */
+    public <T> List<FailedBatch> deleteAllShards(Class<T> clazz, Object hashKey, DynamoDBMapperConfig config) {
+        config = mergeConfig(config);
+        WriteSharding sharding = reflector.getWriteSharding(clazz);
+        if (sharding == null) {
+            throw new DynamoDBMappingException("The hash key of " + clazz
+                    + " must be annotated with " + DynamoDBWriteSharded.class.getSimpleName());
+        }
+        T keyObject = createKeyObject(clazz, hashKey, null);
+        String tableName = getTableName(clazz, keyObject, config);
+
+        List<WriteRequest> writeRequests = new LinkedList<WriteRequest>();
+        if (sharding.hasRangeKey()) {
+            String rangeKeyName = reflector.getAttributeName(reflector.getPrimaryRangeKeyGetter(clazz));
+            for (Map<String, AttributeValue> item : loadAllShardItems(clazz, keyObject, tableName, config)) {
+                Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+                key.put(sharding.getHashKeyName(), item.get(sharding.getHashKeyName()));
+                key.put(rangeKeyName, item.get(rangeKeyName));
+                writeRequests.add(new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
+            }
+        } else {
+            Method hashKeyGetter = reflector.getPrimaryHashKeyGetter(clazz);
+            AttributeValue hashKeyValue = getConverter(config).convert(hashKeyGetter,
+                    ReflectionUtils.safeInvoke(hashKeyGetter, keyObject));
+            for (int shard = 0; shard < sharding.getShardCount(); shard++) {
+                Map<String, AttributeValue> key = Collections.singletonMap(
+                        sharding.getHashKeyName(), sharding.toShardHashKey(hashKeyValue, shard));
+                writeRequests.add(new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
+            }
+        }
+        if (writeRequests.isEmpty()) {
+            return new LinkedList<FailedBatch>();
+        }
+
+        Map<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
+        requestItems.put(tableName, writeRequests);
+        return writeRequestItems(requestItems, config);
+    }
+
+    /**
+     * Throws if the given query would only read one shard of a write-sharded
+     * hash key, which is only allowed for the queries of a global secondary
+     * index on other keys.
+     */
+    private void checkNotShardedHashKeyQuery(Class<?> clazz, QueryRequest queryRequest) {
+        WriteSharding sharding = reflector.getWriteSharding(clazz);
+        if (sharding == null) {
+            return;
+        }
+        boolean shardedHashKey = queryRequest.getKeyConditionExpression() == null
+                ? queryRequest.getKeyConditions().containsKey(sharding.getHashKeyName())
+                : queryRequest.getIndexName() == null;
+        if (shardedHashKey) {
+            throw new DynamoDBMappingException("The hash key " + sharding.getHashKeyName()
+                    + " of " + clazz + " is write-sharded; use queryAllShards instead");
+        }
+    }
+
+    /**
+     * Returns the items of all the shards of the hash key queried, in range key
+     * order when querying the table.
+     */
+    private List<Map<String, AttributeValue>> queryAllShardItems(WriteSharding sharding,
+            QueryRequest queryRequest, final DynamoDBMapperConfig config) {
+        Map<String, Condition> keyConditions = queryRequest.getKeyConditions();
+        Condition hashKeyCondition = keyConditions == null
+                ? null
+                : keyConditions.get(sharding.getHashKeyName());
+        if (hashKeyCondition == null) {
+            throw new IllegalArgumentException(
+                    "Illegal query expression: No condition on the write-sharded hash key "
+                    + sharding.getHashKeyName() + " is found in the query");
+        }
+        if (queryRequest.getExclusiveStartKey() != null) {
+            throw new IllegalArgumentException(
+                    "Illegal query expression: The exclusive start key can't be applied to all the shards");
+        }
+
+        AttributeValue hashKey = hashKeyCondition.getAttributeValueList().get(0);
+        List<Callable<List<Map<String, AttributeValue>>>> tasks =
+                new ArrayList<Callable<List<Map<String, AttributeValue>>>>();
+        for (int shard = 0; shard < sharding.getShardCount(); shard++) {
+            Map<String, Condition> shardKeyConditions = new HashMap<String, Condition>(keyConditions);
+            shardKeyConditions.put(sharding.getHashKeyName(), new Condition()
+                    .withComparisonOperator(ComparisonOperator.EQ)
+                    .withAttributeValueList(sharding.toShardHashKey(hashKey, shard)));
+            final QueryRequest shardRequest = queryRequest.clone()
+                    .withKeyConditions(shardKeyConditions);
+            tasks.add(new Callable<List<Map<String, AttributeValue>>>() {
+                @Override
+                public List<Map<String, AttributeValue>> call() {
+                    return queryAllPages(shardRequest, config);
+                }
+            });
+        }
+
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        for (List<Map<String, AttributeValue>> shardItems : WriteSharding.fanOut(tasks)) {
+            items.addAll(shardItems);
+        }
+        if (queryRequest.getIndexName() == null && sharding.hasRangeKey()) {
+            sharding.sortByRangeKey(items, !Boolean.FALSE.equals(queryRequest.getScanIndexForward()));
+        }
+        return items;
+    }
+
+    /**
+     * Returns the items of all the pages of the given query.
+     */
+    private List<Map<String, AttributeValue>> queryAllPages(QueryRequest queryRequest,
+            DynamoDBMapperConfig config) {
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        QueryResult queryResult = null;
+        do {
+            queryResult = InternalUtils.query(db, applyUserAgent(queryRequest),
+                    config.getCapacityRateLimiter());
+            items.addAll(queryResult.getItems());
+            queryRequest.setExclusiveStartKey(queryResult.getLastEvaluatedKey());
+        } while (queryResult.getLastEvaluatedKey() != null);
+        return items;
+    }
+
+    /**
+     * Returns the raw items of all the shards of the hash key of the given key
+     * object.
+     */
+    private <T> List<Map<String, AttributeValue>> loadAllShardItems(Class<T> clazz,
+            T keyObject, final String tableName, final DynamoDBMapperConfig config) {
+        WriteSharding sharding = reflector.getWriteSharding(clazz);
+        if (sharding == null) {
+            throw new DynamoDBMappingException("The hash key of " + clazz
+                    + " must be annotated with " + DynamoDBWriteSharded.class.getSimpleName());
+        }
+        final boolean consistentReads = config.getConsistentReads() == ConsistentReads.CONSISTENT;
+        if (sharding.hasRangeKey()) {
+            QueryRequest queryRequest = createQueryRequestFromExpression(clazz,
+                    new DynamoDBQueryExpression<T>()
+                        .withHashKeyValues(keyObject)
+                        .withConsistentRead(consistentReads),
+                    config);
+            return queryAllShardItems(sharding, queryRequest, config);
+        }
+
+        Method hashKeyGetter = reflector.getPrimaryHashKeyGetter(clazz);
+        AttributeValue hashKey = getConverter(config).convert(hashKeyGetter,
+                ReflectionUtils.safeInvoke(hashKeyGetter, keyObject));
+        List<Callable<Map<String, AttributeValue>>> tasks =
+                new ArrayList<Callable<Map<String, AttributeValue>>>();
+        for (int shard = 0; shard < sharding.getShardCount(); shard++) {
+            final GetItemRequest rq = new GetItemRequest()
+                .withTableName(tableName)
+                .withKey(Collections.singletonMap(sharding.getHashKeyName(),
+                        sharding.toShardHashKey(hashKey, shard)))
+                .withConsistentRead(consistentReads)
+                .withRequestMetricCollector(config.getRequestMetricCollector());
+            tasks.add(new Callable<Map<String, AttributeValue>>() {
+                @Override
+                public Map<String, AttributeValue> call() {
+                    return db.getItem(applyUserAgent(rq)).getItem();
+                }
+            });
+        }
+
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        for (Map<String, AttributeValue> item : WriteSharding.fanOut(tasks)) {
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    private <T> List<T> marshallAllShardItems(Class<T> clazz,
+            List<Map<String, AttributeValue>> items, String tableName,
+            DynamoDBMapperConfig config) {
+        ItemConverter converter = getConverter(config);
+        List<T> objects = new ArrayList<T>(items.size());
+        for (Map<String, AttributeValue> item : items) {
+            objects.add(privateMarshallIntoObject(converter,
+                    toParameters(item, clazz, tableName, config)));
+        }
+        return objects;
+    }
+
     /**
      * Merges the config object given with the one specified at construction and
      * returns the result.
@@ -3078,6 +3597,27 @@ public class DynamoDBMapper {
         return request;
     }
 
+    /**
+     * Receives the objects loaded by
+     * {@link DynamoDBMapper#batchLoad(List, DynamoDBMapperConfig, BatchLoadListener)}
+     * as they arrive.
+     */
+    public static interface BatchLoadListener {
+
+        /**
+         * Called with the objects loaded from a table by a single BatchGetItem
+         * response.
+         *
+         * @param tableName
+         *            the name of the table the objects were loaded from
+         * @param clazz
+         *            the class mapping the table
+         * @param objects
+         *            the loaded objects, all instances of {@code clazz}
+         */
+        public void onItemsLoaded(String tableName, Class<?> clazz, List<Object> objects);
+    }
+
     /**
      * The return type of batchWrite, batchDelete and batchSave. It contains the information about the unprocessed items
      * and the exception causing the failure.
@@ -20,6 +20,8 @@ import java.util.Random;
 
 import com.amazonaws.metrics.RequestMetricCollector;
 import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.amazonaws.services.dynamodbv2.util.CapacityRateLimiter;
+import com.amazonaws.services.dynamodbv2.util.ItemCache;
 
 /**
  * Immutable configuration object for service call behavior. An instance of this
@@ -56,6 +58,10 @@ public class DynamoDBMapperConfig {
         private RequestMetricCollector requestMetricCollector;
         private ConversionSchema conversionSchema;
         private BatchWriteRetryStrategy batchWriteRetryStrategy;
+        private Integer batchLoadConcurrency;
+        private ItemCache itemCache;
+        private Integer paginationPrefetchDepth;
+        private CapacityRateLimiter capacityRateLimiter;
 
         /**
          * Creates a new builder initialized with the {@link #DEFAULT} values.
@@ -70,6 +76,10 @@ public class DynamoDBMapperConfig {
             requestMetricCollector = DEFAULT.getRequestMetricCollector();
             conversionSchema = DEFAULT.getConversionSchema();
             batchWriteRetryStrategy = DEFAULT.getBatchWriteRetryStrategy();
+            batchLoadConcurrency = DEFAULT.getBatchLoadConcurrency();
+            itemCache = DEFAULT.getItemCache();
+            paginationPrefetchDepth = DEFAULT.getPaginationPrefetchDepth();
+            capacityRateLimiter = DEFAULT.getCapacityRateLimiter();
         }
 
         /**
@@ -291,6 +301,114 @@ public class DynamoDBMapperConfig {
             return this;
         }
 
+        /**
+         * @return the current max number of BatchGetItem requests in flight
+         *         per batch load
+         */
+        public Integer getBatchLoadConcurrency() {
+            return batchLoadConcurrency;
+        }
+
+        /**
+         * @param value the new max number of BatchGetItem requests in flight
+         *              per batch load
+         */
+        public void setBatchLoadConcurrency(Integer value) {
+            if ( value != null && value < 1 ) {
+                throw new IllegalArgumentException(
+                        "The batch load concurrency must be at least 1");
+            }
+            this.batchLoadConcurrency = value;
+        }
+
+        /**
+         * @param value the new max number of BatchGetItem requests in flight
+         *              per batch load
+         * @return this builder
+         */
+        public Builder withBatchLoadConcurrency(Integer value) {
+            setBatchLoadConcurrency(value);
+            return this;
+        }
+
+        /**
+         * @return the current item cache
+         */
+        public ItemCache getItemCache() {
+            return itemCache;
+        }
+
+        /**
+         * @param value the new item cache
+         */
+        public void setItemCache(ItemCache value) {
+            this.itemCache = value;
+        }
+
+        /**
+         * @param value the new item cache
+         * @return this builder
+         */
+        public Builder withItemCache(ItemCache value) {
+            setItemCache(value);
+            return this;
+        }
+
+        /**
+         * @return the current max number of pages fetched ahead when
+         *         iterating over paginated results in ITERATION_ONLY mode
+         */
+        public Integer getPaginationPrefetchDepth() {
+            return paginationPrefetchDepth;
+        }
+
+        /**
+         * @param value the new max number of pages fetched ahead when
+         *              iterating over paginated results in ITERATION_ONLY
+         *              mode
+         */
+        public void setPaginationPrefetchDepth(Integer value) {
+            if ( value != null && value < 0 ) {
+                throw new IllegalArgumentException(
+                        "The pagination prefetch depth must not be negative");
+            }
+            this.paginationPrefetchDepth = value;
+        }
+
+        /**
+         * @param value the new max number of pages fetched ahead when
+         *              iterating over paginated results in ITERATION_ONLY
+         *              mode
+         * @return this builder
+         */
+        public Builder withPaginationPrefetchDepth(Integer value) {
+            setPaginationPrefetchDepth(value);
+            return this;
+        }
+
+        /**
+         * @return the current rate limiter of the scans and queries
+         */
+        public CapacityRateLimiter getCapacityRateLimiter() {
+            return capacityRateLimiter;
+        }
+
+        /**
+         * @param value the new rate limiter of the scans and queries
+         */
+        public void setCapacityRateLimiter(CapacityRateLimiter value) {
+            this.capacityRateLimiter = value;
+        }
+
+        /**
+         * @param value the new rate limiter of the scans and queries
+         * @return this builder
+         */
+        public Builder withCapacityRateLimiter(CapacityRateLimiter value) {
+            setCapacityRateLimiter(value);
+            return this;
+        }
+
 
         /**
          * Builds a new {@code DynamoDBMapperConfig} object.
@@ -307,7 +425,11 @@ public class DynamoDBMapperConfig {
                     paginationLoadingStrategy,
                     requestMetricCollector,
                     conversionSchema,
-                    batchWriteRetryStrategy);
+                    batchWriteRetryStrategy,
+                    batchLoadConcurrency,
+                    itemCache,
+                    paginationPrefetchDepth,
+                    capacityRateLimiter);
         }
     }
 
@@ -641,6 +763,10 @@ public class DynamoDBMapperConfig {
     private final RequestMetricCollector requestMetricCollector;
     private final ConversionSchema conversionSchema;
     private final BatchWriteRetryStrategy batchWriteRetryStrategy;
+    private final Integer batchLoadConcurrency;
+    private final ItemCache itemCache;
+    private final Integer paginationPrefetchDepth;
+    private final CapacityRateLimiter capacityRateLimiter;
 
     /**
      * Legacy constructor, using default PaginationLoadingStrategy
@@ -711,7 +837,11 @@ public class DynamoDBMapperConfig {
                 paginationLoadingStrategy,
                 requestMetricCollector,
                 ConversionSchemas.DEFAULT,
-                new DefaultBatchWriteRetryStrategy());
+                new DefaultBatchWriteRetryStrategy(),
+                null,
+                null,
+                null,
+                null);
     }
 
     private DynamoDBMapperConfig(
@@ -723,7 +853,11 @@ public class DynamoDBMapperConfig {
             PaginationLoadingStrategy paginationLoadingStrategy,
             RequestMetricCollector requestMetricCollector,
             ConversionSchema conversionSchema,
-            BatchWriteRetryStrategy batchWriteRetryStrategy) {
+            BatchWriteRetryStrategy batchWriteRetryStrategy,
+            Integer batchLoadConcurrency,
+            ItemCache itemCache,
+            Integer paginationPrefetchDepth,
+            CapacityRateLimiter capacityRateLimiter) {
 
         this.saveBehavior = saveBehavior;
         this.consistentReads = consistentReads;
@@ -734,6 +868,10 @@ public class DynamoDBMapperConfig {
         this.requestMetricCollector = requestMetricCollector;
         this.conversionSchema = conversionSchema;
         this.batchWriteRetryStrategy = batchWriteRetryStrategy;
+        this.batchLoadConcurrency = batchLoadConcurrency;
+        this.itemCache = itemCache;
+        this.paginationPrefetchDepth = paginationPrefetchDepth;
+        this.capacityRateLimiter = capacityRateLimiter;
     }
 
     /**
@@ -741,7 +879,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(SaveBehavior saveBehavior) {
         this(saveBehavior, null, null, null, null, null, null,
-                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy());
+                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy(), null, null, null, null);
     }
 
     /**
@@ -750,7 +888,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(ConsistentReads consistentReads) {
         this(null, consistentReads, null, null, null, null, null,
-                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy());
+                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy(), null, null, null, null);
     }
 
     /**
@@ -758,7 +896,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(TableNameOverride tableNameOverride) {
         this(null, null, tableNameOverride, null, null, null, null,
-                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy());
+                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy(), null, null, null, null);
     }
 
     /**
@@ -766,7 +904,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(TableNameResolver tableNameResolver) {
         this(null, null, null, tableNameResolver, null, null, null,
-                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy());
+                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy(), null, null, null, null);
     }
 
     /**
@@ -774,7 +912,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(ObjectTableNameResolver objectTableNameResolver) {
         this(null, null, null, null, objectTableNameResolver, null, null,
-                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy());
+                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy(), null, null, null, null);
     }
 
     /**
@@ -782,7 +920,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(TableNameResolver tableNameResolver, ObjectTableNameResolver objectTableNameResolver) {
         this(null, null, null, tableNameResolver, objectTableNameResolver, null, null,
-                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy());
+                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy(), null, null, null, null);
     }
 
     /**
@@ -793,14 +931,14 @@ public class DynamoDBMapperConfig {
             PaginationLoadingStrategy paginationLoadingStrategy) {
 
         this(null, null, null, null, null, paginationLoadingStrategy, null,
-                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy());
+                ConversionSchemas.DEFAULT, new DefaultBatchWriteRetryStrategy(), null, null, null, null);
     }
 
     /**
      * Constructs a new configuration object with the conversion schema given.
      */
     public DynamoDBMapperConfig(ConversionSchema conversionSchema) {
-        this(null, null, null, null, null, null, null, conversionSchema, new DefaultBatchWriteRetryStrategy());
+        this(null, null, null, null, null, null, null, conversionSchema, new DefaultBatchWriteRetryStrategy(), null, null, null, null);
     }
 
     /**
@@ -833,6 +971,10 @@ public class DynamoDBMapperConfig {
             this.requestMetricCollector = defaults.getRequestMetricCollector();
             this.conversionSchema = defaults.getConversionSchema();
             this.batchWriteRetryStrategy = defaults.getBatchWriteRetryStrategy();
+            this.batchLoadConcurrency = defaults.getBatchLoadConcurrency();
+            this.itemCache = defaults.getItemCache();
+            this.paginationPrefetchDepth = defaults.getPaginationPrefetchDepth();
+            this.capacityRateLimiter = defaults.getCapacityRateLimiter();
 
         } else {
 
@@ -874,6 +1016,22 @@ public class DynamoDBMapperConfig {
                     ? defaults.getBatchWriteRetryStrategy()
                     : overrides.getBatchWriteRetryStrategy();
 
+            this.batchLoadConcurrency = (overrides.getBatchLoadConcurrency() == null)
+                    ? defaults.getBatchLoadConcurrency()
+                    : overrides.getBatchLoadConcurrency();
+
+            this.itemCache = (overrides.getItemCache() == null)
+                    ? defaults.getItemCache()
+                    : overrides.getItemCache();
+
+            this.paginationPrefetchDepth = (overrides.getPaginationPrefetchDepth() == null)
+                    ? defaults.getPaginationPrefetchDepth()
+                    : overrides.getPaginationPrefetchDepth();
+
+            this.capacityRateLimiter = (overrides.getCapacityRateLimiter() == null)
+                    ? defaults.getCapacityRateLimiter()
+                    : overrides.getCapacityRateLimiter();
+
         }
     }
 
@@ -957,6 +1115,58 @@ public class DynamoDBMapperConfig {
         return batchWriteRetryStrategy;
     }
 
+    /**
+     * Returns the max number of BatchGetItem requests kept in flight by a
+     * single {@link DynamoDBMapper#batchLoad(List, DynamoDBMapperConfig)}, or
+     * null if not specified.
+     */
+    public Integer getBatchLoadConcurrency() {
+        return batchLoadConcurrency;
+    }
+
+    /**
+     * Returns the cache of the items loaded and saved by the mapper, or null
+     * if items are not cached. Only eventually consistent loads are served
+     * from the cache.
+     *
+     * @see ItemCache
+     */
+    public ItemCache getItemCache() {
+        return itemCache;
+    }
+
+    /**
+     * Returns the max number of pages fetched in the background, ahead of the
+     * page being iterated, by the paginated query and scan lists in
+     * {@link PaginationLoadingStrategy#ITERATION_ONLY} mode; null or 0 if
+     * pages are only fetched on demand. Pages are fetched one at a time, so
+     * this overlaps the requests to DynamoDB with the processing of the
+     * current page without using more than the given number of extra pages
+     * of memory.
+     */
+    public Integer getPaginationPrefetchDepth() {
+        return paginationPrefetchDepth;
+    }
+
+    /**
+     * Returns the rate limiter of the capacity consumed by the scans, parallel
+     * scans, queries and counts of the mapper, or null if they are not rate
+     * limited. The consumed capacity is requested from DynamoDB for each page
+     * and charged to the rate limiter, which can be shared by several scans
+     * and queries.
+     *
+     * @see CapacityRateLimiter
+     */
+    public CapacityRateLimiter getCapacityRateLimiter() {
+        return capacityRateLimiter;
+    }
+
+    /**
+     * The default max number of BatchGetItem requests kept in flight by a
+     * single batch load.
+     */
+    static final int DEFAULT_BATCH_LOAD_CONCURRENCY = 4;
+
     /**
      * Default configuration uses UPDATE behavior for saves and EVENTUALly
      * consistent reads, with no table name override and lazy-loading strategy.
@@ -970,5 +1180,9 @@ public class DynamoDBMapperConfig {
             PaginationLoadingStrategy.LAZY_LOADING,
             null,  // RequestMetricCollector
             ConversionSchemas.DEFAULT,
-            new DefaultBatchWriteRetryStrategy());
+            new DefaultBatchWriteRetryStrategy(),
+            DEFAULT_BATCH_LOAD_CONCURRENCY,
+            null,  // ItemCache
+            null,  // PaginationPrefetchDepth
+            null); // CapacityRateLimiter
 }
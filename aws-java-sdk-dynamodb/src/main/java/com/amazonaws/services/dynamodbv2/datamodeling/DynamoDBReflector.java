@@ -50,6 +50,7 @@ class DynamoDBReflector {
 
     private final Map<Method, Boolean> versionAttributeGetterCache = new HashMap<Method, Boolean>();
     private final Map<Method, Boolean> autoGeneratedKeyGetterCache = new HashMap<Method, Boolean>();
+    private final Map<Class<?>, WriteSharding> writeShardingCache = new HashMap<Class<?>, WriteSharding>();
 
     private final ReentrantReadWriteLock readWriteLockAttrName = new ReentrantReadWriteLock();
     private final ReadLock readLockAttrName = readWriteLockAttrName.readLock();
@@ -300,6 +301,47 @@ class DynamoDBReflector {
         }
     }
 
+    /**
+     * Returns the write sharding of the hash key of the class given, or null
+     * if its hash key isn't annotated with {@link DynamoDBWriteSharded}.
+     */
+    <T> WriteSharding getWriteSharding(Class<T> clazz) {
+        synchronized (writeShardingCache) {
+            if ( !writeShardingCache.containsKey(clazz) ) {
+                WriteSharding sharding = null;
+                for ( Method method : getRelevantGetters(clazz) ) {
+                    DynamoDBWriteSharded annotation = ReflectionUtils
+                            .getAnnotationFromGetterOrField(method, DynamoDBWriteSharded.class);
+                    if ( annotation == null ) {
+                        continue;
+                    }
+                    if ( !ReflectionUtils.getterOrFieldHasAnnotation(method, DynamoDBHashKey.class)
+                            || method.getReturnType() != String.class
+                            || isAssignableKey(method) ) {
+                        throw new DynamoDBMappingException(DynamoDBWriteSharded.class
+                                + " can only be applied to a String hash key which isn't auto-generated: "
+                                + method);
+                    }
+                    Method rangeKeyGetter = getPrimaryRangeKeyGetter(clazz);
+                    if ( rangeKeyGetter == null ) {
+                        for ( Method getter : getRelevantGetters(clazz) ) {
+                            if ( isVersionAttributeGetter(getter) ) {
+                                throw new DynamoDBMappingException(DynamoDBWriteSharded.class
+                                        + " can't be applied to the hash key of a class with a version"
+                                        + " attribute and without a range key: " + getter);
+                            }
+                        }
+                    }
+                    sharding = new WriteSharding(annotation, getAttributeName(method),
+                            rangeKeyGetter == null ? null : getAttributeName(rangeKeyGetter));
+                    break;
+                }
+                writeShardingCache.put(clazz, sharding);
+            }
+            return writeShardingCache.get(clazz);
+        }
+    }
+
     /**
      * Returns the name of the primary hash key.
      */
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for spreading the items of each hash key across several
+ * partitions, by suffixing the hash key saved in DynamoDB with a shard number.
+ * Applied to the getter method or the class field for the String hash key
+ * property, together with {@link DynamoDBHashKey}.
+ * <p>
+ * The model objects only ever see the logical hash key: the {@link DynamoDBMapper}
+ * appends the separator and the shard number to the hash key when writing or
+ * addressing an item, and strips them from the items read.
+ * <p>
+ * For tables with a range key, the shard of an item is derived from its range
+ * key, so that items can still be loaded, saved and deleted individually, in
+ * single or batch operations. Queries on the hash key must fan out across the
+ * shards, with {@link DynamoDBMapper#queryAllShards(Class, DynamoDBQueryExpression)}.
+ * <p>
+ * For tables without a range key, each save writes to a random shard, which
+ * suits counter-style items whose shards are aggregated when read, with
+ * {@link DynamoDBMapper#loadAllShards(Class, Object)} or
+ * {@link DynamoDBMapper#sumAllShards(Class, Object, String)}, and deleted
+ * with {@link DynamoDBMapper#deleteAllShards(Class, Object)}; such items can't
+ * be loaded or deleted individually, and their class can't have a
+ * {@link DynamoDBVersionAttribute}, since each save may write to another
+ * shard.
+ * <p>
+ * For tables with a range key, the shard count can't change once items have
+ * been written: the shard of each item depends on it, so that the items
+ * would no longer be found in their shards, and saving them again would
+ * write duplicates. For tables without a range key, the shard count can only
+ * be increased, as the items of the shards above a lowered count would no
+ * longer be read.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface DynamoDBWriteSharded {
+    /**
+     * The number of shards of each hash key.
+     */
+    int shardCount();
+
+    /**
+     * The separator between the logical hash key and the shard number.
+     */
+    String separator() default "#";
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static com.amazonaws.util.BinaryUtils.copyBytesFrom;
+import static com.amazonaws.util.StringUtils.UTF8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.s3.model.Region;
+
+/**
+ * An {@code AttributeTransformer} which compresses the large string and binary
+ * attributes of the items saved, and optionally offloads the largest ones to
+ * Amazon S3, so as to reduce the capacity consumed by the items and keep them
+ * under the item size limit of DynamoDB.
+ * <p>
+ * A string or binary attribute whose size reaches the compression threshold
+ * is compressed, unless compression doesn't make it smaller, and saved as a
+ * binary attribute starting with a marker recording the original type of the
+ * attribute and how it was encoded. If S3 offload is enabled and the encoded
+ * value is still larger than the offload threshold, the value is uploaded to
+ * a new S3 object, and only an {@link S3Link} to the object is saved in the
+ * item. Loading an item reverses these steps; only the attributes starting
+ * with the marker are decoded, and only the offloaded attributes are
+ * downloaded from S3.
+ * <p>
+ * The primary key attributes are never transformed. Attributes used as keys of
+ * secondary indexes, or in conditions, must be left out with
+ * {@link #withAttributeNames(String...)}. Offloaded S3 objects are never
+ * deleted by this transformer; a lifecycle rule on the bucket can expire the
+ * objects which are no longer referenced.
+ * <p>
+ * For example:
+ * <pre class="brush: java">
+ * LargeAttributeTransformer transformer = new LargeAttributeTransformer()
+ *     .withCompressionThreshold(1024)
+ *     .withS3Offload(credentialsProvider, null, "my-bucket", "offloaded/", 64 * 1024);
+ * DynamoDBMapper mapper = new DynamoDBMapper(client, DynamoDBMapperConfig.DEFAULT,
+ *     transformer);
+ * </pre>
+ */
+public class LargeAttributeTransformer implements AttributeTransformer {
+
+    /**
+     * The compression algorithms of the transformer.
+     */
+    public static enum Compression {
+        GZIP, DEFLATE
+    }
+
+    /** Starts the values encoded by this transformer, followed by a version. */
+    private static final byte[] MARKER = { (byte) 0xD1, (byte) 0xA7, (byte) 0x7A, 1 };
+    /** The marker, the original type, the compression and the location. */
+    private static final int HEADER_SIZE = MARKER.length + 3;
+
+    private static final byte TYPE_S = 'S';
+    private static final byte TYPE_B = 'B';
+
+    private static final byte NOT_COMPRESSED = 0;
+    private static final byte GZIP = 1;
+    private static final byte DEFLATE = 2;
+
+    private static final byte INLINE = 0;
+    private static final byte S3 = 1;
+
+    private Compression compression = Compression.GZIP;
+    private int compressionThreshold = 1024;
+    private Set<String> attributeNames;
+
+    private S3ClientCache s3cc;
+    private Region s3Region;
+    private String bucketName;
+    private String keyPrefix;
+    private int offloadThreshold;
+
+    /**
+     * Sets the compression algorithm; defaults to {@link Compression#GZIP}.
+     */
+    public LargeAttributeTransformer withCompression(Compression compression) {
+        if (compression == null) {
+            throw new IllegalArgumentException("Please provide a compression algorithm");
+        }
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Sets the size in bytes from which attributes are compressed; defaults to
+     * 1024.
+     */
+    public LargeAttributeTransformer withCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative compression threshold");
+        }
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    /**
+     * Restricts the transformation to the attributes with the given names.
+     * By default, all the attributes but the primary key ones can be
+     * transformed.
+     */
+    public LargeAttributeTransformer withAttributeNames(String... attributeNames) {
+        this.attributeNames = attributeNames == null
+                ? null
+                : Collections.unmodifiableSet(
+                        new HashSet<String>(Arrays.asList(attributeNames)));
+        return this;
+    }
+
+    /**
+     * Enables the offload to S3 of the attributes still larger than the given
+     * threshold once compressed.
+     *
+     * @param s3cc
+     *            the cache of the S3 clients, such as the one of a mapper
+     * @param s3Region
+     *            the region of the bucket, or null for US Standard
+     * @param bucketName
+     *            the bucket of the offloaded attributes
+     * @param keyPrefix
+     *            the prefix of the keys of the offloaded attributes, followed
+     *            by the name of the table and a random unique id; may be null
+     * @param offloadThreshold
+     *            the size in bytes above which the encoded attributes are
+     *            offloaded
+     */
+    public LargeAttributeTransformer withS3Offload(S3ClientCache s3cc,
+            Region s3Region, String bucketName, String keyPrefix,
+            int offloadThreshold) {
+        if (s3cc == null) {
+            throw new IllegalArgumentException("Please provide an S3 client cache");
+        }
+        if (bucketName == null) {
+            throw new IllegalArgumentException("Please provide a bucket name");
+        }
+        if (offloadThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative offload threshold");
+        }
+        this.s3cc = s3cc;
+        this.s3Region = s3Region;
+        this.bucketName = bucketName;
+        this.keyPrefix = keyPrefix == null ? "" : keyPrefix;
+        this.offloadThreshold = offloadThreshold;
+        return this;
+    }
+
+    /**
+     * Enables the offload to S3 of the attributes still larger than the given
+     * threshold once compressed, using S3 clients with the given credentials.
+     *
+     * @see #withS3Offload(S3ClientCache, Region, String, String, int)
+     */
+    public LargeAttributeTransformer withS3Offload(
+            AWSCredentialsProvider s3CredentialsProvider, Region s3Region,
+            String bucketName, String keyPrefix, int offloadThreshold) {
+        return withS3Offload(new S3ClientCache(s3CredentialsProvider),
+                s3Region, bucketName, keyPrefix, offloadThreshold);
+    }
+
+    @Override
+    public Map<String, AttributeValue> transform(Parameters<?> parameters) {
+        Map<String, AttributeValue> values = parameters.getAttributeValues();
+        Map<String, AttributeValue> transformed = null;
+        for (Map.Entry<String, AttributeValue> e : values.entrySet()) {
+            String name = e.getKey();
+            if (name.equals(parameters.getHashKeyName())
+                    || name.equals(parameters.getRangeKeyName())
+                    || (attributeNames != null && !attributeNames.contains(name))) {
+                continue;
+            }
+            AttributeValue value = e.getValue();
+            AttributeValue encoded = encode(parameters.getTableName(), value);
+            if (encoded != value) {
+                if (transformed == null) {
+                    transformed = new HashMap<String, AttributeValue>(values);
+                }
+                transformed.put(name, encoded);
+            }
+        }
+        return transformed == null ? values : transformed;
+    }
+
+    @Override
+    public Map<String, AttributeValue> untransform(Parameters<?> parameters) {
+        Map<String, AttributeValue> values = parameters.getAttributeValues();
+        Map<String, AttributeValue> untransformed = null;
+        for (Map.Entry<String, AttributeValue> e : values.entrySet()) {
+            ByteBuffer b = e.getValue().getB();
+            if (b != null && hasMarker(b)) {
+                if (untransformed == null) {
+                    untransformed = new HashMap<String, AttributeValue>(values);
+                }
+                untransformed.put(e.getKey(), decode(copyBytesFrom(b)));
+            }
+        }
+        return untransformed == null ? values : untransformed;
+    }
+
+    /**
+     * Returns the given value encoded, or the value itself if it needn't be.
+     */
+    private AttributeValue encode(String tableName, AttributeValue value) {
+        byte type;
+        byte[] raw;
+        if (value.getS() != null) {
+            type = TYPE_S;
+            raw = value.getS().getBytes(UTF8);
+        } else if (value.getB() != null) {
+            type = TYPE_B;
+            raw = copyBytesFrom(value.getB());
+        } else {
+            return value;
+        }
+
+        // Binary values starting with the marker are always encoded, so that
+        // they aren't mistaken for encoded values when loaded.
+        boolean mustEncode = type == TYPE_B && hasMarker(ByteBuffer.wrap(raw));
+        if (raw.length < compressionThreshold) {
+            return mustEncode
+                    ? encoded(type, NOT_COMPRESSED, INLINE, raw)
+                    : value;
+        }
+
+        byte compressionCode = compression == Compression.GZIP ? GZIP : DEFLATE;
+        byte[] payload = compress(compressionCode, raw);
+        if (payload.length >= raw.length) {
+            compressionCode = NOT_COMPRESSED;
+            payload = raw;
+        }
+        if (s3cc != null && payload.length > offloadThreshold) {
+            S3Link link = new S3Link(s3cc, s3Region, bucketName,
+                    keyPrefix + tableName + "/" + UUID.randomUUID());
+            link.uploadFrom(payload);
+            return encoded(type, compressionCode, S3, link.toJson().getBytes(UTF8));
+        }
+        if (compressionCode == NOT_COMPRESSED && !mustEncode) {
+            return value;
+        }
+        return encoded(type, compressionCode, INLINE, payload);
+    }
+
+    private static AttributeValue encoded(byte type, byte compressionCode,
+            byte location, byte[] payload) {
+        byte[] bytes = new byte[HEADER_SIZE + payload.length];
+        System.arraycopy(MARKER, 0, bytes, 0, MARKER.length);
+        bytes[MARKER.length] = type;
+        bytes[MARKER.length + 1] = compressionCode;
+        bytes[MARKER.length + 2] = location;
+        System.arraycopy(payload, 0, bytes, HEADER_SIZE, payload.length);
+        return new AttributeValue().withB(ByteBuffer.wrap(bytes));
+    }
+
+    private AttributeValue decode(byte[] bytes) {
+        if (bytes.length < HEADER_SIZE) {
+            throw new DynamoDBMappingException("Truncated large attribute");
+        }
+        byte type = bytes[MARKER.length];
+        byte compressionCode = bytes[MARKER.length + 1];
+        byte location = bytes[MARKER.length + 2];
+
+        byte[] payload = Arrays.copyOfRange(bytes, HEADER_SIZE, bytes.length);
+        if (location == S3) {
+            if (s3cc == null) {
+                throw new DynamoDBMappingException(
+                        "S3 offload must be enabled to load offloaded attributes");
+            }
+            S3Link link = S3Link.fromJson(s3cc, new String(payload, UTF8));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            link.downloadTo(output);
+            payload = output.toByteArray();
+        } else if (location != INLINE) {
+            throw new DynamoDBMappingException("Unknown large attribute location " + location);
+        }
+
+        byte[] raw = decompress(compressionCode, payload);
+        if (type == TYPE_S) {
+            return new AttributeValue().withS(new String(raw, UTF8));
+        } else if (type == TYPE_B) {
+            return new AttributeValue().withB(ByteBuffer.wrap(raw));
+        }
+        throw new DynamoDBMappingException("Unknown large attribute type " + type);
+    }
+
+    /**
+     * Returns whether the remaining bytes of the given buffer start with the
+     * marker, leaving the buffer as it is.
+     */
+    private static boolean hasMarker(ByteBuffer b) {
+        if (b.remaining() < MARKER.length) {
+            return false;
+        }
+        for (int i = 0; i < MARKER.length; i++) {
+            if (b.get(b.position() + i) != MARKER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] compress(byte compressionCode, byte[] raw) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(raw.length / 2 + 64);
+        try {
+            OutputStream out = compressionCode == GZIP
+                    ? new GZIPOutputStream(bytes)
+                    : new DeflaterOutputStream(bytes);
+            out.write(raw);
+            out.close();
+        } catch (IOException e) {
+            throw new DynamoDBMappingException("Unable to compress attribute", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decompress(byte compressionCode, byte[] payload) {
+        if (compressionCode == NOT_COMPRESSED) {
+            return payload;
+        }
+        if (compressionCode != GZIP && compressionCode != DEFLATE) {
+            throw new DynamoDBMappingException(
+                    "Unknown large attribute compression " + compressionCode);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length * 4);
+        try {
+            InputStream in = compressionCode == GZIP
+                    ? new GZIPInputStream(new ByteArrayInputStream(payload))
+                    : new InflaterInputStream(new ByteArrayInputStream(payload));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > -1) {
+                bytes.write(buffer, 0, read);
+            }
+            in.close();
+        } catch (IOException e) {
+            throw new DynamoDBMappingException("Unable to decompress attribute", e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -18,6 +18,8 @@ import java.util.List;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.PaginationLoadingStrategy;
+import com.amazonaws.services.dynamodbv2.document.internal.InternalUtils;
+import com.amazonaws.services.dynamodbv2.document.internal.PagePrefetcher;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryResult;
 
@@ -46,6 +48,12 @@ public class PaginatedQueryList<T> extends PaginatedList<T> {
     /** The current results for the last executed query operation */
     private QueryResult queryResult;
 
+    /**
+     * Fetches the next results in the background in ITERATION_ONLY mode, if
+     * enabled; null otherwise.
+     */
+    private final PagePrefetcher<QueryResult> prefetcher;
+
     public PaginatedQueryList(
             DynamoDBMapper mapper,
             Class<T> clazz,
@@ -61,6 +69,7 @@ public class PaginatedQueryList<T> extends PaginatedList<T> {
         this.queryResult  = queryResult;
         this.config = config;
 
+        this.prefetcher = newPrefetcher(paginationLoadingStrategy);
 
         allResults.addAll(mapper.marshallIntoObjects(
             mapper.toParameters(
@@ -75,6 +84,32 @@ public class PaginatedQueryList<T> extends PaginatedList<T> {
         }
     }
 
+    /**
+     * Returns a prefetcher of the next results if they should be fetched in
+     * the background, or null.
+     */
+    private PagePrefetcher<QueryResult> newPrefetcher(PaginationLoadingStrategy paginationLoadingStrategy) {
+        Integer prefetchDepth = config.getPaginationPrefetchDepth();
+        if (paginationLoadingStrategy != PaginationLoadingStrategy.ITERATION_ONLY
+                || prefetchDepth == null || prefetchDepth <= 0
+                || queryResult.getLastEvaluatedKey() == null) {
+            return null;
+        }
+        return new PagePrefetcher<QueryResult>(queryResult, prefetchDepth) {
+            @Override
+            protected boolean hasNextPage(QueryResult page) {
+                return page.getLastEvaluatedKey() != null;
+            }
+
+            @Override
+            protected QueryResult fetchNextPage(QueryResult page) {
+                queryRequest.setExclusiveStartKey(page.getLastEvaluatedKey());
+                return InternalUtils.query(dynamo, DynamoDBMapper.applyUserAgent(queryRequest),
+                        config.getCapacityRateLimiter());
+            }
+        };
+    }
+
     @Override
     protected boolean atEndOfResults() {
         return queryResult.getLastEvaluatedKey() == null;
@@ -82,8 +117,13 @@ public class PaginatedQueryList<T> extends PaginatedList<T> {
 
     @Override
     protected synchronized List<T> fetchNextPage() {
-        queryRequest.setExclusiveStartKey(queryResult.getLastEvaluatedKey());
-        queryResult = dynamo.query(DynamoDBMapper.applyUserAgent(queryRequest));
+        if (prefetcher != null) {
+            queryResult = prefetcher.next();
+        } else {
+            queryRequest.setExclusiveStartKey(queryResult.getLastEvaluatedKey());
+            queryResult = InternalUtils.query(dynamo, DynamoDBMapper.applyUserAgent(queryRequest),
+                    config.getCapacityRateLimiter());
+        }
         return mapper.marshallIntoObjects(mapper.toParameters(
                 queryResult.getItems(),
                 clazz,
@@ -18,6 +18,8 @@ import java.util.List;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.PaginationLoadingStrategy;
+import com.amazonaws.services.dynamodbv2.document.internal.InternalUtils;
+import com.amazonaws.services.dynamodbv2.document.internal.PagePrefetcher;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
 
@@ -46,6 +48,12 @@ public class PaginatedScanList<T> extends PaginatedList<T> {
     /** The current results for the last executed scan operation */
     private ScanResult scanResult;
 
+    /**
+     * Fetches the next results in the background in ITERATION_ONLY mode, if
+     * enabled; null otherwise.
+     */
+    private final PagePrefetcher<ScanResult> prefetcher;
+
     public PaginatedScanList(
             DynamoDBMapper mapper,
             Class<T> clazz,
@@ -61,6 +69,8 @@ public class PaginatedScanList<T> extends PaginatedList<T> {
         this.scanResult = scanResult;
         this.config = config;
 
+        this.prefetcher = newPrefetcher(paginationLoadingStrategy);
+
         allResults.addAll(mapper.marshallIntoObjects(
             mapper.toParameters(
                     scanResult.getItems(),
@@ -74,6 +84,32 @@ public class PaginatedScanList<T> extends PaginatedList<T> {
         }
     }
 
+    /**
+     * Returns a prefetcher of the next results if they should be fetched in
+     * the background, or null.
+     */
+    private PagePrefetcher<ScanResult> newPrefetcher(PaginationLoadingStrategy paginationLoadingStrategy) {
+        Integer prefetchDepth = config.getPaginationPrefetchDepth();
+        if (paginationLoadingStrategy != PaginationLoadingStrategy.ITERATION_ONLY
+                || prefetchDepth == null || prefetchDepth <= 0
+                || scanResult.getLastEvaluatedKey() == null) {
+            return null;
+        }
+        return new PagePrefetcher<ScanResult>(scanResult, prefetchDepth) {
+            @Override
+            protected boolean hasNextPage(ScanResult page) {
+                return page.getLastEvaluatedKey() != null;
+            }
+
+            @Override
+            protected ScanResult fetchNextPage(ScanResult page) {
+                scanRequest.setExclusiveStartKey(page.getLastEvaluatedKey());
+                return InternalUtils.scan(dynamo, DynamoDBMapper.applyUserAgent(scanRequest),
+                        config.getCapacityRateLimiter());
+            }
+        };
+    }
+
     @Override
     protected boolean atEndOfResults() {
         return scanResult.getLastEvaluatedKey() == null;
@@ -81,8 +117,13 @@ public class PaginatedScanList<T> extends PaginatedList<T> {
 
     @Override
     protected synchronized List<T> fetchNextPage() {
-        scanRequest.setExclusiveStartKey(scanResult.getLastEvaluatedKey());
-        scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(scanRequest));
+        if (prefetcher != null) {
+            scanResult = prefetcher.next();
+        } else {
+            scanRequest.setExclusiveStartKey(scanResult.getLastEvaluatedKey());
+            scanResult = InternalUtils.scan(dynamo, DynamoDBMapper.applyUserAgent(scanRequest),
+                    config.getCapacityRateLimiter());
+        }
         return mapper.marshallIntoObjects(mapper.toParameters(
             scanResult.getItems(),
             clazz,
@@ -26,8 +26,10 @@ import java.util.concurrent.Future;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.document.internal.InternalUtils;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.util.CapacityRateLimiter;
 
 public class ParallelScanTask {
 
@@ -59,13 +61,24 @@ public class ParallelScanTask {
 
     private final AmazonDynamoDB dynamo;
 
+    /**
+     * The rate limiter shared by all the segments, or null.
+     */
+    private final CapacityRateLimiter capacityRateLimiter;
+
     @Deprecated
     public ParallelScanTask(DynamoDBMapper mapper, AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests) {
         this(dynamo, parallelScanRequests);
     }
 
     ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests) {
+        this(dynamo, parallelScanRequests, null);
+    }
+
+    ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests,
+            CapacityRateLimiter capacityRateLimiter) {
         this.dynamo = dynamo;
+        this.capacityRateLimiter = capacityRateLimiter;
         this.parallelScanRequests = parallelScanRequests;
         this.totalSegments = parallelScanRequests.size();
         executorService = Executors.newCachedThreadPool();
@@ -220,7 +233,8 @@ public class ParallelScanTask {
         } else {
             segmentScanRequest.setExclusiveStartKey(null);
         }
-        ScanResult scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(segmentScanRequest));
+        ScanResult scanResult = InternalUtils.scan(dynamo,
+                DynamoDBMapper.applyUserAgent(segmentScanRequest), capacityRateLimiter);
 
         /**
          * Cache the scan result in segmentScanResults.
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static com.amazonaws.util.BinaryUtils.copyAllBytesFrom;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.internal.BackgroundExecutor;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * The write sharding of the hash key of a model class, as described by
+ * {@link DynamoDBWriteSharded}.
+ */
+@ThreadSafe
+final class WriteSharding {
+
+    private static final Random random = new Random();
+
+    private final int shardCount;
+    private final String separator;
+    private final String hashKeyName;
+    /** The name of the range key, or null. */
+    private final String rangeKeyName;
+
+    WriteSharding(DynamoDBWriteSharded annotation, String hashKeyName,
+            String rangeKeyName) {
+        if (annotation.shardCount() < 1) {
+            throw new DynamoDBMappingException(
+                    "The shard count of " + hashKeyName + " must be positive");
+        }
+        if (annotation.separator().length() == 0) {
+            throw new DynamoDBMappingException(
+                    "The shard separator of " + hashKeyName + " must not be empty");
+        }
+        this.shardCount = annotation.shardCount();
+        this.separator = annotation.separator();
+        this.hashKeyName = hashKeyName;
+        this.rangeKeyName = rangeKeyName;
+    }
+
+    int getShardCount() {
+        return shardCount;
+    }
+
+    String getHashKeyName() {
+        return hashKeyName;
+    }
+
+    boolean hasRangeKey() {
+        return rangeKeyName != null;
+    }
+
+    /**
+     * Returns the hash key of the given shard of the given logical hash key.
+     */
+    AttributeValue toShardHashKey(AttributeValue hashKey, int shard) {
+        if (hashKey.getS() == null) {
+            throw new DynamoDBMappingException(
+                    "Only String hash keys can be write-sharded: " + hashKeyName);
+        }
+        return new AttributeValue().withS(hashKey.getS() + separator + shard);
+    }
+
+    /**
+     * Returns a copy of the given item or key with the hash key of its shard,
+     * derived from its range key, or random if the table has no range key.
+     */
+    Map<String, AttributeValue> shardItem(Map<String, AttributeValue> item) {
+        AttributeValue hashKey = item.get(hashKeyName);
+        if (hashKey == null) {
+            return item;
+        }
+        int shard;
+        if (rangeKeyName == null) {
+            shard = random.nextInt(shardCount);
+        } else {
+            AttributeValue rangeKey = item.get(rangeKeyName);
+            shard = rangeKey == null ? random.nextInt(shardCount) : shardOf(rangeKey);
+        }
+        Map<String, AttributeValue> sharded = new HashMap<String, AttributeValue>(item);
+        sharded.put(hashKeyName, toShardHashKey(hashKey, shard));
+        return sharded;
+    }
+
+    /**
+     * Returns a copy of the given primary key with the hash key of its shard.
+     *
+     * @throws DynamoDBMappingException
+     *             if the table has no range key, so that the shard of the key
+     *             is unknown
+     */
+    Map<String, AttributeValue> shardKey(Map<String, AttributeValue> key) {
+        if (rangeKeyName == null) {
+            throw new DynamoDBMappingException("The items of the write-sharded hash key "
+                    + hashKeyName + " can't be addressed individually without a range key;"
+                    + " use loadAllShards, sumAllShards or deleteAllShards instead");
+        }
+        return shardItem(key);
+    }
+
+    /**
+     * Returns the given item with its logical hash key.
+     */
+    Map<String, AttributeValue> unshardItem(Map<String, AttributeValue> item) {
+        AttributeValue hashKey = item.get(hashKeyName);
+        if (hashKey == null || hashKey.getS() == null) {
+            return item;
+        }
+        int index = hashKey.getS().lastIndexOf(separator);
+        if (index < 0) {
+            return item;
+        }
+        Map<String, AttributeValue> unsharded = new HashMap<String, AttributeValue>(item);
+        unsharded.put(hashKeyName,
+                new AttributeValue().withS(hashKey.getS().substring(0, index)));
+        return unsharded;
+    }
+
+    /**
+     * Returns the shard of the items with the given range key. The shard must
+     * not depend on the JVM, so only specified hash codes are used. It also
+     * depends on the shard count, which therefore can't change once items
+     * are written.
+     */
+    int shardOf(AttributeValue rangeKey) {
+        int hash;
+        if (rangeKey.getS() != null) {
+            hash = rangeKey.getS().hashCode();
+        } else if (rangeKey.getN() != null) {
+            BigDecimal n = new BigDecimal(rangeKey.getN());
+            hash = n.signum() == 0
+                    ? 0
+                    : n.stripTrailingZeros().toPlainString().hashCode();
+        } else if (rangeKey.getB() != null) {
+            hash = Arrays.hashCode(copyAllBytesFrom(rangeKey.getB()));
+        } else {
+            throw new DynamoDBMappingException(
+                    "Keys must be scalar values (String, Number, or Binary). Got "
+                    + rangeKey + " for key " + rangeKeyName);
+        }
+        return (hash & Integer.MAX_VALUE) % shardCount;
+    }
+
+    /**
+     * Sorts the given items of several shards by range key, in the order
+     * DynamoDB returns the items of a single hash key.
+     */
+    void sortByRangeKey(List<Map<String, AttributeValue>> items, final boolean forward) {
+        Collections.sort(items, new Comparator<Map<String, AttributeValue>>() {
+            @Override
+            public int compare(Map<String, AttributeValue> a, Map<String, AttributeValue> b) {
+                int result = compareKeys(a.get(rangeKeyName), b.get(rangeKeyName));
+                return forward ? result : -result;
+            }
+        });
+    }
+
+    /**
+     * Compares two scalar keys: numbers by value, strings by their UTF-8 bytes
+     * and binaries as unsigned bytes. Missing keys compare equal.
+     */
+    static int compareKeys(AttributeValue a, AttributeValue b) {
+        if (a == null || b == null) {
+            return 0;
+        }
+        if (a.getN() != null && b.getN() != null) {
+            return new BigDecimal(a.getN()).compareTo(new BigDecimal(b.getN()));
+        }
+        byte[] x = toBytes(a);
+        byte[] y = toBytes(b);
+        for (int i = 0; i < x.length && i < y.length; i++) {
+            int diff = (x[i] & 0xFF) - (y[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return x.length - y.length;
+    }
+
+    private static byte[] toBytes(AttributeValue key) {
+        if (key.getS() != null) {
+            return key.getS().getBytes(StringUtils.UTF8);
+        }
+        if (key.getB() != null) {
+            return copyAllBytesFrom(key.getB());
+        }
+        return new byte[0];
+    }
+
+    /**
+     * Runs the given tasks in parallel, one per shard, and returns their
+     * results in order.
+     */
+    static <R> List<R> fanOut(List<Callable<R>> tasks) {
+        List<Future<R>> futures = new ArrayList<Future<R>>(tasks.size());
+        try {
+            for (Callable<R> task : tasks) {
+                futures.add(BackgroundExecutor.getExecutorService().submit(task));
+            }
+            List<R> results = new ArrayList<R>(tasks.size());
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Sharded read interrupted by other thread.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AmazonClientException) {
+                throw (AmazonClientException) e.getCause();
+            }
+            throw new AmazonClientException("Internal error during the sharded read.",
+                    e.getCause());
+        } finally {
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
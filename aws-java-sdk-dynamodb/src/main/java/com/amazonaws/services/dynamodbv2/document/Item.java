@@ -37,6 +37,7 @@ import java.util.Set;
 
 import com.amazonaws.services.dynamodbv2.document.internal.InternalUtils;
 import com.amazonaws.services.dynamodbv2.document.internal.ItemValueConformer;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.util.Base64;
 import com.amazonaws.util.json.Jackson;
 /**
@@ -67,6 +68,36 @@ public class Item {
     private static final String DUPLICATE_VALUES_FOUND_IN_INPUT = "Duplicate values found in input";
     private final Map<String, Object> attributes = new LinkedHashMap<String, Object>();
     private static final ItemValueConformer valueConformer = new ItemValueConformer();
+    /**
+     * True if some attributes may still hold their low-level representation,
+     * for an item created via {@link #fromAttributeValues(Map)}.
+     */
+    private boolean hasUndecodedValues;
+
+    /**
+     * Returns the value of the specified attribute, first converting it from
+     * its low-level representation if it hasn't been accessed yet.
+     */
+    private Object value(String attrName) {
+        Object val = attributes.get(attrName);
+        if (val instanceof AttributeValue) {
+            with(attrName, InternalUtils.toSimpleValue((AttributeValue) val));
+            val = attributes.get(attrName);
+        }
+        return val;
+    }
+
+    /**
+     * Converts all the attributes not accessed yet from their low-level
+     * representation.
+     */
+    private void decodeAll() {
+        if (!hasUndecodedValues)
+            return;
+        for (String attrName : attributes.keySet().toArray(new String[attributes.size()]))
+            value(attrName);
+        hasUndecodedValues = false;
+    }
 
     /**
      * Returns true if the specified attribute exists with a null value; false
@@ -74,7 +105,7 @@ public class Item {
      */
     public boolean isNull(String attrName) {
         return attributes.containsKey(attrName)
-                && attributes.get(attrName) == null;
+                && value(attrName) == null;
     }
 
     /**
@@ -96,7 +127,7 @@ public class Item {
      *      value is present.
      */
     public String getString(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         return valToString(val);
     }
 
@@ -124,7 +155,7 @@ public class Item {
      *         representation of a {@code BigDecimal}.
      */
     public BigDecimal getNumber(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         return toBigDecimal(val);
     }
 
@@ -352,7 +383,7 @@ public class Item {
      *      value is present.
      */
     public byte[] getBinary(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         return toByteArray(val);
     }
 
@@ -370,7 +401,7 @@ public class Item {
      *      value is present.
      */
     public ByteBuffer getByteBuffer(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         return toByteBuffer(val);
     }
 
@@ -446,7 +477,7 @@ public class Item {
      *      value is present.
      */
     public Set<String> getStringSet(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         if (val == null)
             return null;
         Set<String> stringSet = new LinkedHashSet<String>();
@@ -508,7 +539,7 @@ public class Item {
      *      value is present.
      */
     public Set<BigDecimal> getNumberSet(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         if (val == null)
             return null;
         Set<BigDecimal> numSet = new LinkedHashSet<BigDecimal>();
@@ -593,7 +624,7 @@ public class Item {
      *      value is present.
      */
     public Set<byte[]> getBinarySet(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         if (val == null)
             return null;
         Set<byte[]> binarySet = new LinkedHashSet<byte[]>();
@@ -639,7 +670,7 @@ public class Item {
      *      value is present.
      */
     public Set<ByteBuffer> getByteBufferSet(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         if (val == null)
             return null;
         Set<ByteBuffer> binarySet = new LinkedHashSet<ByteBuffer>();
@@ -737,7 +768,7 @@ public class Item {
      *      value is present.
      */
     public <T> List<T> getList(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         if (val == null)
             return null;
         if (val instanceof List) {
@@ -800,7 +831,7 @@ public class Item {
      */
     @SuppressWarnings("unchecked")
     public <T> Map<String, T> getMap(String attrName) {
-        return (Map<String, T>)attributes.get(attrName);
+        return (Map<String, T>)value(attrName);
     }
 
     /**
@@ -841,7 +872,7 @@ public class Item {
         ||  valueType == BigDecimal.class
         ||  valueType == BigInteger.class) {
             final Map<String, BigDecimal> src =
-                (Map<String, BigDecimal>)attributes.get(attrName);
+                (Map<String, BigDecimal>)value(attrName);
             if (src == null)
                 return null;
             final Map<String, T> dst = new LinkedHashMap<String, T>(src.size());
@@ -888,7 +919,7 @@ public class Item {
      */
     @SuppressWarnings("unchecked")
     public Map<String, Object> getRawMap(String attrName) {
-        return (Map<String, Object>)attributes.get(attrName);
+        return (Map<String, Object>)value(attrName);
     }
 
     /**
@@ -924,7 +955,7 @@ public class Item {
      */
     public String getJSON(String attrName) {
         checkInvalidAttrName(attrName);
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         return val == null ? null : Jackson.toJsonString(val);
     }
 
@@ -940,7 +971,7 @@ public class Item {
      */
     public String getJSONPretty(String attrName) {
         checkInvalidAttrName(attrName);
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         return val == null ? null : Jackson.toJsonPrettyString(val);
     }
 
@@ -958,7 +989,7 @@ public class Item {
      *      value is present.
      */
     public Boolean getBOOL(String attrName) {
-        final Object val = attributes.get(attrName);
+        final Object val = value(attrName);
         if (val instanceof Boolean)
             return (Boolean)val;
         if (val instanceof String) {
@@ -1156,7 +1187,7 @@ public class Item {
      *      value is present.
      */
     public Object get(String attrName) {
-        return attributes.get(attrName);
+        return value(attrName);
     }
 
     /**
@@ -1169,7 +1200,7 @@ public class Item {
      *      value is present.
      */
     public Class<?> getTypeOf(String attrName) {
-        Object val = attributes.get(attrName);
+        Object val = value(attrName);
         return val == null ? null : val.getClass();
     }
 
@@ -1186,6 +1217,7 @@ public class Item {
      * Returns all attributes of the current item.
      */
     public Iterable<Entry<String, Object>> attributes() {
+        decodeAll();
         return new LinkedHashMap<String, Object>(attributes).entrySet();
     }
 
@@ -1200,6 +1232,7 @@ public class Item {
      * Returns all attributes of the current item as a map.
      */
     public Map<String, Object> asMap() {
+        decodeAll();
         return new LinkedHashMap<String,Object>(attributes);
     }
 
@@ -1226,6 +1259,35 @@ public class Item {
         return item;
     }
 
+    /**
+     * Convenient factory method - instantiates an <code>Item</code> from the
+     * given low-level representation, converting each attribute only when it
+     * is first accessed. The attribute values are referenced rather than
+     * copied, so attributes never accessed cost no more memory than the
+     * low-level item, and numbers are not parsed until requested.
+     * <p>
+     * Unlike other items, such an item is modified by the first access to
+     * each attribute, and so must not be read concurrently from multiple
+     * threads, and the given map and values must not be modified afterwards.
+     *
+     * @param attributeValues
+     *            the low-level representation of the item, as returned by
+     *            DynamoDB
+     * @return an <code>Item</code> backed by the given attribute values; or
+     *         null if the input is null.
+     */
+    public static Item fromAttributeValues(Map<String, AttributeValue> attributeValues) {
+        if (attributeValues == null)
+            return null;
+        Item item = new Item();
+        for (Map.Entry<String, AttributeValue> e : attributeValues.entrySet()) {
+            checkInvalidAttrName(e.getKey());
+            item.attributes.put(e.getKey(), e.getValue());
+        }
+        item.hasUndecodedValues = !item.attributes.isEmpty();
+        return item;
+    }
+
     /**
      * Convenient factory method - instantiates an <code>Item</code> from the
      * given JSON string.
@@ -1247,6 +1309,7 @@ public class Item {
      * base-64 encoded in the resultant string.
      */
     public String toJSON() {
+        decodeAll();
         return Jackson.toJsonString(this.attributes);
     }
 
@@ -1368,16 +1431,19 @@ public class Item {
      * become base-64 encoded in the resultant string.
      */
     public String toJSONPretty() {
+        decodeAll();
         return Jackson.toJsonPrettyString(this.attributes);
     }
 
     @Override
     public String toString() {
+        decodeAll();
         return "{ Item: " + attributes.toString() + " }";
     }
 
     @Override
     public int hashCode() {
+        decodeAll();
         return attributes.hashCode();
     }
 
@@ -1385,6 +1451,8 @@ public class Item {
     public boolean equals(Object in) {
         if (in instanceof Item) {
             Item that = (Item)in;
+            this.decodeAll();
+            that.decodeAll();
             return this.attributes.equals(that.attributes);
         } else {
             return false;
@@ -56,6 +56,7 @@ import com.amazonaws.services.dynamodbv2.model.TableDescription;
 import com.amazonaws.services.dynamodbv2.model.TableStatus;
 import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
 import com.amazonaws.services.dynamodbv2.model.UpdateTableResult;
+import com.amazonaws.services.dynamodbv2.util.ItemCache;
 import com.amazonaws.services.dynamodbv2.xspec.DeleteItemExpressionSpec;
 import com.amazonaws.services.dynamodbv2.xspec.GetItemExpressionSpec;
 import com.amazonaws.services.dynamodbv2.xspec.QueryExpressionSpec;
@@ -73,6 +74,7 @@ public class Table implements PutItemApi, GetItemApi, QueryApi, ScanApi,
     private final String tableName;
     private final AmazonDynamoDB client;
     private volatile TableDescription tableDescription;
+    private volatile ItemCache itemCache;
 
     private final PutItemImpl putItemDelegate;
     private final GetItemImpl getItemDelegate;
@@ -109,6 +111,36 @@ public class Table implements PutItemApi, GetItemApi, QueryApi, ScanApi,
         return tableName;
     }
 
+    /**
+     * Returns the cache of the items read and written via this table, or null
+     * if items are not cached.
+     */
+    public ItemCache getItemCache() {
+        return itemCache;
+    }
+
+    /**
+     * Sets the cache of the items read and written via this table, or null to
+     * not cache items. Eventually consistent reads of whole items are served
+     * from the cache when possible, and the items put, updated or deleted via
+     * this table are updated or invalidated in the cache. The cache can be
+     * shared with other tables and with the
+     * {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper}.
+     */
+    public void setItemCache(ItemCache itemCache) {
+        this.itemCache = itemCache;
+    }
+
+    /**
+     * Fluent method for {@link #setItemCache(ItemCache)}.
+     *
+     * @return this table
+     */
+    public Table withItemCache(ItemCache itemCache) {
+        setItemCache(itemCache);
+        return this;
+    }
+
     /**
      * Returns the table description; or null if the table description has not
      * yet been described via {@link #describe()}.  No network call.
@@ -24,8 +24,10 @@ import com.amazonaws.services.dynamodbv2.document.PrimaryKey;
 import com.amazonaws.services.dynamodbv2.document.Table;
 import com.amazonaws.services.dynamodbv2.document.api.GetItemApi;
 import com.amazonaws.services.dynamodbv2.document.spec.GetItemSpec;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
 import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.util.ItemCache;
 
 /**
  * The implementation for <code>GetItemApi</code>.
@@ -74,7 +76,21 @@ public class GetItemImpl extends AbstractImpl implements GetItemApi {
                 .withKey(InternalUtils.toAttributeValueMap(spec.getKeyComponents()))
                 .withExpressionAttributeNames(spec.getNameMap());
 
+        // Only whole items are cached
+        final ItemCache itemCache = req.getProjectionExpression() == null
+                && req.getAttributesToGet() == null
+                ? getTable().getItemCache() : null;
+        if (itemCache != null && !Boolean.TRUE.equals(req.isConsistentRead())) {
+            Map<String, AttributeValue> item = itemCache.get(tableName, req.getKey());
+            if (item != null) {
+                return new GetItemOutcome(new GetItemResult()
+                        .withItem(item == ItemCache.NO_ITEM ? null : item));
+            }
+        }
+        long version = itemCache != null ? itemCache.startLoad(tableName, req.getKey()) : 0;
         GetItemResult result = getClient().getItem(req);
+        if (itemCache != null)
+            itemCache.putLoaded(tableName, req.getKey(), result.getItem(), version);
         return new GetItemOutcome(result);
     }
 
@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.document.AttributeUpdate;
 import com.amazonaws.services.dynamodbv2.document.Expected;
 import com.amazonaws.services.dynamodbv2.document.IncompatibleTypeException;
@@ -40,6 +41,12 @@ import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.util.CapacityRateLimiter;
 import com.amazonaws.util.VersionInfoUtils;
 
 /**
@@ -61,6 +68,25 @@ public enum InternalUtils {
         return result;
     }
 
+    /**
+     * Returns a non-null list of <code>Item</code>'s given the low level
+     * list of item information; the attributes of each item are converted
+     * only when first accessed if <code>lazyDecoding</code> is true.
+     *
+     * @see Item#fromAttributeValues(Map)
+     */
+    public static List<Item> toItemList(List<Map<String, AttributeValue>> items,
+            boolean lazyDecoding) {
+        if (!lazyDecoding)
+            return toItemList(items);
+        if (items == null)
+            return Collections.emptyList();
+        List<Item> result = new ArrayList<Item>(items.size());
+        for (Map<String, AttributeValue> item : items)
+            result.add(Item.fromAttributeValues(item));
+        return result;
+    }
+
     /**
      * Converts an <code>Item</code> into the low-level representation;
      * or null if the input is null.
@@ -348,7 +374,7 @@ public enum InternalUtils {
      * @throws IllegalArgumentException
      *             if an empty <code>AttributeValue</code> value is specified
      */
-    static <T> T toSimpleValue(AttributeValue value) {
+    public static <T> T toSimpleValue(AttributeValue value) {
         if (value == null) {
             return null;
         }
@@ -619,4 +645,47 @@ public enum InternalUtils {
         checkInvalidAttrName(attrName);
         rejectNullValue(val);
     }
+
+    /**
+     * Sends the given query request, within the capacity budget of the given
+     * rate limiter if not null.
+     */
+    public static QueryResult query(AmazonDynamoDB client, QueryRequest request,
+            CapacityRateLimiter capacityRateLimiter) {
+        if (capacityRateLimiter == null)
+            return client.query(request);
+        request.setReturnConsumedCapacity(
+                returnConsumedCapacity(request.getReturnConsumedCapacity()));
+        capacityRateLimiter.acquire();
+        QueryResult result = client.query(request);
+        capacityRateLimiter.consume(result.getConsumedCapacity());
+        return result;
+    }
+
+    /**
+     * Sends the given scan request, within the capacity budget of the given
+     * rate limiter if not null.
+     */
+    public static ScanResult scan(AmazonDynamoDB client, ScanRequest request,
+            CapacityRateLimiter capacityRateLimiter) {
+        if (capacityRateLimiter == null)
+            return client.scan(request);
+        request.setReturnConsumedCapacity(
+                returnConsumedCapacity(request.getReturnConsumedCapacity()));
+        capacityRateLimiter.acquire();
+        ScanResult result = client.scan(request);
+        capacityRateLimiter.consume(result.getConsumedCapacity());
+        return result;
+    }
+
+    /**
+     * Returns the ReturnConsumedCapacity of a rate limited request, which
+     * must return its consumed capacity for the rate limiter to pay it back.
+     */
+    private static String returnConsumedCapacity(String returnConsumedCapacity) {
+        if (returnConsumedCapacity == null
+                || ReturnConsumedCapacity.NONE.toString().equals(returnConsumedCapacity))
+            return ReturnConsumedCapacity.TOTAL.toString();
+        return returnConsumedCapacity;
+    }
 }
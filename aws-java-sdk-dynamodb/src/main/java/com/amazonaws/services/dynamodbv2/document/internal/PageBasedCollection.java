@@ -26,6 +26,7 @@ import com.amazonaws.services.dynamodbv2.document.Page;
 public abstract class PageBasedCollection<T,R> implements Iterable<T> {
     private volatile R lastLowLevelResult;
     private volatile LowLevelResultListener<R> listener = LowLevelResultListener.none();
+    private volatile int prefetchDepth;
 
     @Override
     public IteratorSupport<T,R> iterator() {
@@ -64,6 +65,31 @@ public abstract class PageBasedCollection<T,R> implements Iterable<T> {
         listener.onLowLevelResult(lowLevelResult);
     }
 
+    /**
+     * Returns the max number of pages fetched in the background ahead of the
+     * page being iterated; 0 (the default) if pages are only fetched on
+     * demand.
+     */
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+
+    /**
+     * Sets the max number of pages fetched in the background, while iterating
+     * over this collection, ahead of the page being iterated; 0 to only fetch
+     * pages on demand. The pages are fetched one at a time and in order, so
+     * this only overlaps the requests to the server side with the processing
+     * of the items already retrieved; the memory used is bounded by the given
+     * number of pages per iterator.
+     * <p>
+     * The setting only applies to the iterators created afterwards.
+     */
+    public void setPrefetchDepth(int prefetchDepth) {
+        if (prefetchDepth < 0)
+            throw new IllegalArgumentException("prefetchDepth must not be negative");
+        this.prefetchDepth = prefetchDepth;
+    }
+
     /**
      * Used to register a listener for the event of receiving a low-level result
      * from the server side.
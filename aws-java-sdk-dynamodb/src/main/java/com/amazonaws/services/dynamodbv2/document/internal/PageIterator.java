@@ -26,9 +26,12 @@ class PageIterator<T,R> implements Iterator<Page<T,R>> {
 
     private Page<T,R> page;
     private final PageBasedCollection<T,R> col;
+    private final int prefetchDepth;
+    private PagePrefetcher<Page<T,R>> prefetcher;
 
     PageIterator(PageBasedCollection<T,R> col) {
         this.col = col;
+        this.prefetchDepth = col.getPrefetchDepth();
     }
 
     @Override
@@ -43,13 +46,29 @@ class PageIterator<T,R> implements Iterator<Page<T,R>> {
     public Page<T,R> next() {
         if (page == null) {
             page = col.firstPage();
+            if (prefetchDepth > 0 && page.hasNextPage())
+                prefetcher = newPrefetcher(page);
         } else {
-            page = page.nextPage();
+            page = prefetcher == null ? page.nextPage() : prefetcher.next();
             col.setLastLowLevelResult(page.getLowLevelResult());
         }
         return page;
     }
 
+    private PagePrefetcher<Page<T,R>> newPrefetcher(Page<T,R> firstPage) {
+        return new PagePrefetcher<Page<T,R>>(firstPage, prefetchDepth) {
+            @Override
+            protected boolean hasNextPage(Page<T,R> page) {
+                return page.hasNextPage();
+            }
+
+            @Override
+            protected Page<T,R> fetchNextPage(Page<T,R> page) {
+                return page.nextPage();
+            }
+        };
+    }
+
     @Override
     public void remove() {
         throw new UnsupportedOperationException("Collection is read-only");
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.document.internal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.internal.BackgroundExecutor;
+
+/**
+ * Internal helper which fetches the next pages of a paginated result in the
+ * background, while the caller processes the current page. Pages are fetched
+ * one at a time, in order, up to the given number of pages ahead of the
+ * caller, so that the memory used is bounded even if the caller stops
+ * consuming the pages.
+ * <p>
+ * The pages are consumed by a single thread, via {@link #hasNext()} and
+ * {@link #next()}. Fetching starts as soon as the prefetcher is constructed,
+ * so {@link #hasNextPage(Object)} and {@link #fetchNextPage(Object)} must not
+ * depend on state initialized by a subclass constructor.
+ *
+ * @param <P> page type
+ */
+public abstract class PagePrefetcher<P> {
+
+    private final int depth;
+    private final Executor executor;
+
+    private final Deque<P> fetched = new ArrayDeque<P>();
+    /** The last page fetched, or the first page if none was fetched yet. */
+    private P last;
+    /** The last page returned to the caller, or the first page. */
+    private P current;
+    private RuntimeException failure;
+    private boolean fetching;
+
+    private final Runnable fetchTask = new Runnable() {
+        @Override
+        public void run() {
+            fetchAhead();
+        }
+    };
+
+    /**
+     * @param firstPage
+     *            the page being processed by the caller
+     * @param depth
+     *            the max number of pages fetched ahead of the caller
+     */
+    protected PagePrefetcher(P firstPage, int depth) {
+        this(firstPage, depth, BackgroundExecutor.getExecutorService());
+    }
+
+    /**
+     * @param firstPage
+     *            the page being processed by the caller
+     * @param depth
+     *            the max number of pages fetched ahead of the caller
+     * @param executor
+     *            the executor used to fetch the pages
+     */
+    protected PagePrefetcher(P firstPage, int depth, Executor executor) {
+        if (depth < 1)
+            throw new IllegalArgumentException("prefetch depth must be at least 1");
+        this.last = firstPage;
+        this.current = firstPage;
+        this.depth = depth;
+        this.executor = executor;
+        synchronized (this) {
+            fetchAheadIfNeeded();
+        }
+    }
+
+    /**
+     * Returns true if the given page has a next page.
+     */
+    protected abstract boolean hasNextPage(P page);
+
+    /**
+     * Fetches the page after the given one. Called from a background thread,
+     * for one page at a time.
+     */
+    protected abstract P fetchNextPage(P page);
+
+    /**
+     * Returns true if the page last returned by {@link #next()} has a next
+     * page.
+     */
+    public synchronized boolean hasNext() {
+        return hasNextPage(current);
+    }
+
+    /**
+     * Returns the next page, waiting for it to be fetched if needed.
+     *
+     * @throws NoSuchElementException if there is no next page
+     * @throws AmazonClientException if the page could not be fetched
+     */
+    public synchronized P next() {
+        if (!hasNextPage(current))
+            throw new NoSuchElementException("No more pages");
+        boolean interrupted = false;
+        try {
+            while (fetched.isEmpty() && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        if (fetched.isEmpty())
+            throw failure;
+        current = fetched.poll();
+        fetchAheadIfNeeded();
+        return current;
+    }
+
+    /**
+     * Schedules the background fetching if there's room for more pages.
+     */
+    private void fetchAheadIfNeeded() {
+        if (!fetching && failure == null && fetched.size() < depth
+                && hasNextPage(last)) {
+            fetching = true;
+            try {
+                executor.execute(fetchTask);
+            } catch (RuntimeException e) {
+                fetching = false;
+                failure = e;
+            }
+        }
+    }
+
+    private void fetchAhead() {
+        while (true) {
+            P page;
+            synchronized (this) {
+                if (fetched.size() >= depth || !hasNextPage(last)) {
+                    fetching = false;
+                    return;
+                }
+                page = last;
+            }
+            P next;
+            try {
+                next = fetchNextPage(page);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    failure = e;
+                    fetching = false;
+                    notifyAll();
+                }
+                return;
+            } catch (Error e) {
+                synchronized (this) {
+                    failure = new AmazonClientException("Unable to fetch the next page", e);
+                    fetching = false;
+                    notifyAll();
+                }
+                throw e;
+            }
+            synchronized (this) {
+                fetched.add(next);
+                last = next;
+                notifyAll();
+            }
+        }
+    }
+}
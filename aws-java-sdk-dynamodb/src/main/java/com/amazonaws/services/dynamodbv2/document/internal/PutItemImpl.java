@@ -27,6 +27,7 @@ import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
 import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.util.ItemCache;
 
 /**
  * The implementation for <code>PutItemApi</code>.
@@ -82,7 +83,12 @@ public class PutItemImpl extends AbstractImpl implements PutItemApi {
             .withExpressionAttributeNames(spec.getNameMap())
             .withExpressionAttributeValues(attrValMap)
             ;
+        final ItemCache itemCache = getTable().getItemCache();
+        if (itemCache != null)
+            itemCache.invalidateItem(tableName, attributes);
         PutItemResult result = getClient().putItem(req);
+        if (itemCache != null)
+            itemCache.putItem(tableName, attributes);
         return new PutItemOutcome(result);
     }
 }
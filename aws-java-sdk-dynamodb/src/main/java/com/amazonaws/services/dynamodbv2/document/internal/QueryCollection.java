@@ -50,7 +50,7 @@ class QueryCollection extends ItemCollection<QueryOutcome>
         request.setLimit(InternalUtils.minimum(
                 spec.getMaxResultSize(),
                 spec.getMaxPageSize()));
-        QueryResult result = client.query(request);
+        QueryResult result = InternalUtils.query(client, request, spec.getCapacityRateLimiter());
         QueryOutcome outcome = new QueryOutcome(result);
         setLastLowLevelResult(outcome);
         return new QueryPage(client, spec, request, 0, outcome);
@@ -43,7 +43,8 @@ class QueryPage extends Page<Item, QueryOutcome> {
             int index,
             QueryOutcome outcome) {
         super(Collections.unmodifiableList(
-                toItemList(outcome.getQueryResult().getItems())),
+                toItemList(outcome.getQueryResult().getItems(),
+                    spec.isLazyItemDecoding())),
             outcome);
         this.client = client;
         this.spec = spec;
@@ -91,7 +92,7 @@ class QueryPage extends Page<Item, QueryOutcome> {
             request.setLimit(nextLimit);
         }
         request.setExclusiveStartKey(lastEvaluatedKey);
-        QueryResult result = client.query(request);
+        QueryResult result = InternalUtils.query(client, request, spec.getCapacityRateLimiter());
         final int nextIndex = index + this.size();
         return new QueryPage(client, spec, request, nextIndex,
                 new QueryOutcome(result));
@@ -44,7 +44,8 @@ class ScanPage extends Page<Item, ScanOutcome> {
             int index,
             ScanOutcome outcome) {
         super(Collections.unmodifiableList(
-                toItemList(outcome.getScanResult().getItems())),
+                toItemList(outcome.getScanResult().getItems(),
+                    spec.isLazyItemDecoding())),
             outcome);
         this.client = client;
         this.spec = spec;
@@ -93,7 +94,7 @@ class ScanPage extends Page<Item, ScanOutcome> {
         }
         request.setExclusiveStartKey(lastEvaluatedKey);
         // fire off request to the server side
-        ScanResult result = client.scan(request);
+        ScanResult result = InternalUtils.scan(client, request, spec.getCapacityRateLimiter());
         final int nextIndex = index + this.size();
         return new ScanPage(client, spec, request, nextIndex, 
                 new ScanOutcome(result));
@@ -26,7 +26,10 @@ import com.amazonaws.services.dynamodbv2.document.UpdateItemOutcome;
 import com.amazonaws.services.dynamodbv2.document.api.UpdateItemApi;
 import com.amazonaws.services.dynamodbv2.document.spec.UpdateItemSpec;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
 import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.util.ItemCache;
 
 /**
  * The implementation for <code>UpdateItemApi</code>.
@@ -99,7 +102,19 @@ public class UpdateItemImpl implements UpdateItemApi {
         request.setExpressionAttributeNames(spec.getNameMap());
         request.setExpressionAttributeValues(
             InternalUtils.fromSimpleMap(spec.getValueMap()));
-        return new UpdateItemOutcome(client.updateItem(request));
+        final ItemCache itemCache = table.getItemCache();
+        if (itemCache != null)
+            itemCache.invalidate(request.getTableName(), request.getKey());
+        UpdateItemResult result = client.updateItem(request);
+        // Only the ALL_NEW return values are the complete item
+        if (itemCache != null
+                && ReturnValue.ALL_NEW.toString().equals(request.getReturnValues())
+                && result.getAttributes() != null
+                && !result.getAttributes().isEmpty()) {
+            itemCache.put(request.getTableName(), request.getKey(),
+                    result.getAttributes());
+        }
+        return new UpdateItemOutcome(result);
     }
 
     @Override
@@ -34,6 +34,7 @@ import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.util.CapacityRateLimiter;
 import com.amazonaws.services.dynamodbv2.xspec.QueryExpressionSpec;
 
 /**
@@ -48,6 +49,10 @@ public class QuerySpec extends AbstractCollectionSpec<QueryRequest> {
 
     private Collection<KeyAttribute> exclusiveStartKey;
 
+    private boolean lazyItemDecoding;
+
+    private CapacityRateLimiter capacityRateLimiter;
+
     public QuerySpec() {
         super(new QueryRequest());
     }
@@ -118,6 +123,50 @@ public class QuerySpec extends AbstractCollectionSpec<QueryRequest> {
         return getRequest().isConsistentRead();
     }
 
+    /**
+     * Returns true if the attributes of the retrieved items are only converted
+     * from their low-level representation when first accessed.
+     *
+     * @see com.amazonaws.services.dynamodbv2.document.Item#fromAttributeValues(Map)
+     */
+    public boolean isLazyItemDecoding() {
+        return lazyItemDecoding;
+    }
+
+    /**
+     * Sets whether the attributes of the retrieved items are only converted
+     * from their low-level representation when first accessed. This saves
+     * memory and time when only some of the attributes of each item are read,
+     * but the items must then not be read concurrently from multiple threads.
+     * Disabled by default.
+     *
+     * @see com.amazonaws.services.dynamodbv2.document.Item#fromAttributeValues(Map)
+     */
+    public QuerySpec withLazyItemDecoding(boolean lazyItemDecoding) {
+        this.lazyItemDecoding = lazyItemDecoding;
+        return this;
+    }
+
+    /**
+     * Returns the rate limiter through which the pages of the query are
+     * requested, or null if the query is not rate limited.
+     */
+    public CapacityRateLimiter getCapacityRateLimiter() {
+        return capacityRateLimiter;
+    }
+
+    /**
+     * Sets the rate limiter through which the pages of the query are
+     * requested, so as to keep the capacity consumed by the query within its
+     * budget. The consumed capacity is then returned for every page, unless
+     * requested otherwise via {@link #withReturnConsumedCapacity}. A rate
+     * limiter can be shared by multiple querys running concurrently.
+     */
+    public QuerySpec withCapacityRateLimiter(CapacityRateLimiter capacityRateLimiter) {
+        this.capacityRateLimiter = capacityRateLimiter;
+        return this;
+    }
+
     public QuerySpec withQueryFilters(QueryFilter... queryFilters) {
         if (queryFilters == null)
             this.queryFilters = null;
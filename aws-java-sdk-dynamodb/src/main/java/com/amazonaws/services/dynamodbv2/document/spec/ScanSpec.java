@@ -33,6 +33,7 @@ import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
 import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.util.CapacityRateLimiter;
 import com.amazonaws.services.dynamodbv2.xspec.ScanExpressionSpec;
 
 /**
@@ -45,6 +46,10 @@ public class ScanSpec extends AbstractCollectionSpec<ScanRequest> {
 
     private Collection<KeyAttribute> exclusiveStartKey;
 
+    private boolean lazyItemDecoding;
+
+    private CapacityRateLimiter capacityRateLimiter;
+
     public ScanSpec() {
         super(new ScanRequest());
     }
@@ -267,6 +272,50 @@ public class ScanSpec extends AbstractCollectionSpec<ScanRequest> {
         return this;
     }
 
+    /**
+     * Returns true if the attributes of the retrieved items are only converted
+     * from their low-level representation when first accessed.
+     *
+     * @see com.amazonaws.services.dynamodbv2.document.Item#fromAttributeValues(Map)
+     */
+    public boolean isLazyItemDecoding() {
+        return lazyItemDecoding;
+    }
+
+    /**
+     * Sets whether the attributes of the retrieved items are only converted
+     * from their low-level representation when first accessed. This saves
+     * memory and time when only some of the attributes of each item are read,
+     * but the items must then not be read concurrently from multiple threads.
+     * Disabled by default.
+     *
+     * @see com.amazonaws.services.dynamodbv2.document.Item#fromAttributeValues(Map)
+     */
+    public ScanSpec withLazyItemDecoding(boolean lazyItemDecoding) {
+        this.lazyItemDecoding = lazyItemDecoding;
+        return this;
+    }
+
+    /**
+     * Returns the rate limiter through which the pages of the scan are
+     * requested, or null if the scan is not rate limited.
+     */
+    public CapacityRateLimiter getCapacityRateLimiter() {
+        return capacityRateLimiter;
+    }
+
+    /**
+     * Sets the rate limiter through which the pages of the scan are
+     * requested, so as to keep the capacity consumed by the scan within its
+     * budget. The consumed capacity is then returned for every page, unless
+     * requested otherwise via {@link #withReturnConsumedCapacity}. A rate
+     * limiter can be shared by multiple scans running concurrently.
+     */
+    public ScanSpec withCapacityRateLimiter(CapacityRateLimiter capacityRateLimiter) {
+        this.capacityRateLimiter = capacityRateLimiter;
+        return this;
+    }
+
     // Exclusive start key
 
     /**
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import static com.amazonaws.util.BinaryUtils.copyAllBytesFrom;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Evaluation of the legacy conditional parameters, ordering of keys, and item
+ * sizes, as DynamoDB defines them.
+ */
+final class Conditions {
+
+    static final String SERVICE_NAME = "AmazonDynamoDBv2";
+
+    /** The result of comparing values of different types. */
+    private static final int UNORDERED = 2;
+
+    /**
+     * Orders scalar keys: binaries, then numbers, then strings; numbers by
+     * value, strings by their UTF-8 bytes and binaries as unsigned bytes.
+     */
+    static final Comparator<AttributeValue> KEY_ORDER = new Comparator<AttributeValue>() {
+        @Override
+        public int compare(AttributeValue a, AttributeValue b) {
+            int result = typeOrder(a) - typeOrder(b);
+            return result != 0 ? result : compareScalars(a, b);
+        }
+    };
+
+    /**
+     * Orders the composite sort keys of the items of a hash key, where a null
+     * element sorts first.
+     */
+    static final Comparator<List<AttributeValue>> SORT_KEY_ORDER =
+            new Comparator<List<AttributeValue>>() {
+        @Override
+        public int compare(List<AttributeValue> a, List<AttributeValue> b) {
+            for (int i = 0; i < a.size() && i < b.size(); i++) {
+                AttributeValue x = a.get(i);
+                AttributeValue y = b.get(i);
+                if (x != y) {
+                    if (x == null) {
+                        return -1;
+                    }
+                    if (y == null) {
+                        return 1;
+                    }
+                    int result = KEY_ORDER.compare(x, y);
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+            }
+            return a.size() - b.size();
+        }
+    };
+
+    private Conditions() {
+    }
+
+    /**
+     * Returns whether the given item matches all, or any if the conditional
+     * operator is OR, of the given conditions.
+     */
+    static boolean matches(Map<String, AttributeValue> item,
+            Map<String, Condition> conditions, String conditionalOperator) {
+        if (conditions == null || conditions.isEmpty()) {
+            return true;
+        }
+        boolean any = ConditionalOperator.OR.toString().equals(conditionalOperator);
+        for (Map.Entry<String, Condition> entry : conditions.entrySet()) {
+            boolean match = matches(item.get(entry.getKey()), entry.getValue());
+            if (match == any) {
+                return any;
+            }
+        }
+        return !any;
+    }
+
+    /**
+     * Returns whether the given item, or null, meets all, or any if the
+     * conditional operator is OR, of the given expected values.
+     */
+    static boolean meetsExpectations(Map<String, AttributeValue> item,
+            Map<String, ExpectedAttributeValue> expected, String conditionalOperator) {
+        if (expected == null || expected.isEmpty()) {
+            return true;
+        }
+        boolean any = ConditionalOperator.OR.toString().equals(conditionalOperator);
+        for (Map.Entry<String, ExpectedAttributeValue> entry : expected.entrySet()) {
+            AttributeValue value = item == null ? null : item.get(entry.getKey());
+            boolean match = meetsExpectation(value, entry.getValue());
+            if (match == any) {
+                return any;
+            }
+        }
+        return !any;
+    }
+
+    private static boolean meetsExpectation(AttributeValue value,
+            ExpectedAttributeValue expected) {
+        if (expected.getComparisonOperator() != null) {
+            return matches(value, new Condition()
+                .withComparisonOperator(expected.getComparisonOperator())
+                .withAttributeValueList(expected.getAttributeValueList()));
+        }
+        if (Boolean.FALSE.equals(expected.getExists())) {
+            if (expected.getValue() != null) {
+                throw validation("One or more parameter values were invalid: "
+                        + "Value cannot be used when Exists is false");
+            }
+            return value == null;
+        }
+        if (expected.getValue() == null) {
+            throw validation("One or more parameter values were invalid: "
+                    + "Value must be provided when Exists is true");
+        }
+        return value != null && sameValue(value, expected.getValue());
+    }
+
+    /**
+     * Returns whether two values are equal, comparing numbers by value.
+     */
+    private static boolean sameValue(AttributeValue a, AttributeValue b) {
+        if (a.getN() != null && b.getN() != null) {
+            return new BigDecimal(a.getN()).compareTo(new BigDecimal(b.getN())) == 0;
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * Returns whether the given attribute value, or null if missing, matches
+     * the given condition.
+     */
+    static boolean matches(AttributeValue value, Condition condition) {
+        ComparisonOperator operator =
+                ComparisonOperator.fromValue(condition.getComparisonOperator());
+        List<AttributeValue> arguments = condition.getAttributeValueList();
+        switch (operator) {
+        case NULL:
+            return value == null;
+        case NOT_NULL:
+            return value != null;
+        case EQ:
+            return value != null && sameValue(value, argument(arguments, 0, operator));
+        case NE:
+            return value == null || !sameValue(value, argument(arguments, 0, operator));
+        case IN:
+            if (value != null && arguments != null) {
+                for (AttributeValue argument : arguments) {
+                    if (sameValue(value, argument)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        case LT:
+            return signum(value, argument(arguments, 0, operator)) == -1;
+        case LE:
+            return signum(value, argument(arguments, 0, operator)) <= 0;
+        case GT:
+            return signum(value, argument(arguments, 0, operator)) == 1;
+        case GE:
+            int signum = signum(value, argument(arguments, 0, operator));
+            return signum == 0 || signum == 1;
+        case BETWEEN:
+            int lower = signum(value, argument(arguments, 0, operator));
+            return (lower == 0 || lower == 1)
+                    && signum(value, argument(arguments, 1, operator)) <= 0;
+        case BEGINS_WITH:
+            return value != null && beginsWith(value, argument(arguments, 0, operator));
+        case CONTAINS:
+            return value != null && contains(value, argument(arguments, 0, operator));
+        case NOT_CONTAINS:
+            return value != null && !contains(value, argument(arguments, 0, operator));
+        default:
+            throw validation("Unsupported comparison operator: " + operator);
+        }
+    }
+
+    private static AttributeValue argument(List<AttributeValue> arguments, int index,
+            ComparisonOperator operator) {
+        if (arguments == null || arguments.size() <= index) {
+            throw validation("One or more parameter values were invalid: "
+                    + "Invalid number of argument(s) for the " + operator
+                    + " ComparisonOperator");
+        }
+        return arguments.get(index);
+    }
+
+    /**
+     * Returns the signum of the comparison of a value with a scalar argument,
+     * or {@link #UNORDERED} if the value is missing or of another type.
+     */
+    private static int signum(AttributeValue value, AttributeValue argument) {
+        if (typeOrder(argument) < 0) {
+            throw validation("One or more parameter values were invalid: "
+                    + "ComparisonOperator requires a scalar argument: " + argument);
+        }
+        if (value == null || typeOrder(value) != typeOrder(argument)) {
+            return UNORDERED;
+        }
+        int result = compareScalars(value, argument);
+        return result < 0 ? -1 : result > 0 ? 1 : 0;
+    }
+
+    private static int compareScalars(AttributeValue a, AttributeValue b) {
+        if (a.getN() != null) {
+            return new BigDecimal(a.getN()).compareTo(new BigDecimal(b.getN()));
+        }
+        return compareBytes(toBytes(a), toBytes(b));
+    }
+
+    private static boolean beginsWith(AttributeValue value, AttributeValue prefix) {
+        if (value.getS() != null && prefix.getS() != null) {
+            return value.getS().startsWith(prefix.getS());
+        }
+        if (value.getB() != null && prefix.getB() != null) {
+            byte[] bytes = toBytes(value);
+            byte[] prefixBytes = toBytes(prefix);
+            return bytes.length >= prefixBytes.length
+                    && compareBytes(prefixBytes,
+                            Arrays.copyOf(bytes, prefixBytes.length)) == 0;
+        }
+        return false;
+    }
+
+    private static boolean contains(AttributeValue value, AttributeValue element) {
+        if (value.getS() != null && element.getS() != null) {
+            return value.getS().contains(element.getS());
+        }
+        if (value.getB() != null && element.getB() != null) {
+            String bytes = new String(toBytes(value), StringUtils.UTF8);
+            return bytes.contains(new String(toBytes(element), StringUtils.UTF8));
+        }
+        if (value.getSS() != null && element.getS() != null) {
+            return value.getSS().contains(element.getS());
+        }
+        if (value.getNS() != null && element.getN() != null) {
+            BigDecimal n = new BigDecimal(element.getN());
+            for (String member : value.getNS()) {
+                if (new BigDecimal(member).compareTo(n) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (value.getBS() != null && element.getB() != null) {
+            return value.getBS().contains(element.getB());
+        }
+        if (value.getL() != null) {
+            return value.getL().contains(element);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the order of the type of a scalar value, or -1 if not a scalar.
+     */
+    private static int typeOrder(AttributeValue value) {
+        if (value.getB() != null) {
+            return 0;
+        }
+        if (value.getN() != null) {
+            return 1;
+        }
+        if (value.getS() != null) {
+            return 2;
+        }
+        return -1;
+    }
+
+    private static byte[] toBytes(AttributeValue value) {
+        return value.getS() != null
+                ? value.getS().getBytes(StringUtils.UTF8)
+                : copyAllBytesFrom(value.getB());
+    }
+
+    private static int compareBytes(byte[] x, byte[] y) {
+        for (int i = 0; i < x.length && i < y.length; i++) {
+            int diff = (x[i] & 0xFF) - (y[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return x.length - y.length;
+    }
+
+    /**
+     * Returns the size of an item as DynamoDB meters it: the UTF-8 length of
+     * the attribute names plus the size of their values.
+     */
+    static int itemSize(Map<String, AttributeValue> item) {
+        if (item == null) {
+            return 0;
+        }
+        int size = 0;
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            size += entry.getKey().getBytes(StringUtils.UTF8).length;
+            size += valueSize(entry.getValue());
+        }
+        return size;
+    }
+
+    private static int valueSize(AttributeValue value) {
+        if (value.getS() != null) {
+            return value.getS().getBytes(StringUtils.UTF8).length;
+        }
+        if (value.getN() != null) {
+            return numberSize(value.getN());
+        }
+        if (value.getB() != null) {
+            return value.getB().remaining();
+        }
+        int size = 0;
+        if (value.getSS() != null) {
+            for (String member : value.getSS()) {
+                size += member.getBytes(StringUtils.UTF8).length;
+            }
+        } else if (value.getNS() != null) {
+            for (String member : value.getNS()) {
+                size += numberSize(member);
+            }
+        } else if (value.getBS() != null) {
+            for (ByteBuffer member : value.getBS()) {
+                size += member.remaining();
+            }
+        } else if (value.getM() != null) {
+            size = 3 + itemSize(value.getM());
+        } else if (value.getL() != null) {
+            size = 3;
+            for (AttributeValue element : value.getL()) {
+                size += 1 + valueSize(element);
+            }
+        } else {
+            size = 1;
+        }
+        return size;
+    }
+
+    /**
+     * Approximates the size of a number: one byte per two significant
+     * digits, plus one.
+     */
+    private static int numberSize(String n) {
+        BigDecimal number = new BigDecimal(n);
+        if (number.signum() == 0) {
+            return 1;
+        }
+        return (number.stripTrailingZeros().precision() + 1) / 2 + 1;
+    }
+
+    /**
+     * Returns a deep copy of the given item, so that neither the caller nor
+     * the table see the changes of the other.
+     */
+    static Map<String, AttributeValue> copy(Map<String, AttributeValue> item) {
+        if (item == null) {
+            return null;
+        }
+        Map<String, AttributeValue> copy =
+                new LinkedHashMap<String, AttributeValue>(item.size() * 2);
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            copy.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    static AttributeValue copy(AttributeValue value) {
+        AttributeValue copy = new AttributeValue()
+            .withS(value.getS())
+            .withN(value.getN())
+            .withBOOL(value.getBOOL())
+            .withNULL(value.getNULL());
+        if (value.getB() != null) {
+            copy.setB(ByteBuffer.wrap(copyAllBytesFrom(value.getB())));
+        }
+        if (value.getSS() != null) {
+            copy.setSS(value.getSS());
+        }
+        if (value.getNS() != null) {
+            copy.setNS(value.getNS());
+        }
+        if (value.getBS() != null) {
+            List<ByteBuffer> bs = new ArrayList<ByteBuffer>(value.getBS().size());
+            for (ByteBuffer member : value.getBS()) {
+                bs.add(ByteBuffer.wrap(copyAllBytesFrom(member)));
+            }
+            copy.setBS(bs);
+        }
+        if (value.getM() != null) {
+            copy.setM(copy(value.getM()));
+        }
+        if (value.getL() != null) {
+            List<AttributeValue> l = new ArrayList<AttributeValue>(value.getL().size());
+            for (AttributeValue element : value.getL()) {
+                l.add(copy(element));
+            }
+            copy.setL(l);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the exception DynamoDB throws for an invalid request.
+     */
+    static AmazonServiceException validation(String message) {
+        return serviceException(new AmazonServiceException(message), "ValidationException");
+    }
+
+    /**
+     * Fills in the error details of the given exception, as the client would
+     * from the response of DynamoDB.
+     */
+    static <E extends AmazonServiceException> E serviceException(E exception,
+            String errorCode) {
+        exception.setErrorCode(errorCode);
+        exception.setErrorType(ErrorType.Client);
+        exception.setStatusCode(400);
+        exception.setServiceName(SERVICE_NAME);
+        return exception;
+    }
+}
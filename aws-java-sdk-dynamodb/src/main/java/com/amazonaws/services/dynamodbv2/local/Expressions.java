@@ -0,0 +1,1145 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import static com.amazonaws.services.dynamodbv2.local.Conditions.copy;
+import static com.amazonaws.services.dynamodbv2.local.Conditions.validation;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+
+/**
+ * Parsing and evaluation of the expression parameters, with their attribute
+ * name and value placeholders, as DynamoDB defines them.
+ * <p>
+ * Conditions support the comparators, BETWEEN, IN, AND, OR, NOT, parentheses
+ * and the attribute_exists, attribute_not_exists, attribute_type,
+ * begins_with, contains and size functions. Updates support the SET, REMOVE,
+ * ADD and DELETE clauses, and the + and - operators and the if_not_exists
+ * and list_append functions in SET. Document paths may reach into maps and
+ * lists.
+ */
+final class Expressions {
+
+    /** The comparators of conditions, by their operator in expressions. */
+    private static final Map<String, ComparisonOperator> COMPARATORS =
+            new HashMap<String, ComparisonOperator>();
+
+    static {
+        COMPARATORS.put("=", ComparisonOperator.EQ);
+        COMPARATORS.put("<>", ComparisonOperator.NE);
+        COMPARATORS.put("<", ComparisonOperator.LT);
+        COMPARATORS.put("<=", ComparisonOperator.LE);
+        COMPARATORS.put(">", ComparisonOperator.GT);
+        COMPARATORS.put(">=", ComparisonOperator.GE);
+    }
+
+    /** The functions which are conditions, rather than operands. */
+    private static final Set<String> CONDITION_FUNCTIONS = new HashSet<String>();
+
+    static {
+        Collections.addAll(CONDITION_FUNCTIONS, "attribute_exists", "attribute_not_exists",
+                "attribute_type", "begins_with", "contains");
+    }
+
+    private Expressions() {
+    }
+
+    /**
+     * Returns the given condition or filter expression parsed, or null if
+     * there's none.
+     */
+    static ConditionExpression parseCondition(String expression, String parameterName,
+            Placeholders placeholders) {
+        if (expression == null) {
+            return null;
+        }
+        return new Parser(expression, parameterName, placeholders).parseCondition();
+    }
+
+    /**
+     * Returns the given key condition expression as the equivalent legacy
+     * key conditions, or null if there's none.
+     */
+    static Map<String, Condition> parseKeyCondition(String expression,
+            Placeholders placeholders) {
+        if (expression == null) {
+            return null;
+        }
+        ConditionExpression condition =
+                new Parser(expression, "KeyConditionExpression", placeholders).parseCondition();
+        Map<String, Condition> keyConditions = new LinkedHashMap<String, Condition>();
+        condition.addKeyConditions(keyConditions);
+        return keyConditions;
+    }
+
+    /**
+     * Returns the given update expression parsed, or null if there's none.
+     */
+    static UpdateExpression parseUpdate(String expression, Placeholders placeholders) {
+        if (expression == null) {
+            return null;
+        }
+        return new Parser(expression, "UpdateExpression", placeholders).parseUpdate();
+    }
+
+    /**
+     * Throws if both the given legacy parameter, unless empty, and the given
+     * expression parameter are used.
+     */
+    static void checkNotBoth(Object legacyParameter, String legacyParameterName,
+            String expression, String expressionParameterName) {
+        if (expression == null || legacyParameter == null
+                || legacyParameter instanceof Map && ((Map<?, ?>) legacyParameter).isEmpty()
+                || legacyParameter instanceof Collection
+                        && ((Collection<?>) legacyParameter).isEmpty()) {
+            return;
+        }
+        throw validation("Can not use both expression and non-expression parameters "
+                + "in the same request: Non-expression parameters: {" + legacyParameterName
+                + "} Expression parameters: {" + expressionParameterName + "}");
+    }
+
+    /**
+     * The attribute name and value placeholders of a request, which keeps
+     * track of the ones its expressions use.
+     */
+    static final class Placeholders {
+        private final Map<String, String> names;
+        private final Map<String, AttributeValue> values;
+        private final Set<String> usedNames = new HashSet<String>();
+        private final Set<String> usedValues = new HashSet<String>();
+
+        Placeholders(Map<String, String> names, Map<String, AttributeValue> values) {
+            this.names = names == null ? Collections.<String, String>emptyMap() : names;
+            this.values = values == null
+                    ? Collections.<String, AttributeValue>emptyMap()
+                    : values;
+        }
+
+        /**
+         * Returns the attribute name of the given placeholder, used in the
+         * given expression parameter.
+         */
+        String name(String placeholder, String parameterName) {
+            String name = names.get(placeholder);
+            if (name == null) {
+                throw validation("Invalid " + parameterName + ": An expression attribute name "
+                        + "used in the document path is not defined; attribute name: "
+                        + placeholder);
+            }
+            usedNames.add(placeholder);
+            return name;
+        }
+
+        /**
+         * Returns the attribute value of the given placeholder, used in the
+         * given expression parameter.
+         */
+        AttributeValue value(String placeholder, String parameterName) {
+            AttributeValue value = values.get(placeholder);
+            if (value == null) {
+                throw validation("Invalid " + parameterName + ": An expression attribute value "
+                        + "used in expression is not defined; attribute value: " + placeholder);
+            }
+            usedValues.add(placeholder);
+            return value;
+        }
+
+        /**
+         * Throws if any of the placeholders isn't used by the expressions
+         * parsed.
+         */
+        void checkAllUsed() {
+            checkAllUsed(names.keySet(), usedNames, "ExpressionAttributeNames");
+            checkAllUsed(values.keySet(), usedValues, "ExpressionAttributeValues");
+        }
+
+        private static void checkAllUsed(Set<String> placeholders, Set<String> used,
+                String parameterName) {
+            if (used.size() < placeholders.size()) {
+                Set<String> unused = new TreeSet<String>(placeholders);
+                unused.removeAll(used);
+                StringBuilder keys = new StringBuilder();
+                for (String placeholder : unused) {
+                    keys.append(keys.length() == 0 ? "" : ", ").append(placeholder);
+                }
+                throw validation("Value provided in " + parameterName
+                        + " unused in expressions: keys: {" + keys + "}");
+            }
+        }
+    }
+
+    /**
+     * A document path: the name of an attribute, followed by the names of map
+     * elements and the indexes of list elements.
+     */
+    static final class Path {
+        /** The names, and the indexes as Integers. */
+        private final List<Object> elements;
+
+        Path(List<Object> elements) {
+            this.elements = elements;
+        }
+
+        /**
+         * Returns the name of the top level attribute of the path.
+         */
+        String getName() {
+            return (String) elements.get(0);
+        }
+
+        boolean isTopLevel() {
+            return elements.size() == 1;
+        }
+
+        /**
+         * Returns the value at the path in the given item, or null if none.
+         */
+        AttributeValue get(Map<String, AttributeValue> item) {
+            AttributeValue value = item.get(getName());
+            for (int i = 1; value != null && i < elements.size(); i++) {
+                Object element = elements.get(i);
+                if (element instanceof String) {
+                    value = value.getM() == null ? null : value.getM().get(element);
+                } else {
+                    int index = (Integer) element;
+                    value = value.getL() == null || index >= value.getL().size()
+                            ? null
+                            : value.getL().get(index);
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Sets the value at the path in the given item, or removes it if
+         * null. The maps and lists on the path are replaced, not changed,
+         * since the item shares them with the stored one.
+         */
+        void set(Map<String, AttributeValue> item, AttributeValue value) {
+            if (isTopLevel()) {
+                if (value == null) {
+                    item.remove(getName());
+                } else {
+                    item.put(getName(), value);
+                }
+            } else {
+                item.put(getName(), with(item.get(getName()), 1, value));
+            }
+        }
+
+        /**
+         * Returns a copy of the given container with the value at the path
+         * from the given element set, or removed if null.
+         */
+        private AttributeValue with(AttributeValue container, int i, AttributeValue value) {
+            Object element = elements.get(i);
+            boolean last = i == elements.size() - 1;
+            if (element instanceof String) {
+                if (container == null || container.getM() == null) {
+                    throw invalidPath();
+                }
+                Map<String, AttributeValue> map =
+                        new LinkedHashMap<String, AttributeValue>(container.getM());
+                String key = (String) element;
+                if (!last) {
+                    map.put(key, with(map.get(key), i + 1, value));
+                } else if (value == null) {
+                    map.remove(key);
+                } else {
+                    map.put(key, value);
+                }
+                return new AttributeValue().withM(map);
+            }
+            if (container == null || container.getL() == null) {
+                throw invalidPath();
+            }
+            List<AttributeValue> list = new ArrayList<AttributeValue>(container.getL());
+            int index = (Integer) element;
+            if (!last) {
+                if (index >= list.size()) {
+                    throw invalidPath();
+                }
+                list.set(index, with(list.get(index), i + 1, value));
+            } else if (value == null) {
+                if (index < list.size()) {
+                    list.remove(index);
+                }
+            } else if (index < list.size()) {
+                list.set(index, value);
+            } else {
+                list.add(value);
+            }
+            return new AttributeValue().withL(list);
+        }
+
+        private static AmazonServiceException invalidPath() {
+            return validation("The document path provided in the update expression "
+                    + "is invalid for update");
+        }
+
+        /**
+         * Returns whether either path is a prefix of the other.
+         */
+        boolean overlaps(Path other) {
+            for (int i = 0; i < elements.size() && i < other.elements.size(); i++) {
+                if (!elements.get(i).equals(other.elements.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return elements.toString();
+        }
+    }
+
+    /**
+     * A condition on an item.
+     */
+    abstract static class ConditionExpression {
+        /**
+         * Returns whether the given item, empty if missing, meets the
+         * condition.
+         */
+        abstract boolean matches(Map<String, AttributeValue> item);
+
+        /**
+         * Adds the legacy key conditions equivalent to this condition, used
+         * as a key condition, to the given ones.
+         */
+        void addKeyConditions(Map<String, Condition> keyConditions) {
+            throw validation("Invalid KeyConditionExpression: Query key condition not supported");
+        }
+
+        static void addKeyCondition(Map<String, Condition> keyConditions, String name,
+                Condition condition) {
+            if (keyConditions.put(name, condition) != null) {
+                throw validation("KeyConditionExpressions must only contain one condition per key");
+            }
+        }
+    }
+
+    private static final class Or extends ConditionExpression {
+        private final ConditionExpression left;
+        private final ConditionExpression right;
+
+        Or(ConditionExpression left, ConditionExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean matches(Map<String, AttributeValue> item) {
+            return left.matches(item) || right.matches(item);
+        }
+    }
+
+    private static final class And extends ConditionExpression {
+        private final ConditionExpression left;
+        private final ConditionExpression right;
+
+        And(ConditionExpression left, ConditionExpression right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean matches(Map<String, AttributeValue> item) {
+            return left.matches(item) && right.matches(item);
+        }
+
+        @Override
+        void addKeyConditions(Map<String, Condition> keyConditions) {
+            left.addKeyConditions(keyConditions);
+            right.addKeyConditions(keyConditions);
+        }
+    }
+
+    private static final class Not extends ConditionExpression {
+        private final ConditionExpression condition;
+
+        Not(ConditionExpression condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        boolean matches(Map<String, AttributeValue> item) {
+            return !condition.matches(item);
+        }
+    }
+
+    /**
+     * A comparison, which is false if either operand is missing.
+     */
+    private static final class Comparison extends ConditionExpression {
+        private final String operator;
+        private final Operand left;
+        private final Operand right;
+
+        Comparison(String operator, Operand left, Operand right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean matches(Map<String, AttributeValue> item) {
+            AttributeValue value = left.evaluate(item);
+            AttributeValue argument = right.evaluate(item);
+            return value != null && argument != null
+                    && Conditions.matches(value, condition(COMPARATORS.get(operator), argument));
+        }
+
+        @Override
+        void addKeyConditions(Map<String, Condition> keyConditions) {
+            if (operator.equals("<>") || !left.isTopLevelPath()
+                    || !(right instanceof ValueOperand)) {
+                super.addKeyConditions(keyConditions);
+            }
+            addKeyCondition(keyConditions, left.getPath().getName(),
+                    condition(COMPARATORS.get(operator), right.evaluate(null)));
+        }
+    }
+
+    private static final class Between extends ConditionExpression {
+        private final Operand value;
+        private final Operand lower;
+        private final Operand upper;
+
+        Between(Operand value, Operand lower, Operand upper) {
+            this.value = value;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override
+        boolean matches(Map<String, AttributeValue> item) {
+            AttributeValue v = value.evaluate(item);
+            AttributeValue l = lower.evaluate(item);
+            AttributeValue u = upper.evaluate(item);
+            return v != null && l != null && u != null
+                    && Conditions.matches(v, condition(ComparisonOperator.BETWEEN, l, u));
+        }
+
+        @Override
+        void addKeyConditions(Map<String, Condition> keyConditions) {
+            if (!value.isTopLevelPath() || !(lower instanceof ValueOperand)
+                    || !(upper instanceof ValueOperand)) {
+                super.addKeyConditions(keyConditions);
+            }
+            addKeyCondition(keyConditions, value.getPath().getName(),
+                    condition(ComparisonOperator.BETWEEN, lower.evaluate(null),
+                            upper.evaluate(null)));
+        }
+    }
+
+    private static final class In extends ConditionExpression {
+        private final Operand value;
+        private final List<Operand> candidates;
+
+        In(Operand value, List<Operand> candidates) {
+            this.value = value;
+            this.candidates = candidates;
+        }
+
+        @Override
+        boolean matches(Map<String, AttributeValue> item) {
+            AttributeValue v = value.evaluate(item);
+            if (v == null) {
+                return false;
+            }
+            List<AttributeValue> arguments = new ArrayList<AttributeValue>(candidates.size());
+            for (Operand candidate : candidates) {
+                AttributeValue argument = candidate.evaluate(item);
+                if (argument != null) {
+                    arguments.add(argument);
+                }
+            }
+            return Conditions.matches(v, new Condition()
+                .withComparisonOperator(ComparisonOperator.IN)
+                .withAttributeValueList(arguments));
+        }
+    }
+
+    /**
+     * A function which is a condition on the value at a path.
+     */
+    private static final class FunctionCondition extends ConditionExpression {
+        private final String function;
+        private final Path path;
+        /** The second argument, or null if the function has only one. */
+        private final Operand argument;
+
+        FunctionCondition(String function, Path path, Operand argument) {
+            this.function = function;
+            this.path = path;
+            this.argument = argument;
+        }
+
+        @Override
+        boolean matches(Map<String, AttributeValue> item) {
+            AttributeValue value = path.get(item);
+            if (function.equals("attribute_exists")) {
+                return value != null;
+            }
+            if (function.equals("attribute_not_exists")) {
+                return value == null;
+            }
+            AttributeValue a = argument.evaluate(item);
+            if (value == null || a == null) {
+                return false;
+            }
+            if (function.equals("attribute_type")) {
+                return typeOf(value).equals(a.getS());
+            }
+            return Conditions.matches(value, condition(function.equals("begins_with")
+                    ? ComparisonOperator.BEGINS_WITH
+                    : ComparisonOperator.CONTAINS, a));
+        }
+
+        @Override
+        void addKeyConditions(Map<String, Condition> keyConditions) {
+            if (!function.equals("begins_with") || !path.isTopLevel()
+                    || !(argument instanceof ValueOperand)) {
+                super.addKeyConditions(keyConditions);
+            }
+            addKeyCondition(keyConditions, path.getName(),
+                    condition(ComparisonOperator.BEGINS_WITH, argument.evaluate(null)));
+        }
+    }
+
+    private static Condition condition(ComparisonOperator operator, AttributeValue... arguments) {
+        return new Condition().withComparisonOperator(operator).withAttributeValueList(arguments);
+    }
+
+    /**
+     * Returns the name of the type of the given value, as attribute_type
+     * expects it.
+     */
+    private static String typeOf(AttributeValue value) {
+        if (value.getS() != null) {
+            return "S";
+        }
+        if (value.getN() != null) {
+            return "N";
+        }
+        if (value.getB() != null) {
+            return "B";
+        }
+        if (value.getSS() != null) {
+            return "SS";
+        }
+        if (value.getNS() != null) {
+            return "NS";
+        }
+        if (value.getBS() != null) {
+            return "BS";
+        }
+        if (value.getM() != null) {
+            return "M";
+        }
+        if (value.getL() != null) {
+            return "L";
+        }
+        if (value.getBOOL() != null) {
+            return "BOOL";
+        }
+        return "NULL";
+    }
+
+    /**
+     * An operand of a condition or of a SET action.
+     */
+    abstract static class Operand {
+        /**
+         * Returns the value of the operand for the given item, or null if it
+         * refers to a missing attribute.
+         */
+        abstract AttributeValue evaluate(Map<String, AttributeValue> item);
+
+        boolean isTopLevelPath() {
+            return false;
+        }
+
+        Path getPath() {
+            return null;
+        }
+    }
+
+    private static final class PathOperand extends Operand {
+        private final Path path;
+
+        PathOperand(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        AttributeValue evaluate(Map<String, AttributeValue> item) {
+            return path.get(item);
+        }
+
+        @Override
+        boolean isTopLevelPath() {
+            return path.isTopLevel();
+        }
+
+        @Override
+        Path getPath() {
+            return path;
+        }
+    }
+
+    private static final class ValueOperand extends Operand {
+        private final AttributeValue value;
+
+        ValueOperand(AttributeValue value) {
+            this.value = value;
+        }
+
+        @Override
+        AttributeValue evaluate(Map<String, AttributeValue> item) {
+            return value;
+        }
+    }
+
+    private static final class Size extends Operand {
+        private final Path path;
+
+        Size(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        AttributeValue evaluate(Map<String, AttributeValue> item) {
+            AttributeValue value = path.get(item);
+            if (value == null) {
+                return null;
+            }
+            int size;
+            if (value.getS() != null) {
+                size = value.getS().length();
+            } else if (value.getB() != null) {
+                size = value.getB().remaining();
+            } else if (value.getSS() != null) {
+                size = value.getSS().size();
+            } else if (value.getNS() != null) {
+                size = value.getNS().size();
+            } else if (value.getBS() != null) {
+                size = value.getBS().size();
+            } else if (value.getM() != null) {
+                size = value.getM().size();
+            } else if (value.getL() != null) {
+                size = value.getL().size();
+            } else {
+                throw validation("Invalid ConditionExpression: Incorrect operand type for "
+                        + "operator or function; operator or function: size, operand type: "
+                        + typeOf(value));
+            }
+            return new AttributeValue().withN(Integer.toString(size));
+        }
+    }
+
+    private static final class IfNotExists extends Operand {
+        private final Path path;
+        private final Operand fallback;
+
+        IfNotExists(Path path, Operand fallback) {
+            this.path = path;
+            this.fallback = fallback;
+        }
+
+        @Override
+        AttributeValue evaluate(Map<String, AttributeValue> item) {
+            AttributeValue value = path.get(item);
+            return value != null ? value : fallback.evaluate(item);
+        }
+    }
+
+    private static final class ListAppend extends Operand {
+        private final Operand first;
+        private final Operand second;
+
+        ListAppend(Operand first, Operand second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        AttributeValue evaluate(Map<String, AttributeValue> item) {
+            AttributeValue a = existing(first.evaluate(item));
+            AttributeValue b = existing(second.evaluate(item));
+            if (a.getL() == null || b.getL() == null) {
+                throw validation("Invalid UpdateExpression: Incorrect operand type for operator "
+                        + "or function; operator or function: list_append, operand type: "
+                        + (a.getL() == null ? typeOf(a) : typeOf(b)));
+            }
+            List<AttributeValue> list =
+                    new ArrayList<AttributeValue>(a.getL().size() + b.getL().size());
+            list.addAll(a.getL());
+            list.addAll(b.getL());
+            return new AttributeValue().withL(list);
+        }
+    }
+
+    private static final class Arithmetic extends Operand {
+        private final String operator;
+        private final Operand left;
+        private final Operand right;
+
+        Arithmetic(String operator, Operand left, Operand right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        AttributeValue evaluate(Map<String, AttributeValue> item) {
+            AttributeValue a = existing(left.evaluate(item));
+            AttributeValue b = existing(right.evaluate(item));
+            if (a.getN() == null || b.getN() == null) {
+                throw validation("Invalid UpdateExpression: Incorrect operand type for operator "
+                        + "or function; operator: " + operator + ", operand type: "
+                        + (a.getN() == null ? typeOf(a) : typeOf(b)));
+            }
+            BigDecimal x = new BigDecimal(a.getN());
+            BigDecimal y = new BigDecimal(b.getN());
+            BigDecimal result = operator.equals("+") ? x.add(y) : x.subtract(y);
+            return new AttributeValue().withN(result.toString());
+        }
+    }
+
+    private static AttributeValue existing(AttributeValue value) {
+        if (value == null) {
+            throw validation("The provided expression refers to an attribute that does not "
+                    + "exist in the item");
+        }
+        return value;
+    }
+
+    /**
+     * The actions of an update expression.
+     */
+    static final class UpdateExpression {
+        private final List<Action> actions = new ArrayList<Action>();
+
+        void add(Action action) {
+            for (Action other : actions) {
+                if (other.path.overlaps(action.path)) {
+                    throw validation("Invalid UpdateExpression: Two document paths overlap with "
+                            + "each other; must remove or rewrite one of these paths; path one: "
+                            + other.path + ", path two: " + action.path);
+                }
+            }
+            actions.add(action);
+        }
+
+        /**
+         * Returns the names of the top level attributes updated.
+         */
+        Set<String> getUpdatedNames() {
+            Set<String> names = new LinkedHashSet<String>();
+            for (Action action : actions) {
+                names.add(action.path.getName());
+            }
+            return names;
+        }
+
+        /**
+         * Applies the actions to the given item, with their operands
+         * evaluated against the item before any change, and returns whether
+         * any of them adds a value.
+         */
+        boolean apply(Map<String, AttributeValue> item) {
+            Map<String, AttributeValue> before = new HashMap<String, AttributeValue>(item);
+            List<Path> setPaths = new ArrayList<Path>();
+            List<AttributeValue> setValues = new ArrayList<AttributeValue>();
+            List<Path> removedPaths = new ArrayList<Path>();
+            boolean adds = false;
+            for (Action action : actions) {
+                AttributeValue current = action.path.get(before);
+                if (action.clause.equals("SET")) {
+                    setPaths.add(action.path);
+                    setValues.add(copy(existing(action.operand.evaluate(before))));
+                    adds = true;
+                } else if (action.clause.equals("REMOVE")) {
+                    removedPaths.add(action.path);
+                } else if (action.clause.equals("ADD")) {
+                    AttributeValue value = action.operand.evaluate(before);
+                    if (value.getN() == null && value.getSS() == null
+                            && value.getNS() == null && value.getBS() == null) {
+                        throw validation("Invalid UpdateExpression: Incorrect operand type for "
+                                + "operator or function; operator: ADD, operand type: "
+                                + typeOf(value));
+                    }
+                    setPaths.add(action.path);
+                    setValues.add(current == null
+                            ? copy(value)
+                            : InMemoryTable.add(current, value, action.path.getName()));
+                    adds = true;
+                } else if (current != null) {
+                    AttributeValue remaining = InMemoryTable.difference(current,
+                            action.operand.evaluate(before), action.path.getName());
+                    if (remaining == null) {
+                        removedPaths.add(action.path);
+                    } else {
+                        setPaths.add(action.path);
+                        setValues.add(remaining);
+                    }
+                }
+            }
+            for (int i = 0; i < setPaths.size(); i++) {
+                setPaths.get(i).set(item, setValues.get(i));
+            }
+            // Remove the later elements of a list first, so that the indexes
+            // of the others still hold
+            Collections.sort(removedPaths, new Comparator<Path>() {
+                @Override
+                public int compare(Path a, Path b) {
+                    for (int i = 0; i < a.elements.size() && i < b.elements.size(); i++) {
+                        Object x = a.elements.get(i);
+                        Object y = b.elements.get(i);
+                        if (x instanceof Integer && y instanceof Integer && !x.equals(y)) {
+                            return (Integer) y - (Integer) x;
+                        }
+                    }
+                    return 0;
+                }
+            });
+            for (Path path : removedPaths) {
+                path.set(item, null);
+            }
+            return adds;
+        }
+    }
+
+    /**
+     * An action of an update expression: the clause it's in, the path it
+     * updates, and its operand, if any.
+     */
+    private static final class Action {
+        private final String clause;
+        private final Path path;
+        private final Operand operand;
+
+        Action(String clause, Path path, Operand operand) {
+            this.clause = clause;
+            this.path = path;
+            this.operand = operand;
+        }
+    }
+
+    /**
+     * Recursive descent parser of an expression.
+     */
+    private static final class Parser {
+        private final String expression;
+        private final String parameterName;
+        private final Placeholders placeholders;
+        private final List<String> tokens = new ArrayList<String>();
+        /** The index of the next token. */
+        private int next;
+
+        Parser(String expression, String parameterName, Placeholders placeholders) {
+            this.expression = expression;
+            this.parameterName = parameterName;
+            this.placeholders = placeholders;
+            tokenize();
+        }
+
+        private void tokenize() {
+            int i = 0;
+            while (i < expression.length()) {
+                char c = expression.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                int start = i++;
+                if (c == '#' || c == ':' || isNameChar(c)) {
+                    while (i < expression.length() && isNameChar(expression.charAt(i))) {
+                        i++;
+                    }
+                } else if ((c == '<' || c == '>') && i < expression.length()
+                        && (expression.charAt(i) == '=' || c == '<' && expression.charAt(i) == '>')) {
+                    i++;
+                }
+                tokens.add(expression.substring(start, i));
+            }
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        ConditionExpression parseCondition() {
+            ConditionExpression condition = parseOr();
+            expectEnd();
+            return condition;
+        }
+
+        private ConditionExpression parseOr() {
+            ConditionExpression condition = parseAnd();
+            while (takeIf("OR")) {
+                condition = new Or(condition, parseAnd());
+            }
+            return condition;
+        }
+
+        private ConditionExpression parseAnd() {
+            ConditionExpression condition = parseNot();
+            while (takeIf("AND")) {
+                condition = new And(condition, parseNot());
+            }
+            return condition;
+        }
+
+        private ConditionExpression parseNot() {
+            if (takeIf("NOT")) {
+                return new Not(parseNot());
+            }
+            return parsePrimary();
+        }
+
+        private ConditionExpression parsePrimary() {
+            if (takeIf("(")) {
+                ConditionExpression condition = parseOr();
+                expect(")");
+                return condition;
+            }
+            String token = peek();
+            if (CONDITION_FUNCTIONS.contains(token) && isCall()) {
+                next += 2;
+                Path path = parsePath();
+                Operand argument = null;
+                if (!token.equals("attribute_exists") && !token.equals("attribute_not_exists")) {
+                    expect(",");
+                    argument = parseOperand(false);
+                }
+                expect(")");
+                return new FunctionCondition(token, path, argument);
+            }
+            Operand left = parseOperand(false);
+            String operator = peek();
+            if (COMPARATORS.containsKey(operator)) {
+                next++;
+                return new Comparison(operator, left, parseOperand(false));
+            }
+            if (takeIf("BETWEEN")) {
+                Operand lower = parseOperand(false);
+                expect("AND");
+                return new Between(left, lower, parseOperand(false));
+            }
+            if (takeIf("IN")) {
+                expect("(");
+                List<Operand> candidates = new ArrayList<Operand>();
+                do {
+                    candidates.add(parseOperand(false));
+                } while (takeIf(","));
+                expect(")");
+                return new In(left, candidates);
+            }
+            throw syntaxError();
+        }
+
+        UpdateExpression parseUpdate() {
+            UpdateExpression update = new UpdateExpression();
+            Set<String> clauses = new HashSet<String>();
+            do {
+                String clause = peek() == null ? null : peek().toUpperCase();
+                if (!"SET".equals(clause) && !"REMOVE".equals(clause)
+                        && !"ADD".equals(clause) && !"DELETE".equals(clause)) {
+                    throw syntaxError();
+                }
+                next++;
+                if (!clauses.add(clause)) {
+                    throw validation("Invalid UpdateExpression: The \"" + clause
+                            + "\" section can only be used once in an update expression");
+                }
+                do {
+                    Path path = parsePath();
+                    Operand operand = null;
+                    if (clause.equals("SET")) {
+                        expect("=");
+                        operand = parseOperand(true);
+                        if (peekIs("+") || peekIs("-")) {
+                            String operator = take();
+                            operand = new Arithmetic(operator, operand, parseOperand(true));
+                        }
+                    } else if (!clause.equals("REMOVE")) {
+                        if (!path.isTopLevel()) {
+                            throw validation("Invalid UpdateExpression: The " + clause
+                                    + " clause only supports top level attributes");
+                        }
+                        operand = parseOperand(true);
+                        if (!(operand instanceof ValueOperand)) {
+                            throw validation("Invalid UpdateExpression: Incorrect operand type "
+                                    + "for operator or function; operator: " + clause
+                                    + ", operand: a document path");
+                        }
+                    }
+                    update.add(new Action(clause, path, operand));
+                } while (takeIf(","));
+            } while (peek() != null);
+            return update;
+        }
+
+        /**
+         * Parses an operand; the if_not_exists and list_append functions
+         * are allowed in updates only, and size in conditions only.
+         */
+        private Operand parseOperand(boolean update) {
+            String token = peek();
+            if (token == null) {
+                throw syntaxError();
+            }
+            if (token.startsWith(":")) {
+                next++;
+                return new ValueOperand(placeholders.value(token, parameterName));
+            }
+            if (isCall()) {
+                if (!update && token.equals("size")) {
+                    next += 2;
+                    Path path = parsePath();
+                    expect(")");
+                    return new Size(path);
+                }
+                if (update && token.equals("if_not_exists")) {
+                    next += 2;
+                    Path path = parsePath();
+                    expect(",");
+                    Operand fallback = parseOperand(true);
+                    expect(")");
+                    return new IfNotExists(path, fallback);
+                }
+                if (update && token.equals("list_append")) {
+                    next += 2;
+                    Operand first = parseOperand(true);
+                    expect(",");
+                    Operand second = parseOperand(true);
+                    expect(")");
+                    return new ListAppend(first, second);
+                }
+                throw validation("Invalid " + parameterName
+                        + ": Invalid function name; function: " + token);
+            }
+            return new PathOperand(parsePath());
+        }
+
+        private Path parsePath() {
+            List<Object> elements = new ArrayList<Object>();
+            elements.add(parseName());
+            while (true) {
+                if (takeIf(".")) {
+                    elements.add(parseName());
+                } else if (takeIf("[")) {
+                    String index = peek();
+                    if (index == null || !index.matches("[0-9]+")) {
+                        throw syntaxError();
+                    }
+                    next++;
+                    elements.add(Integer.valueOf(index));
+                    expect("]");
+                } else {
+                    return new Path(elements);
+                }
+            }
+        }
+
+        private String parseName() {
+            String token = peek();
+            if (token == null) {
+                throw syntaxError();
+            }
+            if (token.startsWith("#")) {
+                next++;
+                return placeholders.name(token, parameterName);
+            }
+            if (!Character.isLetter(token.charAt(0)) && token.charAt(0) != '_') {
+                throw syntaxError();
+            }
+            next++;
+            return token;
+        }
+
+        /**
+         * Returns whether the next token is a function name.
+         */
+        private boolean isCall() {
+            return next + 1 < tokens.size() && tokens.get(next + 1).equals("(");
+        }
+
+        private String peek() {
+            return next < tokens.size() ? tokens.get(next) : null;
+        }
+
+        private boolean peekIs(String token) {
+            return next < tokens.size() && tokens.get(next).equalsIgnoreCase(token);
+        }
+
+        private String take() {
+            if (next >= tokens.size()) {
+                throw syntaxError();
+            }
+            return tokens.get(next++);
+        }
+
+        private boolean takeIf(String token) {
+            if (peekIs(token)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!takeIf(token)) {
+                throw syntaxError();
+            }
+        }
+
+        private void expectEnd() {
+            if (next < tokens.size()) {
+                throw syntaxError();
+            }
+        }
+
+        private AmazonServiceException syntaxError() {
+            String token = next < tokens.size() ? tokens.get(next) : "<EOF>";
+            String near = next == 0 ? token : tokens.get(next - 1) + " " + token;
+            return validation("Invalid " + parameterName + ": Syntax error; token: \""
+                    + token + "\", near: \"" + near + "\"");
+        }
+    }
+}
@@ -0,0 +1,677 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import static com.amazonaws.services.dynamodbv2.local.Conditions.copy;
+import static com.amazonaws.services.dynamodbv2.local.Conditions.serviceException;
+import static com.amazonaws.services.dynamodbv2.local.Conditions.validation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ResponseMetadata;
+import com.amazonaws.regions.Region;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.CreateTableResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteTableResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ListTablesRequest;
+import com.amazonaws.services.dynamodbv2.model.ListTablesResult;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ResourceInUseException;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+/**
+ * An implementation of {@link com.amazonaws.services.dynamodbv2.AmazonDynamoDB}
+ * keeping its tables in memory, so that the overhead of the SDK layers above
+ * the client, such as the {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper}
+ * and the Document API, can be measured and load tested without a service
+ * endpoint. Serve it with an {@link InMemoryDynamoDBServer} to include the
+ * HTTP client in the measurements.
+ * <p>
+ * Tables support hash and range keys, local and global secondary indexes,
+ * queries and scans with pagination and segments, and batch operations. The
+ * legacy conditional parameters (KeyConditions, QueryFilter, ScanFilter,
+ * Expected and AttributeUpdates) and the expression parameters
+ * (KeyConditionExpression, FilterExpression, ConditionExpression and
+ * UpdateExpression, with their placeholders) are supported, except for
+ * projection expressions of nested attributes. Tables are active as soon as
+ * they are created.
+ * <p>
+ * Service behaviors can be simulated: the latency of each call, the
+ * throttling of the data operations, and unprocessed batch items. Item sizes
+ * and consumed capacity follow the DynamoDB metering rules.
+ */
+@ThreadSafe
+public class InMemoryAmazonDynamoDB extends AbstractAmazonDynamoDB {
+
+    /** The maximum number of items in a batch get. */
+    private static final int MAX_BATCH_GET_ITEMS = 100;
+
+    /** The maximum number of items in a batch write. */
+    private static final int MAX_BATCH_WRITE_ITEMS = 25;
+
+    private final ConcurrentNavigableMap<String, InMemoryTable> tables =
+            new ConcurrentSkipListMap<String, InMemoryTable>();
+    private final Random random = new Random();
+
+    private volatile LatencyProfile latencyProfile = LatencyProfile.NONE;
+    private volatile double throttlingRate;
+    private volatile double unprocessedRate;
+
+    /**
+     * Sets the simulated latency of each call, and returns this object for
+     * method chaining.
+     */
+    public InMemoryAmazonDynamoDB withLatencyProfile(LatencyProfile latencyProfile) {
+        if (latencyProfile == null) {
+            throw new IllegalArgumentException("Please provide a latency profile");
+        }
+        this.latencyProfile = latencyProfile;
+        return this;
+    }
+
+    /**
+     * Sets the probability, between 0 and 1, that a data operation fails with
+     * a {@link ProvisionedThroughputExceededException}, and returns this
+     * object for method chaining.
+     */
+    public InMemoryAmazonDynamoDB withThrottlingRate(double throttlingRate) {
+        this.throttlingRate = checkRate(throttlingRate);
+        return this;
+    }
+
+    /**
+     * Sets the probability, between 0 and 1, that each item of a batch
+     * operation is returned unprocessed, and returns this object for method
+     * chaining.
+     */
+    public InMemoryAmazonDynamoDB withUnprocessedRate(double unprocessedRate) {
+        this.unprocessedRate = checkRate(unprocessedRate);
+        return this;
+    }
+
+    /**
+     * Seeds the randomness of the simulated behaviors, for repeatable runs,
+     * and returns this object for method chaining.
+     */
+    public InMemoryAmazonDynamoDB withRandomSeed(long seed) {
+        random.setSeed(seed);
+        return this;
+    }
+
+    private static double checkRate(double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Please provide a rate between 0 and 1");
+        }
+        return rate;
+    }
+
+    @Override
+    public void setEndpoint(String endpoint) {
+        // There's no endpoint to call
+    }
+
+    @Override
+    public void setRegion(Region region) {
+        // All the tables are local
+    }
+
+    @Override
+    public CreateTableResult createTable(CreateTableRequest request) {
+        simulateCall(false);
+        InMemoryTable table = new InMemoryTable(request);
+        if (tables.putIfAbsent(table.getTableName(), table) != null) {
+            throw serviceException(new ResourceInUseException(
+                    "Table already exists: " + table.getTableName()), "ResourceInUseException");
+        }
+        return new CreateTableResult().withTableDescription(table.describe());
+    }
+
+    @Override
+    public DescribeTableResult describeTable(DescribeTableRequest request) {
+        simulateCall(false);
+        return new DescribeTableResult().withTable(table(request.getTableName()).describe());
+    }
+
+    @Override
+    public UpdateTableResult updateTable(UpdateTableRequest request) {
+        simulateCall(false);
+        InMemoryTable table = table(request.getTableName());
+        table.update(request);
+        return new UpdateTableResult().withTableDescription(table.describe());
+    }
+
+    @Override
+    public DeleteTableResult deleteTable(DeleteTableRequest request) {
+        simulateCall(false);
+        InMemoryTable table = table(request.getTableName());
+        tables.remove(request.getTableName(), table);
+        TableDescription description = table.describe().withTableStatus(TableStatus.DELETING);
+        return new DeleteTableResult().withTableDescription(description);
+    }
+
+    @Override
+    public ListTablesResult listTables(ListTablesRequest request) {
+        simulateCall(false);
+        int limit = request.getLimit() == null ? 100 : request.getLimit();
+        if (limit < 1 || limit > 100) {
+            throw validation("1 validation error detected: Value '" + limit
+                    + "' at 'limit' failed to satisfy constraint: "
+                    + "Member must have value between 1 and 100");
+        }
+        ConcurrentNavigableMap<String, InMemoryTable> view =
+                request.getExclusiveStartTableName() == null
+                ? tables
+                : tables.tailMap(request.getExclusiveStartTableName(), false);
+        List<String> tableNames = new ArrayList<String>();
+        String lastEvaluatedTableName = null;
+        for (String tableName : view.keySet()) {
+            if (tableNames.size() == limit) {
+                lastEvaluatedTableName = tableNames.get(limit - 1);
+                break;
+            }
+            tableNames.add(tableName);
+        }
+        return new ListTablesResult()
+            .withTableNames(tableNames)
+            .withLastEvaluatedTableName(lastEvaluatedTableName);
+    }
+
+    @Override
+    public GetItemResult getItem(GetItemRequest request) {
+        simulateCall(true);
+        InMemoryTable table = table(request.getTableName());
+        Expressions.Placeholders placeholders = new Expressions.Placeholders(
+                request.getExpressionAttributeNames(), null);
+        Set<String> attributesToGet = attributesToGet(request.getAttributesToGet(),
+                request.getProjectionExpression(), placeholders);
+        placeholders.checkAllUsed();
+        Map<String, AttributeValue> item = table.get(request.getKey());
+        return new GetItemResult()
+            .withItem(InMemoryTable.project(item, attributesToGet))
+            .withConsumedCapacity(capacity(request.getTableName(),
+                    readUnits(Conditions.itemSize(item), request.getConsistentRead()),
+                    request.getReturnConsumedCapacity()));
+    }
+
+    @Override
+    public PutItemResult putItem(PutItemRequest request) {
+        simulateCall(true);
+        InMemoryTable table = table(request.getTableName());
+        String returnValues = checkReturnValues(request.getReturnValues(), false);
+        Expressions.ConditionExpression condition = condition(request.getConditionExpression(),
+                request.getExpected(), request.getConditionalOperator(),
+                new Expressions.Placeholders(request.getExpressionAttributeNames(),
+                        request.getExpressionAttributeValues()));
+        InMemoryTable.Change change = table.put(request.getItem(), request.getExpected(),
+                request.getConditionalOperator(), condition);
+        return new PutItemResult()
+            .withAttributes(ReturnValue.ALL_OLD.toString().equals(returnValues)
+                    ? copy(change.before)
+                    : null)
+            .withConsumedCapacity(capacity(request.getTableName(), writeUnits(change),
+                    request.getReturnConsumedCapacity()));
+    }
+
+    @Override
+    public DeleteItemResult deleteItem(DeleteItemRequest request) {
+        simulateCall(true);
+        InMemoryTable table = table(request.getTableName());
+        String returnValues = checkReturnValues(request.getReturnValues(), false);
+        Expressions.ConditionExpression condition = condition(request.getConditionExpression(),
+                request.getExpected(), request.getConditionalOperator(),
+                new Expressions.Placeholders(request.getExpressionAttributeNames(),
+                        request.getExpressionAttributeValues()));
+        InMemoryTable.Change change = table.delete(request.getKey(), request.getExpected(),
+                request.getConditionalOperator(), condition);
+        return new DeleteItemResult()
+            .withAttributes(ReturnValue.ALL_OLD.toString().equals(returnValues)
+                    ? copy(change.before)
+                    : null)
+            .withConsumedCapacity(capacity(request.getTableName(), writeUnits(change),
+                    request.getReturnConsumedCapacity()));
+    }
+
+    @Override
+    public UpdateItemResult updateItem(UpdateItemRequest request) {
+        simulateCall(true);
+        InMemoryTable table = table(request.getTableName());
+        String returnValues = checkReturnValues(request.getReturnValues(), true);
+        Expressions.Placeholders placeholders = new Expressions.Placeholders(
+                request.getExpressionAttributeNames(), request.getExpressionAttributeValues());
+        Expressions.checkNotBoth(request.getAttributeUpdates(), "AttributeUpdates",
+                request.getUpdateExpression(), "UpdateExpression");
+        Expressions.UpdateExpression update =
+                Expressions.parseUpdate(request.getUpdateExpression(), placeholders);
+        Expressions.ConditionExpression condition = condition(request.getConditionExpression(),
+                request.getExpected(), request.getConditionalOperator(), placeholders);
+        InMemoryTable.Change change = table.update(request.getKey(),
+                request.getAttributeUpdates(), update, request.getExpected(),
+                request.getConditionalOperator(), condition);
+
+        Map<String, AttributeValue> attributes = null;
+        Set<String> updated;
+        if (update != null) {
+            updated = update.getUpdatedNames();
+        } else if (request.getAttributeUpdates() != null) {
+            updated = request.getAttributeUpdates().keySet();
+        } else {
+            updated = new HashSet<String>();
+        }
+        switch (ReturnValue.fromValue(returnValues)) {
+        case ALL_OLD:
+            attributes = copy(change.before);
+            break;
+        case ALL_NEW:
+            attributes = copy(change.after);
+            break;
+        case UPDATED_OLD:
+            attributes = InMemoryTable.attributes(change.before, updated);
+            break;
+        case UPDATED_NEW:
+            attributes = InMemoryTable.attributes(change.after, updated);
+            break;
+        default:
+            break;
+        }
+        return new UpdateItemResult()
+            .withAttributes(attributes)
+            .withConsumedCapacity(capacity(request.getTableName(), writeUnits(change),
+                    request.getReturnConsumedCapacity()));
+    }
+
+    @Override
+    public QueryResult query(QueryRequest request) {
+        simulateCall(true);
+        InMemoryTable table = table(request.getTableName());
+        Expressions.Placeholders placeholders = new Expressions.Placeholders(
+                request.getExpressionAttributeNames(), request.getExpressionAttributeValues());
+        Set<String> attributesToGet = attributesToGet(request.getAttributesToGet(),
+                request.getProjectionExpression(), placeholders);
+        Expressions.checkNotBoth(request.getKeyConditions(), "KeyConditions",
+                request.getKeyConditionExpression(), "KeyConditionExpression");
+        Map<String, Condition> keyConditions = request.getKeyConditionExpression() == null
+                ? request.getKeyConditions()
+                : Expressions.parseKeyCondition(request.getKeyConditionExpression(), placeholders);
+        Expressions.ConditionExpression filter = filter(request.getFilterExpression(),
+                request.getQueryFilter(), "QueryFilter", request.getConditionalOperator(),
+                placeholders);
+        InMemoryTable.Page page = table.query(request.getIndexName(), keyConditions,
+                request.getExclusiveStartKey(),
+                !Boolean.FALSE.equals(request.getScanIndexForward()),
+                request.getQueryFilter(), filter, request.getConditionalOperator(),
+                request.getLimit());
+        return new QueryResult()
+            .withItems(table.select(page.items, request.getIndexName(),
+                    select(request.getSelect(), request.getIndexName(), attributesToGet),
+                    attributesToGet))
+            .withCount(page.items.size())
+            .withScannedCount(page.scannedCount)
+            .withLastEvaluatedKey(copy(page.lastEvaluatedKey))
+            .withConsumedCapacity(capacity(request.getTableName(),
+                    readUnits(page.sizeBytes, request.getConsistentRead()),
+                    request.getReturnConsumedCapacity()));
+    }
+
+    @Override
+    public ScanResult scan(ScanRequest request) {
+        simulateCall(true);
+        InMemoryTable table = table(request.getTableName());
+        Expressions.Placeholders placeholders = new Expressions.Placeholders(
+                request.getExpressionAttributeNames(), request.getExpressionAttributeValues());
+        Set<String> attributesToGet = attributesToGet(request.getAttributesToGet(),
+                request.getProjectionExpression(), placeholders);
+        Expressions.ConditionExpression filter = filter(request.getFilterExpression(),
+                request.getScanFilter(), "ScanFilter", request.getConditionalOperator(),
+                placeholders);
+        int segment = 0;
+        int totalSegments = 1;
+        if (request.getSegment() != null || request.getTotalSegments() != null) {
+            if (request.getSegment() == null || request.getTotalSegments() == null) {
+                throw validation("The Segment and TotalSegments parameters must be specified together");
+            }
+            segment = request.getSegment();
+            totalSegments = request.getTotalSegments();
+            if (totalSegments < 1 || totalSegments > 1000000
+                    || segment < 0 || segment >= totalSegments) {
+                throw validation("The Segment parameter is zero-based and must be less than "
+                        + "parameter TotalSegments: Segment: " + segment
+                        + " is not less than TotalSegments: " + totalSegments);
+            }
+        }
+        InMemoryTable.Page page = table.scan(request.getIndexName(),
+                request.getExclusiveStartKey(), segment, totalSegments,
+                request.getScanFilter(), filter, request.getConditionalOperator(),
+                request.getLimit());
+        return new ScanResult()
+            .withItems(table.select(page.items, request.getIndexName(),
+                    select(request.getSelect(), request.getIndexName(), attributesToGet),
+                    attributesToGet))
+            .withCount(page.items.size())
+            .withScannedCount(page.scannedCount)
+            .withLastEvaluatedKey(copy(page.lastEvaluatedKey))
+            .withConsumedCapacity(capacity(request.getTableName(),
+                    readUnits(page.sizeBytes, request.getConsistentRead()),
+                    request.getReturnConsumedCapacity()));
+    }
+
+    @Override
+    public BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+        simulateCall(true);
+        Map<String, KeysAndAttributes> requestItems = request.getRequestItems();
+        if (requestItems == null || requestItems.isEmpty()) {
+            throw validation("The requestItems parameter is required for BatchGetItem");
+        }
+        int count = 0;
+        for (KeysAndAttributes keysAndAttributes : requestItems.values()) {
+            count += keysAndAttributes.getKeys() == null ? 0 : keysAndAttributes.getKeys().size();
+        }
+        if (count > MAX_BATCH_GET_ITEMS) {
+            throw validation("Too many items requested for the BatchGetItem call");
+        }
+
+        Map<String, List<Map<String, AttributeValue>>> responses =
+                new LinkedHashMap<String, List<Map<String, AttributeValue>>>();
+        Map<String, KeysAndAttributes> unprocessedKeys =
+                new LinkedHashMap<String, KeysAndAttributes>();
+        List<ConsumedCapacity> consumedCapacity = new ArrayList<ConsumedCapacity>();
+        for (Map.Entry<String, KeysAndAttributes> entry : requestItems.entrySet()) {
+            InMemoryTable table = table(entry.getKey());
+            KeysAndAttributes keysAndAttributes = entry.getValue();
+            Expressions.Placeholders placeholders = new Expressions.Placeholders(
+                    keysAndAttributes.getExpressionAttributeNames(), null);
+            Set<String> attributesToGet = attributesToGet(keysAndAttributes.getAttributesToGet(),
+                    keysAndAttributes.getProjectionExpression(), placeholders);
+            placeholders.checkAllUsed();
+            List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+            List<Map<String, AttributeValue>> unprocessed = new ArrayList<Map<String, AttributeValue>>();
+            double units = 0;
+            for (Map<String, AttributeValue> key : keysAndAttributes.getKeys()) {
+                if (isUnprocessed()) {
+                    unprocessed.add(key);
+                    continue;
+                }
+                Map<String, AttributeValue> item = table.get(key);
+                units += readUnits(Conditions.itemSize(item), keysAndAttributes.getConsistentRead());
+                if (item != null) {
+                    items.add(InMemoryTable.project(item, attributesToGet));
+                }
+            }
+            responses.put(entry.getKey(), items);
+            if (!unprocessed.isEmpty()) {
+                unprocessedKeys.put(entry.getKey(), keysAndAttributes.clone().withKeys(unprocessed));
+            }
+            ConsumedCapacity capacity = capacity(entry.getKey(), units,
+                    request.getReturnConsumedCapacity());
+            if (capacity != null) {
+                consumedCapacity.add(capacity);
+            }
+        }
+        return new BatchGetItemResult()
+            .withResponses(responses)
+            .withUnprocessedKeys(unprocessedKeys)
+            .withConsumedCapacity(consumedCapacity.isEmpty() ? null : consumedCapacity);
+    }
+
+    @Override
+    public BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+        simulateCall(true);
+        Map<String, List<WriteRequest>> requestItems = request.getRequestItems();
+        if (requestItems == null || requestItems.isEmpty()) {
+            throw validation("The requestItems parameter is required for BatchWriteItem");
+        }
+        int count = 0;
+        for (List<WriteRequest> writeRequests : requestItems.values()) {
+            count += writeRequests.size();
+        }
+        if (count > MAX_BATCH_WRITE_ITEMS) {
+            throw validation("Too many items requested for the BatchWriteItem call");
+        }
+
+        Map<String, List<WriteRequest>> unprocessedItems =
+                new LinkedHashMap<String, List<WriteRequest>>();
+        List<ConsumedCapacity> consumedCapacity = new ArrayList<ConsumedCapacity>();
+        for (Map.Entry<String, List<WriteRequest>> entry : requestItems.entrySet()) {
+            InMemoryTable table = table(entry.getKey());
+            List<WriteRequest> unprocessed = new ArrayList<WriteRequest>();
+            double units = 0;
+            for (WriteRequest writeRequest : entry.getValue()) {
+                if (isUnprocessed()) {
+                    unprocessed.add(writeRequest);
+                    continue;
+                }
+                InMemoryTable.Change change;
+                if (writeRequest.getPutRequest() != null) {
+                    change = table.put(writeRequest.getPutRequest().getItem(), null, null, null);
+                } else if (writeRequest.getDeleteRequest() != null) {
+                    change = table.delete(writeRequest.getDeleteRequest().getKey(), null, null,
+                            null);
+                } else {
+                    throw validation("Supplied AttributeValue has neither a PutRequest nor a DeleteRequest");
+                }
+                units += writeUnits(change);
+            }
+            if (!unprocessed.isEmpty()) {
+                unprocessedItems.put(entry.getKey(), unprocessed);
+            }
+            ConsumedCapacity capacity = capacity(entry.getKey(), units,
+                    request.getReturnConsumedCapacity());
+            if (capacity != null) {
+                consumedCapacity.add(capacity);
+            }
+        }
+        return new BatchWriteItemResult()
+            .withUnprocessedItems(unprocessedItems)
+            .withConsumedCapacity(consumedCapacity.isEmpty() ? null : consumedCapacity);
+    }
+
+    @Override
+    public void shutdown() {
+        // Nothing to release; the tables are kept
+    }
+
+    @Override
+    public ResponseMetadata getCachedResponseMetadata(AmazonWebServiceRequest request) {
+        return null;
+    }
+
+    private InMemoryTable table(String tableName) {
+        InMemoryTable table = tableName == null ? null : tables.get(tableName);
+        if (table == null) {
+            throw serviceException(new ResourceNotFoundException(
+                    "Requested resource not found: Table: " + tableName + " not found"),
+                    "ResourceNotFoundException");
+        }
+        return table;
+    }
+
+    /**
+     * Waits for the simulated latency of a call, then fails it if it is a
+     * data operation chosen to be throttled.
+     */
+    private void simulateCall(boolean dataOperation) {
+        long latency = latencyProfile.nextLatencyMillis(random);
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Simulated call interrupted by other thread.", e);
+            }
+        }
+        if (dataOperation && throttlingRate > 0 && random.nextDouble() < throttlingRate) {
+            throw serviceException(new ProvisionedThroughputExceededException(
+                    "The level of configured provisioned throughput for the table was exceeded. "
+                    + "Consider increasing your provisioning level with the UpdateTable API"),
+                    "ProvisionedThroughputExceededException");
+        }
+    }
+
+    private boolean isUnprocessed() {
+        return unprocessedRate > 0 && random.nextDouble() < unprocessedRate;
+    }
+
+    /**
+     * Returns the given condition expression parsed, or null if there's
+     * none, once all the placeholders of the request are parsed.
+     */
+    private static Expressions.ConditionExpression condition(String conditionExpression,
+            Map<String, ExpectedAttributeValue> expected, String conditionalOperator,
+            Expressions.Placeholders placeholders) {
+        Expressions.checkNotBoth(expected, "Expected", conditionExpression,
+                "ConditionExpression");
+        Expressions.checkNotBoth(conditionalOperator, "ConditionalOperator",
+                conditionExpression, "ConditionExpression");
+        Expressions.ConditionExpression condition = Expressions.parseCondition(
+                conditionExpression, "ConditionExpression", placeholders);
+        placeholders.checkAllUsed();
+        return condition;
+    }
+
+    /**
+     * Returns the given filter expression of a query or scan parsed, or null
+     * if there's none, once all the placeholders of the request are parsed.
+     */
+    private static Expressions.ConditionExpression filter(String filterExpression,
+            Map<String, Condition> legacyFilter, String legacyFilterName,
+            String conditionalOperator, Expressions.Placeholders placeholders) {
+        Expressions.checkNotBoth(legacyFilter, legacyFilterName, filterExpression,
+                "FilterExpression");
+        Expressions.checkNotBoth(conditionalOperator, "ConditionalOperator",
+                filterExpression, "FilterExpression");
+        Expressions.ConditionExpression filter = Expressions.parseCondition(
+                filterExpression, "FilterExpression", placeholders);
+        placeholders.checkAllUsed();
+        return filter;
+    }
+
+    private static String checkReturnValues(String returnValues, boolean update) {
+        if (returnValues == null) {
+            return ReturnValue.NONE.toString();
+        }
+        ReturnValue value = ReturnValue.fromValue(returnValues);
+        if (!update && value != ReturnValue.NONE && value != ReturnValue.ALL_OLD) {
+            throw validation("ReturnValues can only be ALL_OLD or NONE");
+        }
+        return returnValues;
+    }
+
+    /**
+     * Returns the names of the attributes to return, or null for all of them.
+     */
+    private static Set<String> attributesToGet(List<String> attributesToGet,
+            String projectionExpression, Expressions.Placeholders placeholders) {
+        if (projectionExpression != null) {
+            Expressions.checkNotBoth(attributesToGet, "AttributesToGet", projectionExpression,
+                    "ProjectionExpression");
+            Set<String> names = new LinkedHashSet<String>();
+            for (String path : projectionExpression.split(",")) {
+                String name = path.trim();
+                if (name.indexOf('.') >= 0 || name.indexOf('[') >= 0) {
+                    throw validation("A nested ProjectionExpression is not supported by "
+                            + InMemoryAmazonDynamoDB.class.getSimpleName());
+                }
+                if (name.startsWith("#")) {
+                    name = placeholders.name(name, "ProjectionExpression");
+                }
+                names.add(name);
+            }
+            return names;
+        }
+        return attributesToGet == null || attributesToGet.isEmpty()
+                ? null
+                : new HashSet<String>(attributesToGet);
+    }
+
+    /**
+     * Returns the effective Select parameter of a query or scan.
+     */
+    private static String select(String select, String indexName, Set<String> attributesToGet) {
+        if (select != null) {
+            return select;
+        }
+        if (attributesToGet != null) {
+            return Select.SPECIFIC_ATTRIBUTES.toString();
+        }
+        return indexName == null
+                ? Select.ALL_ATTRIBUTES.toString()
+                : Select.ALL_PROJECTED_ATTRIBUTES.toString();
+    }
+
+    private static double readUnits(int sizeBytes, Boolean consistentRead) {
+        double units = Math.max(1, Math.ceil(sizeBytes / 4096.0));
+        return Boolean.TRUE.equals(consistentRead) ? units : units / 2;
+    }
+
+    private static double writeUnits(InMemoryTable.Change change) {
+        int sizeBytes = Math.max(Conditions.itemSize(change.before),
+                Conditions.itemSize(change.after));
+        return Math.max(1, Math.ceil(sizeBytes / 1024.0));
+    }
+
+    private static ConsumedCapacity capacity(String tableName, double units,
+            String returnConsumedCapacity) {
+        if (returnConsumedCapacity == null
+                || ReturnConsumedCapacity.NONE.toString().equals(returnConsumedCapacity)) {
+            return null;
+        }
+        return new ConsumedCapacity().withTableName(tableName).withCapacityUnits(units);
+    }
+}
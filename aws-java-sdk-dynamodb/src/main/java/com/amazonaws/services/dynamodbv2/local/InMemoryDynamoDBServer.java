@@ -0,0 +1,329 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.DefaultBHttpServerConnection;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpProcessorBuilder;
+import org.apache.http.protocol.HttpRequestHandler;
+import org.apache.http.protocol.HttpService;
+import org.apache.http.protocol.ResponseConnControl;
+import org.apache.http.protocol.ResponseContent;
+import org.apache.http.protocol.ResponseDate;
+import org.apache.http.protocol.UriHttpRequestHandlerMapper;
+import org.apache.http.util.EntityUtils;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.util.StringUtils;
+import com.amazonaws.util.json.Jackson;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Serves an {@link AmazonDynamoDB}, typically an {@link InMemoryAmazonDynamoDB},
+ * over the DynamoDB JSON protocol on a local HTTP port, so that the whole
+ * client stack, including the {@link com.amazonaws.http.AmazonHttpClient},
+ * can be benchmarked without the network time and variance of a service
+ * endpoint. Requests are neither authenticated nor checksummed.
+ * <p>
+ * Nothing is served unless a server is created and started; point a client
+ * at it with:
+ * <pre>
+ * InMemoryDynamoDBServer server = new InMemoryDynamoDBServer(new InMemoryAmazonDynamoDB(), 0);
+ * server.start();
+ * AmazonDynamoDBClient client = new AmazonDynamoDBClient(new BasicAWSCredentials("key", "secret"));
+ * client.setEndpoint(server.getEndpoint());
+ * </pre>
+ * This uses the blocking HTTP server of Apache HttpCore, which the client
+ * already depends on, with a thread per connection.
+ */
+@ThreadSafe
+public class InMemoryDynamoDBServer {
+
+    private static final Log log = LogFactory.getLog(InMemoryDynamoDBServer.class);
+
+    private static final String TARGET_HEADER = "X-Amz-Target";
+    private static final String TARGET_PREFIX = "DynamoDB_20120810.";
+    private static final String ERROR_TYPE_PREFIX = "com.amazonaws.dynamodb.v20120810#";
+    private static final ContentType CONTENT_TYPE =
+            ContentType.create("application/x-amz-json-1.0");
+    private static final String MODEL_PACKAGE = "com.amazonaws.services.dynamodbv2.model.";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final AmazonDynamoDB dynamoDB;
+    private final ServerSocket serverSocket;
+    private final HttpService httpService;
+    private final ExecutorService executor;
+    /** The method of the service implementing each operation. */
+    private final Map<String, Method> operations = new ConcurrentHashMap<String, Method>();
+
+    /**
+     * Creates a server of the given service on the given local port, or on an
+     * ephemeral port if 0.
+     *
+     * @param dynamoDB
+     *            The service to serve.
+     * @param port
+     *            The port to listen on, or 0 for any free port.
+     * @throws IOException
+     *             If the port can't be bound.
+     */
+    public InMemoryDynamoDBServer(AmazonDynamoDB dynamoDB, int port) throws IOException {
+        if (dynamoDB == null) {
+            throw new IllegalArgumentException("Please provide a service to serve");
+        }
+        this.dynamoDB = dynamoDB;
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getByName("localhost"));
+        UriHttpRequestHandlerMapper handlers = new UriHttpRequestHandlerMapper();
+        handlers.register("*", new HttpRequestHandler() {
+            @Override
+            public void handle(HttpRequest request, HttpResponse response, HttpContext context)
+                    throws IOException {
+                serve(request, response);
+            }
+        });
+        this.httpService = new HttpService(HttpProcessorBuilder.create()
+            .add(new ResponseDate())
+            .add(new ResponseContent())
+            .add(new ResponseConnControl())
+            .build(), handlers);
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "in-memory-dynamodb-server-"
+                        + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        });
+    }
+
+    /**
+     * Stops serving requests, and releases the port.
+     */
+    public void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.debug("Unable to close the server socket", e);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the endpoint to configure clients with.
+     */
+    public String getEndpoint() {
+        return "http://localhost:" + getPort();
+    }
+
+    /**
+     * Accepts connections until the server is stopped, serving each on a
+     * thread of its own.
+     */
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Unable to accept a connection", e);
+                }
+                return;
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket);
+                }
+            });
+        }
+    }
+
+    /**
+     * Serves the requests of the given connection until it is closed.
+     */
+    private void serve(Socket socket) {
+        DefaultBHttpServerConnection connection = new DefaultBHttpServerConnection(BUFFER_SIZE);
+        try {
+            connection.bind(socket);
+            while (!Thread.currentThread().isInterrupted() && connection.isOpen()) {
+                httpService.handleRequest(connection, new BasicHttpContext());
+            }
+        } catch (ConnectionClosedException e) {
+            // The client closed the connection
+        } catch (InterruptedIOException e) {
+            // The server is stopping
+        } catch (SocketException e) {
+            // The connection was reset, or the server is stopping
+        } catch (IOException e) {
+            log.debug("Unable to serve a connection", e);
+        } catch (HttpException e) {
+            log.debug("Unable to serve a connection", e);
+        } finally {
+            try {
+                connection.shutdown();
+            } catch (IOException e) {
+                log.debug("Unable to close a connection", e);
+            }
+        }
+    }
+
+    private void serve(HttpRequest request, HttpResponse response) throws IOException {
+        Header targetHeader = request.getFirstHeader(TARGET_HEADER);
+        String target = targetHeader == null ? null : targetHeader.getValue();
+        byte[] body = request instanceof HttpEntityEnclosingRequest
+                && ((HttpEntityEnclosingRequest) request).getEntity() != null
+                ? EntityUtils.toByteArray(((HttpEntityEnclosingRequest) request).getEntity())
+                : new byte[0];
+        Object result;
+        try {
+            if (!"POST".equals(request.getRequestLine().getMethod()) || target == null
+                    || !target.startsWith(TARGET_PREFIX)) {
+                throw Conditions.serviceException(new AmazonServiceException(
+                        "Unknown operation: " + target), "UnknownOperationException");
+            }
+            Method operation = operation(target.substring(TARGET_PREFIX.length()));
+            JsonNode json = Jackson.getObjectMapper().readTree(
+                    body.length == 0 ? "{}" : new String(body, StringUtils.UTF8));
+            result = invoke(operation, ModelJson.read(json, operation.getParameterTypes()[0]));
+        } catch (AmazonServiceException e) {
+            sendError(response, e);
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Unable to serve " + target, e);
+            AmazonServiceException error = new AmazonServiceException(String.valueOf(e.getMessage()), e);
+            error.setErrorCode("InternalServerError");
+            error.setStatusCode(500);
+            sendError(response, error);
+            return;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = Jackson.getObjectMapper().getFactory().createGenerator(out);
+        ModelJson.write(generator, result);
+        generator.close();
+        send(response, 200, out.toByteArray());
+    }
+
+    /**
+     * Returns the method of the service taking the request of the given
+     * operation.
+     */
+    private Method operation(String operationName) {
+        Method operation = operations.get(operationName);
+        if (operation == null) {
+            String methodName = Character.toLowerCase(operationName.charAt(0))
+                    + operationName.substring(1);
+            try {
+                Class<?> requestClass = Class.forName(MODEL_PACKAGE + operationName + "Request");
+                operation = AmazonDynamoDB.class.getMethod(methodName, requestClass);
+            } catch (ClassNotFoundException e) {
+                throw Conditions.serviceException(new AmazonServiceException(
+                        "Unknown operation: " + operationName), "UnknownOperationException");
+            } catch (NoSuchMethodException e) {
+                throw Conditions.serviceException(new AmazonServiceException(
+                        "Unknown operation: " + operationName), "UnknownOperationException");
+            }
+            operations.put(operationName, operation);
+        }
+        return operation;
+    }
+
+    private Object invoke(Method operation, Object request) {
+        try {
+            return operation.invoke(dynamoDB, (AmazonWebServiceRequest) request);
+        } catch (IllegalAccessException e) {
+            throw new AmazonClientException("Unable to invoke " + operation, e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new AmazonClientException("Unable to invoke " + operation, e.getCause());
+        }
+    }
+
+    private static void sendError(HttpResponse response, AmazonServiceException error)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator generator = Jackson.getObjectMapper().getFactory().createGenerator(out);
+        generator.writeStartObject();
+        generator.writeStringField("__type", ERROR_TYPE_PREFIX + error.getErrorCode());
+        generator.writeStringField("message", error.getErrorMessage());
+        generator.writeEndObject();
+        generator.close();
+        send(response, error.getStatusCode() == 0 ? 400 : error.getStatusCode(), out.toByteArray());
+    }
+
+    private static void send(HttpResponse response, int statusCode, byte[] body) {
+        response.setStatusCode(statusCode);
+        response.setHeader("x-amzn-RequestId", UUID.randomUUID().toString());
+        response.setEntity(new ByteArrayEntity(body, CONTENT_TYPE));
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+
+/**
+ * The items of a table, or of one of its secondary indexes, grouped by hash
+ * key and sorted within each hash key as DynamoDB returns them. Not thread
+ * safe; guarded by the lock of its {@link InMemoryTable}.
+ */
+final class InMemoryIndex {
+
+    private final String indexName;
+    private final String hashKeyName;
+    private final String rangeKeyName;
+    /** The primary index of the table, or null if this is the primary index. */
+    private final InMemoryIndex table;
+    /** The attributes projected into the index, or null for all of them. */
+    private final Set<String> projectedAttributes;
+
+    private final NavigableMap<AttributeValue, NavigableMap<List<AttributeValue>, Map<String, AttributeValue>>> buckets =
+            new TreeMap<AttributeValue, NavigableMap<List<AttributeValue>, Map<String, AttributeValue>>>(
+                    Conditions.KEY_ORDER);
+    private long itemCount;
+    private long sizeBytes;
+
+    /**
+     * Creates the primary index of a table.
+     */
+    InMemoryIndex(List<KeySchemaElement> keySchema) {
+        this(null, keySchema, null, null);
+    }
+
+    /**
+     * Creates a secondary index of the table with the given primary index.
+     */
+    InMemoryIndex(String indexName, List<KeySchemaElement> keySchema,
+            Projection projection, InMemoryIndex table) {
+        String hash = null;
+        String range = null;
+        for (KeySchemaElement element : keySchema) {
+            if (KeyType.HASH.toString().equals(element.getKeyType())) {
+                hash = element.getAttributeName();
+            } else {
+                range = element.getAttributeName();
+            }
+        }
+        this.indexName = indexName;
+        this.hashKeyName = hash;
+        this.rangeKeyName = range;
+        this.table = table;
+        this.projectedAttributes = projectedAttributes(projection);
+    }
+
+    private Set<String> projectedAttributes(Projection projection) {
+        if (table == null || projection == null
+                || ProjectionType.ALL.toString().equals(projection.getProjectionType())) {
+            return null;
+        }
+        Set<String> attributes = new HashSet<String>(table.getKeyNames());
+        attributes.addAll(getKeyNames());
+        if (ProjectionType.INCLUDE.toString().equals(projection.getProjectionType())
+                && projection.getNonKeyAttributes() != null) {
+            attributes.addAll(projection.getNonKeyAttributes());
+        }
+        return attributes;
+    }
+
+    String getIndexName() {
+        return indexName;
+    }
+
+    String getHashKeyName() {
+        return hashKeyName;
+    }
+
+    /** Returns the name of the range key, or null. */
+    String getRangeKeyName() {
+        return rangeKeyName;
+    }
+
+    List<String> getKeyNames() {
+        return rangeKeyName == null
+                ? Collections.singletonList(hashKeyName)
+                : Arrays.asList(hashKeyName, rangeKeyName);
+    }
+
+    long getItemCount() {
+        return itemCount;
+    }
+
+    long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * Returns the key of the given item in this index and, for a secondary
+     * index, in the table.
+     */
+    Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        if (table != null) {
+            key.putAll(table.keyOf(item));
+        }
+        for (String name : getKeyNames()) {
+            key.put(name, item.get(name));
+        }
+        return key;
+    }
+
+    /**
+     * Returns the position of the item with the given key within its hash
+     * key.
+     */
+    List<AttributeValue> sortKeyOf(Map<String, AttributeValue> key) {
+        List<AttributeValue> sortKey = new ArrayList<AttributeValue>(3);
+        if (rangeKeyName != null) {
+            sortKey.add(key.get(rangeKeyName));
+        }
+        if (table != null) {
+            sortKey.addAll(table.sortKeyOf(key));
+            sortKey.add(key.get(table.hashKeyName));
+        }
+        return sortKey;
+    }
+
+    /**
+     * Returns the given item as projected into this index.
+     */
+    Map<String, AttributeValue> project(Map<String, AttributeValue> item) {
+        if (projectedAttributes == null) {
+            return item;
+        }
+        Map<String, AttributeValue> projected = new LinkedHashMap<String, AttributeValue>();
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            if (projectedAttributes.contains(entry.getKey())) {
+                projected.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return projected;
+    }
+
+    Map<String, AttributeValue> get(Map<String, AttributeValue> key) {
+        NavigableMap<List<AttributeValue>, Map<String, AttributeValue>> bucket =
+                buckets.get(key.get(hashKeyName));
+        return bucket == null ? null : bucket.get(sortKeyOf(key));
+    }
+
+    /**
+     * Adds the given item, if it has the keys of this index, replacing any
+     * item with the same key.
+     */
+    void put(Map<String, AttributeValue> item) {
+        AttributeValue hashKey = item.get(hashKeyName);
+        if (hashKey == null || (rangeKeyName != null && item.get(rangeKeyName) == null)) {
+            return;
+        }
+        NavigableMap<List<AttributeValue>, Map<String, AttributeValue>> bucket =
+                buckets.get(hashKey);
+        if (bucket == null) {
+            bucket = new TreeMap<List<AttributeValue>, Map<String, AttributeValue>>(
+                    Conditions.SORT_KEY_ORDER);
+            buckets.put(hashKey, bucket);
+        }
+        Map<String, AttributeValue> projected = project(item);
+        Map<String, AttributeValue> previous = bucket.put(sortKeyOf(item), projected);
+        if (previous != null) {
+            itemCount--;
+            sizeBytes -= Conditions.itemSize(previous);
+        }
+        itemCount++;
+        sizeBytes += Conditions.itemSize(projected);
+    }
+
+    /**
+     * Removes the given item, if it is in this index.
+     */
+    void remove(Map<String, AttributeValue> item) {
+        AttributeValue hashKey = item.get(hashKeyName);
+        if (hashKey == null) {
+            return;
+        }
+        NavigableMap<List<AttributeValue>, Map<String, AttributeValue>> bucket =
+                buckets.get(hashKey);
+        if (bucket == null) {
+            return;
+        }
+        Map<String, AttributeValue> removed = bucket.remove(sortKeyOf(item));
+        if (removed != null) {
+            itemCount--;
+            sizeBytes -= Conditions.itemSize(removed);
+            if (bucket.isEmpty()) {
+                buckets.remove(hashKey);
+            }
+        }
+    }
+
+    /**
+     * Returns the items of the given hash key, in order, after the given
+     * exclusive start key if any.
+     */
+    Iterable<Map<String, AttributeValue>> query(AttributeValue hashKey,
+            Map<String, AttributeValue> exclusiveStartKey, boolean forward) {
+        NavigableMap<List<AttributeValue>, Map<String, AttributeValue>> bucket =
+                buckets.get(hashKey);
+        if (bucket == null) {
+            return Collections.emptyList();
+        }
+        if (exclusiveStartKey != null) {
+            List<AttributeValue> start = sortKeyOf(exclusiveStartKey);
+            bucket = forward ? bucket.tailMap(start, false) : bucket.headMap(start, false);
+        }
+        return forward ? bucket.values() : bucket.descendingMap().values();
+    }
+
+    /**
+     * Returns the items of the hash keys of the given segment, in order, after
+     * the given exclusive start key if any.
+     */
+    Iterable<Map<String, AttributeValue>> scan(
+            final Map<String, AttributeValue> exclusiveStartKey,
+            final int segment, final int totalSegments) {
+        final AttributeValue startHashKey = exclusiveStartKey == null
+                ? null
+                : exclusiveStartKey.get(hashKeyName);
+        return new Iterable<Map<String, AttributeValue>>() {
+            @Override
+            public Iterator<Map<String, AttributeValue>> iterator() {
+                final Iterator<Map.Entry<AttributeValue, NavigableMap<List<AttributeValue>, Map<String, AttributeValue>>>> bucketIterator =
+                        (startHashKey == null ? buckets : buckets.tailMap(startHashKey, true))
+                            .entrySet().iterator();
+                return new Iterator<Map<String, AttributeValue>>() {
+                    private Iterator<Map<String, AttributeValue>> items =
+                            Collections.<Map<String, AttributeValue>>emptyList().iterator();
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!items.hasNext() && bucketIterator.hasNext()) {
+                            Map.Entry<AttributeValue, NavigableMap<List<AttributeValue>, Map<String, AttributeValue>>> entry =
+                                    bucketIterator.next();
+                            if ((entry.getKey().hashCode() & Integer.MAX_VALUE)
+                                    % totalSegments != segment) {
+                                continue;
+                            }
+                            NavigableMap<List<AttributeValue>, Map<String, AttributeValue>> bucket =
+                                    entry.getValue();
+                            if (startHashKey != null
+                                    && Conditions.KEY_ORDER.compare(entry.getKey(), startHashKey) == 0) {
+                                bucket = bucket.tailMap(sortKeyOf(exclusiveStartKey), false);
+                            }
+                            items = bucket.values().iterator();
+                        }
+                        return items.hasNext();
+                    }
+
+                    @Override
+                    public Map<String, AttributeValue> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return items.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
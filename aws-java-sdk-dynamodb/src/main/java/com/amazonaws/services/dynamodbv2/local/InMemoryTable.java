@@ -0,0 +1,797 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import static com.amazonaws.services.dynamodbv2.local.Conditions.copy;
+import static com.amazonaws.services.dynamodbv2.local.Conditions.serviceException;
+import static com.amazonaws.services.dynamodbv2.local.Conditions.validation;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexUpdate;
+import com.amazonaws.services.dynamodbv2.model.IndexStatus;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TableStatus;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+
+/**
+ * A table of an {@link InMemoryAmazonDynamoDB}, with its secondary indexes.
+ * Reads share a lock, writes hold it exclusively, so each operation sees and
+ * leaves the table and its indexes consistent.
+ */
+@ThreadSafe
+final class InMemoryTable {
+
+    /** The maximum size of an item. */
+    static final int MAX_ITEM_SIZE = 400 * 1024;
+
+    /** The maximum size of the items read by a query or scan page. */
+    static final int MAX_PAGE_SIZE = 1024 * 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final String tableName;
+    private final Date creationDateTime = new Date();
+    private final List<KeySchemaElement> keySchema;
+    /** The scalar types of the key attributes of the table and its indexes. */
+    private final Map<String, String> attributeTypes = new LinkedHashMap<String, String>();
+    private final InMemoryIndex primary;
+    private final Map<String, InMemoryIndex> indexes = new LinkedHashMap<String, InMemoryIndex>();
+    private final Map<String, LocalSecondaryIndex> localIndexes =
+            new LinkedHashMap<String, LocalSecondaryIndex>();
+    private final Map<String, GlobalSecondaryIndex> globalIndexes =
+            new LinkedHashMap<String, GlobalSecondaryIndex>();
+    private ProvisionedThroughput provisionedThroughput;
+
+    /**
+     * The items of a query or scan page, as stored.
+     */
+    static final class Page {
+        final List<Map<String, AttributeValue>> items =
+                new ArrayList<Map<String, AttributeValue>>();
+        int scannedCount;
+        int sizeBytes;
+        Map<String, AttributeValue> lastEvaluatedKey;
+    }
+
+    /**
+     * An item before and after a write, either of which may be null.
+     */
+    static final class Change {
+        final Map<String, AttributeValue> before;
+        final Map<String, AttributeValue> after;
+
+        Change(Map<String, AttributeValue> before, Map<String, AttributeValue> after) {
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    InMemoryTable(CreateTableRequest request) {
+        if (request.getTableName() == null) {
+            throw validation("The parameter 'TableName' is required but was not present in the request");
+        }
+        this.tableName = request.getTableName();
+        this.keySchema = checkKeySchema(request.getKeySchema(), "table " + tableName);
+        this.provisionedThroughput = request.getProvisionedThroughput();
+        addAttributeDefinitions(request.getAttributeDefinitions());
+        checkKeyTypes(keySchema);
+        this.primary = new InMemoryIndex(keySchema);
+
+        if (request.getLocalSecondaryIndexes() != null) {
+            for (LocalSecondaryIndex index : request.getLocalSecondaryIndexes()) {
+                checkKeySchema(index.getKeySchema(), "index " + index.getIndexName());
+                if (!index.getKeySchema().get(0).equals(keySchema.get(0))) {
+                    throw validation("One or more parameter values were invalid: "
+                            + "Index KeySchema does not have the same leading hash key as table KeySchema for index: "
+                            + index.getIndexName());
+                }
+                checkKeyTypes(index.getKeySchema());
+                localIndexes.put(index.getIndexName(), index.clone());
+                indexes.put(index.getIndexName(), new InMemoryIndex(index.getIndexName(),
+                        index.getKeySchema(), index.getProjection(), primary));
+            }
+        }
+        if (request.getGlobalSecondaryIndexes() != null) {
+            for (GlobalSecondaryIndex index : request.getGlobalSecondaryIndexes()) {
+                addGlobalIndex(index);
+            }
+        }
+    }
+
+    private static List<KeySchemaElement> checkKeySchema(List<KeySchemaElement> keySchema,
+            String owner) {
+        if (keySchema == null || keySchema.isEmpty() || keySchema.size() > 2
+                || !KeyType.HASH.toString().equals(keySchema.get(0).getKeyType())
+                || (keySchema.size() == 2
+                        && !KeyType.RANGE.toString().equals(keySchema.get(1).getKeyType()))) {
+            throw validation("Invalid KeySchema for " + owner
+                    + ": a HASH key, optionally followed by a RANGE key, is required");
+        }
+        return new ArrayList<KeySchemaElement>(keySchema);
+    }
+
+    private void addAttributeDefinitions(List<AttributeDefinition> definitions) {
+        if (definitions == null) {
+            return;
+        }
+        for (AttributeDefinition definition : definitions) {
+            attributeTypes.put(definition.getAttributeName(), definition.getAttributeType());
+        }
+    }
+
+    private void checkKeyTypes(List<KeySchemaElement> keySchema) {
+        for (KeySchemaElement element : keySchema) {
+            if (!attributeTypes.containsKey(element.getAttributeName())) {
+                throw validation("One or more parameter values were invalid: "
+                        + "Some index key attributes are not defined in AttributeDefinitions. "
+                        + "Keys: [" + element.getAttributeName() + "]");
+            }
+        }
+    }
+
+    private void addGlobalIndex(GlobalSecondaryIndex index) {
+        checkKeySchema(index.getKeySchema(), "index " + index.getIndexName());
+        checkKeyTypes(index.getKeySchema());
+        if (indexes.containsKey(index.getIndexName())) {
+            throw validation("One or more parameter values were invalid: "
+                    + "Duplicate index name: " + index.getIndexName());
+        }
+        InMemoryIndex items = new InMemoryIndex(index.getIndexName(),
+                index.getKeySchema(), index.getProjection(), primary);
+        for (Map<String, AttributeValue> item : primary.scan(null, 0, 1)) {
+            items.put(item);
+        }
+        globalIndexes.put(index.getIndexName(), index.clone());
+        indexes.put(index.getIndexName(), items);
+    }
+
+    String getTableName() {
+        return tableName;
+    }
+
+    TableDescription describe() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            List<AttributeDefinition> definitions = new ArrayList<AttributeDefinition>();
+            for (Map.Entry<String, String> entry : attributeTypes.entrySet()) {
+                definitions.add(new AttributeDefinition(entry.getKey(), entry.getValue()));
+            }
+            TableDescription description = new TableDescription()
+                .withTableName(tableName)
+                .withTableStatus(TableStatus.ACTIVE)
+                .withCreationDateTime(creationDateTime)
+                .withKeySchema(keySchema)
+                .withAttributeDefinitions(definitions)
+                .withProvisionedThroughput(describe(provisionedThroughput))
+                .withItemCount(primary.getItemCount())
+                .withTableSizeBytes(primary.getSizeBytes());
+            if (!localIndexes.isEmpty()) {
+                List<LocalSecondaryIndexDescription> descriptions =
+                        new ArrayList<LocalSecondaryIndexDescription>();
+                for (LocalSecondaryIndex index : localIndexes.values()) {
+                    InMemoryIndex items = indexes.get(index.getIndexName());
+                    descriptions.add(new LocalSecondaryIndexDescription()
+                        .withIndexName(index.getIndexName())
+                        .withKeySchema(index.getKeySchema())
+                        .withProjection(index.getProjection())
+                        .withItemCount(items.getItemCount())
+                        .withIndexSizeBytes(items.getSizeBytes()));
+                }
+                description.setLocalSecondaryIndexes(descriptions);
+            }
+            if (!globalIndexes.isEmpty()) {
+                List<GlobalSecondaryIndexDescription> descriptions =
+                        new ArrayList<GlobalSecondaryIndexDescription>();
+                for (GlobalSecondaryIndex index : globalIndexes.values()) {
+                    InMemoryIndex items = indexes.get(index.getIndexName());
+                    descriptions.add(new GlobalSecondaryIndexDescription()
+                        .withIndexName(index.getIndexName())
+                        .withIndexStatus(IndexStatus.ACTIVE)
+                        .withKeySchema(index.getKeySchema())
+                        .withProjection(index.getProjection())
+                        .withProvisionedThroughput(describe(index.getProvisionedThroughput()))
+                        .withItemCount(items.getItemCount())
+                        .withIndexSizeBytes(items.getSizeBytes()));
+                }
+                description.setGlobalSecondaryIndexes(descriptions);
+            }
+            return description;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private static ProvisionedThroughputDescription describe(ProvisionedThroughput throughput) {
+        if (throughput == null) {
+            return null;
+        }
+        return new ProvisionedThroughputDescription()
+            .withReadCapacityUnits(throughput.getReadCapacityUnits())
+            .withWriteCapacityUnits(throughput.getWriteCapacityUnits())
+            .withNumberOfDecreasesToday(0L);
+    }
+
+    void update(UpdateTableRequest request) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (request.getProvisionedThroughput() != null) {
+                provisionedThroughput = request.getProvisionedThroughput();
+            }
+            addAttributeDefinitions(request.getAttributeDefinitions());
+            if (request.getGlobalSecondaryIndexUpdates() == null) {
+                return;
+            }
+            for (GlobalSecondaryIndexUpdate update : request.getGlobalSecondaryIndexUpdates()) {
+                if (update.getCreate() != null) {
+                    addGlobalIndex(new GlobalSecondaryIndex()
+                        .withIndexName(update.getCreate().getIndexName())
+                        .withKeySchema(update.getCreate().getKeySchema())
+                        .withProjection(update.getCreate().getProjection())
+                        .withProvisionedThroughput(update.getCreate().getProvisionedThroughput()));
+                }
+                if (update.getUpdate() != null) {
+                    globalIndex(update.getUpdate().getIndexName()).setProvisionedThroughput(
+                            update.getUpdate().getProvisionedThroughput());
+                }
+                if (update.getDelete() != null) {
+                    globalIndex(update.getDelete().getIndexName());
+                    globalIndexes.remove(update.getDelete().getIndexName());
+                    indexes.remove(update.getDelete().getIndexName());
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private GlobalSecondaryIndex globalIndex(String indexName) {
+        GlobalSecondaryIndex index = globalIndexes.get(indexName);
+        if (index == null) {
+            throw serviceException(new ResourceNotFoundException(
+                    "Requested resource not found: Index: " + indexName + " not found"),
+                    "ResourceNotFoundException");
+        }
+        return index;
+    }
+
+    /**
+     * Returns the item with the given primary key, or null.
+     */
+    Map<String, AttributeValue> get(Map<String, AttributeValue> key) {
+        checkKey(key);
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return primary.get(key);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the item with the key of the given item, if the expected
+     * values and the condition, if any, are met.
+     */
+    Change put(Map<String, AttributeValue> item,
+            Map<String, ExpectedAttributeValue> expected, String conditionalOperator,
+            Expressions.ConditionExpression condition) {
+        checkItem(item);
+        Map<String, AttributeValue> stored = copy(item);
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Map<String, AttributeValue> before = primary.get(stored);
+            checkExpected(before, expected, conditionalOperator, condition);
+            store(before, stored);
+            return new Change(before, stored);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the item with the given primary key, if the expected values and
+     * the condition, if any, are met.
+     */
+    Change delete(Map<String, AttributeValue> key,
+            Map<String, ExpectedAttributeValue> expected, String conditionalOperator,
+            Expressions.ConditionExpression condition) {
+        checkKey(key);
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Map<String, AttributeValue> before = primary.get(key);
+            checkExpected(before, expected, conditionalOperator, condition);
+            store(before, null);
+            return new Change(before, null);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Applies the given attribute updates, or update expression, to the item
+     * with the given primary key, creating it if needed, if the expected
+     * values and the condition, if any, are met.
+     */
+    Change update(Map<String, AttributeValue> key,
+            Map<String, AttributeValueUpdate> updates,
+            Expressions.UpdateExpression updateExpression,
+            Map<String, ExpectedAttributeValue> expected, String conditionalOperator,
+            Expressions.ConditionExpression condition) {
+        checkKey(key);
+        if (updateExpression != null) {
+            for (String name : updateExpression.getUpdatedNames()) {
+                checkNotKey(name);
+            }
+        }
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Map<String, AttributeValue> before = primary.get(key);
+            checkExpected(before, expected, conditionalOperator, condition);
+            Map<String, AttributeValue> after = before == null
+                    ? new LinkedHashMap<String, AttributeValue>(copy(key))
+                    : new LinkedHashMap<String, AttributeValue>(before);
+            boolean exists = before != null;
+            if (updates != null) {
+                for (Map.Entry<String, AttributeValueUpdate> entry : updates.entrySet()) {
+                    exists |= applyUpdate(after, entry.getKey(), entry.getValue());
+                }
+            }
+            if (updateExpression != null) {
+                exists |= updateExpression.apply(after);
+            }
+            if (!exists) {
+                return new Change(null, null);
+            }
+            checkItem(after);
+            store(before, after);
+            return new Change(before, after);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Applies an attribute update to the given item, and returns whether it
+     * adds a value.
+     */
+    private boolean applyUpdate(Map<String, AttributeValue> item, String name,
+            AttributeValueUpdate update) {
+        checkNotKey(name);
+        AttributeAction action = update.getAction() == null
+                ? AttributeAction.PUT
+                : AttributeAction.fromValue(update.getAction());
+        AttributeValue value = update.getValue() == null ? null : copy(update.getValue());
+        AttributeValue current = item.get(name);
+        switch (action) {
+        case PUT:
+            if (value == null) {
+                throw validation("One or more parameter values were invalid: "
+                        + "Only DELETE action is allowed when no attribute value is specified");
+            }
+            item.put(name, value);
+            return true;
+        case DELETE:
+            if (value == null) {
+                item.remove(name);
+            } else if (current != null) {
+                AttributeValue remaining = difference(current, value, name);
+                if (remaining == null) {
+                    item.remove(name);
+                } else {
+                    item.put(name, remaining);
+                }
+            }
+            return false;
+        case ADD:
+            if (value == null) {
+                throw validation("One or more parameter values were invalid: "
+                        + "Only DELETE action is allowed when no attribute value is specified");
+            }
+            item.put(name, current == null ? value : add(current, value, name));
+            return true;
+        default:
+            throw validation("Unsupported attribute action: " + action);
+        }
+    }
+
+    private void checkNotKey(String name) {
+        if (primary.getKeyNames().contains(name)) {
+            throw validation("One or more parameter values were invalid: Cannot update attribute "
+                    + name + ". This attribute is part of the key");
+        }
+    }
+
+    /**
+     * Returns the sum of the given numbers, or the union of the given sets.
+     */
+    static AttributeValue add(AttributeValue current, AttributeValue value, String name) {
+        if (current.getN() != null && value.getN() != null) {
+            return new AttributeValue().withN(new BigDecimal(current.getN())
+                    .add(new BigDecimal(value.getN())).toString());
+        }
+        if (current.getSS() != null && value.getSS() != null) {
+            Set<String> union = new LinkedHashSet<String>(current.getSS());
+            union.addAll(value.getSS());
+            return new AttributeValue().withSS(union);
+        }
+        if (current.getNS() != null && value.getNS() != null) {
+            Set<String> union = new LinkedHashSet<String>(current.getNS());
+            union.addAll(value.getNS());
+            return new AttributeValue().withNS(union);
+        }
+        if (current.getBS() != null && value.getBS() != null) {
+            Set<ByteBuffer> union = new LinkedHashSet<ByteBuffer>(current.getBS());
+            union.addAll(value.getBS());
+            return new AttributeValue().withBS(union);
+        }
+        throw validation("One or more parameter values were invalid: "
+                + "Type mismatch for attribute to update: " + name);
+    }
+
+    /**
+     * Returns the given set without the given elements, or null if empty.
+     */
+    static AttributeValue difference(AttributeValue current, AttributeValue value,
+            String name) {
+        if (current.getSS() != null && value.getSS() != null) {
+            List<String> remaining = new ArrayList<String>(current.getSS());
+            remaining.removeAll(value.getSS());
+            return remaining.isEmpty() ? null : new AttributeValue().withSS(remaining);
+        }
+        if (current.getNS() != null && value.getNS() != null) {
+            List<String> remaining = new ArrayList<String>(current.getNS());
+            remaining.removeAll(value.getNS());
+            return remaining.isEmpty() ? null : new AttributeValue().withNS(remaining);
+        }
+        if (current.getBS() != null && value.getBS() != null) {
+            List<ByteBuffer> remaining = new ArrayList<ByteBuffer>(current.getBS());
+            remaining.removeAll(value.getBS());
+            return remaining.isEmpty() ? null : new AttributeValue().withBS(remaining);
+        }
+        throw validation("One or more parameter values were invalid: "
+                + "Type mismatch for attribute to update: " + name);
+    }
+
+    private void checkExpected(Map<String, AttributeValue> item,
+            Map<String, ExpectedAttributeValue> expected, String conditionalOperator,
+            Expressions.ConditionExpression condition) {
+        if (!Conditions.meetsExpectations(item, expected, conditionalOperator)
+                || condition != null && !condition.matches(item == null
+                        ? Collections.<String, AttributeValue>emptyMap()
+                        : item)) {
+            throw serviceException(new ConditionalCheckFailedException(
+                    "The conditional request failed"), "ConditionalCheckFailedException");
+        }
+    }
+
+    /**
+     * Replaces the given stored item, or null, with the given new item, or
+     * null, in the table and its indexes.
+     */
+    private void store(Map<String, AttributeValue> before, Map<String, AttributeValue> after) {
+        if (before != null) {
+            primary.remove(before);
+            for (InMemoryIndex index : indexes.values()) {
+                index.remove(before);
+            }
+        }
+        if (after != null) {
+            primary.put(after);
+            for (InMemoryIndex index : indexes.values()) {
+                index.put(after);
+            }
+        }
+    }
+
+    /**
+     * Runs a query on the table or one of its indexes.
+     */
+    Page query(String indexName, Map<String, Condition> keyConditions,
+            Map<String, AttributeValue> exclusiveStartKey, boolean forward,
+            Map<String, Condition> queryFilter, Expressions.ConditionExpression filterExpression,
+            String conditionalOperator, Integer limit) {
+        InMemoryIndex index = index(indexName);
+        if (keyConditions == null || keyConditions.isEmpty()) {
+            throw validation("Either the KeyConditions or KeyConditionExpression parameter "
+                    + "must be specified in the request.");
+        }
+        Condition hashKeyCondition = keyConditions.get(index.getHashKeyName());
+        if (hashKeyCondition == null
+                || !ComparisonOperator.EQ.toString().equals(hashKeyCondition.getComparisonOperator())
+                || hashKeyCondition.getAttributeValueList() == null
+                || hashKeyCondition.getAttributeValueList().size() != 1) {
+            throw validation("Query condition missed key schema element: "
+                    + index.getHashKeyName());
+        }
+        Condition rangeKeyCondition = null;
+        for (String name : keyConditions.keySet()) {
+            if (name.equals(index.getRangeKeyName())) {
+                rangeKeyCondition = keyConditions.get(name);
+            } else if (!name.equals(index.getHashKeyName())) {
+                throw validation("Query key condition not supported: " + name
+                        + " is not a key of " + (indexName == null ? tableName : indexName));
+            }
+        }
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return read(index.query(hashKeyCondition.getAttributeValueList().get(0),
+                            exclusiveStartKey, forward),
+                    index, rangeKeyCondition, queryFilter, filterExpression, conditionalOperator,
+                    limit);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Runs a scan of a segment of the table or one of its indexes.
+     */
+    Page scan(String indexName, Map<String, AttributeValue> exclusiveStartKey,
+            int segment, int totalSegments, Map<String, Condition> scanFilter,
+            Expressions.ConditionExpression filterExpression, String conditionalOperator,
+            Integer limit) {
+        InMemoryIndex index = index(indexName);
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return read(index.scan(exclusiveStartKey, segment, totalSegments),
+                    index, null, scanFilter, filterExpression, conditionalOperator, limit);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Reads a page of items. The range key condition, if any, selects a range
+     * of the items read, in order; the filters select the ones returned.
+     */
+    private Page read(Iterable<Map<String, AttributeValue>> items, InMemoryIndex index,
+            Condition rangeKeyCondition, Map<String, Condition> filter,
+            Expressions.ConditionExpression filterExpression, String conditionalOperator,
+            Integer limit) {
+        if (limit != null && limit < 1) {
+            throw validation("1 validation error detected: Value '" + limit
+                    + "' at 'limit' failed to satisfy constraint: "
+                    + "Member must have value greater than or equal to 1");
+        }
+        Page page = new Page();
+        Map<String, AttributeValue> last = null;
+        boolean inRange = false;
+        boolean truncated = false;
+        Iterator<Map<String, AttributeValue>> iterator = items.iterator();
+        while (iterator.hasNext()) {
+            if ((limit != null && page.scannedCount >= limit)
+                    || page.sizeBytes >= MAX_PAGE_SIZE) {
+                truncated = true;
+                break;
+            }
+            Map<String, AttributeValue> item = iterator.next();
+            if (rangeKeyCondition != null) {
+                if (!Conditions.matches(item.get(index.getRangeKeyName()), rangeKeyCondition)) {
+                    if (inRange) {
+                        break;
+                    }
+                    continue;
+                }
+                inRange = true;
+            }
+            page.scannedCount++;
+            page.sizeBytes += Conditions.itemSize(item);
+            last = item;
+            if (Conditions.matches(item, filter, conditionalOperator)
+                    && (filterExpression == null || filterExpression.matches(item))) {
+                page.items.add(item);
+            }
+        }
+        if (truncated) {
+            page.lastEvaluatedKey = index.keyOf(last);
+        }
+        return page;
+    }
+
+    /**
+     * Returns the given items of the given index as selected by a query or
+     * scan: copied, with all their attributes, the given ones, or those
+     * projected into the index.
+     */
+    List<Map<String, AttributeValue>> select(List<Map<String, AttributeValue>> items,
+            String indexName, String select, Set<String> attributesToGet) {
+        if (Select.COUNT.toString().equals(select)) {
+            return null;
+        }
+        boolean allAttributes = Select.ALL_ATTRIBUTES.toString().equals(select);
+        if (allAttributes && indexName != null) {
+            GlobalSecondaryIndex global = globalIndexes.get(indexName);
+            if (global != null && global.getProjection() != null
+                    && !ProjectionType.ALL.toString().equals(global.getProjection().getProjectionType())) {
+                throw validation("One or more parameter values were invalid: "
+                        + "Select type ALL_ATTRIBUTES is not supported for global secondary index "
+                        + indexName + " because its projection type is not ALL");
+            }
+        }
+        List<Map<String, AttributeValue>> selected =
+                new ArrayList<Map<String, AttributeValue>>(items.size());
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            for (Map<String, AttributeValue> item : items) {
+                if (allAttributes && indexName != null) {
+                    Map<String, AttributeValue> full = primary.get(item);
+                    item = full == null ? item : full;
+                }
+                selected.add(project(item, attributesToGet));
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return selected;
+    }
+
+    /**
+     * Returns a copy of the given item with only the given attributes, or all
+     * of them if null.
+     */
+    static Map<String, AttributeValue> project(Map<String, AttributeValue> item,
+            Set<String> attributesToGet) {
+        if (item == null) {
+            return null;
+        }
+        if (attributesToGet == null) {
+            return copy(item);
+        }
+        Map<String, AttributeValue> projected = new LinkedHashMap<String, AttributeValue>();
+        for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+            if (attributesToGet.contains(entry.getKey())) {
+                projected.put(entry.getKey(), copy(entry.getValue()));
+            }
+        }
+        return projected;
+    }
+
+    private InMemoryIndex index(String indexName) {
+        if (indexName == null) {
+            return primary;
+        }
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            InMemoryIndex index = indexes.get(indexName);
+            if (index == null) {
+                throw validation("The table does not have the specified index: " + indexName);
+            }
+            return index;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the primary key of the given item.
+     */
+    Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item) {
+        return primary.keyOf(item);
+    }
+
+    private void checkKey(Map<String, AttributeValue> key) {
+        if (key == null || key.size() != keySchema.size()) {
+            throw validation("The provided key element does not match the schema");
+        }
+        for (KeySchemaElement element : keySchema) {
+            AttributeValue value = key.get(element.getAttributeName());
+            if (value == null || !hasType(value, attributeTypes.get(element.getAttributeName()))) {
+                throw validation("The provided key element does not match the schema");
+            }
+        }
+    }
+
+    private void checkItem(Map<String, AttributeValue> item) {
+        if (item == null) {
+            throw validation("The parameter 'Item' is required but was not present in the request");
+        }
+        for (KeySchemaElement element : keySchema) {
+            if (!item.containsKey(element.getAttributeName())) {
+                throw validation("One or more parameter values were invalid: Missing the key "
+                        + element.getAttributeName() + " in the item");
+            }
+        }
+        for (Map.Entry<String, String> entry : attributeTypes.entrySet()) {
+            AttributeValue value = item.get(entry.getKey());
+            if (value != null && !hasType(value, entry.getValue())) {
+                throw validation("One or more parameter values were invalid: "
+                        + "Type mismatch for key " + entry.getKey()
+                        + " expected: " + entry.getValue());
+            }
+            if (value != null && value.getS() != null && value.getS().length() == 0) {
+                throw validation("One or more parameter values were invalid: "
+                        + "An AttributeValue may not contain an empty string");
+            }
+        }
+        if (Conditions.itemSize(item) > MAX_ITEM_SIZE) {
+            throw validation("Item size has exceeded the maximum allowed size");
+        }
+    }
+
+    private static boolean hasType(AttributeValue value, String type) {
+        switch (ScalarAttributeType.fromValue(type)) {
+        case S:
+            return value.getS() != null;
+        case N:
+            return value.getN() != null;
+        default:
+            return value.getB() != null;
+        }
+    }
+
+    /**
+     * Returns a map of the given attribute names to their values in the
+     * given item.
+     */
+    static Map<String, AttributeValue> attributes(Map<String, AttributeValue> item,
+            Iterable<String> names) {
+        Map<String, AttributeValue> attributes = new HashMap<String, AttributeValue>();
+        if (item != null) {
+            for (String name : names) {
+                if (item.containsKey(name)) {
+                    attributes.put(name, copy(item.get(name)));
+                }
+            }
+        }
+        return attributes;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import java.util.Random;
+
+/**
+ * The simulated service latency of the calls to an
+ * {@link InMemoryAmazonDynamoDB}.
+ */
+public abstract class LatencyProfile {
+
+    /**
+     * No added latency.
+     */
+    public static final LatencyProfile NONE = fixed(0);
+
+    /**
+     * Returns the latency, in milliseconds, of the next call.
+     *
+     * @param random
+     *            The source of randomness to draw the latency from.
+     */
+    public abstract long nextLatencyMillis(Random random);
+
+    /**
+     * Returns a profile where every call takes the given time.
+     */
+    public static LatencyProfile fixed(final long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Please provide a non-negative latency");
+        }
+        return new LatencyProfile() {
+            @Override
+            public long nextLatencyMillis(Random random) {
+                return millis;
+            }
+
+            @Override
+            public String toString() {
+                return "fixed(" + millis + "ms)";
+            }
+        };
+    }
+
+    /**
+     * Returns a profile where the calls take a time uniformly distributed
+     * between the given bounds.
+     */
+    public static LatencyProfile uniform(final long minMillis, final long maxMillis) {
+        if (minMillis < 0 || maxMillis < minMillis) {
+            throw new IllegalArgumentException("Please provide a valid latency range");
+        }
+        return new LatencyProfile() {
+            @Override
+            public long nextLatencyMillis(Random random) {
+                return minMillis + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+            }
+
+            @Override
+            public String toString() {
+                return "uniform(" + minMillis + "-" + maxMillis + "ms)";
+            }
+        };
+    }
+
+    /**
+     * Returns a profile with a log-normal distribution of latencies, the long
+     * tailed shape of service latencies, with the given median and 99th
+     * percentile.
+     */
+    public static LatencyProfile logNormal(final double medianMillis, double p99Millis) {
+        if (medianMillis <= 0 || p99Millis < medianMillis) {
+            throw new IllegalArgumentException("Please provide a valid median and 99th percentile");
+        }
+        // 2.326 is the 99th percentile of the standard normal distribution
+        final double sigma = Math.log(p99Millis / medianMillis) / 2.326;
+        final double mu = Math.log(medianMillis);
+        return new LatencyProfile() {
+            @Override
+            public long nextLatencyMillis(Random random) {
+                return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+            }
+
+            @Override
+            public String toString() {
+                return "logNormal(mu=" + mu + ", sigma=" + sigma + ")";
+            }
+        };
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import static com.amazonaws.util.BinaryUtils.copyAllBytesFrom;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.util.Base64;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Binds the DynamoDB model classes to the JSON of the DynamoDB wire protocol,
+ * in the reverse direction of the client: requests are read and results are
+ * written. The JSON member names are those of the model properties.
+ */
+final class ModelJson {
+
+    /** The setters of each model class, by JSON member name. */
+    private static final ConcurrentMap<Class<?>, Map<String, Method>> setters =
+            new ConcurrentHashMap<Class<?>, Map<String, Method>>();
+
+    /** The getters of each model class, by JSON member name. */
+    private static final ConcurrentMap<Class<?>, Map<String, Method>> getters =
+            new ConcurrentHashMap<Class<?>, Map<String, Method>>();
+
+    private ModelJson() {
+    }
+
+    /**
+     * Reads a model object of the given class from the given JSON object.
+     * Unknown members are ignored.
+     */
+    static <T> T read(JsonNode node, Class<T> clazz) {
+        return clazz.cast(readValue(node, clazz));
+    }
+
+    private static Object readValue(JsonNode node, Type type) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Type[] arguments = parameterized.getActualTypeArguments();
+            if (Map.class.equals(parameterized.getRawType())) {
+                Map<String, Object> map = new LinkedHashMap<String, Object>();
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    map.put(field.getKey(), readValue(field.getValue(), arguments[1]));
+                }
+                return map;
+            }
+            List<Object> list = new ArrayList<Object>(node.size());
+            for (JsonNode element : node) {
+                list.add(readValue(element, arguments[0]));
+            }
+            return list;
+        }
+        Class<?> clazz = (Class<?>) type;
+        if (String.class.equals(clazz)) {
+            return node.asText();
+        } else if (Integer.class.equals(clazz)) {
+            return Integer.valueOf(node.asInt());
+        } else if (Long.class.equals(clazz)) {
+            return Long.valueOf(node.asLong());
+        } else if (Double.class.equals(clazz)) {
+            return Double.valueOf(node.asDouble());
+        } else if (Boolean.class.equals(clazz)) {
+            return Boolean.valueOf(node.asBoolean());
+        } else if (ByteBuffer.class.equals(clazz)) {
+            return ByteBuffer.wrap(Base64.decode(node.asText()));
+        } else if (Date.class.equals(clazz)) {
+            return new Date((long) (node.asDouble() * 1000));
+        }
+
+        Object object = newInstance(clazz);
+        Map<String, Method> classSetters = settersOf(clazz);
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            Method setter = classSetters.get(field.getKey());
+            if (setter != null) {
+                invoke(setter, object,
+                        readValue(field.getValue(), setter.getGenericParameterTypes()[0]));
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Writes the given model object, or value, as JSON. Null properties are
+     * omitted.
+     */
+    static void write(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof ByteBuffer) {
+            generator.writeString(Base64.encodeAsString(copyAllBytesFrom((ByteBuffer) value)));
+        } else if (value instanceof Date) {
+            generator.writeNumber(((Date) value).getTime() / 1000.0);
+        } else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object element : (Collection<?>) value) {
+                write(generator, element);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getValue() != null) {
+                    generator.writeFieldName(entry.getKey().toString());
+                    write(generator, entry.getValue());
+                }
+            }
+            generator.writeEndObject();
+        } else {
+            generator.writeStartObject();
+            for (Map.Entry<String, Method> getter : gettersOf(value.getClass()).entrySet()) {
+                Object property = invoke(getter.getValue(), value);
+                if (property != null) {
+                    generator.writeFieldName(getter.getKey());
+                    write(generator, property);
+                }
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private static Map<String, Method> settersOf(Class<?> clazz) {
+        Map<String, Method> classSetters = setters.get(clazz);
+        if (classSetters == null) {
+            classSetters = new HashMap<String, Method>();
+            for (Method method : clazz.getMethods()) {
+                if (method.getName().startsWith("set")
+                        && method.getParameterTypes().length == 1
+                        && !Modifier.isStatic(method.getModifiers())) {
+                    String name = method.getName().substring(3);
+                    // Enum properties also have String setters, which are used
+                    if (!method.getParameterTypes()[0].isEnum()) {
+                        classSetters.put(name, method);
+                    }
+                }
+            }
+            setters.putIfAbsent(clazz, classSetters);
+        }
+        return classSetters;
+    }
+
+    private static Map<String, Method> gettersOf(Class<?> clazz) {
+        Map<String, Method> classGetters = getters.get(clazz);
+        if (classGetters == null) {
+            classGetters = new LinkedHashMap<String, Method>();
+            for (Method method : clazz.getDeclaredMethods()) {
+                if (method.getName().startsWith("get")
+                        && method.getParameterTypes().length == 0
+                        && Modifier.isPublic(method.getModifiers())
+                        && !Modifier.isStatic(method.getModifiers())) {
+                    classGetters.put(method.getName().substring(3), method);
+                }
+            }
+            getters.putIfAbsent(clazz, classGetters);
+        }
+        return classGetters;
+    }
+
+    private static Object newInstance(Class<?> clazz) {
+        try {
+            return clazz.newInstance();
+        } catch (InstantiationException e) {
+            throw new AmazonClientException("Unable to instantiate " + clazz, e);
+        } catch (IllegalAccessException e) {
+            throw new AmazonClientException("Unable to instantiate " + clazz, e);
+        }
+    }
+
+    private static Object invoke(Method method, Object object, Object... arguments) {
+        try {
+            return method.invoke(object, arguments);
+        } catch (IllegalAccessException e) {
+            throw new AmazonClientException("Unable to invoke " + method, e);
+        } catch (InvocationTargetException e) {
+            throw new AmazonClientException("Unable to invoke " + method, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.streams;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.http.annotation.ThreadSafe;
+
+/**
+ * A checkpoint store keeping the checkpoints in memory, for the lifetime of
+ * the JVM. This is the default checkpoint store of a {@link StreamProcessor}.
+ */
+@ThreadSafe
+public class InMemoryStreamCheckpointStore implements StreamCheckpointStore {
+
+    private final ConcurrentMap<String, String> checkpoints =
+            new ConcurrentHashMap<String, String>();
+
+    @Override
+    public String getCheckpoint(String streamArn, String shardId) {
+        return checkpoints.get(key(streamArn, shardId));
+    }
+
+    @Override
+    public void setCheckpoint(String streamArn, String shardId, String checkpoint) {
+        checkpoints.put(key(streamArn, shardId), checkpoint);
+    }
+
+    private static String key(String streamArn, String shardId) {
+        return streamArn + "/" + shardId;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.streams;
+
+import com.amazonaws.services.dynamodbv2.model.OperationType;
+import com.amazonaws.services.dynamodbv2.model.Record;
+
+/**
+ * A stream record whose keys and images have been converted into objects of a
+ * mapper class.
+ *
+ * @param <T>
+ *            the mapper class
+ * @see MapperStreamRecordConverter
+ */
+public class MappedStreamRecord<T> {
+
+    private final Record record;
+    private final T keys;
+    private final T oldImage;
+    private final T newImage;
+
+    public MappedStreamRecord(Record record, T keys, T oldImage, T newImage) {
+        this.record = record;
+        this.keys = keys;
+        this.oldImage = oldImage;
+        this.newImage = newImage;
+    }
+
+    /**
+     * Returns the stream record as read from the stream.
+     */
+    public Record getRecord() {
+        return record;
+    }
+
+    /**
+     * Returns the type of the change.
+     *
+     * @see OperationType
+     */
+    public String getEventName() {
+        return record.getEventName();
+    }
+
+    /**
+     * Returns the sequence number of the stream record.
+     */
+    public String getSequenceNumber() {
+        return record.getDynamodb().getSequenceNumber();
+    }
+
+    /**
+     * Returns an object with only the key attributes of the modified item.
+     */
+    public T getKeys() {
+        return keys;
+    }
+
+    /**
+     * Returns the item as it was before the change, or null if the stream
+     * doesn't include old images, or if the item has just been inserted.
+     */
+    public T getOldImage() {
+        return oldImage;
+    }
+
+    /**
+     * Returns the item as it is after the change, or null if the stream
+     * doesn't include new images, or if the item has just been removed.
+     */
+    public T getNewImage() {
+        return newImage;
+    }
+
+    @Override
+    public String toString() {
+        return "{" + getEventName() + " " + getSequenceNumber()
+                + ", Keys: " + keys + "}";
+    }
+}
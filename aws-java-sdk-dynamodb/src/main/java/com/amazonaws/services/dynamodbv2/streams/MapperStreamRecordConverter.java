@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.streams;
+
+import java.util.Map;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.StreamRecord;
+
+/**
+ * Converts the keys and images of stream records into objects of a mapper
+ * class, via {@link DynamoDBMapper#marshallIntoObject(Class, Map)}.
+ * <p>
+ * For example:
+ * <pre class="brush: java">
+ * StreamProcessor&lt;MappedStreamRecord&lt;MyItem>> processor =
+ *     new StreamProcessor&lt;MappedStreamRecord&lt;MyItem>>(streamsClient, streamArn,
+ *         new MapperStreamRecordConverter&lt;MyItem>(mapper, MyItem.class),
+ *         handler);
+ * </pre>
+ *
+ * @param <T>
+ *            the mapper class
+ */
+public class MapperStreamRecordConverter<T>
+        implements StreamRecordConverter<MappedStreamRecord<T>> {
+
+    private final DynamoDBMapper mapper;
+    private final Class<T> clazz;
+
+    /**
+     * @param mapper
+     *            the mapper converting the keys and images
+     * @param clazz
+     *            the mapper class of the items of the table
+     */
+    public MapperStreamRecordConverter(DynamoDBMapper mapper, Class<T> clazz) {
+        if (mapper == null) {
+            throw new IllegalArgumentException("Please provide a mapper");
+        }
+        if (clazz == null) {
+            throw new IllegalArgumentException("Please provide a mapper class");
+        }
+        this.mapper = mapper;
+        this.clazz = clazz;
+    }
+
+    @Override
+    public MappedStreamRecord<T> convert(Record record) {
+        StreamRecord streamRecord = record.getDynamodb();
+        return new MappedStreamRecord<T>(record,
+                toObject(streamRecord.getKeys()),
+                toObject(streamRecord.getOldImage()),
+                toObject(streamRecord.getNewImage()));
+    }
+
+    private T toObject(Map<String, AttributeValue> attributes) {
+        return attributes == null ? null : mapper.marshallIntoObject(clazz, attributes);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.streams;
+
+/**
+ * Stores the position up to which each shard of a stream has been processed,
+ * so that a {@link StreamProcessor} can resume from there when restarted.
+ * Implementations are called concurrently for different shards, and must be
+ * thread-safe.
+ *
+ * @see InMemoryStreamCheckpointStore
+ */
+public interface StreamCheckpointStore {
+
+    /**
+     * Returns the sequence number of the last record processed from the given
+     * shard, {@link StreamProcessor#SHARD_END} if the whole shard has been
+     * processed, or null if the shard hasn't been checkpointed yet.
+     *
+     * @param streamArn
+     *            the ARN of the stream
+     * @param shardId
+     *            the id of the shard
+     */
+    String getCheckpoint(String streamArn, String shardId);
+
+    /**
+     * Records the sequence number of the last record processed from the given
+     * shard, or {@link StreamProcessor#SHARD_END} once the whole shard has
+     * been processed.
+     *
+     * @param streamArn
+     *            the ARN of the stream
+     * @param shardId
+     *            the id of the shard
+     * @param checkpoint
+     *            the sequence number of the last record processed, or
+     *            {@link StreamProcessor#SHARD_END}
+     */
+    void setCheckpoint(String streamArn, String shardId, String checkpoint);
+}
@@ -0,0 +1,590 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.streams;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.ExpiredIteratorException;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsResult;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorRequest;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.Shard;
+import com.amazonaws.services.dynamodbv2.model.ShardIteratorType;
+import com.amazonaws.services.dynamodbv2.model.StreamDescription;
+import com.amazonaws.services.dynamodbv2.model.StreamStatus;
+
+/**
+ * Processes the records of a DynamoDB stream, reading its shards in parallel.
+ * <p>
+ * The processor discovers the shards of the stream, and reads each shard in
+ * order as soon as its parent shard, if any, has been fully processed, so that
+ * the changes to any given item are handled in order. Shards are read in
+ * short tasks, one batch of records at a time, on a shared thread pool sized
+ * after the number of processors by default; so the number of shards read
+ * concurrently isn't bounded by the number of threads. Once a batch of records
+ * has been handled, its last sequence number is saved in the
+ * {@link StreamCheckpointStore}, from which the processor resumes when
+ * restarted. Records are handled at least once.
+ * <p>
+ * For example:
+ * <pre class="brush: java">
+ * StreamProcessor&lt;Record> processor = StreamProcessor.forRecords(
+ *     streamsClient, streamArn, new StreamRecordsHandler&lt;Record>() {
+ *         public void handleRecords(String shardId, List&lt;Record> records) {
+ *             ...
+ *         }
+ *     });
+ * processor.withCheckpointStore(checkpointStore).start();
+ * ...
+ * processor.shutdown();
+ * processor.awaitTermination(1, TimeUnit.MINUTES);
+ * </pre>
+ * <p>
+ * The processor stops once all the shards of a disabled stream have been
+ * processed, or as soon as the handler, the converter, the checkpoint store or
+ * a request to the stream fails; the failure is then available via
+ * {@link #getFailure()}.
+ *
+ * @param <T>
+ *            the type of the records handed to the handler
+ */
+@ThreadSafe
+public class StreamProcessor<T> {
+
+    /**
+     * The checkpoint of a shard whose records have all been processed.
+     */
+    public static final String SHARD_END = "SHARD_END";
+
+    private static final Log log = LogFactory.getLog(StreamProcessor.class);
+
+    private static final int MAX_RECORDS_PER_BATCH = 1000;
+
+    private final AmazonDynamoDBStreams streams;
+    private final String streamArn;
+    private final StreamRecordConverter<T> converter;
+    private final StreamRecordsHandler<T> handler;
+
+    private StreamCheckpointStore checkpointStore = new InMemoryStreamCheckpointStore();
+    private ShardIteratorType initialPosition = ShardIteratorType.TRIM_HORIZON;
+    private int maxRecordsPerBatch = MAX_RECORDS_PER_BATCH;
+    private long pollIntervalMillis = 1000;
+    private long shardDiscoveryIntervalMillis = 10000;
+    private ScheduledExecutorService executorService;
+
+    /** Serializes the discovery of the shards. */
+    private final Object discoveryLock = new Object();
+    private final Runnable discoveryTask = new Task() {
+        @Override
+        void doRun() {
+            discoverShards();
+        }
+    };
+
+    // The fields below are guarded by this.
+    private ScheduledExecutorService scheduler;
+    private boolean ownsScheduler;
+    private ScheduledFuture<?> periodicDiscovery;
+    private boolean started;
+    private boolean stopped;
+    private int runningTasks;
+    private Throwable failure;
+    private boolean initialDiscoveryDone;
+    /** The shards waiting for their parent to be processed. */
+    private final Map<String, ShardReader> pendingShards =
+            new LinkedHashMap<String, ShardReader>();
+    private final Set<String> runningShards = new HashSet<String>();
+    private final Set<String> finishedShards = new HashSet<String>();
+
+    /**
+     * Constructs a processor of the records of the given stream.
+     *
+     * @param streams
+     *            the client used to read the stream
+     * @param streamArn
+     *            the ARN of the stream
+     * @param converter
+     *            the converter of the records, called before the records are
+     *            handed to the handler
+     * @param handler
+     *            the handler of the converted records
+     */
+    public StreamProcessor(AmazonDynamoDBStreams streams, String streamArn,
+            StreamRecordConverter<T> converter, StreamRecordsHandler<T> handler) {
+        if (streams == null) {
+            throw new IllegalArgumentException("Please provide a DynamoDB Streams client");
+        }
+        if (streamArn == null) {
+            throw new IllegalArgumentException("Please provide a stream ARN");
+        }
+        if (converter == null) {
+            throw new IllegalArgumentException("Please provide a record converter");
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("Please provide a records handler");
+        }
+        this.streams = streams;
+        this.streamArn = streamArn;
+        this.converter = converter;
+        this.handler = handler;
+    }
+
+    /**
+     * Returns a processor handing the records of the given stream unchanged to
+     * the given handler.
+     */
+    public static StreamProcessor<Record> forRecords(AmazonDynamoDBStreams streams,
+            String streamArn, StreamRecordsHandler<Record> handler) {
+        return new StreamProcessor<Record>(streams, streamArn,
+                new StreamRecordConverter<Record>() {
+                    @Override
+                    public Record convert(Record record) {
+                        return record;
+                    }
+                }, handler);
+    }
+
+    /**
+     * Sets the store of the checkpoints of each shard. Defaults to an
+     * {@link InMemoryStreamCheckpointStore}.
+     */
+    public synchronized StreamProcessor<T> withCheckpointStore(
+            StreamCheckpointStore checkpointStore) {
+        checkNotStarted();
+        if (checkpointStore == null) {
+            throw new IllegalArgumentException("Please provide a checkpoint store");
+        }
+        this.checkpointStore = checkpointStore;
+        return this;
+    }
+
+    /**
+     * Sets where to start reading the shards which have no checkpoint when the
+     * processor starts: either {@link ShardIteratorType#TRIM_HORIZON}, the
+     * default, to process all the records available in the stream, or
+     * {@link ShardIteratorType#LATEST} to only process the changes made from
+     * now on. The shards created afterwards are always read from their first
+     * record.
+     */
+    public synchronized StreamProcessor<T> withInitialPosition(
+            ShardIteratorType initialPosition) {
+        checkNotStarted();
+        if (initialPosition != ShardIteratorType.TRIM_HORIZON
+                && initialPosition != ShardIteratorType.LATEST) {
+            throw new IllegalArgumentException(
+                    "Please provide either TRIM_HORIZON or LATEST as initial position");
+        }
+        this.initialPosition = initialPosition;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of records handed to the handler at once,
+     * between 1 and 1000, the default.
+     */
+    public synchronized StreamProcessor<T> withMaxRecordsPerBatch(int maxRecordsPerBatch) {
+        checkNotStarted();
+        if (maxRecordsPerBatch < 1 || maxRecordsPerBatch > MAX_RECORDS_PER_BATCH) {
+            throw new IllegalArgumentException(
+                    "Please provide a number of records per batch between 1 and "
+                    + MAX_RECORDS_PER_BATCH);
+        }
+        this.maxRecordsPerBatch = maxRecordsPerBatch;
+        return this;
+    }
+
+    /**
+     * Sets the time to wait before reading again an open shard which had no
+     * new records. Defaults to one second.
+     */
+    public synchronized StreamProcessor<T> withPollIntervalMillis(long pollIntervalMillis) {
+        checkNotStarted();
+        if (pollIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative poll interval");
+        }
+        this.pollIntervalMillis = pollIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Sets the interval at which the shards of the stream are listed to
+     * discover the new ones. The shards are also listed as soon as a shard has
+     * been fully processed. Defaults to ten seconds.
+     */
+    public synchronized StreamProcessor<T> withShardDiscoveryIntervalMillis(
+            long shardDiscoveryIntervalMillis) {
+        checkNotStarted();
+        if (shardDiscoveryIntervalMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive shard discovery interval");
+        }
+        this.shardDiscoveryIntervalMillis = shardDiscoveryIntervalMillis;
+        return this;
+    }
+
+    /**
+     * Sets the executor service running the tasks of the processor, which is
+     * not shut down by the processor. By default, the processor uses its own
+     * thread pool, with one thread per available processor.
+     */
+    public synchronized StreamProcessor<T> withExecutorService(
+            ScheduledExecutorService executorService) {
+        checkNotStarted();
+        this.executorService = executorService;
+        return this;
+    }
+
+    private void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("The stream processor has already been started");
+        }
+    }
+
+    /**
+     * Starts processing the stream in the background.
+     *
+     * @throws IllegalStateException
+     *             if the processor has already been started
+     */
+    public synchronized void start() {
+        checkNotStarted();
+        started = true;
+        if (executorService == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                    Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory() {
+                        private final AtomicInteger threadCount = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "dynamodb-streams-processor-"
+                                    + threadCount.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            scheduler = executor;
+            ownsScheduler = true;
+        } else {
+            scheduler = executorService;
+        }
+        periodicDiscovery = scheduler.scheduleWithFixedDelay(discoveryTask, 0,
+                shardDiscoveryIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops processing the stream. The batches being handled are completed
+     * and checkpointed, but no new batch is read.
+     */
+    public synchronized void shutdown() {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        if (periodicDiscovery != null) {
+            periodicDiscovery.cancel(false);
+        }
+        if (ownsScheduler) {
+            scheduler.shutdown();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Waits until the processor has stopped and its tasks have completed, or
+     * the given timeout has elapsed.
+     *
+     * @return true if the processor has stopped, false if the timeout elapsed
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!stopped || runningTasks > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the processor has stopped, either after a call to
+     * {@link #shutdown()}, after a failure, or once all the shards of a
+     * disabled stream have been processed.
+     */
+    public synchronized boolean isShutdown() {
+        return stopped;
+    }
+
+    /**
+     * Returns the failure which stopped the processor, or null.
+     */
+    public synchronized Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Lists the shards of the stream, and starts reading the new shards whose
+     * parent has been processed.
+     */
+    private void discoverShards() {
+        synchronized (discoveryLock) {
+            List<Shard> shards = new ArrayList<Shard>();
+            String streamStatus;
+            String lastShardId = null;
+            do {
+                StreamDescription description = streams.describeStream(
+                        new DescribeStreamRequest()
+                            .withStreamArn(streamArn)
+                            .withExclusiveStartShardId(lastShardId))
+                        .getStreamDescription();
+                if (description.getShards() != null) {
+                    shards.addAll(description.getShards());
+                }
+                streamStatus = description.getStreamStatus();
+                lastShardId = description.getLastEvaluatedShardId();
+            } while (lastShardId != null);
+
+            boolean initialDiscovery;
+            List<Shard> newShards = new ArrayList<Shard>();
+            synchronized (this) {
+                initialDiscovery = !initialDiscoveryDone;
+                for (Shard shard : shards) {
+                    if (!isKnown(shard.getShardId())) {
+                        newShards.add(shard);
+                    }
+                }
+            }
+
+            Map<String, String> checkpoints = new HashMap<String, String>();
+            for (Shard shard : newShards) {
+                checkpoints.put(shard.getShardId(),
+                        checkpointStore.getCheckpoint(streamArn, shard.getShardId()));
+            }
+
+            synchronized (this) {
+                for (Shard shard : newShards) {
+                    String shardId = shard.getShardId();
+                    String checkpoint = checkpoints.get(shardId);
+                    if (SHARD_END.equals(checkpoint)
+                            || (checkpoint == null && initialDiscovery
+                                && initialPosition == ShardIteratorType.LATEST
+                                && !isOpen(shard))) {
+                        finishedShards.add(shardId);
+                    } else {
+                        ShardIteratorType iteratorType =
+                                initialDiscovery ? initialPosition
+                                                 : ShardIteratorType.TRIM_HORIZON;
+                        pendingShards.put(shardId,
+                                new ShardReader(shard, iteratorType, checkpoint));
+                    }
+                }
+                initialDiscoveryDone = true;
+                startReadableShards();
+                if (StreamStatus.DISABLED.toString().equals(streamStatus)
+                        && pendingShards.isEmpty() && runningShards.isEmpty()) {
+                    log.info("All the shards of the disabled stream " + streamArn
+                            + " have been processed");
+                    shutdown();
+                }
+            }
+        }
+    }
+
+    private boolean isKnown(String shardId) {
+        return pendingShards.containsKey(shardId)
+                || runningShards.contains(shardId)
+                || finishedShards.contains(shardId);
+    }
+
+    private static boolean isOpen(Shard shard) {
+        return shard.getSequenceNumberRange() == null
+                || shard.getSequenceNumberRange().getEndingSequenceNumber() == null;
+    }
+
+    /**
+     * Starts reading the pending shards whose parent, if still in the stream,
+     * has been processed. Must be called while holding the lock on this.
+     */
+    private void startReadableShards() {
+        Iterator<ShardReader> it = pendingShards.values().iterator();
+        while (it.hasNext()) {
+            ShardReader reader = it.next();
+            String parentShardId = reader.shard.getParentShardId();
+            if (parentShardId == null
+                    || !(pendingShards.containsKey(parentShardId)
+                         || runningShards.contains(parentShardId))) {
+                it.remove();
+                runningShards.add(reader.shardId);
+                schedule(reader, 0);
+            }
+        }
+    }
+
+    private synchronized void shardFinished(String shardId) {
+        runningShards.remove(shardId);
+        finishedShards.add(shardId);
+        startReadableShards();
+        // The children of the shard may not have been discovered yet
+        schedule(discoveryTask, 0);
+    }
+
+    private synchronized void schedule(Runnable task, long delayMillis) {
+        if (stopped) {
+            return;
+        }
+        if (delayMillis == 0) {
+            scheduler.execute(task);
+        } else {
+            scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void fail(Throwable t) {
+        if (stopped) {
+            return;
+        }
+        log.warn("Stopping the processing of the stream " + streamArn, t);
+        failure = t;
+        shutdown();
+    }
+
+    /**
+     * A task of the processor, which does nothing once the processor has been
+     * stopped, and stops the processor if it fails.
+     */
+    private abstract class Task implements Runnable {
+        @Override
+        public final void run() {
+            synchronized (StreamProcessor.this) {
+                if (stopped) {
+                    return;
+                }
+                runningTasks++;
+            }
+            try {
+                doRun();
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                synchronized (StreamProcessor.this) {
+                    runningTasks--;
+                    StreamProcessor.this.notifyAll();
+                }
+            }
+        }
+
+        abstract void doRun();
+    }
+
+    /**
+     * Reads a shard one batch of records at a time. Only one task of a given
+     * shard is scheduled at any time.
+     */
+    private final class ShardReader extends Task {
+        private final Shard shard;
+        private final String shardId;
+        private final ShardIteratorType iteratorType;
+        /** The last sequence number processed, or null. */
+        private String lastSequenceNumber;
+        private String shardIterator;
+
+        ShardReader(Shard shard, ShardIteratorType iteratorType, String checkpoint) {
+            this.shard = shard;
+            this.shardId = shard.getShardId();
+            this.iteratorType = iteratorType;
+            this.lastSequenceNumber = checkpoint;
+        }
+
+        @Override
+        void doRun() {
+            if (shardIterator == null) {
+                shardIterator = getShardIterator();
+            }
+            GetRecordsResult result;
+            try {
+                result = streams.getRecords(new GetRecordsRequest()
+                        .withShardIterator(shardIterator)
+                        .withLimit(maxRecordsPerBatch));
+            } catch (ExpiredIteratorException e) {
+                shardIterator = null;
+                schedule(this, 0);
+                return;
+            }
+
+            List<Record> records = result.getRecords();
+            boolean hasRecords = records != null && !records.isEmpty();
+            if (hasRecords) {
+                List<T> batch = new ArrayList<T>(records.size());
+                for (Record record : records) {
+                    batch.add(converter.convert(record));
+                }
+                handler.handleRecords(shardId, batch);
+                lastSequenceNumber = records.get(records.size() - 1)
+                        .getDynamodb().getSequenceNumber();
+                checkpointStore.setCheckpoint(streamArn, shardId, lastSequenceNumber);
+            }
+
+            shardIterator = result.getNextShardIterator();
+            if (shardIterator == null) {
+                checkpointStore.setCheckpoint(streamArn, shardId, SHARD_END);
+                shardFinished(shardId);
+            } else if (!hasRecords && isOpen(shard)) {
+                schedule(this, pollIntervalMillis);
+            } else {
+                schedule(this, 0);
+            }
+        }
+
+        private String getShardIterator() {
+            GetShardIteratorRequest request = new GetShardIteratorRequest()
+                .withStreamArn(streamArn)
+                .withShardId(shardId);
+            if (lastSequenceNumber == null) {
+                request.withShardIteratorType(iteratorType);
+            } else {
+                request.withShardIteratorType(ShardIteratorType.AFTER_SEQUENCE_NUMBER)
+                       .withSequenceNumber(lastSequenceNumber);
+            }
+            return streams.getShardIterator(request).getShardIterator();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.streams;
+
+import com.amazonaws.services.dynamodbv2.model.Record;
+
+/**
+ * Converts the records read from a stream before they are handed to a
+ * {@link StreamRecordsHandler}. Converters are called concurrently for the
+ * records of different shards, and must be thread-safe.
+ *
+ * @param <T>
+ *            the type of the converted records
+ * @see MapperStreamRecordConverter
+ */
+public interface StreamRecordConverter<T> {
+
+    /**
+     * Returns the given stream record converted.
+     */
+    T convert(Record record);
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.streams;
+
+import java.util.List;
+
+/**
+ * Handles the batches of records read from the shards of a stream by a
+ * {@link StreamProcessor}.
+ *
+ * @param <T>
+ *            the type of the records, as returned by the
+ *            {@link StreamRecordConverter} of the processor
+ */
+public interface StreamRecordsHandler<T> {
+
+    /**
+     * Handles a batch of records read from the given shard.
+     * <p>
+     * The batches of a shard are handled one at a time and in order, and all
+     * the records of a shard are handled before any record of its child
+     * shards, so that the changes to any given item are handled in order. The
+     * batches of different shards may be handled concurrently.
+     * <p>
+     * The batch is checkpointed once this method returns. If this method
+     * throws an exception, the processor stops without checkpointing the
+     * batch, which is then handled again when the processor is restarted from
+     * the same checkpoints.
+     *
+     * @param shardId
+     *            the id of the shard the records were read from
+     * @param records
+     *            the records, in order; never empty
+     */
+    void handleRecords(String shardId, List<T> records);
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+
+/**
+ * Limits the capacity units consumed per second by the requests sharing this
+ * object, such as the pages of a scan or query, or the segments of a parallel
+ * scan.
+ * <p>
+ * The capacity consumed by a request is only known from its response, so each
+ * request first waits for the capacity consumed by the previous ones to be paid
+ * back, via {@link #acquire()}, then reports the capacity it consumed, via
+ * {@link #consume(ConsumedCapacity)}. The requests waiting for capacity are
+ * served in order, so that concurrent users such as the segments of a parallel
+ * scan get a fair share of the budget.
+ * <p>
+ * For example, to scan a table using a quarter of its read capacity:
+ * <pre class="brush: java">
+ * CapacityRateLimiter limiter =
+ *     CapacityRateLimiter.forReadCapacity(client, "myTable", 0.25);
+ * DynamoDBMapperConfig config = new DynamoDBMapperConfig.Builder()
+ *     .withCapacityRateLimiter(limiter)
+ *     .build();
+ * mapper.parallelScan(MyItem.class, scanExpression, 4, config);
+ * </pre>
+ */
+@ThreadSafe
+public class CapacityRateLimiter {
+
+    private final double capacityUnitsPerSecond;
+    private final double maxBurst;
+
+    /** Queues the callers waiting for capacity, in order. */
+    private final ReentrantLock waiters = new ReentrantLock(true);
+
+    /** The capacity units available; negative when in debt. */
+    private double available;
+    private long lastRefillNanos;
+
+    /**
+     * Constructs a rate limiter allowing up to the given number of capacity
+     * units per second, and up to one second worth of capacity in a burst.
+     *
+     * @param capacityUnitsPerSecond
+     *            the capacity units that can be consumed per second
+     */
+    public CapacityRateLimiter(double capacityUnitsPerSecond) {
+        this(capacityUnitsPerSecond, 1.0);
+    }
+
+    /**
+     * Constructs a rate limiter allowing up to the given number of capacity
+     * units per second.
+     *
+     * @param capacityUnitsPerSecond
+     *            the capacity units that can be consumed per second
+     * @param maxBurstSeconds
+     *            the number of seconds worth of unused capacity that can be
+     *            saved up for later requests
+     */
+    public CapacityRateLimiter(double capacityUnitsPerSecond, double maxBurstSeconds) {
+        if (!(capacityUnitsPerSecond > 0)) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive number of capacity units per second");
+        }
+        if (maxBurstSeconds < 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a non-negative max burst duration");
+        }
+        this.capacityUnitsPerSecond = capacityUnitsPerSecond;
+        this.maxBurst = capacityUnitsPerSecond * maxBurstSeconds;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns a rate limiter allowing the given fraction of the provisioned
+     * read capacity of the given table.
+     *
+     * @param client
+     *            the client used to describe the table
+     * @param tableName
+     *            the name of the table
+     * @param fraction
+     *            the fraction of the provisioned read capacity, between 0
+     *            (exclusive) and 1
+     */
+    public static CapacityRateLimiter forReadCapacity(AmazonDynamoDB client,
+            String tableName, double fraction) {
+        ProvisionedThroughputDescription throughput = describeThroughput(client, tableName);
+        return new CapacityRateLimiter(
+                checkFraction(fraction) * throughput.getReadCapacityUnits());
+    }
+
+    /**
+     * Returns a rate limiter allowing the given fraction of the provisioned
+     * write capacity of the given table.
+     *
+     * @param client
+     *            the client used to describe the table
+     * @param tableName
+     *            the name of the table
+     * @param fraction
+     *            the fraction of the provisioned write capacity, between 0
+     *            (exclusive) and 1
+     */
+    public static CapacityRateLimiter forWriteCapacity(AmazonDynamoDB client,
+            String tableName, double fraction) {
+        ProvisionedThroughputDescription throughput = describeThroughput(client, tableName);
+        return new CapacityRateLimiter(
+                checkFraction(fraction) * throughput.getWriteCapacityUnits());
+    }
+
+    private static ProvisionedThroughputDescription describeThroughput(
+            AmazonDynamoDB client, String tableName) {
+        return client.describeTable(new DescribeTableRequest(tableName))
+                .getTable()
+                .getProvisionedThroughput();
+    }
+
+    private static double checkFraction(double fraction) {
+        if (!(fraction > 0 && fraction <= 1)) {
+            throw new IllegalArgumentException(
+                    "Please provide a fraction of the capacity between 0 and 1");
+        }
+        return fraction;
+    }
+
+    /**
+     * Returns the capacity units that can be consumed per second.
+     */
+    public double getCapacityUnitsPerSecond() {
+        return capacityUnitsPerSecond;
+    }
+
+    /**
+     * Waits until the capacity consumed so far has been paid back, after the
+     * other callers already waiting.
+     *
+     * @throws AmazonClientException
+     *             if the current thread is interrupted while waiting
+     */
+    public void acquire() {
+        try {
+            waiters.lockInterruptibly();
+            try {
+                long waitNanos;
+                while ((waitNanos = nanosUntilAvailable()) > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                }
+            } finally {
+                waiters.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(
+                    "Interrupted while waiting for capacity to be available.", e);
+        }
+    }
+
+    /**
+     * Records the given number of capacity units as consumed.
+     */
+    public synchronized void consume(double capacityUnits) {
+        refill(System.nanoTime());
+        available -= capacityUnits;
+    }
+
+    /**
+     * Records the capacity units consumed by a request, as returned by
+     * DynamoDB when the request asked for the consumed capacity. Does nothing
+     * if the given capacity is null.
+     */
+    public void consume(ConsumedCapacity consumedCapacity) {
+        if (consumedCapacity != null && consumedCapacity.getCapacityUnits() != null) {
+            consume(consumedCapacity.getCapacityUnits());
+        }
+    }
+
+    /**
+     * Returns the capacity units currently available; negative if the capacity
+     * consumed so far hasn't been paid back yet.
+     */
+    public synchronized double getAvailableCapacityUnits() {
+        refill(System.nanoTime());
+        return available;
+    }
+
+    private synchronized long nanosUntilAvailable() {
+        refill(System.nanoTime());
+        if (available >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-available / capacityUnitsPerSecond
+                * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed > 0) {
+            available = Math.min(maxBurst, available
+                    + elapsed * capacityUnitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+            lastRefillNanos = nowNanos;
+        }
+    }
+}
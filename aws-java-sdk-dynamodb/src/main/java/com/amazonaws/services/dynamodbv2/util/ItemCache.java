@@ -0,0 +1,624 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * An in-process cache of DynamoDB items, keyed by table name and primary key,
+ * which can be shared by {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper}
+ * (via {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig#getItemCache()})
+ * and {@link com.amazonaws.services.dynamodbv2.document.Table#setItemCache(ItemCache)}.
+ * <p>
+ * Eventually consistent reads of whole items are served from the cache when
+ * possible; strongly consistent reads always go to DynamoDB, but their results
+ * are cached. Writes made through the same mapper or table update or
+ * invalidate the cached items. Keys found to have no item are cached as
+ * well, for a separate (typically shorter) time to live.
+ * <p>
+ * The cache is bounded both by the number of items and by their estimated
+ * size in memory; the least recently used items are evicted first, and items
+ * larger than a quarter of a cache segment are not cached at all. Writes made
+ * by other clients are only picked up once the cached item expires.
+ * <p>
+ * Items read from DynamoDB are cached with
+ * {@link #putLoaded(String, Map, Map, long)}, given the version of the key
+ * taken by {@link #startLoad(String, Map)} before the read, so that a read
+ * racing with a write through this cache doesn't cache a stale item. The
+ * items are copied in and out of the cache, so that neither the items cached
+ * nor those returned share any attribute value, or buffer, with one another.
+ */
+@ThreadSafe
+public class ItemCache {
+
+    /**
+     * Returned by {@link #get(String, Map)} for a key cached as having no
+     * item.
+     */
+    public static final Map<String, AttributeValue> NO_ITEM =
+        Collections.unmodifiableMap(new HashMap<String, AttributeValue>());
+
+    /**
+     * Cached in place of a key invalidated, so that a read which started
+     * before the invalidation isn't cached after it.
+     */
+    private static final Map<String, AttributeValue> INVALIDATED =
+        Collections.unmodifiableMap(new HashMap<String, AttributeValue>());
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_ITEMS_PER_SEGMENT = 64;
+    private static final long MIN_BYTES_PER_SEGMENT = 1L << 20;
+
+    private final Segment[] segments;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+
+    /** The names of the key attributes of each table seen by the cache. */
+    private final ConcurrentMap<String, Set<String>> keyNamesByTable =
+        new ConcurrentHashMap<String, Set<String>>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Constructs a new cache, without negative caching.
+     *
+     * @param maxItems
+     *            the max number of items cached
+     * @param maxBytes
+     *            the max estimated size in memory of the items cached
+     * @param ttl
+     *            the time to live of the cached items
+     * @param unit
+     *            the unit of {@code ttl}
+     */
+    public ItemCache(int maxItems, long maxBytes, long ttl, TimeUnit unit) {
+        this(maxItems, maxBytes, ttl, 0, unit);
+    }
+
+    /**
+     * Constructs a new cache.
+     *
+     * @param maxItems
+     *            the max number of items (and missing keys) cached
+     * @param maxBytes
+     *            the max estimated size in memory of the items cached
+     * @param ttl
+     *            the time to live of the cached items
+     * @param negativeTtl
+     *            the time to live of the keys cached as having no item, or 0
+     *            to disable negative caching
+     * @param unit
+     *            the unit of {@code ttl} and {@code negativeTtl}
+     */
+    public ItemCache(int maxItems, long maxBytes, long ttl, long negativeTtl, TimeUnit unit) {
+        if ( maxItems < 1 || maxBytes < 1 ) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive max number of items and max size");
+        }
+        if ( ttl <= 0 || negativeTtl < 0 || unit == null ) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive time to live and a non-negative negative time to live");
+        }
+        int segmentCount = 1;
+        while ( segmentCount < MAX_SEGMENTS
+                && maxItems / (segmentCount * 2) >= MIN_ITEMS_PER_SEGMENT
+                && maxBytes / (segmentCount * 2) >= MIN_BYTES_PER_SEGMENT ) {
+            segmentCount *= 2;
+        }
+        this.segments = new Segment[segmentCount];
+        for ( int i = 0; i < segmentCount; i++ ) {
+            segments[i] = new Segment(
+                    Math.max(1, maxItems / segmentCount),
+                    maxBytes / segmentCount);
+        }
+        this.ttlNanos = unit.toNanos(ttl);
+        this.negativeTtlNanos = unit.toNanos(negativeTtl);
+    }
+
+    /**
+     * Returns the cached item with the given key, {@link #NO_ITEM} if the key
+     * is cached as having no item, or null if the key is not cached.
+     */
+    public Map<String, AttributeValue> get(String tableName, Map<String, AttributeValue> key) {
+        CacheKey cacheKey = new CacheKey(tableName, key);
+        Map<String, AttributeValue> item = segmentFor(cacheKey).get(cacheKey, System.nanoTime());
+        if ( item == null ) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if ( item == NO_ITEM ) {
+            negativeHitCount.incrementAndGet();
+            return NO_ITEM;
+        }
+        hitCount.incrementAndGet();
+        return copy(item);
+    }
+
+    /**
+     * Returns the current version of the given key, to be passed to
+     * {@link #putLoaded(String, Map, Map, long)} along with the item then
+     * read from DynamoDB.
+     */
+    public long startLoad(String tableName, Map<String, AttributeValue> key) {
+        CacheKey cacheKey = new CacheKey(tableName, key);
+        return segmentFor(cacheKey).version();
+    }
+
+    /**
+     * Caches the given item read from DynamoDB, or the absence of an item if
+     * {@code item} is null, unless the key has been written or invalidated
+     * since the given version was taken, in which case the item read may be
+     * stale and is dropped.
+     *
+     * @param tableName
+     *            the name of the table of the item
+     * @param key
+     *            the primary key of the item
+     * @param item
+     *            all the attributes of the item, or null if there is no item
+     *            with the given key
+     * @param version
+     *            the version returned by {@link #startLoad(String, Map)} before
+     *            the item was read
+     */
+    public void putLoaded(String tableName, Map<String, AttributeValue> key,
+            Map<String, AttributeValue> item, long version) {
+        put(tableName, key, item, version);
+    }
+
+    /**
+     * Caches the given item, or the absence of an item if {@code item} is
+     * null, as written to DynamoDB.
+     *
+     * @param tableName
+     *            the name of the table of the item
+     * @param key
+     *            the primary key of the item
+     * @param item
+     *            all the attributes of the item, or null if there is no item
+     *            with the given key
+     */
+    public void put(String tableName, Map<String, AttributeValue> key, Map<String, AttributeValue> item) {
+        put(tableName, key, item, Long.MAX_VALUE);
+    }
+
+    private void put(String tableName, Map<String, AttributeValue> key,
+            Map<String, AttributeValue> item, long version) {
+        learnKeyNames(tableName, key);
+        CacheKey cacheKey = new CacheKey(tableName, copy(key));
+        Segment segment = segmentFor(cacheKey);
+        if ( item == null ) {
+            if ( negativeTtlNanos == 0 ) {
+                segment.put(cacheKey, INVALIDATED, estimateSize(key),
+                        System.nanoTime() + ttlNanos, version);
+                return;
+            }
+            segment.put(cacheKey, NO_ITEM, estimateSize(key),
+                    System.nanoTime() + negativeTtlNanos, version);
+        } else {
+            Map<String, AttributeValue> copy = copy(item);
+            segment.put(cacheKey, copy, estimateSize(key) + estimateSize(copy),
+                    System.nanoTime() + ttlNanos, version);
+        }
+    }
+
+    /**
+     * Caches the given item, if the key attributes of its table are known to
+     * the cache (ie if any item of the table has been cached); otherwise no
+     * item of the table can be cached, and this is a no-op.
+     */
+    public void putItem(String tableName, Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = extractKey(tableName, item);
+        if ( key != null ) {
+            put(tableName, key, item);
+        }
+    }
+
+    /**
+     * Removes the item with the given key from the cache.
+     */
+    public void invalidate(String tableName, Map<String, AttributeValue> key) {
+        CacheKey cacheKey = new CacheKey(tableName, copy(key));
+        segmentFor(cacheKey).put(cacheKey, INVALIDATED, estimateSize(key),
+                System.nanoTime() + ttlNanos, Long.MAX_VALUE);
+    }
+
+    /**
+     * Removes the given item from the cache, if the key attributes of its
+     * table are known to the cache.
+     */
+    public void invalidateItem(String tableName, Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> key = extractKey(tableName, item);
+        if ( key != null ) {
+            invalidate(tableName, key);
+        }
+    }
+
+    /**
+     * Removes all the items from the cache.
+     */
+    public void invalidateAll() {
+        for ( Segment segment : segments ) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Returns the number of lookups which found a cached item.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups which found a key cached as having no
+     * item.
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount.get();
+    }
+
+    /**
+     * Returns the number of lookups which didn't find the key in the cache.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of items evicted to keep the cache within its
+     * bounds, not counting those which expired or were invalidated.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Returns the number of items (and missing or invalidated keys) currently
+     * cached, including those that have expired but have not been removed
+     * yet.
+     */
+    public int size() {
+        int size = 0;
+        for ( Segment segment : segments ) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the estimated size in memory of the items currently cached.
+     */
+    public long getSizeInBytes() {
+        long bytes = 0;
+        for ( Segment segment : segments ) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    private Segment segmentFor(CacheKey cacheKey) {
+        int h = cacheKey.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    private void learnKeyNames(String tableName, Map<String, AttributeValue> key) {
+        Set<String> keyNames = keyNamesByTable.get(tableName);
+        if ( keyNames == null || !keyNames.equals(key.keySet()) ) {
+            keyNamesByTable.put(tableName,
+                    Collections.unmodifiableSet(new HashSet<String>(key.keySet())));
+        }
+    }
+
+    private Map<String, AttributeValue> extractKey(String tableName, Map<String, AttributeValue> item) {
+        Set<String> keyNames = keyNamesByTable.get(tableName);
+        if ( keyNames == null || item == null ) {
+            return null;
+        }
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>(keyNames.size() * 2);
+        for ( String keyName : keyNames ) {
+            AttributeValue value = item.get(keyName);
+            if ( value == null ) {
+                return null;
+            }
+            key.put(keyName, value);
+        }
+        return key;
+    }
+
+    /**
+     * Returns a deep copy of the given attributes.
+     */
+    static Map<String, AttributeValue> copy(Map<String, AttributeValue> attributes) {
+        Map<String, AttributeValue> copy =
+            new HashMap<String, AttributeValue>(attributes.size() * 4 / 3 + 1);
+        for ( Map.Entry<String, AttributeValue> entry : attributes.entrySet() ) {
+            copy.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private static AttributeValue copy(AttributeValue value) {
+        if ( value == null ) {
+            return null;
+        }
+        AttributeValue copy = new AttributeValue();
+        copy.setS(value.getS());
+        copy.setN(value.getN());
+        copy.setB(copy(value.getB()));
+        copy.setBOOL(value.getBOOL());
+        copy.setNULL(value.getNULL());
+        if ( value.getSS() != null ) {
+            copy.setSS(new ArrayList<String>(value.getSS()));
+        }
+        if ( value.getNS() != null ) {
+            copy.setNS(new ArrayList<String>(value.getNS()));
+        }
+        if ( value.getBS() != null ) {
+            List<ByteBuffer> bs = new ArrayList<ByteBuffer>(value.getBS().size());
+            for ( ByteBuffer b : value.getBS() ) {
+                bs.add(copy(b));
+            }
+            copy.setBS(bs);
+        }
+        if ( value.getM() != null ) {
+            copy.setM(copy(value.getM()));
+        }
+        if ( value.getL() != null ) {
+            List<AttributeValue> l = new ArrayList<AttributeValue>(value.getL().size());
+            for ( AttributeValue element : value.getL() ) {
+                l.add(copy(element));
+            }
+            copy.setL(l);
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a copy of the remaining bytes of the given buffer, which is
+     * left as is.
+     */
+    private static ByteBuffer copy(ByteBuffer b) {
+        if ( b == null ) {
+            return null;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(b.remaining());
+        copy.put(b.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    /**
+     * Returns a rough estimate of the memory used by the given attributes.
+     */
+    static long estimateSize(Map<String, AttributeValue> attributes) {
+        long size = 48;
+        for ( Map.Entry<String, AttributeValue> entry : attributes.entrySet() ) {
+            size += 32 + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+        }
+        return size;
+    }
+
+    private static long estimateSize(AttributeValue value) {
+        if ( value == null ) {
+            return 0;
+        }
+        long size = 64;
+        size += estimateSize(value.getS());
+        size += estimateSize(value.getN());
+        size += estimateSize(value.getB());
+        size += estimateStringsSize(value.getSS());
+        size += estimateStringsSize(value.getNS());
+        if ( value.getBS() != null ) {
+            for ( ByteBuffer b : value.getBS() ) {
+                size += 16 + estimateSize(b);
+            }
+        }
+        if ( value.getM() != null ) {
+            size += estimateSize(value.getM());
+        }
+        if ( value.getL() != null ) {
+            for ( AttributeValue element : value.getL() ) {
+                size += 16 + estimateSize(element);
+            }
+        }
+        return size;
+    }
+
+    private static long estimateStringsSize(Collection<String> strings) {
+        if ( strings == null ) {
+            return 0;
+        }
+        long size = 32;
+        for ( String s : strings ) {
+            size += 16 + estimateSize(s);
+        }
+        return size;
+    }
+
+    private static long estimateSize(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    private static long estimateSize(ByteBuffer b) {
+        return b == null ? 0 : 64 + b.capacity();
+    }
+
+    private static final class CacheKey {
+        private final String tableName;
+        private final Map<String, AttributeValue> key;
+        private final int hash;
+
+        CacheKey(String tableName, Map<String, AttributeValue> key) {
+            if ( tableName == null || key == null ) {
+                throw new IllegalArgumentException("Please provide a table name and a key");
+            }
+            this.tableName = tableName;
+            this.key = key;
+            this.hash = 31 * tableName.hashCode() + key.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if ( this == obj ) {
+                return true;
+            }
+            if ( !(obj instanceof CacheKey) ) {
+                return false;
+            }
+            CacheKey other = (CacheKey) obj;
+            return hash == other.hash
+                    && tableName.equals(other.tableName)
+                    && key.equals(other.key);
+        }
+    }
+
+    private static final class Entry {
+        final Map<String, AttributeValue> item;
+        final long bytes;
+        final long expiresAt;
+        /** The version of the segment when the entry was cached. */
+        final long version;
+
+        Entry(Map<String, AttributeValue> item, long bytes, long expiresAt, long version) {
+            this.item = item;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+            this.version = version;
+        }
+    }
+
+    /**
+     * A least recently used share of the cache, guarded by its own lock.
+     */
+    private final class Segment {
+        private final int maxItems;
+        private final long maxBytes;
+        private final long maxItemBytes;
+        private final LinkedHashMap<CacheKey, Entry> entries =
+            new LinkedHashMap<CacheKey, Entry>(16, 0.75f, true);
+        private long bytes;
+        /** Incremented by every entry cached. */
+        private long version;
+        /**
+         * The latest version of the entries removed from the segment, whose
+         * keys may have been written since an older version was taken.
+         */
+        private long removedVersion;
+
+        Segment(int maxItems, long maxBytes) {
+            this.maxItems = maxItems;
+            this.maxBytes = maxBytes;
+            this.maxItemBytes = maxBytes / 4;
+        }
+
+        synchronized Map<String, AttributeValue> get(CacheKey cacheKey, long now) {
+            Entry entry = entries.get(cacheKey);
+            if ( entry == null ) {
+                return null;
+            }
+            if ( now - entry.expiresAt >= 0 ) {
+                removed(entries.remove(cacheKey));
+                return null;
+            }
+            return entry.item == INVALIDATED ? null : entry.item;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        /**
+         * Caches the given item, unless the key has been cached or removed
+         * since the given version, or Long.MAX_VALUE to cache it anyway.
+         */
+        synchronized void put(CacheKey cacheKey, Map<String, AttributeValue> item,
+                long itemBytes, long expiresAt, long sinceVersion) {
+            Entry previous = entries.get(cacheKey);
+            if ( sinceVersion != Long.MAX_VALUE
+                    && (previous != null ? previous.version : removedVersion) > sinceVersion ) {
+                return;
+            }
+            if ( previous != null ) {
+                entries.remove(cacheKey);
+                bytes -= previous.bytes;
+            }
+            if ( itemBytes > maxItemBytes ) {
+                // Too large to cache, but the key must still read as changed
+                item = INVALIDATED;
+                itemBytes = 0;
+            }
+            entries.put(cacheKey, new Entry(item, itemBytes, expiresAt, ++version));
+            bytes += itemBytes;
+
+            long now = System.nanoTime();
+            Iterator<Entry> it = entries.values().iterator();
+            while ( (entries.size() > maxItems || bytes > maxBytes) && it.hasNext() ) {
+                Entry eldest = it.next();
+                it.remove();
+                removed(eldest);
+                if ( now - eldest.expiresAt < 0 && eldest.item != INVALIDATED ) {
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+
+        private void removed(Entry entry) {
+            bytes -= entry.bytes;
+            removedVersion = Math.max(removedVersion, entry.version);
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+            removedVersion = version;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long bytes() {
+            return bytes;
+        }
+    }
+}
@@ -37,6 +37,10 @@ public final class B extends PathOperand {
         super(path);
     }
 
+    B(BindSlot slot) {
+        super(slot);
+    }
+
     /**
      * Returns an <a href=
      * "http://docs.aws.amazon.com/amazondynamodb/latest/developerguide/Expressions.SpecifyingConditions.html#ConditionExpressionReference.Functions"
@@ -35,6 +35,10 @@ public final class BOOL extends PathOperand {
         super(path);
     }
 
+    BOOL(BindSlot slot) {
+        super(slot);
+    }
+
     /**
      * Returns a <a href=
      * "http://docs.aws.amazon.com/amazondynamodb/latest/developerguide/Expressions.SpecifyingConditions.html#ConditionExpressionReference.Comparators"
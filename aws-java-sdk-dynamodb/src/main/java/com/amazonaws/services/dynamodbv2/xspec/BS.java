@@ -37,6 +37,10 @@ public final class BS extends PathOperand {
         super(path);
     }
 
+    BS(BindSlot slot) {
+        super(slot);
+    }
+
     /**
      * Returns a <a href=
      * "http://docs.aws.amazon.com/amazondynamodb/latest/developerguide/Expressions.SpecifyingConditions.html#ConditionExpressionReference.Comparators"
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.xspec;
+
+import org.apache.http.annotation.Immutable;
+
+/**
+ * An internal class to represent a named slot of an {@link ExpressionTemplate},
+ * to which a value of the given type is bound for each use of the template.
+ * A slot is substituted with a value token, like a literal value.
+ */
+@Immutable
+final class BindSlot {
+    private final String name;
+    private final String typeName;
+    private final Class<?>[] valueTypes;
+
+    /**
+     * @param name
+     *            the name of the slot
+     * @param typeName
+     *            the DynamoDB data type of the slot, such as "N"
+     * @param valueTypes
+     *            the acceptable Java types of the values bound to the slot
+     */
+    BindSlot(String name, String typeName, Class<?>... valueTypes) {
+        if (name == null || name.length() == 0)
+            throw new IllegalArgumentException("Please provide a slot name");
+        this.name = name;
+        this.typeName = typeName;
+        this.valueTypes = valueTypes;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Checks that the given value can be bound to this slot.
+     */
+    void checkValue(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Please provide a value for the slot " + name);
+        }
+        for (Class<?> valueType : valueTypes) {
+            if (valueType.isInstance(value))
+                return;
+        }
+        throw new IllegalArgumentException("The slot " + name + " of type "
+                + typeName + " cannot be bound to a value of "
+                + value.getClass());
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof BindSlot))
+            return false;
+        BindSlot that = (BindSlot) o;
+        return name.equals(that.name) && typeName.equals(that.typeName);
+    }
+
+    @Override
+    public String toString() {
+        return ":" + name;
+    }
+}
@@ -45,6 +45,17 @@ public final class DeleteItemExpressionSpec extends ExpressionSpec {
         this.valueMap = valueMap == null ? null : Collections.unmodifiableMap(valueMap);
     }
 
+    /**
+     * Constructs a copy of the given specification with the given value map.
+     *
+     * @see ExpressionTemplate
+     */
+    DeleteItemExpressionSpec(DeleteItemExpressionSpec template, Map<String, Object> valueMap) {
+        this.conditionExpression = template.conditionExpression;
+        this.nameMap = template.nameMap;
+        this.valueMap = valueMap;
+    }
+
     /**
      * Returns the condition expression; or null if there is none.
      */
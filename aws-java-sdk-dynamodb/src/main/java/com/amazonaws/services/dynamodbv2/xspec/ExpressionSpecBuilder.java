@@ -509,6 +509,55 @@ public final class ExpressionSpecBuilder implements Cloneable {
         return new PutItemExpressionSpec(this);
     }
 
+    /**
+     * Returns an expression template for use in <code>UpdateItem</code>
+     * requests to DynamoDB, with the slots created via
+     * {@link ExpressionTemplate#slotN(String)}, etc. as values.
+     */
+    public ExpressionTemplate<UpdateItemExpressionSpec> compileForUpdate() {
+        return ExpressionTemplate.forUpdate(this);
+    }
+
+    /**
+     * Returns an expression template for use in <code>PutItem</code>
+     * requests to DynamoDB.
+     *
+     * @see #compileForUpdate()
+     */
+    public ExpressionTemplate<PutItemExpressionSpec> compileForPut() {
+        return ExpressionTemplate.forPut(this);
+    }
+
+    /**
+     * Returns an expression template for use in <code>DeleteItem</code>
+     * requests to DynamoDB.
+     *
+     * @see #compileForUpdate()
+     */
+    public ExpressionTemplate<DeleteItemExpressionSpec> compileForDeleteItem() {
+        return ExpressionTemplate.forDeleteItem(this);
+    }
+
+    /**
+     * Returns an expression template for use in <code>Query</code>
+     * requests to DynamoDB.
+     *
+     * @see #compileForUpdate()
+     */
+    public ExpressionTemplate<QueryExpressionSpec> compileForQuery() {
+        return ExpressionTemplate.forQuery(this);
+    }
+
+    /**
+     * Returns an expression template for use in <code>Scan</code>
+     * requests to DynamoDB.
+     *
+     * @see #compileForUpdate()
+     */
+    public ExpressionTemplate<ScanExpressionSpec> compileForScan() {
+        return ExpressionTemplate.forScan(this);
+    }
+
     /**
      * Builds and returns the update expression to be used in a dynamodb
      * request; or null if there is none.
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.xspec;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.http.annotation.Immutable;
+
+import com.amazonaws.annotation.Beta;
+
+/**
+ * An expression specification compiled once, with named slots to which values
+ * are bound for each request. Binding values reuses the expressions, the name
+ * map and the value placeholders of the template, so that no expression is
+ * built again.
+ * <p>
+ * For example:
+ * <pre class="brush: java">
+ * import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.*;
+ * import static com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplate.*;
+ * ...
+ * // Compiled once
+ * ExpressionTemplate&lt;UpdateItemExpressionSpec> template = new ExpressionSpecBuilder()
+ *     .addUpdate(N("price").set(slotN("newPrice")))
+ *     .withCondition(N("price").eq(slotN("oldPrice")))
+ *     .compileForUpdate();
+ * ...
+ * // For each request
+ * Map&lt;String, Object> values = new HashMap&lt;String, Object>();
+ * values.put("newPrice", 12);
+ * values.put("oldPrice", 10);
+ * table.updateItem(new UpdateItemSpec()
+ *     .withPrimaryKey(HASH_KEY_NAME, hashKey)
+ *     .withExpressionSpec(template.bind(values)));
+ * </pre>
+ * <p>
+ * A slot can only be used as a value, not as an attribute to be compared or
+ * updated. The same slot can be used more than once in a template.
+ * <p>
+ * This object is as immutable (or unmodifiable) as the underlying literal
+ * values given when building the template.
+ *
+ * @param <T>
+ *            the expression specification type, such as
+ *            {@link UpdateItemExpressionSpec}
+ * @see ExpressionSpecBuilder#compileForUpdate()
+ */
+@Beta
+@Immutable
+public final class ExpressionTemplate<T> {
+    /** The specification whose value map holds the slots. */
+    private final T prototype;
+    private final SpecFactory<T> factory;
+    private final String[] valueTokens;
+    /** The values of the tokens not bound to a slot. */
+    private final Object[] literals;
+    /** The slots bound to the tokens, or null for the literal ones. */
+    private final BindSlot[] slots;
+    private final Map<String, BindSlot> slotsByName;
+
+    private ExpressionTemplate(T prototype, Map<String, Object> valueMap,
+            SpecFactory<T> factory) {
+        this.prototype = prototype;
+        this.factory = factory;
+        int size = valueMap == null ? 0 : valueMap.size();
+        this.valueTokens = new String[size];
+        this.literals = new Object[size];
+        this.slots = new BindSlot[size];
+        Map<String, BindSlot> slotsByName = new LinkedHashMap<String, BindSlot>();
+        if (valueMap != null) {
+            int i = 0;
+            for (Map.Entry<String, Object> e : valueMap.entrySet()) {
+                valueTokens[i] = e.getKey();
+                if (e.getValue() instanceof BindSlot) {
+                    BindSlot slot = (BindSlot) e.getValue();
+                    BindSlot other = slotsByName.put(slot.getName(), slot);
+                    if (other != null) {
+                        throw new IllegalArgumentException("The slot "
+                                + slot.getName() + " is used with both types "
+                                + other.getTypeName() + " and "
+                                + slot.getTypeName());
+                    }
+                    slots[i] = slot;
+                } else {
+                    literals[i] = e.getValue();
+                }
+                i++;
+            }
+        }
+        this.slotsByName = Collections.unmodifiableMap(slotsByName);
+    }
+
+    /**
+     * Returns the names of the slots of this template.
+     */
+    public Set<String> getSlotNames() {
+        return slotsByName.keySet();
+    }
+
+    /**
+     * Returns an expression specification with the given values bound to the
+     * slots of this template.
+     *
+     * @param values
+     *            the values bound to each slot, by slot name; must contain a
+     *            value of the slot's type for every slot of this template.
+     * @throws IllegalArgumentException
+     *             if a slot has no value or a value of the wrong type, or if
+     *             a value is given for an unknown slot
+     */
+    public T bind(Map<String, ?> values) {
+        if (slotsByName.isEmpty() && (values == null || values.isEmpty()))
+            return prototype;
+        if (values == null)
+            throw new IllegalArgumentException("Please provide the values of the slots " + getSlotNames());
+        Map<String, Object> valueMap = new LinkedHashMap<String, Object>(
+                valueTokens.length * 4 / 3 + 1);
+        int bound = 0;
+        for (int i = 0; i < valueTokens.length; i++) {
+            BindSlot slot = slots[i];
+            if (slot == null) {
+                valueMap.put(valueTokens[i], literals[i]);
+            } else {
+                Object value = values.get(slot.getName());
+                slot.checkValue(value);
+                valueMap.put(valueTokens[i], value);
+                bound++;
+            }
+        }
+        if (bound < values.size()) {
+            for (String name : values.keySet()) {
+                if (!slotsByName.containsKey(name))
+                    throw new IllegalArgumentException("Unknown slot " + name);
+            }
+        }
+        return factory.newSpec(prototype, Collections.unmodifiableMap(valueMap));
+    }
+
+    /**
+     * Creates the expression specifications bound to the values of a
+     * template.
+     */
+    private static abstract class SpecFactory<T> {
+        abstract T newSpec(T prototype, Map<String, Object> valueMap);
+    }
+
+    static ExpressionTemplate<UpdateItemExpressionSpec> forUpdate(ExpressionSpecBuilder builder) {
+        UpdateItemExpressionSpec prototype = builder.buildForUpdate();
+        return new ExpressionTemplate<UpdateItemExpressionSpec>(prototype,
+                prototype.getValueMap(), new SpecFactory<UpdateItemExpressionSpec>() {
+                    @Override
+                    UpdateItemExpressionSpec newSpec(UpdateItemExpressionSpec prototype,
+                            Map<String, Object> valueMap) {
+                        return new UpdateItemExpressionSpec(prototype, valueMap);
+                    }
+                });
+    }
+
+    static ExpressionTemplate<PutItemExpressionSpec> forPut(ExpressionSpecBuilder builder) {
+        PutItemExpressionSpec prototype = builder.buildForPut();
+        return new ExpressionTemplate<PutItemExpressionSpec>(prototype,
+                prototype.getValueMap(), new SpecFactory<PutItemExpressionSpec>() {
+                    @Override
+                    PutItemExpressionSpec newSpec(PutItemExpressionSpec prototype,
+                            Map<String, Object> valueMap) {
+                        return new PutItemExpressionSpec(prototype, valueMap);
+                    }
+                });
+    }
+
+    static ExpressionTemplate<DeleteItemExpressionSpec> forDeleteItem(ExpressionSpecBuilder builder) {
+        DeleteItemExpressionSpec prototype = builder.buildForDeleteItem();
+        return new ExpressionTemplate<DeleteItemExpressionSpec>(prototype,
+                prototype.getValueMap(), new SpecFactory<DeleteItemExpressionSpec>() {
+                    @Override
+                    DeleteItemExpressionSpec newSpec(DeleteItemExpressionSpec prototype,
+                            Map<String, Object> valueMap) {
+                        return new DeleteItemExpressionSpec(prototype, valueMap);
+                    }
+                });
+    }
+
+    static ExpressionTemplate<QueryExpressionSpec> forQuery(ExpressionSpecBuilder builder) {
+        QueryExpressionSpec prototype = builder.buildForQuery();
+        return new ExpressionTemplate<QueryExpressionSpec>(prototype,
+                prototype.getValueMap(), new SpecFactory<QueryExpressionSpec>() {
+                    @Override
+                    QueryExpressionSpec newSpec(QueryExpressionSpec prototype,
+                            Map<String, Object> valueMap) {
+                        return new QueryExpressionSpec(prototype, valueMap);
+                    }
+                });
+    }
+
+    static ExpressionTemplate<ScanExpressionSpec> forScan(ExpressionSpecBuilder builder) {
+        ScanExpressionSpec prototype = builder.buildForScan();
+        return new ExpressionTemplate<ScanExpressionSpec>(prototype,
+                prototype.getValueMap(), new SpecFactory<ScanExpressionSpec>() {
+                    @Override
+                    ScanExpressionSpec newSpec(ScanExpressionSpec prototype,
+                            Map<String, Object> valueMap) {
+                        return new ScanExpressionSpec(prototype, valueMap);
+                    }
+                });
+    }
+
+    /**
+     * Returns an operand standing for the number bound to the given slot of a
+     * template.
+     */
+    public static N slotN(String name) {
+        return new N(new BindSlot(name, "N", Number.class));
+    }
+
+    /**
+     * Returns an operand standing for the string bound to the given slot of a
+     * template.
+     */
+    public static S slotS(String name) {
+        return new S(new BindSlot(name, "S", String.class));
+    }
+
+    /**
+     * Returns an operand standing for the binary value (byte array or byte
+     * buffer) bound to the given slot of a template.
+     */
+    public static B slotB(String name) {
+        return new B(new BindSlot(name, "B", byte[].class, ByteBuffer.class));
+    }
+
+    /**
+     * Returns an operand standing for the boolean bound to the given slot of a
+     * template.
+     */
+    public static BOOL slotBOOL(String name) {
+        return new BOOL(new BindSlot(name, "BOOL", Boolean.class));
+    }
+
+    /**
+     * Returns an operand standing for the set of numbers bound to the given
+     * slot of a template.
+     */
+    public static NS slotNS(String name) {
+        return new NS(new BindSlot(name, "NS", Set.class));
+    }
+
+    /**
+     * Returns an operand standing for the set of strings bound to the given
+     * slot of a template.
+     */
+    public static SS slotSS(String name) {
+        return new SS(new BindSlot(name, "SS", Set.class));
+    }
+
+    /**
+     * Returns an operand standing for the set of binary values bound to the
+     * given slot of a template.
+     */
+    public static BS slotBS(String name) {
+        return new BS(new BindSlot(name, "BS", Set.class));
+    }
+
+    /**
+     * Returns an operand standing for the list bound to the given slot of a
+     * template.
+     */
+    public static L slotL(String name) {
+        return new L(new BindSlot(name, "L", List.class));
+    }
+
+    /**
+     * Returns an operand standing for the map bound to the given slot of a
+     * template.
+     */
+    public static M slotM(String name) {
+        return new M(new BindSlot(name, "M", Map.class));
+    }
+}
@@ -36,6 +36,10 @@ public final class L extends PathOperand {
         super(path);
     }
 
+    L(BindSlot slot) {
+        super(slot);
+    }
+
     /**
      * Returns a <code>SetAction</code> for adding the value of evaluating the
      * specified <code>ListAppend</code> function as an attribute to an item. If
@@ -35,6 +35,10 @@ public final class M extends PathOperand {
         super(attrName);
     }
 
+    M(BindSlot slot) {
+        super(slot);
+    }
+
     public ComparatorCondition eq(FunctionOperand value) {
         return new ComparatorCondition("=", this, value);
     }
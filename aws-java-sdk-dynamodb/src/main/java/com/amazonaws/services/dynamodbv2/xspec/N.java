@@ -32,6 +32,7 @@ import com.amazonaws.annotation.Beta;
 @Immutable
 public final class N extends PathOperand {
     N(String path) { super(path); }
+    N(BindSlot slot) { super(slot); }
 
     /**
      * Returns a <a href=
@@ -36,6 +36,10 @@ public final class NS extends PathOperand {
         super(path);
     }
 
+    NS(BindSlot slot) {
+        super(slot);
+    }
+
     /**
      * Returns a <a href=
      * "http://docs.aws.amazon.com/amazondynamodb/latest/developerguide/Expressions.SpecifyingConditions.html#ConditionExpressionReference.Comparators"
@@ -41,6 +41,8 @@ import com.amazonaws.annotation.Beta;
 public class PathOperand extends Operand {
     private final Path path;
     private final String pathString;    // This is a performance optimization; not strictly necessary.
+    /** The template slot this operand stands for; or null for a path. */
+    private final BindSlot slot;
 
     /**
      * Constructs a path operand for building expressions.
@@ -52,11 +54,24 @@ public class PathOperand extends Operand {
     PathOperand(String path) {
         this.path = new Path(path);
         this.pathString = path;
+        this.slot = null;
+    }
+
+    /**
+     * Constructs an operand standing for the value bound to the given slot of
+     * an expression template.
+     */
+    PathOperand(BindSlot slot) {
+        this.path = null;
+        this.pathString = slot.toString();
+        this.slot = slot;
     }
 
     @Override
     String asSubstituted(SubstitutionContext context) {
-        return path.asSubstituted(context);
+        return slot == null
+             ? path.asSubstituted(context)
+             : context.valueTokenFor(slot);
     }
 
     /**
@@ -115,6 +130,7 @@ public class PathOperand extends Operand {
         if (!(o instanceof PathOperand))
             return false;
         PathOperand that = (PathOperand)o;
-        return this.getPath().equals(that.getPath());
+        return this.getPath().equals(that.getPath())
+            && (slot == null ? that.slot == null : slot.equals(that.slot));
     }
 }
@@ -44,6 +44,17 @@ public class PutItemExpressionSpec extends ExpressionSpec {
         this.valueMap = valueMap == null ? null : Collections.unmodifiableMap(valueMap);
     }
 
+    /**
+     * Constructs a copy of the given specification with the given value map.
+     *
+     * @see ExpressionTemplate
+     */
+    PutItemExpressionSpec(PutItemExpressionSpec template, Map<String, Object> valueMap) {
+        this.conditionExpression = template.conditionExpression;
+        this.nameMap = template.nameMap;
+        this.valueMap = valueMap;
+    }
+
     /**
      * Returns the condition expression; or null if there is none.
      */
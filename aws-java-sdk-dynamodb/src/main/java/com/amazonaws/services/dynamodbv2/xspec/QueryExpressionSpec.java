@@ -50,6 +50,19 @@ public final class QueryExpressionSpec extends ExpressionSpec {
         this.valueMap = valueMap == null ? null : Collections.unmodifiableMap(valueMap);
     }
 
+    /**
+     * Constructs a copy of the given specification with the given value map.
+     *
+     * @see ExpressionTemplate
+     */
+    QueryExpressionSpec(QueryExpressionSpec template, Map<String, Object> valueMap) {
+        this.keyConditionExpression = template.keyConditionExpression;
+        this.filterExpression = template.filterExpression;
+        this.projectionExpression = template.projectionExpression;
+        this.nameMap = template.nameMap;
+        this.valueMap = valueMap;
+    }
+
     /**
      * Returns the projection expression; or null if there is none.
      */
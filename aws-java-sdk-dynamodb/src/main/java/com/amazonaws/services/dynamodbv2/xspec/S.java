@@ -32,6 +32,7 @@ import com.amazonaws.annotation.Beta;
 @Immutable
 public final class S extends PathOperand {
     S(String path) { super(path); }
+    S(BindSlot slot) { super(slot); }
 
     /**
      * Returns a <a href=
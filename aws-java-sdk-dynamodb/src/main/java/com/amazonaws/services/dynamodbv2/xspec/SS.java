@@ -36,6 +36,10 @@ public final class SS extends PathOperand {
         super(path);
     }
 
+    SS(BindSlot slot) {
+        super(slot);
+    }
+
     /**
      * Returns a <a href=
      * "http://docs.aws.amazon.com/amazondynamodb/latest/developerguide/Expressions.SpecifyingConditions.html#ConditionExpressionReference.Comparators"
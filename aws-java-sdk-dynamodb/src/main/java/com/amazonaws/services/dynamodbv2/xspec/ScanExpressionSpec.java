@@ -47,6 +47,18 @@ public final class ScanExpressionSpec extends ExpressionSpec {
         this.valueMap = valueMap == null ? null : Collections.unmodifiableMap(valueMap);
     }
 
+    /**
+     * Constructs a copy of the given specification with the given value map.
+     *
+     * @see ExpressionTemplate
+     */
+    ScanExpressionSpec(ScanExpressionSpec template, Map<String, Object> valueMap) {
+        this.filterExpression = template.filterExpression;
+        this.projectionExpression = template.projectionExpression;
+        this.nameMap = template.nameMap;
+        this.valueMap = valueMap;
+    }
+
     /**
      * Returns the projection expression; or null if there is none.
      */
@@ -46,6 +46,18 @@ public class UpdateItemExpressionSpec extends ExpressionSpec {
         this.valueMap = valueMap == null ? null : Collections.unmodifiableMap(valueMap);
     }
 
+    /**
+     * Constructs a copy of the given specification with the given value map.
+     *
+     * @see ExpressionTemplate
+     */
+    UpdateItemExpressionSpec(UpdateItemExpressionSpec template, Map<String, Object> valueMap) {
+        this.updateExpression = template.updateExpression;
+        this.conditionExpression = template.conditionExpression;
+        this.nameMap = template.nameMap;
+        this.valueMap = valueMap;
+    }
+
     /**
      * Returns the update expression; or null if there is none.
      */
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+
+public class BatchLoadTaskTest {
+
+    private static Map<String, AttributeValue> key(int i) {
+        return Collections.singletonMap("hash", new AttributeValue().withN(Integer.toString(i)));
+    }
+
+    /**
+     * Returns every key as an item, except for up to the given number of keys
+     * (and at most half of the keys) per request, which are returned as
+     * unprocessed.
+     */
+    private static class EchoTask extends BatchLoadTask {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        final Set<String> loaded = new HashSet<String>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final Thread caller = Thread.currentThread();
+        volatile int unprocessedPerRequest;
+        volatile boolean throttled;
+        int duplicates;
+        int pauses;
+
+        EchoTask(int maxConcurrency) {
+            super(maxConcurrency, DynamoDBMapper.BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS, false);
+        }
+
+        @Override
+        protected BatchGetItemResult batchGetItem(Map<String, KeysAndAttributes> requestItems) {
+            int current = inFlight.incrementAndGet();
+            synchronized (maxInFlight) {
+                maxInFlight.set(Math.max(maxInFlight.get(), current));
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int size = 0;
+            for ( KeysAndAttributes keysAndAttributes : requestItems.values() ) {
+                size += keysAndAttributes.getKeys().size();
+            }
+            int toSkip = throttled ? size : Math.min(unprocessedPerRequest, size / 2);
+            Map<String, List<Map<String, AttributeValue>>> responses =
+                new HashMap<String, List<Map<String, AttributeValue>>>();
+            Map<String, KeysAndAttributes> unprocessedKeys = new HashMap<String, KeysAndAttributes>();
+            for ( Entry<String, KeysAndAttributes> entry : requestItems.entrySet() ) {
+                List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+                List<Map<String, AttributeValue>> skipped = new ArrayList<Map<String, AttributeValue>>();
+                for ( Map<String, AttributeValue> key : entry.getValue().getKeys() ) {
+                    if ( toSkip > 0 ) {
+                        toSkip--;
+                        skipped.add(key);
+                    } else {
+                        items.add(key);
+                    }
+                }
+                responses.put(entry.getKey(), items);
+                if ( !skipped.isEmpty() ) {
+                    unprocessedKeys.put(entry.getKey(), new KeysAndAttributes().withKeys(skipped));
+                }
+            }
+            batchSizes.add(size);
+            inFlight.decrementAndGet();
+            return new BatchGetItemResult().withResponses(responses).withUnprocessedKeys(unprocessedKeys);
+        }
+
+        @Override
+        protected void onItemsLoaded(String tableName, List<Map<String, AttributeValue>> items) {
+            assertTrue(Thread.currentThread() == caller);
+            for ( Map<String, AttributeValue> item : items ) {
+                if ( !loaded.add(tableName + "/" + item.get("hash").getN()) ) {
+                    duplicates++;
+                }
+            }
+        }
+
+        @Override
+        protected void pauseBeforeRetry(int retries) {
+            pauses++;
+        }
+    }
+
+    @Test
+    public void testDuplicateKeysAreRequestedOnce() {
+        EchoTask task = new EchoTask(1);
+        for ( int i = 0; i < 250; i++ ) {
+            task.addKey(i % 2 == 0 ? "a" : "b", key(i % 200));
+        }
+        task.load();
+        assertEquals(200, task.loaded.size());
+        assertEquals(0, task.duplicates);
+        assertEquals(2, task.batchSizes.size());
+        assertEquals(100, (int) task.batchSizes.get(0));
+        assertEquals(100, (int) task.batchSizes.get(1));
+    }
+
+    @Test
+    public void testUnprocessedKeysAreMergedIntoNextBatch() {
+        EchoTask task = new EchoTask(1);
+        task.unprocessedPerRequest = 30;
+        for ( int i = 0; i < 150; i++ ) {
+            task.addKey("table", key(i));
+        }
+        task.load();
+        assertEquals(150, task.loaded.size());
+        // 100 keys, then the 30 unprocessed ones along with the last 50 keys
+        assertEquals(100, (int) task.batchSizes.get(0));
+        assertEquals(80, (int) task.batchSizes.get(1));
+        assertEquals(30, (int) task.batchSizes.get(2));
+        assertEquals(0, task.pauses);
+    }
+
+    @Test
+    public void testConcurrentRequests() {
+        EchoTask task = new EchoTask(4);
+        task.unprocessedPerRequest = 10;
+        for ( int i = 0; i < 2000; i++ ) {
+            task.addKey("table" + (i % 3), key(i));
+        }
+        task.load();
+        assertEquals(2000, task.loaded.size());
+        assertEquals(0, task.duplicates);
+        assertTrue(task.maxInFlight.get() > 1);
+        assertTrue(task.maxInFlight.get() <= 4);
+        for ( int size : task.batchSizes ) {
+            assertTrue(size <= BatchLoadTask.MAX_KEYS_PER_BATCH);
+        }
+    }
+
+    @Test
+    public void testNoProgressFailsAfterMaxRetries() {
+        EchoTask task = new EchoTask(1);
+        task.throttled = true;
+        task.addKey("table", key(0));
+        try {
+            task.load();
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException expected) {
+        }
+        assertEquals(DynamoDBMapper.BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS, task.pauses);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.ConsistentReads;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.SaveBehavior;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.util.ItemCache;
+
+public class DynamoDBMapperItemCacheTest {
+
+    private static final String TABLE_NAME = "tableName";
+
+    private AmazonDynamoDB ddbMock;
+    private ItemCache itemCache;
+    private DynamoDBMapper mapper;
+
+    @Before
+    public void setup() {
+        ddbMock = createMock(AmazonDynamoDB.class);
+        itemCache = new ItemCache(100, 1 << 20, 1, 1, TimeUnit.HOURS);
+        mapper = new DynamoDBMapper(ddbMock, new DynamoDBMapperConfig.Builder()
+                .withItemCache(itemCache)
+                .build());
+    }
+
+    @Test
+    public void testLoadIsServedFromCache() {
+        expect(ddbMock.getItem(isA(GetItemRequest.class)))
+                .andReturn(new GetItemResult().withItem(item("foo", "bar")))
+                .once();
+        replay(ddbMock);
+
+        assertEquals("bar", mapper.load(Item.class, "foo").getValue());
+        assertEquals("bar", mapper.load(Item.class, "foo").getValue());
+        verify(ddbMock);
+
+        assertEquals(1, itemCache.getMissCount());
+        assertEquals(1, itemCache.getHitCount());
+    }
+
+    @Test
+    public void testMissingItemIsCached() {
+        expect(ddbMock.getItem(isA(GetItemRequest.class)))
+                .andReturn(new GetItemResult())
+                .once();
+        replay(ddbMock);
+
+        assertNull(mapper.load(Item.class, "foo"));
+        assertNull(mapper.load(Item.class, "foo"));
+        verify(ddbMock);
+
+        assertEquals(1, itemCache.getNegativeHitCount());
+    }
+
+    @Test
+    public void testConsistentReadBypassesCache() {
+        expect(ddbMock.getItem(isA(GetItemRequest.class)))
+                .andReturn(new GetItemResult().withItem(item("foo", "bar")))
+                .times(2);
+        replay(ddbMock);
+
+        DynamoDBMapperConfig consistent = new DynamoDBMapperConfig(ConsistentReads.CONSISTENT);
+        mapper.load(Item.class, "foo", consistent);
+        mapper.load(Item.class, "foo", consistent);
+        verify(ddbMock);
+
+        assertEquals(0, itemCache.getHitCount());
+        assertEquals(1, itemCache.size());
+    }
+
+    @Test
+    public void testSaveWritesThrough() {
+        expect(ddbMock.putItem(isA(PutItemRequest.class)))
+                .andReturn(new PutItemResult())
+                .once();
+        replay(ddbMock);
+
+        mapper.save(new Item("foo", "baz"), new DynamoDBMapperConfig(SaveBehavior.CLOBBER));
+        assertEquals("baz", mapper.load(Item.class, "foo").getValue());
+        verify(ddbMock);
+    }
+
+    @Test
+    public void testDeleteWritesThrough() {
+        expect(ddbMock.getItem(isA(GetItemRequest.class)))
+                .andReturn(new GetItemResult().withItem(item("foo", "bar")))
+                .once();
+        expect(ddbMock.deleteItem(isA(DeleteItemRequest.class)))
+                .andReturn(new DeleteItemResult())
+                .once();
+        replay(ddbMock);
+
+        Item item = mapper.load(Item.class, "foo");
+        mapper.delete(item);
+        assertNull(mapper.load(Item.class, "foo"));
+        verify(ddbMock);
+    }
+
+    private static Map<String, AttributeValue> item(String hash, String value) {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("hash", new AttributeValue(hash));
+        item.put("value", new AttributeValue(value));
+        return item;
+    }
+
+    @DynamoDBTable(tableName = TABLE_NAME)
+    public static class Item {
+
+        private String hash;
+        private String value;
+
+        public Item() {
+        }
+
+        public Item(String hash, String value) {
+            this.hash = hash;
+            this.value = value;
+        }
+
+        @DynamoDBHashKey
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+}
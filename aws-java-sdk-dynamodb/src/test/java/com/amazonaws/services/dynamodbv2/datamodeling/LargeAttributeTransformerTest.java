@@ -0,0 +1,192 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.util.IOUtils;
+
+public class LargeAttributeTransformerTest {
+
+    private static AttributeTransformer.Parameters<Object> parameters(
+            final Map<String, AttributeValue> values) {
+        return new AttributeTransformer.Parameters<Object>() {
+            public Map<String, AttributeValue> getAttributeValues() { return values; }
+            public boolean isPartialUpdate() { return false; }
+            public Class<Object> getModelClass() { return Object.class; }
+            public DynamoDBMapperConfig getMapperConfig() { return DynamoDBMapperConfig.DEFAULT; }
+            public String getTableName() { return "table"; }
+            public String getHashKeyName() { return "hash"; }
+            public String getRangeKeyName() { return null; }
+        };
+    }
+
+    private static String largeString(int size) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append("{\"field\":").append(i).append("},");
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, AttributeValue> roundTrip(AttributeTransformer transformer,
+            Map<String, AttributeValue> item) {
+        return transformer.untransform(parameters(transformer.transform(parameters(item))));
+    }
+
+    @Test
+    public void testLargeAttributesAreCompressed() {
+        LargeAttributeTransformer transformer = new LargeAttributeTransformer()
+            .withCompressionThreshold(100);
+        for (LargeAttributeTransformer.Compression compression
+                : LargeAttributeTransformer.Compression.values()) {
+            transformer.withCompression(compression);
+            Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+            item.put("hash", new AttributeValue().withS(largeString(1000)));
+            item.put("small", new AttributeValue().withS("small"));
+            item.put("json", new AttributeValue().withS(largeString(1000)));
+            item.put("binary", new AttributeValue().withB(
+                    ByteBuffer.wrap(largeString(1000).getBytes())));
+            item.put("number", new AttributeValue().withN("1"));
+
+            Map<String, AttributeValue> transformed = transformer.transform(parameters(item));
+            assertSame(item.get("hash"), transformed.get("hash"));
+            assertSame(item.get("small"), transformed.get("small"));
+            assertSame(item.get("number"), transformed.get("number"));
+            assertNull(transformed.get("json").getS());
+            assertTrue(transformed.get("json").getB().remaining() < 500);
+            assertTrue(transformed.get("binary").getB().remaining() < 500);
+
+            assertEquals(item, transformer.untransform(parameters(transformed)));
+        }
+    }
+
+    @Test
+    public void testSelectedAttributesOnly() {
+        LargeAttributeTransformer transformer = new LargeAttributeTransformer()
+            .withCompressionThreshold(100)
+            .withAttributeNames("json");
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("json", new AttributeValue().withS(largeString(1000)));
+        item.put("other", new AttributeValue().withS(largeString(1000)));
+        Map<String, AttributeValue> transformed = transformer.transform(parameters(item));
+        assertNotNull(transformed.get("json").getB());
+        assertSame(item.get("other"), transformed.get("other"));
+    }
+
+    @Test
+    public void testBinaryValueLookingEncodedIsPreserved() {
+        LargeAttributeTransformer transformer = new LargeAttributeTransformer();
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("binary", new AttributeValue().withB(ByteBuffer.wrap(
+                new byte[] { (byte) 0xD1, (byte) 0xA7, (byte) 0x7A, 1, 'S', 0, 0 })));
+        Map<String, AttributeValue> transformed = transformer.transform(parameters(item));
+        assertEquals(14, transformed.get("binary").getB().remaining());
+        assertEquals(item, transformer.untransform(parameters(transformed)));
+    }
+
+    @Test
+    public void testBufferPositionIsHonored() {
+        LargeAttributeTransformer transformer = new LargeAttributeTransformer();
+        ByteBuffer buffer = ByteBuffer.wrap(
+                new byte[] { 'x', 'x', (byte) 0xD1, (byte) 0xA7, (byte) 0x7A, 1, 'S', 0, 0 });
+        buffer.position(2);
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("binary", new AttributeValue().withB(buffer.slice()));
+        item.put("positioned", new AttributeValue().withB(buffer));
+        Map<String, AttributeValue> transformed = transformer.transform(parameters(item));
+        assertEquals(14, transformed.get("binary").getB().remaining());
+        assertEquals(14, transformed.get("positioned").getB().remaining());
+        assertEquals(2, buffer.position());
+
+        Map<String, AttributeValue> untransformed = transformer.untransform(parameters(transformed));
+        assertEquals(buffer, untransformed.get("binary").getB());
+        assertEquals(buffer, untransformed.get("positioned").getB());
+    }
+
+    @Test
+    public void testIncompressibleAttributeIsUnchanged() {
+        LargeAttributeTransformer transformer = new LargeAttributeTransformer()
+            .withCompressionThreshold(10);
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("s", new AttributeValue().withS("0123456789a"));
+        assertEquals(item, transformer.transform(parameters(item)));
+    }
+
+    @Test
+    public void testVeryLargeAttributesAreOffloaded() {
+        final Map<String, byte[]> objects = new HashMap<String, byte[]>();
+        AmazonS3Client s3 = new AmazonS3Client(new BasicAWSCredentials("mock", "mock")) {
+            @Override
+            public PutObjectResult putObject(PutObjectRequest request) {
+                try {
+                    objects.put(request.getKey(), IOUtils.toByteArray(request.getInputStream()));
+                } catch (IOException e) {
+                    throw new AmazonClientException(e.getMessage(), e);
+                }
+                return new PutObjectResult();
+            }
+
+            @Override
+            public S3Object getObject(GetObjectRequest request) {
+                S3Object object = new S3Object();
+                InputStream in = new ByteArrayInputStream(objects.get(request.getKey()));
+                object.setObjectContent(new S3ObjectInputStream(in, null));
+                object.setObjectMetadata(new ObjectMetadata());
+                return object;
+            }
+        };
+        S3ClientCache s3cc = new S3ClientCache(new BasicAWSCredentials("mock", "mock"));
+        s3cc.useClient(s3);
+
+        LargeAttributeTransformer transformer = new LargeAttributeTransformer()
+            .withCompressionThreshold(100)
+            .withS3Offload(s3cc, null, "bucket", "prefix/", 1000);
+        StringBuilder random = new StringBuilder();
+        for (int i = 0; i < 4000; i++) {
+            random.append(Integer.toHexString((int) (Math.random() * 16)));
+        }
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("json", new AttributeValue().withS(largeString(1000)));
+        item.put("random", new AttributeValue().withS(random.toString()));
+
+        assertEquals(item, roundTrip(transformer, item));
+        assertEquals(1, objects.size());
+        assertTrue(objects.keySet().iterator().next().startsWith("prefix/table/"));
+    }
+}
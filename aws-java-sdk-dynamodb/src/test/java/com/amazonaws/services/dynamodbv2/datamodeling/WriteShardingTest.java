@@ -0,0 +1,369 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.SaveBehavior;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+public class WriteShardingTest {
+
+    private static final DynamoDBMapperConfig CLOBBER = new DynamoDBMapperConfig(SaveBehavior.CLOBBER);
+
+    /**
+     * A table keyed by "hash" and, optionally, "range", which returns one item
+     * per query page.
+     */
+    private static class FakeTable extends AbstractAmazonDynamoDB {
+        final Map<String, List<Map<String, AttributeValue>>> items =
+                new HashMap<String, List<Map<String, AttributeValue>>>();
+
+        @Override
+        public synchronized PutItemResult putItem(PutItemRequest request) {
+            String hash = request.getItem().get("hash").getS();
+            List<Map<String, AttributeValue>> hashItems = items.get(hash);
+            if (hashItems == null) {
+                hashItems = new ArrayList<Map<String, AttributeValue>>();
+                items.put(hash, hashItems);
+            }
+            for (int i = 0; i < hashItems.size(); i++) {
+                if (!request.getItem().containsKey("range") || hashItems.get(i).get("range")
+                        .equals(request.getItem().get("range"))) {
+                    hashItems.set(i, request.getItem());
+                    return new PutItemResult();
+                }
+            }
+            hashItems.add(request.getItem());
+            return new PutItemResult();
+        }
+
+        @Override
+        public synchronized GetItemResult getItem(GetItemRequest request) {
+            List<Map<String, AttributeValue>> hashItems =
+                    items.get(request.getKey().get("hash").getS());
+            if (hashItems != null) {
+                for (Map<String, AttributeValue> item : hashItems) {
+                    if (!request.getKey().containsKey("range")
+                            || item.get("range").equals(request.getKey().get("range"))) {
+                        return new GetItemResult().withItem(item);
+                    }
+                }
+            }
+            return new GetItemResult();
+        }
+
+        @Override
+        public synchronized QueryResult query(QueryRequest request) {
+            String hash = request.getKeyConditions().get("hash").getAttributeValueList().get(0).getS();
+            List<Map<String, AttributeValue>> hashItems = items.get(hash);
+            if (hashItems == null) {
+                hashItems = Collections.emptyList();
+            }
+            int index = request.getExclusiveStartKey() == null
+                    ? 0
+                    : Integer.parseInt(request.getExclusiveStartKey().get("index").getN());
+            QueryResult result = new QueryResult()
+                .withItems(index < hashItems.size()
+                        ? Collections.singletonList(hashItems.get(index))
+                        : Collections.<Map<String, AttributeValue>>emptyList());
+            if (index + 1 < hashItems.size()) {
+                result.setLastEvaluatedKey(Collections.singletonMap("index",
+                        new AttributeValue().withN(String.valueOf(index + 1))));
+            }
+            return result.withCount(result.getItems().size());
+        }
+
+        @Override
+        public synchronized BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+            for (List<WriteRequest> writeRequests : request.getRequestItems().values()) {
+                for (WriteRequest writeRequest : writeRequests) {
+                    Map<String, AttributeValue> key = writeRequest.getDeleteRequest().getKey();
+                    List<Map<String, AttributeValue>> hashItems = items.get(key.get("hash").getS());
+                    for (int i = 0; hashItems != null && i < hashItems.size(); i++) {
+                        if (!key.containsKey("range")
+                                || hashItems.get(i).get("range").equals(key.get("range"))) {
+                            hashItems.remove(i--);
+                        }
+                    }
+                    if (hashItems != null && hashItems.isEmpty()) {
+                        items.remove(key.get("hash").getS());
+                    }
+                }
+            }
+            return new BatchWriteItemResult()
+                .withUnprocessedItems(new HashMap<String, List<WriteRequest>>());
+        }
+    }
+
+    private FakeTable table;
+    private DynamoDBMapper mapper;
+
+    @Before
+    public void setup() {
+        table = new FakeTable();
+        mapper = new DynamoDBMapper(table);
+    }
+
+    @Test
+    public void testShardIsStable() throws Exception {
+        WriteSharding sharding = new WriteSharding(RangeItem.class.getMethod("getHash")
+                .getAnnotation(DynamoDBWriteSharded.class), "hash", "range");
+        assertEquals(sharding.shardOf(new AttributeValue().withN("1.50")),
+                sharding.shardOf(new AttributeValue().withN("1.5")));
+        assertEquals(0, sharding.shardOf(new AttributeValue().withN("0.00")));
+        assertEquals(("abc".hashCode() & Integer.MAX_VALUE) % 4,
+                sharding.shardOf(new AttributeValue("abc")));
+
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("hash", new AttributeValue("a#b"));
+        item.put("range", new AttributeValue("abc"));
+        Map<String, AttributeValue> sharded = sharding.shardItem(item);
+        assertEquals("a#b#" + sharding.shardOf(new AttributeValue("abc")),
+                sharded.get("hash").getS());
+        assertEquals(item, sharding.unshardItem(sharded));
+    }
+
+    @Test
+    public void testKeysCompareAsInDynamoDB() {
+        assertTrue(WriteSharding.compareKeys(new AttributeValue().withN("9"),
+                new AttributeValue().withN("10")) < 0);
+        assertTrue(WriteSharding.compareKeys(new AttributeValue("Z"),
+                new AttributeValue("a")) < 0);
+        assertTrue(WriteSharding.compareKeys(new AttributeValue("\uFFFF"),
+                new AttributeValue("\uD83D\uDE00")) < 0);
+    }
+
+    @Test
+    public void testItemsWithRangeKeyAreSpreadAcrossShards() {
+        for (int i = 0; i < 20; i++) {
+            mapper.save(new RangeItem("hot", i, "value" + i), CLOBBER);
+        }
+        assertTrue(table.items.size() > 1);
+        for (String hash : table.items.keySet()) {
+            assertTrue(hash.startsWith("hot#"));
+        }
+
+        RangeItem loaded = mapper.load(RangeItem.class, "hot", 7);
+        assertEquals("hot", loaded.getHash());
+        assertEquals("value7", loaded.getValue());
+
+        List<RangeItem> all = mapper.queryAllShards(RangeItem.class,
+                new DynamoDBQueryExpression<RangeItem>()
+                    .withHashKeyValues(new RangeItem("hot", null, null)));
+        assertEquals(20, all.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Integer.valueOf(i), all.get(i).getRange());
+            assertEquals("hot", all.get(i).getHash());
+        }
+
+        List<RangeItem> loadedAll = mapper.loadAllShards(RangeItem.class, "hot");
+        assertEquals(20, loadedAll.size());
+        assertEquals(Integer.valueOf(0), loadedAll.get(0).getRange());
+
+        List<RangeItem> descending = mapper.queryAllShards(RangeItem.class,
+                new DynamoDBQueryExpression<RangeItem>()
+                    .withHashKeyValues(new RangeItem("hot", null, null))
+                    .withScanIndexForward(false));
+        assertEquals(Integer.valueOf(19), descending.get(0).getRange());
+    }
+
+    @Test
+    public void testQueryOnShardedHashKeyIsRejected() {
+        try {
+            mapper.query(RangeItem.class, new DynamoDBQueryExpression<RangeItem>()
+                    .withHashKeyValues(new RangeItem("hot", null, null)));
+            fail("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+    }
+
+    @Test
+    public void testHashOnlyItemsAreAggregated() {
+        for (int i = 1; i <= 10; i++) {
+            mapper.save(new CounterItem("hot", i), CLOBBER);
+        }
+        Set<String> hashes = new HashSet<String>(table.items.keySet());
+        assertTrue(hashes.size() <= 2);
+        for (String hash : hashes) {
+            assertTrue(hash.startsWith("hot~"));
+        }
+
+        List<CounterItem> shards = mapper.loadAllShards(CounterItem.class, "hot");
+        assertEquals(hashes.size(), shards.size());
+        BigDecimal sum = BigDecimal.ZERO;
+        for (CounterItem shard : shards) {
+            assertEquals("hot", shard.getHash());
+            sum = sum.add(BigDecimal.valueOf(shard.getCount()));
+        }
+        assertEquals(0, sum.compareTo(mapper.sumAllShards(CounterItem.class, "hot", "count")));
+        assertTrue(mapper.loadAllShards(CounterItem.class, "cold").isEmpty());
+
+        try {
+            mapper.load(CounterItem.class, "hot");
+            fail("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+    }
+
+    @Test
+    public void testAllShardsAreDeleted() {
+        for (int i = 1; i <= 10; i++) {
+            mapper.save(new CounterItem("hot", i), CLOBBER);
+            mapper.save(new RangeItem("hot", i, "v"), CLOBBER);
+        }
+        mapper.save(new RangeItem("cold", 1, "v"), CLOBBER);
+
+        assertTrue(mapper.deleteAllShards(CounterItem.class, "hot").isEmpty());
+        assertTrue(mapper.loadAllShards(CounterItem.class, "hot").isEmpty());
+
+        assertTrue(mapper.deleteAllShards(RangeItem.class, "hot").isEmpty());
+        assertTrue(mapper.loadAllShards(RangeItem.class, "hot").isEmpty());
+        assertEquals(1, mapper.loadAllShards(RangeItem.class, "cold").size());
+    }
+
+    @Test
+    public void testVersionedHashOnlyClassIsRejected() {
+        try {
+            mapper.save(new VersionedCounterItem());
+            fail("Expected a DynamoDBMappingException");
+        } catch (DynamoDBMappingException expected) {
+        }
+    }
+
+    @DynamoDBTable(tableName = "range")
+    public static class RangeItem {
+        private String hash;
+        private Integer range;
+        private String value;
+
+        public RangeItem() {
+        }
+
+        public RangeItem(String hash, Integer range, String value) {
+            this.hash = hash;
+            this.range = range;
+            this.value = value;
+        }
+
+        @DynamoDBHashKey
+        @DynamoDBWriteSharded(shardCount = 4)
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        @DynamoDBRangeKey
+        public Integer getRange() {
+            return range;
+        }
+
+        public void setRange(Integer range) {
+            this.range = range;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+
+    @DynamoDBTable(tableName = "counter")
+    public static class CounterItem {
+        private String hash;
+        private long count;
+
+        public CounterItem() {
+        }
+
+        public CounterItem(String hash, long count) {
+            this.hash = hash;
+            this.count = count;
+        }
+
+        @DynamoDBHashKey
+        @DynamoDBWriteSharded(shardCount = 2, separator = "~")
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+
+    @DynamoDBTable(tableName = "counter")
+    public static class VersionedCounterItem {
+        private String hash = "hot";
+        private Long version;
+
+        @DynamoDBHashKey
+        @DynamoDBWriteSharded(shardCount = 2)
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        @DynamoDBVersionAttribute
+        public Long getVersion() {
+            return version;
+        }
+
+        public void setVersion(Long version) {
+            this.version = version;
+        }
+    }
+}
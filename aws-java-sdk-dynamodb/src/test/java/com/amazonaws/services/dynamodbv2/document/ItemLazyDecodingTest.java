@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.document;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.document.internal.InternalUtils;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+public class ItemLazyDecodingTest {
+
+    /**
+     * Returns an item without binary attributes, which are compared by
+     * identity by {@link Item#equals(Object)}.
+     */
+    private static Map<String, AttributeValue> lowLevelItem() {
+        Map<String, AttributeValue> item = new LinkedHashMap<String, AttributeValue>();
+        item.put("id", new AttributeValue().withS("abc"));
+        item.put("count", new AttributeValue().withN("42"));
+        item.put("price", new AttributeValue().withN("1.50"));
+        item.put("tags", new AttributeValue().withSS("a", "b"));
+        item.put("scores", new AttributeValue().withNS("1", "2"));
+        item.put("flag", new AttributeValue().withBOOL(true));
+        item.put("nothing", new AttributeValue().withNULL(true));
+        item.put("list", new AttributeValue().withL(
+                new AttributeValue().withS("x"), new AttributeValue().withN("7")));
+        item.put("map", new AttributeValue().withM(
+                Collections.singletonMap("nested", new AttributeValue().withS("y"))));
+        return item;
+    }
+
+    @Test
+    public void testLazyItemEqualsEagerItem() {
+        Item eager = InternalUtils.toItemList(Arrays.asList(lowLevelItem())).get(0);
+        Item lazy = Item.fromAttributeValues(lowLevelItem());
+        assertEquals(eager, lazy);
+        assertEquals(eager.hashCode(), lazy.hashCode());
+        assertEquals(eager.toJSON(), Item.fromAttributeValues(lowLevelItem()).toJSON());
+        assertEquals(eager.asMap(), Item.fromAttributeValues(lowLevelItem()).asMap());
+    }
+
+    @Test
+    public void testAttributesAreDecodedOnAccess() {
+        Map<String, AttributeValue> lowLevelItem = lowLevelItem();
+        lowLevelItem.put("data", new AttributeValue().withB(ByteBuffer.wrap(new byte[] {1, 2, 3})));
+        Item item = Item.fromAttributeValues(lowLevelItem);
+        assertEquals(10, item.numberOfAttributes());
+        assertEquals("abc", item.getString("id"));
+        assertEquals(42, item.getInt("count"));
+        assertEquals(new BigDecimal("1.50"), item.getNumber("price"));
+        assertArrayEquals(new byte[] {1, 2, 3}, item.getBinary("data"));
+        assertEquals(2, item.getStringSet("tags").size());
+        assertEquals(2, item.getNumberSet("scores").size());
+        assertTrue(item.getBoolean("flag"));
+        assertTrue(item.isPresent("nothing"));
+        assertTrue(item.isNull("nothing"));
+        List<Object> list = item.getList("list");
+        assertEquals("x", list.get(0));
+        assertEquals(new BigDecimal(7), list.get(1));
+        assertEquals("y", item.getMap("map").get("nested"));
+        assertEquals(String.class, item.getTypeOf("id"));
+        assertNull(item.get("missing"));
+    }
+
+    @Test
+    public void testModifiedLazyItem() {
+        Item item = Item.fromAttributeValues(lowLevelItem())
+                .withString("id", "def")
+                .removeAttribute("tags");
+        assertEquals("def", item.getString("id"));
+        assertFalse(item.hasAttribute("tags"));
+
+        Map<String, AttributeValue> expected = lowLevelItem();
+        expected.put("id", new AttributeValue().withS("def"));
+        expected.remove("tags");
+        assertEquals(
+                InternalUtils.toItemList(Arrays.asList(expected)).get(0),
+                item);
+        // the attributes keep their order
+        assertEquals(expected.keySet(), item.asMap().keySet());
+        assertEquals(Arrays.asList(expected.keySet().toArray()),
+                Arrays.asList(item.asMap().keySet().toArray()));
+    }
+
+    @Test
+    public void testLazyItemList() {
+        List<Item> items = InternalUtils.toItemList(
+                Arrays.asList(lowLevelItem(), lowLevelItem()), true);
+        assertEquals(2, items.size());
+        assertEquals(items.get(0), items.get(1));
+        assertTrue(InternalUtils.toItemList(null, true).isEmpty());
+        assertNull(Item.fromAttributeValues(null));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.document.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+
+public class PagePrefetcherTest {
+
+    /**
+     * Returns a prefetcher over the pages numbered from 0 to lastPage, which
+     * fails to fetch the given page.
+     */
+    private static PagePrefetcher<Integer> numberedPages(int depth,
+            final int lastPage, final int failingPage, final AtomicInteger fetchCount) {
+        return new PagePrefetcher<Integer>(0, depth) {
+            @Override
+            protected boolean hasNextPage(Integer page) {
+                return page < lastPage;
+            }
+
+            @Override
+            protected Integer fetchNextPage(Integer page) {
+                int next = page + 1;
+                fetchCount.incrementAndGet();
+                if (next == failingPage)
+                    throw new AmazonClientException("Throttled");
+                return next;
+            }
+        };
+    }
+
+    private static void waitForFetches(AtomicInteger fetchCount, int count)
+            throws InterruptedException {
+        for (int i = 0; i < 500 && fetchCount.get() < count; i++) {
+            Thread.sleep(10);
+        }
+        // leave time for any extra fetch
+        Thread.sleep(50);
+    }
+
+    @Test
+    public void testPagesAreReturnedInOrder() {
+        AtomicInteger fetchCount = new AtomicInteger();
+        PagePrefetcher<Integer> pages = numberedPages(2, 20, -1, fetchCount);
+        for (int i = 1; i <= 20; i++) {
+            assertTrue(pages.hasNext());
+            assertEquals(i, (int) pages.next());
+        }
+        assertFalse(pages.hasNext());
+        try {
+            pages.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException expected) {
+        }
+        assertEquals(20, fetchCount.get());
+    }
+
+    @Test
+    public void testFetchingStopsAtDepth() throws InterruptedException {
+        AtomicInteger fetchCount = new AtomicInteger();
+        PagePrefetcher<Integer> pages = numberedPages(3, 100, -1, fetchCount);
+        waitForFetches(fetchCount, 3);
+        assertEquals(3, fetchCount.get());
+
+        assertEquals(1, (int) pages.next());
+        waitForFetches(fetchCount, 4);
+        assertEquals(4, fetchCount.get());
+    }
+
+    @Test
+    public void testFailureIsRethrownToTheCaller() {
+        AtomicInteger fetchCount = new AtomicInteger();
+        PagePrefetcher<Integer> pages = numberedPages(2, 10, 3, fetchCount);
+        assertEquals(1, (int) pages.next());
+        assertEquals(2, (int) pages.next());
+        try {
+            pages.next();
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException expected) {
+            assertEquals("Throttled", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void testLastPageIsNotFetchedAhead() throws InterruptedException {
+        AtomicInteger fetchCount = new AtomicInteger();
+        PagePrefetcher<Integer> pages = numberedPages(1, 0, -1, fetchCount);
+        waitForFetches(fetchCount, 1);
+        assertFalse(pages.hasNext());
+        assertEquals(0, fetchCount.get());
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.N;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.S;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.SS;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.attribute_not_exists;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.remove;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplate.slotN;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplate.slotS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBRangeKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.document.DynamoDB;
+import com.amazonaws.services.dynamodbv2.document.Item;
+import com.amazonaws.services.dynamodbv2.document.Table;
+import com.amazonaws.services.dynamodbv2.document.spec.QuerySpec;
+import com.amazonaws.services.dynamodbv2.document.spec.ScanSpec;
+import com.amazonaws.services.dynamodbv2.document.spec.UpdateItemSpec;
+import com.amazonaws.services.dynamodbv2.model.AttributeAction;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
+import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder;
+import com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplate;
+import com.amazonaws.services.dynamodbv2.xspec.QueryExpressionSpec;
+import com.amazonaws.services.dynamodbv2.xspec.UpdateItemExpressionSpec;
+
+public class InMemoryAmazonDynamoDBTest {
+
+    private static final String TABLE = "Events";
+
+    private InMemoryAmazonDynamoDB dynamoDB;
+
+    @Before
+    public void setUp() {
+        dynamoDB = new InMemoryAmazonDynamoDB();
+        dynamoDB.createTable(new CreateTableRequest()
+            .withTableName(TABLE)
+            .withKeySchema(new KeySchemaElement("hash", KeyType.HASH),
+                    new KeySchemaElement("range", KeyType.RANGE))
+            .withAttributeDefinitions(new AttributeDefinition("hash", ScalarAttributeType.S),
+                    new AttributeDefinition("range", ScalarAttributeType.N),
+                    new AttributeDefinition("local", ScalarAttributeType.S),
+                    new AttributeDefinition("global", ScalarAttributeType.S))
+            .withLocalSecondaryIndexes(new LocalSecondaryIndex()
+                .withIndexName("ByLocal")
+                .withKeySchema(new KeySchemaElement("hash", KeyType.HASH),
+                        new KeySchemaElement("local", KeyType.RANGE))
+                .withProjection(new Projection().withProjectionType(ProjectionType.KEYS_ONLY)))
+            .withGlobalSecondaryIndexes(new GlobalSecondaryIndex()
+                .withIndexName("ByGlobal")
+                .withKeySchema(new KeySchemaElement("global", KeyType.HASH))
+                .withProjection(new Projection().withProjectionType(ProjectionType.ALL))
+                .withProvisionedThroughput(new ProvisionedThroughput(1L, 1L)))
+            .withProvisionedThroughput(new ProvisionedThroughput(1L, 1L)));
+    }
+
+    @Test
+    public void testPutAndGet() {
+        put("a", 1, "x", "g");
+        Map<String, AttributeValue> item = dynamoDB.getItem(new GetItemRequest()
+            .withTableName(TABLE)
+            .withKey(key("a", 1))).getItem();
+        assertEquals("x", item.get("local").getS());
+        assertNull(dynamoDB.getItem(new GetItemRequest()
+            .withTableName(TABLE)
+            .withKey(key("a", 2))).getItem());
+    }
+
+    @Test
+    public void testUpdateWithExpected() {
+        put("a", 1, "x", "g");
+        Map<String, AttributeValueUpdate> add = new HashMap<String, AttributeValueUpdate>();
+        add.put("count", new AttributeValueUpdate(new AttributeValue().withN("2"), AttributeAction.ADD));
+        Map<String, ExpectedAttributeValue> expected = new HashMap<String, ExpectedAttributeValue>();
+        expected.put("local", new ExpectedAttributeValue(new AttributeValue("x")));
+
+        UpdateItemResult result = dynamoDB.updateItem(new UpdateItemRequest()
+            .withTableName(TABLE)
+            .withKey(key("a", 1))
+            .withAttributeUpdates(add)
+            .withExpected(expected)
+            .withReturnValues(ReturnValue.UPDATED_NEW));
+        assertEquals("2", result.getAttributes().get("count").getN());
+
+        expected.put("local", new ExpectedAttributeValue(new AttributeValue("y")));
+        try {
+            dynamoDB.updateItem(new UpdateItemRequest()
+                .withTableName(TABLE)
+                .withKey(key("a", 1))
+                .withAttributeUpdates(add)
+                .withExpected(expected));
+            fail("Expected a failed condition");
+        } catch (ConditionalCheckFailedException e) {
+            assertEquals("ConditionalCheckFailedException", e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testQueryPagination() {
+        for (int i = 0; i < 10; i++) {
+            put("a", i, "l" + i, "g");
+        }
+        put("b", 0, "l", "g");
+
+        List<String> ranges = new ArrayList<String>();
+        Map<String, AttributeValue> startKey = null;
+        int pages = 0;
+        do {
+            QueryResult result = dynamoDB.query(new QueryRequest()
+                .withTableName(TABLE)
+                .withKeyConditions(hashCondition("a"))
+                .withScanIndexForward(false)
+                .withLimit(3)
+                .withExclusiveStartKey(startKey));
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                ranges.add(item.get("range").getN());
+            }
+            startKey = result.getLastEvaluatedKey();
+            pages++;
+        } while (startKey != null);
+
+        assertEquals(4, pages);
+        assertEquals(10, ranges.size());
+        assertEquals("9", ranges.get(0));
+        assertEquals("0", ranges.get(9));
+    }
+
+    @Test
+    public void testSecondaryIndexes() {
+        put("a", 1, "z", "g1");
+        put("a", 2, "y", "g2");
+        put("b", 3, "x", "g1");
+
+        QueryResult local = dynamoDB.query(new QueryRequest()
+            .withTableName(TABLE)
+            .withIndexName("ByLocal")
+            .withKeyConditions(hashCondition("a")));
+        assertEquals(2, local.getItems().size());
+        assertEquals("y", local.getItems().get(0).get("local").getS());
+        assertNull(local.getItems().get(0).get("global"));
+
+        Map<String, Condition> global = new HashMap<String, Condition>();
+        global.put("global", new Condition()
+            .withComparisonOperator(ComparisonOperator.EQ)
+            .withAttributeValueList(new AttributeValue("g1")));
+        QueryResult byGlobal = dynamoDB.query(new QueryRequest()
+            .withTableName(TABLE)
+            .withIndexName("ByGlobal")
+            .withKeyConditions(global));
+        assertEquals(2, byGlobal.getItems().size());
+        assertEquals("g1", byGlobal.getItems().get(0).get("global").getS());
+    }
+
+    @Test
+    public void testParallelScanSegments() {
+        for (int i = 0; i < 50; i++) {
+            put("h" + i, i, "l", "g");
+        }
+        Set<String> seen = new HashSet<String>();
+        for (int segment = 0; segment < 4; segment++) {
+            ScanResult result = dynamoDB.scan(new ScanRequest()
+                .withTableName(TABLE)
+                .withSegment(segment)
+                .withTotalSegments(4));
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                if (!seen.add(item.get("hash").getS())) {
+                    fail("Item scanned twice: " + item);
+                }
+            }
+        }
+        assertEquals(50, seen.size());
+    }
+
+    @Test
+    public void testUnprocessedBatchKeys() {
+        put("a", 1, "x", "g");
+        dynamoDB.withUnprocessedRate(1.0);
+        Map<String, KeysAndAttributes> requestItems = new HashMap<String, KeysAndAttributes>();
+        requestItems.put(TABLE, new KeysAndAttributes().withKeys(key("a", 1)));
+        BatchGetItemResult result = dynamoDB.batchGetItem(new BatchGetItemRequest()
+            .withRequestItems(requestItems));
+        assertEquals(0, result.getResponses().get(TABLE).size());
+        assertEquals(1, result.getUnprocessedKeys().get(TABLE).getKeys().size());
+    }
+
+    @Test
+    public void testThrottling() {
+        dynamoDB.withThrottlingRate(1.0);
+        try {
+            put("a", 1, "x", "g");
+            fail("Expected the call to be throttled");
+        } catch (ProvisionedThroughputExceededException e) {
+            assertEquals(400, e.getStatusCode());
+        }
+    }
+
+    @Test(expected = ResourceNotFoundException.class)
+    public void testMissingTable() {
+        dynamoDB.getItem(new GetItemRequest()
+            .withTableName("Missing")
+            .withKey(key("a", 1)));
+    }
+
+    @Test
+    public void testMapperRoundTrip() {
+        DynamoDBMapper mapper = new DynamoDBMapper(dynamoDB);
+        Event event = new Event();
+        event.setHash("a");
+        event.setRange(7);
+        event.setGlobal("g");
+        mapper.save(event);
+
+        Event loaded = mapper.load(Event.class, "a", 7);
+        assertEquals("g", loaded.getGlobal());
+    }
+
+    @Test
+    public void testExpressionSpecs() {
+        for (int i = 0; i < 5; i++) {
+            put("a", i, "l" + i, "g");
+        }
+        Table table = new DynamoDB(dynamoDB).getTable(TABLE);
+
+        Item updated = table.updateItem(new UpdateItemSpec()
+            .withPrimaryKey("hash", "a", "range", 1)
+            .withExpressionSpec(new ExpressionSpecBuilder()
+                .addUpdate(N("count").add(2))
+                .addUpdate(SS("tags").append("x", "y"))
+                .addUpdate(S("note").set(S("note").ifNotExists("n")))
+                .addUpdate(remove("global"))
+                .withCondition(S("local").eq("l1").and(attribute_not_exists("gone")))
+                .buildForUpdate())
+            .withReturnValues(ReturnValue.ALL_NEW)).getItem();
+        assertEquals(2, updated.getNumber("count").intValue());
+        assertEquals(new HashSet<String>(Arrays.asList("x", "y")), updated.getStringSet("tags"));
+        assertEquals("n", updated.getString("note"));
+        assertNull(updated.get("global"));
+
+        try {
+            table.updateItem(new UpdateItemSpec()
+                .withPrimaryKey("hash", "a", "range", 1)
+                .withExpressionSpec(new ExpressionSpecBuilder()
+                    .addUpdate(N("count").set(N("count").minus(1)))
+                    .withCondition(S("local").beginsWith("x"))
+                    .buildForUpdate()));
+            fail("Expected a failed condition");
+        } catch (ConditionalCheckFailedException e) {
+            assertEquals("ConditionalCheckFailedException", e.getErrorCode());
+        }
+
+        List<String> ranges = new ArrayList<String>();
+        for (Item item : table.query(new QuerySpec()
+                .withExpressionSpec(new ExpressionSpecBuilder()
+                    .withKeyCondition(S("hash").eq("a").and(N("range").between(1, 3)))
+                    .withCondition(S("local").ne("l2"))
+                    .buildForQuery()))) {
+            ranges.add(item.getNumber("range").toString());
+        }
+        assertEquals(Arrays.asList("1", "3"), ranges);
+
+        int count = 0;
+        for (Item item : table.scan(new ScanSpec()
+                .withExpressionSpec(new ExpressionSpecBuilder()
+                    .withCondition(N("range").gt(3).or(S("local").in("l0", "l9")))
+                    .buildForScan()))) {
+            count++;
+        }
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void testExpressionTemplates() {
+        put("a", 1, "x", "g");
+        Table table = new DynamoDB(dynamoDB).getTable(TABLE);
+        ExpressionTemplate<UpdateItemExpressionSpec> update = new ExpressionSpecBuilder()
+            .addUpdate(N("price").set(slotN("newPrice")))
+            .withCondition(N("price").eq(slotN("oldPrice")).or(attribute_not_exists("price")))
+            .compileForUpdate();
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("newPrice", 10);
+        values.put("oldPrice", 0);
+        table.updateItem(new UpdateItemSpec()
+            .withPrimaryKey("hash", "a", "range", 1)
+            .withExpressionSpec(update.bind(values)));
+        values.put("newPrice", 12);
+        values.put("oldPrice", 10);
+        table.updateItem(new UpdateItemSpec()
+            .withPrimaryKey("hash", "a", "range", 1)
+            .withExpressionSpec(update.bind(values)));
+        try {
+            table.updateItem(new UpdateItemSpec()
+                .withPrimaryKey("hash", "a", "range", 1)
+                .withExpressionSpec(update.bind(values)));
+            fail("Expected a failed condition");
+        } catch (ConditionalCheckFailedException e) {
+            assertEquals("ConditionalCheckFailedException", e.getErrorCode());
+        }
+
+        ExpressionTemplate<QueryExpressionSpec> query = new ExpressionSpecBuilder()
+            .withKeyCondition(S("hash").eq(slotS("hash")))
+            .withCondition(N("price").ge(slotN("minPrice")))
+            .compileForQuery();
+        values.clear();
+        values.put("hash", "a");
+        values.put("minPrice", 12);
+        Item item = table.query(new QuerySpec()
+            .withExpressionSpec(query.bind(values))).iterator().next();
+        assertEquals(12, item.getNumber("price").intValue());
+    }
+
+    @Test
+    public void testNestedUpdateExpression() {
+        put("a", 1, "x", "g");
+        Map<String, AttributeValue> values = new HashMap<String, AttributeValue>();
+        values.put(":doc", new AttributeValue().withM(Collections.singletonMap("old",
+                new AttributeValue("o"))));
+        values.put(":list", new AttributeValue().withL(new AttributeValue("a")));
+        dynamoDB.updateItem(new UpdateItemRequest()
+            .withTableName(TABLE)
+            .withKey(key("a", 1))
+            .withUpdateExpression("SET doc = :doc, items = :list, others = :list")
+            .withExpressionAttributeValues(values));
+
+        values.clear();
+        values.put(":v", new AttributeValue("v"));
+        values.put(":more", new AttributeValue().withL(new AttributeValue("b")));
+        Map<String, String> names = Collections.singletonMap("#n", "name");
+        Map<String, AttributeValue> item = dynamoDB.updateItem(new UpdateItemRequest()
+            .withTableName(TABLE)
+            .withKey(key("a", 1))
+            .withUpdateExpression("SET doc.#n = :v, items = list_append(items, :more) "
+                    + "REMOVE doc.old, others[0]")
+            .withExpressionAttributeNames(names)
+            .withExpressionAttributeValues(values)
+            .withReturnValues(ReturnValue.UPDATED_NEW)).getAttributes();
+        assertEquals(Collections.singletonMap("name", new AttributeValue("v")),
+                item.get("doc").getM());
+        assertEquals(Arrays.asList(new AttributeValue("a"), new AttributeValue("b")),
+                item.get("items").getL());
+        assertTrue(item.get("others").getL().isEmpty());
+        assertEquals(3, item.size());
+    }
+
+    @Test
+    public void testInvalidExpressions() {
+        put("a", 1, "x", "g");
+        Map<String, AttributeValue> values = new HashMap<String, AttributeValue>();
+        values.put(":v", new AttributeValue("v"));
+        values.put(":unused", new AttributeValue("u"));
+        assertValidationError("unused in expressions", new UpdateItemRequest()
+            .withTableName(TABLE)
+            .withKey(key("a", 1))
+            .withUpdateExpression("SET local = :v")
+            .withExpressionAttributeValues(values));
+
+        values.remove(":unused");
+        assertValidationError("part of the key", new UpdateItemRequest()
+            .withTableName(TABLE)
+            .withKey(key("a", 1))
+            .withUpdateExpression("SET range = :v")
+            .withExpressionAttributeValues(values));
+        assertValidationError("Syntax error", new UpdateItemRequest()
+            .withTableName(TABLE)
+            .withKey(key("a", 1))
+            .withUpdateExpression("SET local = :v")
+            .withConditionExpression("local = = :v")
+            .withExpressionAttributeValues(values));
+
+        Map<String, ExpectedAttributeValue> expected = new HashMap<String, ExpectedAttributeValue>();
+        expected.put("local", new ExpectedAttributeValue(new AttributeValue("x")));
+        assertValidationError("Can not use both", new UpdateItemRequest()
+            .withTableName(TABLE)
+            .withKey(key("a", 1))
+            .withUpdateExpression("SET local = :v")
+            .withConditionExpression("local = :v")
+            .withExpected(expected)
+            .withExpressionAttributeValues(values));
+    }
+
+    private void assertValidationError(String message, UpdateItemRequest request) {
+        try {
+            dynamoDB.updateItem(request);
+            fail("Expected a validation error");
+        } catch (AmazonServiceException e) {
+            assertEquals("ValidationException", e.getErrorCode());
+            assertTrue(e.getErrorMessage(), e.getErrorMessage().contains(message));
+        }
+    }
+
+    @DynamoDBTable(tableName = TABLE)
+    public static class Event {
+        private String hash;
+        private int range;
+        private String global;
+
+        @DynamoDBHashKey
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        @DynamoDBRangeKey
+        public int getRange() {
+            return range;
+        }
+
+        public void setRange(int range) {
+            this.range = range;
+        }
+
+        @DynamoDBAttribute
+        public String getGlobal() {
+            return global;
+        }
+
+        public void setGlobal(String global) {
+            this.global = global;
+        }
+    }
+
+    private void put(String hash, int range, String local, String global) {
+        Map<String, AttributeValue> item = key(hash, range);
+        item.put("local", new AttributeValue(local));
+        item.put("global", new AttributeValue(global));
+        dynamoDB.putItem(new PutItemRequest().withTableName(TABLE).withItem(item));
+    }
+
+    private static Map<String, AttributeValue> key(String hash, int range) {
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        key.put("hash", new AttributeValue(hash));
+        key.put("range", new AttributeValue().withN(Integer.toString(range)));
+        return key;
+    }
+
+    private static Map<String, Condition> hashCondition(String hash) {
+        Map<String, Condition> conditions = new HashMap<String, Condition>();
+        conditions.put("hash", new Condition()
+            .withComparisonOperator(ComparisonOperator.EQ)
+            .withAttributeValueList(new AttributeValue(hash)));
+        return conditions;
+    }
+}
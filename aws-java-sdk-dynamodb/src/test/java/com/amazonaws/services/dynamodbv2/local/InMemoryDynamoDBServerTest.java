@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+
+public class InMemoryDynamoDBServerTest {
+
+    private InMemoryDynamoDBServer server;
+    private AmazonDynamoDBClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new InMemoryDynamoDBServer(new InMemoryAmazonDynamoDB(), 0);
+        server.start();
+        client = new AmazonDynamoDBClient(new BasicAWSCredentials("key", "secret"));
+        client.setEndpoint(server.getEndpoint());
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testRoundTrip() {
+        TableDescription table = client.createTable(new CreateTableRequest()
+            .withTableName("Items")
+            .withKeySchema(new KeySchemaElement("id", KeyType.HASH))
+            .withAttributeDefinitions(new AttributeDefinition("id", ScalarAttributeType.S))
+            .withProvisionedThroughput(new ProvisionedThroughput(1L, 1L)))
+            .getTableDescription();
+        assertEquals("ACTIVE", table.getTableStatus());
+
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+        item.put("id", new AttributeValue("a"));
+        item.put("count", new AttributeValue().withN("3"));
+        item.put("data", new AttributeValue().withB(ByteBuffer.wrap(new byte[] {1, 2, 3})));
+        client.putItem(new PutItemRequest().withTableName("Items").withItem(item));
+
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        key.put("id", new AttributeValue("a"));
+        Map<String, AttributeValue> loaded = client.getItem(new GetItemRequest()
+            .withTableName("Items")
+            .withKey(key)
+            .withConsistentRead(true)).getItem();
+        assertEquals(item, loaded);
+    }
+
+    @Test
+    public void testServiceError() {
+        Map<String, AttributeValue> key = new HashMap<String, AttributeValue>();
+        key.put("id", new AttributeValue("a"));
+        try {
+            client.getItem(new GetItemRequest().withTableName("Missing").withKey(key));
+            fail("Expected a missing table");
+        } catch (ResourceNotFoundException e) {
+            assertEquals("ResourceNotFoundException", e.getErrorCode());
+            assertEquals(400, e.getStatusCode());
+        }
+    }
+}
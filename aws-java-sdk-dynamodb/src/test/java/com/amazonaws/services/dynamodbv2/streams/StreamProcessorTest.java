@@ -0,0 +1,224 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.streams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDBStreams;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeStreamResult;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsRequest;
+import com.amazonaws.services.dynamodbv2.model.GetRecordsResult;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorRequest;
+import com.amazonaws.services.dynamodbv2.model.GetShardIteratorResult;
+import com.amazonaws.services.dynamodbv2.model.Record;
+import com.amazonaws.services.dynamodbv2.model.SequenceNumberRange;
+import com.amazonaws.services.dynamodbv2.model.Shard;
+import com.amazonaws.services.dynamodbv2.model.ShardIteratorType;
+import com.amazonaws.services.dynamodbv2.model.StreamDescription;
+import com.amazonaws.services.dynamodbv2.model.StreamRecord;
+import com.amazonaws.services.dynamodbv2.model.StreamStatus;
+
+public class StreamProcessorTest {
+
+    private static final String STREAM_ARN = "arn:stream";
+
+    /**
+     * A disabled stream whose shards are numbered by their first sequence
+     * number, and return one record per request.
+     */
+    private static class FakeStreams extends AbstractAmazonDynamoDBStreams {
+        private final Map<String, Shard> shards = new LinkedHashMap<String, Shard>();
+        private final Map<String, List<Record>> records =
+                new LinkedHashMap<String, List<Record>>();
+
+        void addShard(String shardId, String parentShardId, int first, int count) {
+            shards.put(shardId, new Shard()
+                .withShardId(shardId)
+                .withParentShardId(parentShardId)
+                .withSequenceNumberRange(new SequenceNumberRange()
+                    .withStartingSequenceNumber(String.valueOf(first))
+                    .withEndingSequenceNumber(String.valueOf(first + count - 1))));
+            List<Record> shardRecords = new ArrayList<Record>();
+            for (int i = first; i < first + count; i++) {
+                shardRecords.add(new Record().withEventName("MODIFY")
+                        .withDynamodb(new StreamRecord().withSequenceNumber(String.valueOf(i))));
+            }
+            records.put(shardId, shardRecords);
+        }
+
+        @Override
+        public DescribeStreamResult describeStream(DescribeStreamRequest request) {
+            assertEquals(STREAM_ARN, request.getStreamArn());
+            // children are listed before their parents
+            List<Shard> list = new ArrayList<Shard>(shards.values());
+            Collections.reverse(list);
+            return new DescribeStreamResult().withStreamDescription(new StreamDescription()
+                .withStreamStatus(StreamStatus.DISABLED)
+                .withShards(list));
+        }
+
+        @Override
+        public GetShardIteratorResult getShardIterator(GetShardIteratorRequest request) {
+            List<Record> shardRecords = records.get(request.getShardId());
+            int index;
+            if (ShardIteratorType.AFTER_SEQUENCE_NUMBER.toString()
+                    .equals(request.getShardIteratorType())) {
+                index = 0;
+                while (!shardRecords.get(index).getDynamodb().getSequenceNumber()
+                        .equals(request.getSequenceNumber())) {
+                    index++;
+                }
+                index++;
+            } else {
+                assertEquals(ShardIteratorType.TRIM_HORIZON.toString(),
+                        request.getShardIteratorType());
+                index = 0;
+            }
+            return new GetShardIteratorResult()
+                .withShardIterator(request.getShardId() + "/" + index);
+        }
+
+        @Override
+        public GetRecordsResult getRecords(GetRecordsRequest request) {
+            String[] iterator = request.getShardIterator().split("/");
+            List<Record> shardRecords = records.get(iterator[0]);
+            int index = Integer.parseInt(iterator[1]);
+            if (index == shardRecords.size()) {
+                return new GetRecordsResult().withRecords(Collections.<Record>emptyList());
+            }
+            return new GetRecordsResult()
+                .withRecords(shardRecords.get(index))
+                .withNextShardIterator(index + 1 == shardRecords.size()
+                        ? null
+                        : iterator[0] + "/" + (index + 1));
+        }
+    }
+
+    private static class RecordingHandler implements StreamRecordsHandler<Record> {
+        final List<String> handled = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void handleRecords(String shardId, List<Record> records) {
+            for (Record record : records) {
+                handled.add(shardId + ":" + record.getDynamodb().getSequenceNumber());
+            }
+        }
+
+        /** Returns the sequence numbers handled from the given shards, in order. */
+        List<String> handledFrom(String... shardIds) {
+            List<String> result = new ArrayList<String>();
+            List<String> ids = Arrays.asList(shardIds);
+            synchronized (handled) {
+                for (String record : handled) {
+                    if (ids.contains(record.substring(0, record.indexOf(':')))) {
+                        result.add(record.substring(record.indexOf(':') + 1));
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns a stream where shard a is split into b and c, and b is split
+     * into d.
+     */
+    private static FakeStreams splitStream() {
+        FakeStreams streams = new FakeStreams();
+        streams.addShard("a", null, 0, 5);
+        streams.addShard("b", "a", 10, 5);
+        streams.addShard("c", "a", 20, 5);
+        streams.addShard("d", "b", 30, 5);
+        streams.addShard("e", null, 40, 5);
+        return streams;
+    }
+
+    @Test
+    public void testParentShardsAreProcessedFirst() throws InterruptedException {
+        RecordingHandler handler = new RecordingHandler();
+        InMemoryStreamCheckpointStore checkpoints = new InMemoryStreamCheckpointStore();
+        StreamProcessor<Record> processor = StreamProcessor
+            .forRecords(splitStream(), STREAM_ARN, handler)
+            .withCheckpointStore(checkpoints)
+            .withPollIntervalMillis(10);
+        processor.start();
+        assertTrue(processor.awaitTermination(10, TimeUnit.SECONDS));
+        assertNull(processor.getFailure());
+
+        assertEquals(25, handler.handled.size());
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4", "10", "11", "12", "13", "14",
+                "30", "31", "32", "33", "34"), handler.handledFrom("a", "b", "d"));
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4", "20", "21", "22", "23", "24"),
+                handler.handledFrom("a", "c"));
+        for (String shardId : Arrays.asList("a", "b", "c", "d", "e")) {
+            assertEquals(StreamProcessor.SHARD_END, checkpoints.getCheckpoint(STREAM_ARN, shardId));
+        }
+    }
+
+    @Test
+    public void testProcessingResumesFromCheckpoints() throws InterruptedException {
+        RecordingHandler handler = new RecordingHandler();
+        InMemoryStreamCheckpointStore checkpoints = new InMemoryStreamCheckpointStore();
+        checkpoints.setCheckpoint(STREAM_ARN, "a", StreamProcessor.SHARD_END);
+        checkpoints.setCheckpoint(STREAM_ARN, "b", "12");
+        checkpoints.setCheckpoint(STREAM_ARN, "c", StreamProcessor.SHARD_END);
+        checkpoints.setCheckpoint(STREAM_ARN, "e", "44");
+        StreamProcessor<Record> processor = StreamProcessor
+            .forRecords(splitStream(), STREAM_ARN, handler)
+            .withCheckpointStore(checkpoints)
+            .withPollIntervalMillis(10);
+        processor.start();
+        assertTrue(processor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList("13", "14", "30", "31", "32", "33", "34"),
+                handler.handledFrom("a", "b", "c", "d", "e"));
+    }
+
+    @Test
+    public void testHandlerFailureStopsProcessing() throws InterruptedException {
+        final AmazonClientException error = new AmazonClientException("Handler failed");
+        InMemoryStreamCheckpointStore checkpoints = new InMemoryStreamCheckpointStore();
+        StreamProcessor<Record> processor = StreamProcessor
+            .forRecords(splitStream(), STREAM_ARN, new StreamRecordsHandler<Record>() {
+                @Override
+                public void handleRecords(String shardId, List<Record> records) {
+                    if ("2".equals(records.get(0).getDynamodb().getSequenceNumber())) {
+                        throw error;
+                    }
+                }
+            })
+            .withCheckpointStore(checkpoints);
+        processor.start();
+        assertTrue(processor.awaitTermination(10, TimeUnit.SECONDS));
+        assertSame(error, processor.getFailure());
+        assertEquals("1", checkpoints.getCheckpoint(STREAM_ARN, "a"));
+        assertNull(checkpoints.getCheckpoint(STREAM_ARN, "b"));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.document.internal.InternalUtils;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+public class CapacityRateLimiterTest {
+
+    @Test
+    public void testFirstRequestDoesNotWait() {
+        CapacityRateLimiter limiter = new CapacityRateLimiter(10);
+        long start = System.nanoTime();
+        limiter.acquire();
+        assertTrue(System.nanoTime() - start < 100000000L);
+    }
+
+    @Test
+    public void testConsumedCapacityIsPaidBack() {
+        CapacityRateLimiter limiter = new CapacityRateLimiter(100, 0);
+        limiter.consume(new ConsumedCapacity().withCapacityUnits(20.0));
+        assertTrue(limiter.getAvailableCapacityUnits() < 0);
+
+        long start = System.nanoTime();
+        limiter.acquire();
+        long elapsedMillis = (System.nanoTime() - start) / 1000000L;
+        // 20 units at 100 units per second
+        assertTrue("Waited " + elapsedMillis + "ms", elapsedMillis >= 150);
+        assertTrue(limiter.getAvailableCapacityUnits() >= 0);
+    }
+
+    @Test
+    public void testUnusedCapacityIsCappedAtBurst() throws InterruptedException {
+        CapacityRateLimiter limiter = new CapacityRateLimiter(1000, 0.01);
+        Thread.sleep(50);
+        assertEquals(10, limiter.getAvailableCapacityUnits(), 0.001);
+    }
+
+    @Test
+    public void testMissingConsumedCapacityIsIgnored() {
+        CapacityRateLimiter limiter = new CapacityRateLimiter(1, 0);
+        limiter.consume((ConsumedCapacity) null);
+        limiter.consume(new ConsumedCapacity());
+        assertEquals(0, limiter.getAvailableCapacityUnits(), 0.001);
+    }
+
+    @Test
+    public void testRateLimitedScanReturnsConsumedCapacity() {
+        AbstractAmazonDynamoDB client = new AbstractAmazonDynamoDB() {
+            @Override
+            public ScanResult scan(ScanRequest request) {
+                return ReturnConsumedCapacity.NONE.toString().equals(request.getReturnConsumedCapacity())
+                        ? new ScanResult()
+                        : new ScanResult().withConsumedCapacity(
+                                new ConsumedCapacity().withCapacityUnits(5.0));
+            }
+        };
+        CapacityRateLimiter limiter = new CapacityRateLimiter(1, 0);
+        InternalUtils.scan(client, new ScanRequest()
+            .withReturnConsumedCapacity(ReturnConsumedCapacity.NONE), limiter);
+        assertEquals(-5, limiter.getAvailableCapacityUnits(), 0.1);
+    }
+
+    @Test
+    public void testInterruptedWhileWaiting() {
+        CapacityRateLimiter limiter = new CapacityRateLimiter(1, 0);
+        limiter.consume(100);
+        Thread.currentThread().interrupt();
+        try {
+            limiter.acquire();
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException expected) {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    @Test
+    public void testInvalidRates() {
+        try {
+            new CapacityRateLimiter(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new CapacityRateLimiter(1, -1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
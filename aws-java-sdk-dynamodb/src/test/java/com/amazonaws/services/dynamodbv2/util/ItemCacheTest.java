@@ -0,0 +1,165 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+public class ItemCacheTest {
+
+    private static Map<String, AttributeValue> key(String hash) {
+        return Collections.singletonMap("hash", new AttributeValue(hash));
+    }
+
+    private static Map<String, AttributeValue> item(String hash, String value) {
+        Map<String, AttributeValue> item = new HashMap<String, AttributeValue>(key(hash));
+        item.put("value", new AttributeValue(value));
+        return item;
+    }
+
+    @Test
+    public void testGetAndPut() {
+        ItemCache cache = new ItemCache(10, 1 << 20, 1, TimeUnit.HOURS);
+        assertNull(cache.get("table", key("a")));
+        cache.put("table", key("a"), item("a", "1"));
+        assertEquals(item("a", "1"), cache.get("table", key("a")));
+        assertNull(cache.get("other", key("a")));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testNegativeCaching() {
+        ItemCache cache = new ItemCache(10, 1 << 20, 1, 1, TimeUnit.HOURS);
+        cache.put("table", key("a"), null);
+        assertSame(ItemCache.NO_ITEM, cache.get("table", key("a")));
+        assertEquals(1, cache.getNegativeHitCount());
+
+        ItemCache noNegativeCaching = new ItemCache(10, 1 << 20, 1, TimeUnit.HOURS);
+        noNegativeCaching.put("table", key("a"), item("a", "1"));
+        noNegativeCaching.put("table", key("a"), null);
+        assertNull(noNegativeCaching.get("table", key("a")));
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        ItemCache cache = new ItemCache(10, 1 << 20, 1, TimeUnit.MILLISECONDS);
+        cache.put("table", key("a"), item("a", "1"));
+        Thread.sleep(5);
+        assertNull(cache.get("table", key("a")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidation() {
+        ItemCache cache = new ItemCache(10, 1 << 20, 1, TimeUnit.HOURS);
+        cache.put("table", key("a"), item("a", "1"));
+        cache.put("table", key("b"), item("b", "2"));
+        cache.invalidate("table", key("a"));
+        assertNull(cache.get("table", key("a")));
+        // The key attributes are learned from the cached items
+        cache.invalidateItem("table", item("b", "3"));
+        assertNull(cache.get("table", key("b")));
+        cache.putItem("table", item("c", "4"));
+        assertEquals(item("c", "4"), cache.get("table", key("c")));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void testItemsAreCopiedInAndOut() {
+        ItemCache cache = new ItemCache(10, 1 << 20, 1, TimeUnit.HOURS);
+        Map<String, AttributeValue> item = item("a", "1");
+        item.put("bytes", new AttributeValue().withB(ByteBuffer.wrap(new byte[] { 1, 2, 3 })));
+        cache.put("table", key("a"), item);
+        // Neither the item put nor one returned share buffers with the cache
+        item.get("bytes").getB().put(0, (byte) 9);
+        ByteBuffer returned = cache.get("table", key("a")).get("bytes").getB();
+        assertEquals(1, returned.get(0));
+        returned.get(new byte[3]);
+        returned.put(0, (byte) 9);
+        ByteBuffer again = cache.get("table", key("a")).get("bytes").getB();
+        assertEquals(0, again.position());
+        assertEquals(1, again.get(0));
+    }
+
+    @Test
+    public void testStaleLoadIsNotCached() {
+        ItemCache cache = new ItemCache(10, 1 << 20, 1, TimeUnit.HOURS);
+        // A read starts, then a write goes through the cache before it ends
+        long version = cache.startLoad("table", key("a"));
+        cache.invalidate("table", key("a"));
+        cache.put("table", key("a"), item("a", "2"));
+        cache.putLoaded("table", key("a"), item("a", "1"), version);
+        assertEquals(item("a", "2"), cache.get("table", key("a")));
+
+        // Or is only invalidated
+        version = cache.startLoad("table", key("b"));
+        cache.invalidate("table", key("b"));
+        cache.putLoaded("table", key("b"), item("b", "1"), version);
+        assertNull(cache.get("table", key("b")));
+
+        // A read not racing with a write is cached
+        version = cache.startLoad("table", key("b"));
+        cache.putLoaded("table", key("b"), item("b", "2"), version);
+        assertEquals(item("b", "2"), cache.get("table", key("b")));
+    }
+
+    @Test
+    public void testBoundedByItemCount() {
+        ItemCache cache = new ItemCache(3, 1 << 20, 1, TimeUnit.HOURS);
+        cache.put("table", key("a"), item("a", "1"));
+        cache.put("table", key("b"), item("b", "2"));
+        cache.put("table", key("c"), item("c", "3"));
+        // a is now the most recently used
+        cache.get("table", key("a"));
+        cache.put("table", key("d"), item("d", "4"));
+        assertEquals(3, cache.size());
+        assertNull(cache.get("table", key("b")));
+        assertEquals(item("a", "1"), cache.get("table", key("a")));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testBoundedBySize() {
+        long itemSize = ItemCache.estimateSize(key("a")) + ItemCache.estimateSize(item("a", "1"));
+        ItemCache cache = new ItemCache(100, 10 * itemSize, 1, TimeUnit.HOURS);
+        for ( int i = 0; i < 20; i++ ) {
+            cache.put("table", key(Integer.toString(i % 10)), item(Integer.toString(i % 10), "1"));
+        }
+        assertTrue(cache.getSizeInBytes() <= 10 * itemSize);
+
+        // Items larger than a quarter of the cache are not cached
+        StringBuilder large = new StringBuilder();
+        for ( int i = 0; i < 10 * itemSize; i++ ) {
+            large.append('x');
+        }
+        cache.put("table", key("large"), item("large", large.toString()));
+        assertNull(cache.get("table", key("large")));
+    }
+}
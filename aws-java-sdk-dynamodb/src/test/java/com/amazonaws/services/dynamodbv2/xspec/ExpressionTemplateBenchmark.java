@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.xspec;
+
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.N;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.S;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.attribute_exists;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplate.slotN;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplate.slotS;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compares building the expression specification of each update request
+ * with {@link ExpressionSpecBuilder#buildForUpdate()} to binding the values
+ * of each request to an {@link ExpressionTemplate} compiled once, for a
+ * typical SET and ADD update with a condition.
+ *
+ * <pre>
+ * java com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplateBenchmark [iterations]
+ * </pre>
+ */
+public class ExpressionTemplateBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    /** Keeps the results alive, so that the work isn't optimized away. */
+    private static int sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        ExpressionTemplate<UpdateItemExpressionSpec> template = new ExpressionSpecBuilder()
+            .addUpdate(N("price").set(slotN("price")))
+            .addUpdate(S("status").set(slotS("status")))
+            .addUpdate(N("updates").add(1))
+            .withCondition(N("price").eq(slotN("oldPrice")).and(attribute_exists("id")))
+            .compileForUpdate();
+
+        // The first rounds warm up the JIT compiler
+        for (int round = 1; round <= ROUNDS; round++) {
+            long buildNanos = build(iterations);
+            long bindNanos = bind(template, iterations);
+            System.out.println("round " + round + ":"
+                    + " build " + perOperation(buildNanos, iterations) + " ns/op,"
+                    + " bind " + perOperation(bindNanos, iterations) + " ns/op,"
+                    + " speedup " + String.format("%.1f", (double) buildNanos / bindNanos) + "x");
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static long build(int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            UpdateItemExpressionSpec spec = new ExpressionSpecBuilder()
+                .addUpdate(N("price").set(i + 1))
+                .addUpdate(S("status").set("PRICED"))
+                .addUpdate(N("updates").add(1))
+                .withCondition(N("price").eq(i).and(attribute_exists("id")))
+                .buildForUpdate();
+            sink += spec.getValueMap().size();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long bind(ExpressionTemplate<UpdateItemExpressionSpec> template,
+            int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Map<String, Object> values = new HashMap<String, Object>();
+            values.put("price", i + 1);
+            values.put("status", "PRICED");
+            values.put("oldPrice", i);
+            UpdateItemExpressionSpec spec = template.bind(values);
+            sink += spec.getValueMap().size();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long perOperation(long nanos, int iterations) {
+        return nanos / iterations;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.xspec;
+
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.N;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.S;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionSpecBuilder.SS;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplate.slotN;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplate.slotS;
+import static com.amazonaws.services.dynamodbv2.xspec.ExpressionTemplate.slotSS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ExpressionTemplateTest {
+
+    private static Map<String, Object> values(Object... namesAndValues) {
+        Map<String, Object> values = new HashMap<String, Object>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            values.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return values;
+    }
+
+    @Test
+    public void testBoundUpdateMatchesBuiltUpdate() {
+        ExpressionTemplate<UpdateItemExpressionSpec> template = new ExpressionSpecBuilder()
+            .addUpdate(N("price").set(slotN("newPrice")))
+            .addUpdate(N("count").set(N("count").plus(1)))
+            .addUpdate(SS("tags").append(Collections.<String>emptySet()))
+            .withCondition(N("price").eq(slotN("oldPrice"))
+                    .and(S("status").eq(slotS("status"))))
+            .compileForUpdate();
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("newPrice", "oldPrice", "status")),
+                template.getSlotNames());
+
+        UpdateItemExpressionSpec bound = template.bind(
+                values("newPrice", 12, "oldPrice", 10, "status", "ACTIVE"));
+        UpdateItemExpressionSpec built = new ExpressionSpecBuilder()
+            .addUpdate(N("price").set(12))
+            .addUpdate(N("count").set(N("count").plus(1)))
+            .addUpdate(SS("tags").append(Collections.<String>emptySet()))
+            .withCondition(N("price").eq(10)
+                    .and(S("status").eq("ACTIVE")))
+            .buildForUpdate();
+
+        assertEquals(built.getUpdateExpression(), bound.getUpdateExpression());
+        assertEquals(built.getConditionExpression(), bound.getConditionExpression());
+        assertEquals(built.getNameMap(), bound.getNameMap());
+        assertEquals(built.getValueMap(), bound.getValueMap());
+    }
+
+    @Test
+    public void testSlotUsedTwiceHasOneToken() {
+        ExpressionTemplate<QueryExpressionSpec> template = new ExpressionSpecBuilder()
+            .withKeyCondition(S("hashKey").eq(slotS("key")))
+            .withCondition(S("otherKey").ne(slotS("key")))
+            .compileForQuery();
+        QueryExpressionSpec spec = template.bind(values("key", "abc"));
+        assertEquals("#0 = :0", spec.getKeyConditionExpression());
+        assertEquals("#1 <> :0", spec.getFilterExpression());
+        assertEquals(Collections.singletonMap(":0", "abc"), spec.getValueMap());
+    }
+
+    @Test
+    public void testTemplateWithoutSlots() {
+        ExpressionTemplate<PutItemExpressionSpec> template = new ExpressionSpecBuilder()
+            .withCondition(S("hashKey").notExists())
+            .compileForPut();
+        assertSame(template.bind(null), template.bind(Collections.<String, Object>emptyMap()));
+        assertEquals("attribute_not_exists(#0)",
+                template.bind(null).getConditionExpression());
+    }
+
+    @Test
+    public void testInvalidBindings() {
+        ExpressionTemplate<UpdateItemExpressionSpec> template = new ExpressionSpecBuilder()
+            .addUpdate(N("price").set(slotN("price")))
+            .addUpdate(SS("tags").set(slotSS("tags")))
+            .compileForUpdate();
+        assertInvalid(template, values("price", 1));
+        assertInvalid(template, values("price", "1", "tags", Collections.emptySet()));
+        assertInvalid(template, values("price", 1, "tags", Collections.emptySet(), "other", 2));
+        assertInvalid(template, null);
+    }
+
+    @Test
+    public void testSlotWithConflictingTypes() {
+        try {
+            new ExpressionSpecBuilder()
+                .addUpdate(N("price").set(slotN("value")))
+                .addUpdate(S("name").set(slotS("value")))
+                .compileForUpdate();
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void assertInvalid(ExpressionTemplate<?> template, Map<String, Object> values) {
+        try {
+            template.bind(values);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -17,7 +17,6 @@ package com.amazonaws.services.s3;
 import static com.amazonaws.SDKGlobalConfiguration.ENABLE_S3_SIGV4_SYSTEM_PROPERTY;
 import static com.amazonaws.SDKGlobalConfiguration.ENFORCE_S3_SIGV4_SYSTEM_PROPERTY;
 import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
-import static com.amazonaws.internal.ResettableInputStream.newResettableInputStream;
 import static com.amazonaws.services.s3.model.S3DataSource.Utils.cleanupDataSource;
 import static com.amazonaws.util.LengthCheckInputStream.EXCLUDE_SKIPPED_BYTES;
 import static com.amazonaws.util.LengthCheckInputStream.INCLUDE_SKIPPED_BYTES;
@@ -85,10 +84,8 @@ import com.amazonaws.http.ExecutionContext;
 import com.amazonaws.http.HttpMethodName;
 import com.amazonaws.http.HttpResponseHandler;
 import com.amazonaws.internal.DefaultServiceEndpointBuilder;
-import com.amazonaws.internal.FIFOCache;
 import com.amazonaws.internal.IdentityEndpointBuilder;
 import com.amazonaws.internal.ReleasableInputStream;
-import com.amazonaws.internal.ResettableInputStream;
 import com.amazonaws.internal.ServiceEndpointBuilder;
 import com.amazonaws.internal.StaticCredentialsProvider;
 import com.amazonaws.metrics.AwsSdkMetrics;
@@ -99,6 +96,7 @@ import com.amazonaws.services.s3.internal.BucketNameUtils;
 import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
 import com.amazonaws.services.s3.internal.DigestValidationInputStream;
+import com.amazonaws.services.s3.internal.FileSegmentInputStream;
 import com.amazonaws.services.s3.internal.InputSubstream;
 import com.amazonaws.services.s3.internal.MD5DigestCalculatingInputStream;
 import com.amazonaws.services.s3.internal.Mimetypes;
@@ -234,6 +232,7 @@ import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser.CopyObjec
 import com.amazonaws.transform.Unmarshaller;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AwsHostNameUtils;
 import com.amazonaws.util.Base16;
 import com.amazonaws.util.Base64;
 import com.amazonaws.util.BinaryUtils;
@@ -307,9 +306,11 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
     /** Whether or not this client has an explicit region configured. */
     private boolean hasExplicitRegion;
 
-    private static final int BUCKET_REGION_CACHE_SIZE = 100;
-
-    private final FIFOCache<String> bucketRegionCache = new FIFOCache<String>(BUCKET_REGION_CACHE_SIZE);
+    /**
+     * The regions of the buckets this client has looked up, unless the client
+     * options share a cache.
+     */
+    private final BucketRegionCache bucketRegionCache = new BucketRegionCache();
 
     /**
      * Constructs a new client to invoke service methods on Amazon S3. A
@@ -1288,7 +1289,8 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                 metadata.setContentType(Mimetypes.getInstance().getMimetype(file));
             }
 
-            if (calculateMD5 && !skipContentMd5Check) {
+            if (calculateMD5 && !skipContentMd5Check
+                    && !clientOptions.isSinglePassFileUpload()) {
                 try {
                     String contentMd5_b64 = Md5Utils.md5AsBase64(file);
                     metadata.setContentMD5(contentMd5_b64);
@@ -1297,7 +1299,11 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                             "Unable to calculate MD5 hash: " + e.getMessage(), e);
                 }
             }
-            input = newResettableInputStream(file, "Unable to find file to upload");
+            try {
+                input = new FileSegmentInputStream(file, 0, file.length());
+            } catch (IOException e) {
+                throw new AmazonClientException("Unable to find file to upload", e);
+            }
         }
         final ProgressListener listener;
         final ObjectMetadata returnedMetadata;
@@ -2698,19 +2704,22 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                     awsreq.getRequestClientOptions()
                         .setReadLimit(bufsize.intValue());
                 }
+                isCurr = new InputSubstream(
+                        isCurr,
+                        uploadPartRequest.getFileOffset(),
+                        partSize,
+                        uploadPartRequest.isLastPart());
             } else {
                 try {
-                    isCurr = new ResettableInputStream(fileOrig);
+                    // Positional reads of the part, with no skipping to the
+                    // offset and no intermediate copy
+                    isCurr = new FileSegmentInputStream(fileOrig,
+                            uploadPartRequest.getFileOffset(), partSize);
                 } catch(IOException e) {
                     throw new IllegalArgumentException("Failed to open file "
                             + fileOrig, e);
                 }
             }
-            isCurr = new InputSubstream(
-                    isCurr,
-                    uploadPartRequest.getFileOffset(),
-                    partSize,
-                    uploadPartRequest.isLastPart());
             MD5DigestCalculatingInputStream md5DigestStream = null;
             if (uploadPartRequest.getMd5Digest() == null
             && !ServiceUtils.skipMd5CheckPerRequest(uploadPartRequest)) {
@@ -3571,7 +3580,7 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         ExecutionContext executionContext = createExecutionContext(originalRequest);
         // Retry V4 auth errors
         executionContext.setAuthErrorRetryStrategy(new S3V4AuthErrorRetryStrategy(buildDefaultEndpointResolver(
-                getProtocol(request), bucket, key)));
+                getProtocol(request), bucket, key), clientOptions.getBucketRegionCache()));
         AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
         // Binds the request metrics to the current request.
         request.setAWSRequestMetrics(awsRequestMetrics);
@@ -3599,7 +3608,8 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             if (originalRequest.getRequestCredentials() != null) {
                 credentials = originalRequest.getRequestCredentials();
             }
-            executionContext.setSigner(createSigner(request, bucket, key));
+            Signer signer = routeToBucketRegion(request, bucket, key);
+            executionContext.setSigner(signer != null ? signer : createSigner(request, bucket, key));
             executionContext.setCredentials(credentials);
             response = client.execute(request, responseHandler,
                     errorResponseHandler, executionContext);
@@ -3612,6 +3622,36 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         }
     }
 
+    /**
+     * Sends the given request to the region of its bucket, if the shared cache
+     * of the client options knows the bucket to be in another region than the
+     * Amazon S3 endpoint of this client, so that it isn't redirected.
+     *
+     * @return The Signature Version 4 signer for the region of the bucket, or
+     *         null if the request is left to the endpoint of this client.
+     */
+    private Signer routeToBucketRegion(Request<?> request, String bucketName, String key) {
+        BucketRegionCache cache = clientOptions.getBucketRegionCache();
+        AmazonWebServiceRequest originalRequest = request.getOriginalRequest();
+        if (cache == null || bucketName == null
+                || isSignerOverridden() || getSignerRegionOverride() != null
+                || originalRequest instanceof CreateBucketRequest
+                || originalRequest instanceof GetBucketLocationRequest
+                || !endpoint.getHost().endsWith(".amazonaws.com")
+                || !request.getEndpoint().getHost().endsWith(endpoint.getHost())) {
+            return null;
+        }
+        BucketRegionCache.Entry entry = cache.getEntry(bucketName);
+        if (entry == null || entry.getEndpoint() == null
+                || entry.getRegion().equals(AwsHostNameUtils.parseRegionName(
+                        endpoint.getHost(), S3_SERVICE_NAME))) {
+            return null;
+        }
+        resolveRequestEndpoint(request, bucketName, key,
+                HttpUtils.toUri(entry.getEndpoint(), clientConfiguration));
+        return entry.getSigner();
+    }
+
     @Override
     public void enableRequesterPays(String bucketName) {
         RequestPaymentConfiguration configuration = new RequestPaymentConfiguration(
@@ -3977,13 +4017,18 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
      * cache.
      */
     private String fetchRegionFromCache(String bucketName) {
-        String bucketRegion = bucketRegionCache.get(bucketName);
+        BucketRegionCache cache = clientOptions.getBucketRegionCache() != null
+                ? clientOptions.getBucketRegionCache()
+                : bucketRegionCache;
+        String bucketRegion = cache.getRegion(bucketName);
         if (bucketRegion == null) {
             if (log.isDebugEnabled()) {
                 log.debug("Bucket region cache doesn't have an entry for " + bucketName + ". Trying to get bucket region from Amazon S3.");
             }
             bucketRegion = getBucketRegionViaHeadRequest(bucketName);
-            bucketRegionCache.add(bucketName, bucketRegion);
+            if (bucketRegion != null) {
+                cache.putRegion(bucketName, bucketRegion);
+            }
         }
         if (log.isDebugEnabled()) {
             log.debug("Region for " + bucketName + " is " + bucketRegion);
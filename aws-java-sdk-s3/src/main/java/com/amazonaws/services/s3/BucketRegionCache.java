@@ -0,0 +1,308 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.RegionUtils;
+import com.amazonaws.services.s3.internal.AWSS3V4Signer;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetBucketLocationRequest;
+import com.amazonaws.services.s3.model.HeadBucketRequest;
+
+/**
+ * The regions of Amazon S3 buckets, with the regional endpoint and the
+ * Signature Version 4 signer to send their requests with, so that the first
+ * request to a bucket outside the region of a client goes straight to the
+ * bucket's region, rather than being redirected and signed again.
+ * <p>
+ * A cache is shared by the clients given it with
+ * {@link S3ClientOptions#setBucketRegionCache(BucketRegionCache)}; it learns
+ * the regions the clients are redirected to, and can be filled ahead of time
+ * by registering the buckets to be accessed:
+ * <pre>
+ * BucketRegionCache cache = new BucketRegionCache();
+ * s3.setS3ClientOptions(new S3ClientOptions().withBucketRegionCache(cache));
+ * cache.register(s3, "logs-eu", "logs-ap", "logs-us");
+ * </pre>
+ * The regions expire after a time to live. The region of a registered bucket
+ * is looked up again in the background when it is used near its expiry.
+ */
+@ThreadSafe
+public class BucketRegionCache {
+
+    private static final Log log = LogFactory.getLog(BucketRegionCache.class);
+
+    /** The default time to live of a region, in minutes. */
+    public static final long DEFAULT_TIME_TO_LIVE_MINUTES = 60;
+
+    /** The maximum number of buckets held. */
+    private static final int MAX_ENTRIES = 10000;
+
+    /** The number of threads looking up regions in the background. */
+    private static final int LOOKUP_THREADS = 4;
+
+    private final long timeToLiveNanos;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    /** The client to look up the region of each registered bucket with. */
+    private final ConcurrentMap<String, AmazonS3> registered = new ConcurrentHashMap<String, AmazonS3>();
+
+    /**
+     * Creates a cache whose regions live for
+     * {@value #DEFAULT_TIME_TO_LIVE_MINUTES} minutes.
+     */
+    public BucketRegionCache() {
+        this(DEFAULT_TIME_TO_LIVE_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Creates a cache whose regions live for the given time.
+     */
+    public BucketRegionCache(long timeToLive, TimeUnit unit) {
+        if (timeToLive <= 0 || unit == null) {
+            throw new IllegalArgumentException("Please provide a positive time to live");
+        }
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+    }
+
+    /**
+     * Looks up the regions of the given buckets in the background with the
+     * given client, and keeps them up to date while they are used.
+     *
+     * @return The futures of the regions of the buckets, in order; the region
+     *         of a bucket that can't be looked up is null.
+     */
+    public List<Future<String>> register(final AmazonS3 s3, String... bucketNames) {
+        if (s3 == null) {
+            throw new IllegalArgumentException("Please provide a client to look up regions with");
+        }
+        List<Future<String>> futures = new ArrayList<Future<String>>(bucketNames.length);
+        for (final String bucketName : bucketNames) {
+            registered.put(bucketName, s3);
+            futures.add(LazyHolder.executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return lookUp(s3, bucketName);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * Returns the region of the given bucket, or null if unknown or expired.
+     */
+    public String getRegion(String bucketName) {
+        Entry entry = getEntry(bucketName);
+        return entry == null ? null : entry.region;
+    }
+
+    /**
+     * Records the region of the given bucket, as returned by Amazon S3. The
+     * region of US Standard may be given as null, "US" or "us-east-1".
+     */
+    public void putRegion(String bucketName, String region) {
+        String regionName = toRegionName(region);
+        Region awsRegion = RegionUtils.getRegion(regionName);
+        AWSS3V4Signer signer = new AWSS3V4Signer();
+        signer.setRegionName(regionName);
+        signer.setServiceName(AmazonS3Client.S3_SERVICE_NAME);
+        entries.put(bucketName, new Entry(regionName,
+                awsRegion == null ? null : awsRegion.getServiceEndpoint(AmazonS3Client.S3_SERVICE_NAME),
+                signer, System.nanoTime() + timeToLiveNanos));
+        if (entries.size() > MAX_ENTRIES) {
+            evict();
+        }
+    }
+
+    /**
+     * Forgets the region of the given bucket, and stops keeping it up to date.
+     */
+    public void invalidate(String bucketName) {
+        registered.remove(bucketName);
+        entries.remove(bucketName);
+    }
+
+    /**
+     * Returns the unexpired entry of the given bucket, if any, and starts
+     * looking up the region again if the bucket is registered and its entry
+     * is near its expiry.
+     */
+    Entry getEntry(final String bucketName) {
+        final Entry entry = entries.get(bucketName);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - entry.expiresNanos >= 0) {
+            entries.remove(bucketName, entry);
+            refresh(bucketName, entry);
+            return null;
+        }
+        if (now - (entry.expiresNanos - timeToLiveNanos / 5) >= 0) {
+            refresh(bucketName, entry);
+        }
+        return entry;
+    }
+
+    private void refresh(final String bucketName, final Entry entry) {
+        final AmazonS3 s3 = registered.get(bucketName);
+        if (s3 != null && entry.refreshing.compareAndSet(false, true)) {
+            LazyHolder.executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        lookUp(s3, bucketName);
+                    } finally {
+                        // Replaced if looked up, or else to be tried again
+                        entry.refreshing.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Looks up and records the region of the given bucket, which is returned,
+     * or null if it can't be looked up.
+     */
+    private String lookUp(AmazonS3 s3, String bucketName) {
+        String region = null;
+        if (s3 instanceof AmazonS3Client) {
+            try {
+                region = ((AmazonS3Client) s3).headBucket(new HeadBucketRequest(bucketName))
+                        .getBucketRegion();
+            } catch (AmazonS3Exception e) {
+                // Redirected or denied; the region is usually still known
+                if (e.getAdditionalDetails() != null) {
+                    region = e.getAdditionalDetails().get(Headers.S3_BUCKET_REGION);
+                }
+            } catch (AmazonClientException e) {
+                log.debug("Unable to look up the region of " + bucketName, e);
+            }
+        }
+        if (region == null) {
+            try {
+                region = s3.getBucketLocation(new GetBucketLocationRequest(bucketName));
+            } catch (AmazonClientException e) {
+                log.debug("Unable to look up the location of " + bucketName, e);
+                return null;
+            }
+        }
+        putRegion(bucketName, region);
+        return toRegionName(region);
+    }
+
+    /**
+     * Removes the expired entries, and then arbitrary ones until the cache is
+     * within its size.
+     */
+    private void evict() {
+        long now = System.nanoTime();
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+            if (now - it.next().getValue().expiresNanos >= 0) {
+                it.remove();
+            }
+        }
+        for (Iterator<String> it = entries.keySet().iterator();
+                entries.size() > MAX_ENTRIES && it.hasNext();) {
+            String bucketName = it.next();
+            if (!registered.containsKey(bucketName)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the region of the given bucket location.
+     */
+    private static String toRegionName(String location) {
+        if (location == null || location.length() == 0 || "US".equals(location)) {
+            return "us-east-1";
+        } else if ("EU".equals(location)) {
+            return "eu-west-1";
+        }
+        return location;
+    }
+
+    /**
+     * The region of a bucket, with its endpoint and signer.
+     */
+    static final class Entry {
+        private final String region;
+        /** The endpoint of the region, or null if unknown to this SDK. */
+        private final String endpoint;
+        private final AWSS3V4Signer signer;
+        private final long expiresNanos;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(String region, String endpoint, AWSS3V4Signer signer, long expiresNanos) {
+            this.region = region;
+            this.endpoint = endpoint;
+            this.signer = signer;
+            this.expiresNanos = expiresNanos;
+        }
+
+        String getRegion() {
+            return region;
+        }
+
+        String getEndpoint() {
+            return endpoint;
+        }
+
+        AWSS3V4Signer getSigner() {
+            return signer;
+        }
+    }
+
+    private static final class LazyHolder {
+        private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                LOOKUP_THREADS, LOOKUP_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r);
+                        thread.setName("s3-bucket-region-lookup-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        static {
+            executor.allowCoreThreadTimeOut(true);
+        }
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.annotation.NotThreadSafe;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.internal.BackgroundExecutor;
+import com.amazonaws.services.s3.model.CryptoMode;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+/**
+ * Input stream of the content of an Amazon S3 object for sequential readers,
+ * such as columnar file readers and log scanners, which reads ahead of the
+ * reader in ranged chunks fetched in parallel on background threads.
+ * <p>
+ * Unlike the {@link S3ObjectInputStream} of a single
+ * {@link AmazonS3#getObject(GetObjectRequest)}, which stalls its connection
+ * whenever the reader pauses and must be restarted from the beginning after a
+ * network error:
+ * <ul>
+ * <li>up to a bounded number of chunks are fetched ahead of the reader, so
+ * that the memory used is at most that number of chunks;</li>
+ * <li>the stream is seekable: seeking forward within the chunks read ahead
+ * discards the chunks before the new position, while seeking backward or
+ * further forward fetches new chunks from the new position;</li>
+ * <li>a chunk whose transfer fails is fetched again from the byte where the
+ * transfer stopped, and the reader doesn't notice.</li>
+ * </ul>
+ * All the chunks are fetched with the ETag of the object found when the
+ * stream is opened as matching constraint, so that the content read is never
+ * a mix of versions of an object overwritten meanwhile.
+ * <p>
+ * With an {@link AmazonS3EncryptionClient} in a crypto mode allowing ranged
+ * gets, ie other than {@link CryptoMode#StrictAuthenticatedEncryption}, each
+ * chunk is decrypted independently as an AES/CTR range, so the chunks are
+ * decrypted in parallel as well. The object must then have been stored with
+ * its plaintext length, which isn't the case of objects uploaded in parts or
+ * from a stream of unknown length; such objects can only be read with
+ * {@link AmazonS3#getObject(GetObjectRequest)}.
+ * <p>
+ * Only the bucket name, key, version ID, range and customer-provided
+ * encryption key of the given request are used.
+ */
+@NotThreadSafe
+public class ReadAheadS3ObjectInputStream extends InputStream {
+
+    private static final Log log = LogFactory.getLog(ReadAheadS3ObjectInputStream.class);
+
+    /** Default size of the chunks fetched. */
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /** Default maximum number of chunks fetched ahead of the reader. */
+    public static final int DEFAULT_READ_AHEAD_CHUNKS = 4;
+
+    /** The maximum number of attempts to fetch a chunk. */
+    private static final int MAX_ATTEMPTS = 4;
+
+    private final AmazonS3 s3;
+    private final GetObjectRequest request;
+    private final int chunkSize;
+    private final int readAheadChunks;
+    private final ExecutorService executor;
+    private final String eTag;
+    /** The offset of the first byte of the stream in the object. */
+    private final long start;
+    /** The offset after the last byte of the stream in the object. */
+    private final long end;
+
+    /** The chunks being fetched or read, in order. */
+    private final Deque<Chunk> chunks = new ArrayDeque<Chunk>();
+    /** The buffers of the chunks read, to fetch the next chunks into. */
+    private final Deque<byte[]> freeBuffers = new ArrayDeque<byte[]>();
+    /** The offset in the object of the next byte to read. */
+    private long position;
+    /** The offset in the object of the next chunk to fetch. */
+    private long nextChunkStart;
+    private boolean closed;
+
+    /**
+     * Opens a stream of the object of the given request, with the default
+     * chunk size and read ahead, fetching the chunks on a shared pool of
+     * daemon threads.
+     *
+     * @param s3
+     *            The client to fetch the object with.
+     * @param request
+     *            The request of the object, and optionally of a range of it.
+     */
+    public ReadAheadS3ObjectInputStream(AmazonS3 s3, GetObjectRequest request) {
+        this(s3, request, DEFAULT_CHUNK_SIZE, DEFAULT_READ_AHEAD_CHUNKS,
+                BackgroundExecutor.getExecutorService());
+    }
+
+    /**
+     * Opens a stream of the object of the given request. The metadata of the
+     * object is looked up to find its length and ETag, and the first chunks
+     * start being fetched.
+     *
+     * @param s3
+     *            The client to fetch the object with.
+     * @param request
+     *            The request of the object, and optionally of a range of it.
+     * @param chunkSize
+     *            The size, in bytes, of the chunks fetched.
+     * @param readAheadChunks
+     *            The maximum number of chunks fetched ahead of the reader,
+     *            including the chunk being read.
+     * @param executor
+     *            The threads to fetch the chunks with, of which up to
+     *            <code>readAheadChunks</code> are used at once.
+     */
+    public ReadAheadS3ObjectInputStream(AmazonS3 s3, GetObjectRequest request,
+            int chunkSize, int readAheadChunks, ExecutorService executor) {
+        if (s3 == null || request == null || executor == null) {
+            throw new IllegalArgumentException(
+                    "Please provide a client, a request and an executor");
+        }
+        if (chunkSize < 1 || readAheadChunks < 1) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive chunk size and read ahead");
+        }
+        if (s3 instanceof AmazonS3EncryptionClient && ((AmazonS3EncryptionClient) s3)
+                .getCryptoMode() == CryptoMode.StrictAuthenticatedEncryption) {
+            throw new IllegalArgumentException(
+                    "Please provide a client whose crypto mode allows ranged gets");
+        }
+        this.s3 = s3;
+        this.request = request;
+        this.chunkSize = chunkSize;
+        this.readAheadChunks = readAheadChunks;
+        this.executor = executor;
+
+        GetObjectMetadataRequest metadataRequest = new GetObjectMetadataRequest(
+                request.getBucketName(), request.getKey(), request.getVersionId())
+                .withSSECustomerKey(request.getSSECustomerKey());
+        ObjectMetadata metadata = s3.getObjectMetadata(metadataRequest);
+        this.eTag = metadata.getETag();
+
+        long length = metadata.getContentLength();
+        if (s3 instanceof AmazonS3Encryption) {
+            // The content length is that of the ciphertext, which includes
+            // the padding or the authentication tag
+            String plaintextLength = metadata.getUserMetaDataOf(Headers.UNENCRYPTED_CONTENT_LENGTH);
+            if (plaintextLength == null) {
+                throw new AmazonClientException("Unable to read " + request.getKey()
+                        + " ahead, as its plaintext length is unknown; "
+                        + "please read it with AmazonS3#getObject instead");
+            }
+            length = Long.parseLong(plaintextLength);
+        }
+        long[] range = request.getRange();
+        if (range != null) {
+            this.start = Math.min(range[0], length);
+            this.end = Math.min(range[1] + 1, length);
+        } else {
+            this.start = 0;
+            this.end = length;
+        }
+        this.position = start;
+        this.nextChunkStart = start;
+        fillReadAhead();
+    }
+
+    /**
+     * Returns the offset in the object of the next byte to read.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the offset in the object after the last byte of the stream,
+     * which is the length of the object unless a range was requested.
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Moves to the given offset in the object. Seeking forward within the
+     * chunks read ahead is cheap; seeking elsewhere discards them.
+     *
+     * @param newPosition
+     *            The offset in the object of the next byte to read, between
+     *            the start and the end of the stream.
+     */
+    public void seek(long newPosition) throws IOException {
+        checkOpen();
+        if (newPosition < start || newPosition > end) {
+            throw new IllegalArgumentException("Please provide a position within "
+                    + start + " and " + end);
+        }
+        if (newPosition >= position && newPosition < nextChunkStart) {
+            // Forward within the read ahead
+            while (chunks.peekFirst().end() <= newPosition) {
+                chunks.pollFirst().cancel();
+            }
+        } else if (newPosition != position) {
+            cancelAll();
+            nextChunkStart = newPosition;
+        }
+        position = newPosition;
+        fillReadAhead();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkOpen();
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= end) {
+            return -1;
+        }
+        Chunk chunk = chunks.peekFirst();
+        byte[] data = chunk.await();
+        int offset = (int) (position - chunk.start);
+        int read = Math.min(len, chunk.length - offset);
+        System.arraycopy(data, offset, b, off, read);
+        position += read;
+        if (position >= chunk.end()) {
+            chunks.pollFirst();
+            // Fetched, so no longer written to
+            if (data.length == chunkSize && freeBuffers.size() < readAheadChunks) {
+                freeBuffers.addLast(data);
+            }
+            fillReadAhead();
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, end - position);
+        seek(position + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkOpen();
+        Chunk chunk = chunks.peekFirst();
+        if (chunk == null || !chunk.data.isDone()) {
+            return 0;
+        }
+        return (int) (chunk.end() - position);
+    }
+
+    /**
+     * Stops fetching the chunks, aborting the transfers in progress.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            cancelAll();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void cancelAll() {
+        for (Chunk chunk : chunks) {
+            chunk.cancel();
+        }
+        chunks.clear();
+    }
+
+    /**
+     * Starts fetching chunks until the read ahead is full or the end is
+     * reached.
+     */
+    private void fillReadAhead() {
+        while (chunks.size() < readAheadChunks && nextChunkStart < end) {
+            int length = (int) Math.min(chunkSize, end - nextChunkStart);
+            byte[] buffer = freeBuffers.pollFirst();
+            if (buffer == null) {
+                buffer = new byte[length];
+            }
+            chunks.addLast(new Chunk(nextChunkStart, length, buffer));
+            nextChunkStart += length;
+        }
+    }
+
+    /**
+     * A range of the object, fetched in the background.
+     */
+    private final class Chunk implements Callable<byte[]> {
+        private final long start;
+        private final int length;
+        /** At least the length of the chunk. */
+        private final byte[] buffer;
+        private final Future<byte[]> data;
+        /** The number of bytes of the chunk read, by the fetching thread. */
+        private int filled;
+        /** The stream being read, to abort on cancellation. */
+        private volatile S3ObjectInputStream in;
+        private volatile boolean canceled;
+
+        Chunk(long start, int length, byte[] buffer) {
+            this.start = start;
+            this.length = length;
+            this.buffer = buffer;
+            this.data = executor.submit(this);
+        }
+
+        long end() {
+            return start + length;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            for (int attempt = 1; ; attempt++) {
+                Exception failure;
+                try {
+                    fill();
+                    return buffer;
+                } catch (IOException e) {
+                    if (!isResumable(e, attempt)) {
+                        throw e;
+                    }
+                    failure = e;
+                } catch (AmazonClientException e) {
+                    if (!isResumable(e, attempt)) {
+                        throw e;
+                    }
+                    failure = e;
+                }
+                log.debug("Resuming the read of " + request.getKey() + " at "
+                        + (start + filled) + " after a failure", failure);
+            }
+        }
+
+        private boolean isResumable(Exception e, int attempt) {
+            if (canceled || attempt >= MAX_ATTEMPTS) {
+                return false;
+            }
+            if (e instanceof ObjectChangedException) {
+                return false;
+            }
+            if (e instanceof AmazonServiceException) {
+                return ((AmazonServiceException) e).getStatusCode() >= 500;
+            }
+            if (e instanceof AmazonClientException) {
+                return ((AmazonClientException) e).isRetryable();
+            }
+            return true;
+        }
+
+        /**
+         * Reads the rest of the chunk, from the byte after the last one read.
+         */
+        private void fill() throws IOException {
+            GetObjectRequest rangeRequest = new GetObjectRequest(request.getBucketName(),
+                    request.getKey(), request.getVersionId())
+                    .withSSECustomerKey(request.getSSECustomerKey())
+                    .withRange(start + filled, end() - 1);
+            if (eTag != null) {
+                rangeRequest.withMatchingETagConstraint(eTag);
+            }
+            S3Object object = s3.getObject(rangeRequest);
+            if (object == null) {
+                // The ETag no longer matches
+                throw new ObjectChangedException("The object " + request.getKey()
+                        + " changed while being read");
+            }
+            in = object.getObjectContent();
+            try {
+                while (filled < length) {
+                    if (canceled) {
+                        throw new CancellationException();
+                    }
+                    int read = in.read(buffer, filled, length - filled);
+                    if (read == -1) {
+                        throw new IOException("Unexpected end of " + request.getKey()
+                                + " at " + (start + filled));
+                    }
+                    filled += read;
+                }
+            } finally {
+                if (filled < length) {
+                    // Don't drain the rest of the response
+                    in.abort();
+                } else {
+                    in.close();
+                }
+            }
+        }
+
+        /**
+         * Waits for the chunk to be fetched.
+         */
+        byte[] await() throws IOException {
+            try {
+                return data.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AbortedException();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new AmazonClientException("Unable to read " + request.getKey(), cause);
+            }
+        }
+
+        void cancel() {
+            canceled = true;
+            data.cancel(false);
+            S3ObjectInputStream stream = in;
+            if (stream != null) {
+                stream.abort();
+            }
+        }
+    }
+
+    /**
+     * Thrown when the object is found to have been overwritten, which isn't
+     * worth retrying.
+     */
+    private static final class ObjectChangedException extends AmazonClientException {
+        private static final long serialVersionUID = 1L;
+
+        ObjectChangedException(String message) {
+            super(message);
+        }
+
+        @Override
+        public boolean isRetryable() {
+            return false;
+        }
+    }
+}
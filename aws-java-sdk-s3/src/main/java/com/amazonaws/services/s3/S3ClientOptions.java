@@ -25,10 +25,18 @@ public class S3ClientOptions {
     /** Flag for use of path-style access */
     private boolean pathStyleAccess = DEFAULT_PATH_STYLE_ACCESS;
 
+    /** Flag for computing the MD5 of uploaded files while they are sent */
+    private boolean singlePassFileUpload;
+
+    /** The cache of bucket regions, shared by the clients given these options */
+    private BucketRegionCache bucketRegionCache;
+
     public S3ClientOptions() {}
 
     public S3ClientOptions( S3ClientOptions other ) {
         this.pathStyleAccess = other.pathStyleAccess;
+        this.singlePassFileUpload = other.singlePassFileUpload;
+        this.bucketRegionCache = other.bucketRegionCache;
     }
 
     /**
@@ -103,4 +111,103 @@ public class S3ClientOptions {
       return this;
     }
 
-}
\ No newline at end of file
+    /**
+     * <p>
+     * Returns whether the client reads a file uploaded with
+     * <code>putObject</code> only once.
+     * </p>
+     * <p>
+     * By default, the client reads the file once to compute its
+     * <code>Content-MD5</code> header, so that Amazon S3 rejects a corrupted
+     * upload, and then again to send it. With this flag set, the MD5 is
+     * computed while the file is being sent and is verified against the ETag
+     * returned by Amazon S3 instead, so that a corrupted upload fails after the
+     * object was stored. Uploads with server side encryption, whose ETag isn't
+     * the MD5 of the content, are then not verified.
+     * </p>
+     * @return True if the client reads uploaded files only once
+     */
+    public boolean isSinglePassFileUpload() {
+        return singlePassFileUpload;
+    }
+
+    /**
+     * <p>
+     * Configures the client to read a file uploaded with
+     * <code>putObject</code> only once, computing its MD5 while it is being
+     * sent rather than beforehand.
+     * </p>
+     * @param singlePassFileUpload
+     *            True to read uploaded files only once.
+     * @see #isSinglePassFileUpload()
+     */
+    public void setSinglePassFileUpload(boolean singlePassFileUpload) {
+        this.singlePassFileUpload = singlePassFileUpload;
+    }
+
+    /**
+     * <p>
+     * Configures the client to read a file uploaded with
+     * <code>putObject</code> only once, computing its MD5 while it is being
+     * sent rather than beforehand.
+     * </p>
+     * @param singlePassFileUpload
+     *            True to read uploaded files only once.
+     *
+     * @return The updated S3ClientOptions object with the new single pass
+     *         file upload setting.
+     * @see #isSinglePassFileUpload()
+     */
+    public S3ClientOptions withSinglePassFileUpload(boolean singlePassFileUpload) {
+        setSinglePassFileUpload(singlePassFileUpload);
+        return this;
+    }
+
+    /**
+     * <p>
+     * Returns the cache of bucket regions used by the client, if any.
+     * </p>
+     * <p>
+     * By default, a client sends its requests to its configured endpoint, and
+     * a request to a bucket in another region may be redirected. With a cache,
+     * a client configured with an Amazon S3 endpoint sends the requests to a
+     * bucket whose region is cached straight to the endpoint of that region,
+     * signed with Signature Version 4. The cache is shared by all the clients
+     * given it, and is not copied with the options.
+     * </p>
+     * @return The cache of bucket regions, or null if none.
+     */
+    public BucketRegionCache getBucketRegionCache() {
+        return bucketRegionCache;
+    }
+
+    /**
+     * <p>
+     * Configures the client to send the requests to buckets in other regions
+     * straight to the regions found in the given cache.
+     * </p>
+     * @param bucketRegionCache
+     *            The cache of bucket regions, or null for none.
+     * @see #getBucketRegionCache()
+     */
+    public void setBucketRegionCache(BucketRegionCache bucketRegionCache) {
+        this.bucketRegionCache = bucketRegionCache;
+    }
+
+    /**
+     * <p>
+     * Configures the client to send the requests to buckets in other regions
+     * straight to the regions found in the given cache.
+     * </p>
+     * @param bucketRegionCache
+     *            The cache of bucket regions, or null for none.
+     *
+     * @return The updated S3ClientOptions object with the new bucket region
+     *         cache.
+     * @see #getBucketRegionCache()
+     */
+    public S3ClientOptions withBucketRegionCache(BucketRegionCache bucketRegionCache) {
+        setBucketRegionCache(bucketRegionCache);
+        return this;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.http.annotation.NotThreadSafe;
+
+import com.amazonaws.internal.ReleasableInputStream;
+
+/**
+ * A mark-and-resettable input stream of a segment of a file, such as the part
+ * of a multipart upload, which reads the file with positional
+ * {@link FileChannel} reads straight into the buffer of the caller. Unlike an
+ * {@link InputSubstream} over a {@link com.amazonaws.internal.ResettableInputStream},
+ * skipping to the segment and resetting the stream, as on a retry, are free
+ * and there is no intermediate copy of the data.
+ */
+@NotThreadSafe
+public class FileSegmentInputStream extends ReleasableInputStream {
+    private final File file;
+    private final FileChannel fileChannel;
+    /** The end position of the segment in the file, exclusive. */
+    private final long end;
+    /** The current position in the file. */
+    private long position;
+    /** The position in the file as of the last mark. */
+    private long markPos;
+    private final byte[] singleByte = new byte[1];
+
+    /**
+     * @param file
+     *            The file to read.
+     * @param offset
+     *            The position in the file of the first byte of the segment.
+     * @param length
+     *            The length of the segment; the segment ends earlier if the
+     *            file does.
+     */
+    public FileSegmentInputStream(File file, long offset, long length) throws IOException {
+        this(new FileInputStream(file), file, offset, length);
+    }
+
+    private FileSegmentInputStream(FileInputStream fis, File file, long offset, long length)
+            throws IOException {
+        super(fis);
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Please provide a valid offset and length");
+        }
+        this.file = file;
+        this.fileChannel = fis.getChannel();
+        this.end = Math.min(fileChannel.size(), offset + length);
+        this.position = Math.min(offset, end);
+        this.markPos = position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks the current position, which can be returned to regardless of the
+     * read limit.
+     */
+    @Override
+    public void mark(int readlimit) {
+        abortIfNeeded();
+        markPos = position;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        abortIfNeeded();
+        position = markPos;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = read(singleByte, 0, 1);
+        return read == -1 ? -1 : singleByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= end) {
+            return -1;
+        }
+        int count = (int) Math.min(len, end - position);
+        int read = fileChannel.read(ByteBuffer.wrap(b, off, count), position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        abortIfNeeded();
+        if (n <= 0) {
+            return 0;
+        }
+        long skipped = Math.min(n, end - position);
+        position += skipped;
+        return skipped;
+    }
+
+    /**
+     * Returns the file read by this stream.
+     */
+    public File getFile() {
+        return file;
+    }
+}
@@ -23,6 +23,7 @@ import java.io.InputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.internal.ResettableInputStream;
 import com.amazonaws.internal.SdkBufferedInputStream;
 import com.amazonaws.internal.SdkInputStream;
@@ -66,11 +67,11 @@ public class RepeatableInputStream extends SdkInputStream {
 
         this.is = inputStream;
         this.bufferSize = bufferSize;
-        this.buffer = new byte[this.bufferSize];
+        this.buffer = BufferPool.borrow(this.bufferSize);
 
         if (log.isDebugEnabled()) {
             log.debug("Underlying input stream will be repeatable up to "
-                    + this.buffer.length + " bytes");
+                    + this.bufferSize + " bytes");
         }
     }
 
@@ -119,16 +120,15 @@ public class RepeatableInputStream extends SdkInputStream {
              * to cast bytesReadPastMark to an int because it is known to be
              * less than bufferSize, which is an int.
              */
-            byte[] newBuffer = new byte[this.bufferSize];
-            System.arraycopy(buffer, bufferOffset, newBuffer, 0, (int)(bytesReadPastMark - bufferOffset));
-            this.buffer = newBuffer;
+            System.arraycopy(buffer, bufferOffset, buffer, 0, (int)(bytesReadPastMark - bufferOffset));
             this.bytesReadPastMark -= bufferOffset;
             this.bufferOffset = 0;
         } else {
             // If mark is called after the buffer was already exceeded, create a new buffer.
             this.bufferOffset = 0;
             this.bytesReadPastMark = 0;
-            this.buffer = new byte[this.bufferSize];
+            BufferPool.release(this.buffer);
+            this.buffer = BufferPool.borrow(this.bufferSize);
         }
     }
 
@@ -145,6 +145,8 @@ public class RepeatableInputStream extends SdkInputStream {
      */
     public void close() throws IOException {
         is.close();
+        BufferPool.release(buffer);
+        buffer = null;
         abortIfNeeded();
     }
 
@@ -188,6 +190,7 @@ public class RepeatableInputStream extends SdkInputStream {
                 hasWarnedBufferOverflow = true;
             }
 
+            BufferPool.release(buffer);
             buffer = null;
         }
 
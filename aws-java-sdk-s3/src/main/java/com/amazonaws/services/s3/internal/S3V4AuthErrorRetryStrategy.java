@@ -30,6 +30,7 @@ import com.amazonaws.regions.Regions;
 import com.amazonaws.retry.internal.AuthErrorRetryStrategy;
 import com.amazonaws.retry.internal.AuthRetryParameters;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.BucketRegionCache;
 import com.amazonaws.services.s3.Headers;
 import com.amazonaws.util.StringUtils;
 
@@ -47,10 +48,23 @@ public class S3V4AuthErrorRetryStrategy implements AuthErrorRetryStrategy {
 
     private final S3RequestEndpointResolver endpointResolver;
     private final SdkPredicate<AmazonServiceException> sigV4RetryPredicate;
+    /** The cache to record the regions redirected to in, or null. */
+    private final BucketRegionCache bucketRegionCache;
 
     public S3V4AuthErrorRetryStrategy(S3RequestEndpointResolver endpointResolver) {
+        this(endpointResolver, (BucketRegionCache) null);
+    }
+
+    /**
+     * @param bucketRegionCache
+     *            The cache to record the regions of the buckets redirected to
+     *            in, so that their next requests go straight to them, or null.
+     */
+    public S3V4AuthErrorRetryStrategy(S3RequestEndpointResolver endpointResolver,
+            BucketRegionCache bucketRegionCache) {
         this.endpointResolver = endpointResolver;
         this.sigV4RetryPredicate = new IsSigV4RetryablePredicate();
+        this.bucketRegionCache = bucketRegionCache;
     }
 
     /**
@@ -60,6 +74,7 @@ public class S3V4AuthErrorRetryStrategy implements AuthErrorRetryStrategy {
             SdkPredicate<AmazonServiceException> isSigV4Retryable) {
         this.endpointResolver = endpointResolver;
         this.sigV4RetryPredicate = isSigV4Retryable;
+        this.bucketRegionCache = null;
     }
 
     @Override
@@ -86,6 +101,9 @@ public class S3V4AuthErrorRetryStrategy implements AuthErrorRetryStrategy {
         final String region = getServingRegionHeader(response);
         AWSS3V4Signer v4Signer = buildSigV4Signer(region);
         endpointResolver.resolveRequestEndpoint(request, region);
+        if (bucketRegionCache != null && endpointResolver.getBucketName() != null) {
+            bucketRegionCache.putRegion(endpointResolver.getBucketName(), region);
+        }
         return buildRetryParams(v4Signer, request.getEndpoint());
     }
 
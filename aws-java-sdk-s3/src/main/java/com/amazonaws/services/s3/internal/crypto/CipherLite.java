@@ -26,6 +26,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.NullCipher;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 /**
  * Functions like a {@link Cipher} but provides only a subset of all the
@@ -297,6 +298,37 @@ class CipherLite {
         return cipher.update(input, inputOffset, inputLen);
     }
 
+    /**
+     * Continues a multiple-part encryption or decryption operation, like
+     * {@link #update(byte[], int, int)}, but stores the result in the given
+     * output buffer instead of a new buffer, so that a stream can process
+     * its data through a single buffer reused for every update.
+     * <p>
+     * The input length should be a multiple of the block size, except for
+     * the very last update, and the output buffer must have room for
+     * {@link #getOutputSize(int)} bytes.
+     * 
+     * @param input
+     *            the input buffer
+     * @param inputOffset
+     *            the offset in <code>input</code> where the input starts
+     * @param inputLen
+     *            the input length
+     * @param output
+     *            the buffer for the result
+     * @param outputOffset
+     *            the offset in <code>output</code> where the result is stored
+     * 
+     * @return the number of bytes stored in <code>output</code>
+     * 
+     * @exception ShortBufferException
+     *                if the output buffer is too small to hold the result
+     */
+    int update(byte[] input, int inputOffset, int inputLen, byte[] output,
+            int outputOffset) throws ShortBufferException {
+        return cipher.update(input, inputOffset, inputLen, output, outputOffset);
+    }
+
     /**
      * Returns the algorithm name of the underlying cipher.
      */
@@ -19,7 +19,9 @@ import java.io.InputStream;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 
+import com.amazonaws.internal.BufferPool;
 import com.amazonaws.internal.SdkFilterInputStream;
 
 /**
@@ -47,8 +49,16 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
      */
     private final boolean lastMultiPart;
     private boolean eof;
+    private final int bufinSize;
+    /** Borrowed from the buffer pool on first read; released on close. */
     private byte[] bufin;
+    /** The data processed but not yet read; either outbuf or a new buffer. */
     private byte[] bufout;
+    /**
+     * The output buffer of the updates of the cipher, borrowed from the
+     * buffer pool on first read; released on close.
+     */
+    private byte[] outbuf;
     private int curr_pos;
     private int max_pos;
 
@@ -73,7 +83,7 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
                     + ") must be a positive multiple of "
                     + DEFAULT_IN_BUFFER_SIZE);
         }
-        this.bufin = new byte[buffsize];
+        this.bufinSize = buffsize;
     }
 
     protected CipherLiteInputStream(InputStream is) {
@@ -165,6 +175,11 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
             }
         }
         curr_pos = max_pos = 0;
+        BufferPool.release(bufin);
+        bufin = null;
+        BufferPool.release(outbuf);
+        outbuf = null;
+        bufout = null;
         abortIfNeeded();
     }
 
@@ -216,7 +231,9 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
         if (eof)
             return -1;
         bufout = null;
-        int len = in.read(bufin);
+        if (bufin == null)
+            bufin = BufferPool.borrow(bufinSize);
+        int len = in.read(bufin, 0, bufinSize);
         if (len == -1) {
             eof = true;
             // Skip doFinal if it's a multi-part upload but not the last part 
@@ -239,8 +256,24 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
             }
             return -1;
         }
-        bufout = cipherLite.update(bufin, 0, len);
+        if (outbuf == null) {
+            // Leave room for the block a decrypting cipher may hold back
+            outbuf = BufferPool.borrow(cipherLite.getOutputSize(bufinSize)
+                    + cipherLite.getBlockSize());
+        }
         curr_pos = 0;
+        if (cipherLite.getOutputSize(len) <= outbuf.length) {
+            // The common case: no new buffer per chunk
+            try {
+                max_pos = cipherLite.update(bufin, 0, len, outbuf, 0);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            }
+            bufout = outbuf;
+            return max_pos;
+        }
+        // Ciphers buffering their output, such as some AES/GCM decryptions
+        bufout = cipherLite.update(bufin, 0, len);
         return max_pos = (bufout == null ? 0 : bufout.length);
     }
 
@@ -15,7 +15,13 @@
 package com.amazonaws.services.s3.iterable;
 
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import com.amazonaws.AmazonClientException;
+
+import com.amazonaws.internal.BackgroundExecutor;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
@@ -33,7 +39,9 @@ import com.amazonaws.services.s3.model.S3ObjectSummary;
  * <p>
  * The list of {@link S3ObjectSummary}s will be fetched lazily, a page at a
  * time, as they are needed. The size of the page can be controlled with the
- * {@link S3Objects#withBatchSize(int)} method.
+ * {@link S3Objects#withBatchSize(int)} method, and the next page can be
+ * fetched in the background while the current one is iterated with the
+ * {@link S3Objects#withPrefetch(boolean)} method.
  */
 public class S3Objects implements Iterable<S3ObjectSummary> {
 
@@ -41,6 +49,7 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
     private String prefix = null;
     private String bucketName;
     private Integer batchSize = null;
+    private boolean prefetch;
 
     private S3Objects(AmazonS3 s3, String bucketName) {
         this.s3 = s3;
@@ -91,6 +100,24 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
         return this;
     }
 
+    /**
+     * Sets whether the next page of {@link S3ObjectSummary}s is fetched in the
+     * background while the current page is iterated, so that a caller
+     * processing the objects as they are listed doesn't wait for each page.
+     * At most one page is fetched ahead.
+     *
+     * @param prefetch
+     *            True to fetch the next page in the background.
+     */
+    public S3Objects withPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    public boolean isPrefetch() {
+        return prefetch;
+    }
+
     public Integer getBatchSize() {
         return batchSize;
     }
@@ -113,6 +140,9 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
 
         private Iterator<S3ObjectSummary> currentIterator = null;
 
+        /** The next listing being fetched in the background, if any. */
+        private Future<ObjectListing> nextListing = null;
+
         @Override
         public boolean hasNext() {
             prepareCurrentListing();
@@ -139,11 +169,36 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
                     req.setPrefix(getPrefix());
                     req.setMaxKeys(getBatchSize());
                     currentListing = getS3().listObjects(req);
+                } else if ( nextListing != null ) {
+                    currentListing = awaitNextListing();
                 } else {
                     currentListing = getS3().listNextBatchOfObjects(currentListing);
                 }
 
                 currentIterator = currentListing.getObjectSummaries().iterator();
+                if ( isPrefetch() && currentListing.isTruncated() ) {
+                    final ObjectListing listing = currentListing;
+                    nextListing = BackgroundExecutor.getExecutorService().submit(new Callable<ObjectListing>() {
+                        public ObjectListing call() {
+                            return getS3().listNextBatchOfObjects(listing);
+                        }
+                    });
+                }
+            }
+        }
+
+        private ObjectListing awaitNextListing() {
+            try {
+                return nextListing.get();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException("Listing interrupted by other thread.", e);
+            } catch ( ExecutionException e ) {
+                if ( e.getCause() instanceof RuntimeException )
+                    throw (RuntimeException) e.getCause();
+                throw new AmazonClientException("Unable to list objects", e.getCause());
+            } finally {
+                nextListing = null;
             }
         }
 
@@ -153,5 +208,4 @@ public class S3Objects implements Iterable<S3ObjectSummary> {
     public Iterator<S3ObjectSummary> iterator() {
         return new S3ObjectIterator();
     }
-
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+import java.util.Map;
+
+import com.amazonaws.AmazonClientException;
+
+/**
+ * Copy of all the objects under a key prefix to another key prefix.
+ */
+public interface MultipleObjectCopy extends Transfer {
+
+    /**
+     * Returns the name of the bucket from which objects are copied.
+     */
+    public String getSourceBucketName();
+
+    /**
+     * Returns the key prefix of the objects being copied.
+     */
+    public String getSourceKeyPrefix();
+
+    /**
+     * Returns the name of the bucket to which objects are copied.
+     */
+    public String getDestinationBucketName();
+
+    /**
+     * Returns the key prefix replacing the source key prefix in the keys of
+     * the copies.
+     */
+    public String getDestinationKeyPrefix();
+
+    /**
+     * Returns the number of objects copied so far.
+     */
+    public long getCopiedObjectCount();
+
+    /**
+     * Returns the failures of the copies that failed, by source key. Only
+     * complete once this copy is done.
+     */
+    public Map<String, AmazonClientException> getFailures();
+}
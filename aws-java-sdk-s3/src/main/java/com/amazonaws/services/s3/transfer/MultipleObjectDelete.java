@@ -0,0 +1,46 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+import java.util.List;
+
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+
+/**
+ * Deletion of all the objects under a key prefix.
+ */
+public interface MultipleObjectDelete extends Transfer {
+
+    /**
+     * Returns the key prefix of the objects being deleted.
+     */
+    public String getKeyPrefix();
+
+    /**
+     * Returns the name of the bucket from which objects are deleted.
+     */
+    public String getBucketName();
+
+    /**
+     * Returns the number of objects deleted so far.
+     */
+    public long getDeletedObjectCount();
+
+    /**
+     * Returns the errors of the objects that couldn't be deleted so far,
+     * after retrying the transient ones.
+     */
+    public List<DeleteError> getErrors();
+}
@@ -70,6 +70,10 @@ import com.amazonaws.services.s3.transfer.internal.DownloadMonitor;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileDownloadImpl;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileTransferMonitor;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileUploadImpl;
+import com.amazonaws.services.s3.transfer.internal.MultipleObjectCopyImpl;
+import com.amazonaws.services.s3.transfer.internal.MultipleObjectDeleteImpl;
+import com.amazonaws.services.s3.transfer.internal.PipelinedMultipleFileDownloadImpl;
+import com.amazonaws.services.s3.transfer.internal.PipelinedMultipleFileUploadImpl;
 import com.amazonaws.services.s3.transfer.internal.S3ProgressListener;
 import com.amazonaws.services.s3.transfer.internal.S3ProgressListenerChain;
 import com.amazonaws.services.s3.transfer.internal.TransferManagerUtils;
@@ -262,7 +266,9 @@ public class TransferManager {
      * @param s3
      *            The client to use when making requests to Amazon S3.
      * @param threadPool
-     *            The thread pool in which to execute requests.
+     *            The thread pool in which to execute requests. A
+     *            {@link TransferScheduler}, or a lane of one, also shares the
+     *            threads fairly between transfers and limits their bandwidth.
      * @param shutDownThreadPools
      *            If set to true, the thread pool will be shutdown when transfer
      *            manager instance is garbage collected.
@@ -320,10 +326,15 @@ public class TransferManager {
      * options in the stream through the content length field in the
      * <code>ObjectMetadata</code> parameter.
      * If no content length is specified for the input
-     * stream, then TransferManager will attempt to buffer all the stream
-     * contents in memory and upload the options as a traditional, single part
-     * upload. Because the entire stream contents must be buffered in memory,
-     * this can be very expensive, and should be avoided whenever possible.
+     * stream, then TransferManager cuts the stream into parts of the minimum
+     * upload part size as it reads it, and uploads them concurrently in a
+     * multipart upload, holding at most
+     * {@link TransferManagerConfiguration#getStreamingUploadBufferCount()}
+     * parts in memory; a stream smaller than a part is uploaded in a single
+     * part. With the encryption client, the entire stream contents are
+     * instead buffered in memory and uploaded as a traditional, single part
+     * upload, which can be very expensive and should be avoided whenever
+     * possible.
      * </p>
      * <p>
      * Use the returned <code>Upload</code> object to query the progress of the
@@ -557,6 +568,21 @@ public class TransferManager {
             final S3ProgressListener progressListener,
             final PersistableUpload persistableUpload) throws AmazonServiceException,
             AmazonClientException {
+        return doUpload(putObjectRequest, stateListener, progressListener,
+                persistableUpload, threadPool);
+    }
+
+    /**
+     * Same as {@link #doUpload(PutObjectRequest, TransferStateChangeListener,
+     * S3ProgressListener, PersistableUpload)}, but uploading with the given
+     * thread pool instead of the one of this <code>TransferManager</code>.
+     */
+    private Upload doUpload(final PutObjectRequest putObjectRequest,
+            final TransferStateChangeListener stateListener,
+            final S3ProgressListener progressListener,
+            final PersistableUpload persistableUpload,
+            final ExecutorService executor) throws AmazonServiceException,
+            AmazonClientException {
 
         appendSingleObjectUserAgent(putObjectRequest);
 
@@ -594,7 +620,10 @@ public class TransferManager {
                 new TransferProgressUpdatingListener(transferProgress),
                 putObjectRequest.getGeneralProgressListener(), progressListener);
 
-        putObjectRequest.setGeneralProgressListener(listenerChain);
+        // Throttled on the thread reading the content, if the thread pool is
+        // a TransferScheduler with a bandwidth limit
+        putObjectRequest.setGeneralProgressListener(
+                TransferScheduler.throttle(threadPool, listenerChain));
 
         UploadImpl upload = new UploadImpl(description, transferProgress,
                 listenerChain, stateListener);
@@ -605,10 +634,10 @@ public class TransferManager {
          * multiple parallel uploads submitted. This may result in a delay for
          * processing the complete multi part upload request.
          */
-        UploadCallable uploadCallable = new UploadCallable(this, threadPool,
+        UploadCallable uploadCallable = new UploadCallable(this, executor,
                 upload, putObjectRequest, listenerChain, multipartUploadId,
                 transferProgress);
-        UploadMonitor watcher = UploadMonitor.create(this, upload, threadPool,
+        UploadMonitor watcher = UploadMonitor.create(this, upload, executor,
                 uploadCallable, putObjectRequest, listenerChain);
         upload.setMonitor(watcher);
 
@@ -743,6 +772,19 @@ public class TransferManager {
             final File file, final TransferStateChangeListener stateListener,
             final S3ProgressListener s3progressListener,
             final boolean resumeExistingDownload)
+    {
+        return doDownload(getObjectRequest, file, stateListener,
+                s3progressListener, resumeExistingDownload, -1);
+    }
+
+    /**
+     * Same as above, but with the content length of the object if already
+     * known, or -1 to look it up.
+     */
+    private Download doDownload(final GetObjectRequest getObjectRequest,
+            final File file, final TransferStateChangeListener stateListener,
+            final S3ProgressListener s3progressListener,
+            final boolean resumeExistingDownload, final long contentLength)
     {
         appendSingleObjectUserAgent(getObjectRequest);
         String description = "Downloading from " + getObjectRequest.getBucketName() + "/" + getObjectRequest.getKey();
@@ -758,8 +800,8 @@ public class TransferManager {
         // This listener chain ignores any COMPLETE event, so that we could
         // delay firing the signal until the high-level download fully finishes.
         getObjectRequest.setGeneralProgressListener(
-            new ProgressListenerChain(
-                new TransferCompletionFilter(), listenerChain));
+            TransferScheduler.throttle(threadPool, new ProgressListenerChain(
+                new TransferCompletionFilter(), listenerChain)));
 
         long startingByte = 0;
         long lastByte;
@@ -769,6 +811,8 @@ public class TransferManager {
                 && range.length == 2) {
             startingByte = range[0];
             lastByte = range[1];
+        } else if (contentLength >= 0) {
+            lastByte = contentLength - 1;
         } else {
             GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(
                     getObjectRequest.getBucketName(), getObjectRequest.getKey());
@@ -857,6 +901,8 @@ public class TransferManager {
     public MultipleFileDownload downloadDirectory(String bucketName, String keyPrefix, File destinationDirectory) {
         if ( keyPrefix == null )
             keyPrefix = "";
+        if ( configuration.isPipelinedDirectoryDownload() )
+            return downloadDirectoryInPipeline(bucketName, keyPrefix, destinationDirectory);
         List<S3ObjectSummary> objectSummaries = new LinkedList<S3ObjectSummary>();
         Stack<String> commonPrefixes = new Stack<String>();
         commonPrefixes.add(keyPrefix);
@@ -949,6 +995,43 @@ public class TransferManager {
         return multipleFileDownload;
     }
 
+    /**
+     * Downloads all objects in the virtual directory designated by the
+     * keyPrefix given, starting the downloads of each listed page of objects
+     * while the rest of the directory is being listed.
+     *
+     * @see TransferManagerConfiguration#isPipelinedDirectoryDownload()
+     */
+    private MultipleFileDownload downloadDirectoryInPipeline(String bucketName, String keyPrefix,
+            File destinationDirectory) {
+        /* This is the hook for adding additional progress listeners */
+        ProgressListenerChain additionalListeners = new ProgressListenerChain();
+
+        TransferProgress transferProgress = new TransferProgress();
+        transferProgress.setTotalBytesToTransfer(0);
+        // All the single-file downloads share the same
+        // MultipleFileTransferProgressUpdatingListener
+        final ProgressListener listener = new MultipleFileTransferProgressUpdatingListener(
+                transferProgress, additionalListeners);
+
+        String description = "Downloading from " + bucketName + "/" + keyPrefix;
+        PipelinedMultipleFileDownloadImpl multipleFileDownload = new PipelinedMultipleFileDownloadImpl(
+                description, transferProgress, additionalListeners, s3, bucketName, keyPrefix,
+                destinationDirectory) {
+            @Override
+            protected Download startDownload(S3ObjectSummary summary, File file,
+                    TransferStateChangeListener stateListener) {
+                // The listed size saves looking up the object metadata
+                return doDownload(
+                        new GetObjectRequest(summary.getBucketName(), summary.getKey())
+                                .<GetObjectRequest>withGeneralProgressListener(listener),
+                        file, stateListener, null, false, summary.getSize());
+            }
+        };
+        multipleFileDownload.start();
+        return multipleFileDownload;
+    }
+
     /**
      * Uploads all files in the directory given to the bucket named, optionally
      * recursing for all subdirectories.
@@ -1019,12 +1102,65 @@ public class TransferManager {
             throw new IllegalArgumentException("Must provide a directory to upload");
         }
 
+        if ( configuration.isPipelinedDirectoryUpload() )
+            return uploadDirectoryInPipeline(bucketName, virtualDirectoryKeyPrefix, directory,
+                    includeSubdirectories, metadataProvider);
+
         List<File> files = new LinkedList<File>();
         listFiles(directory, files, includeSubdirectories);
 
         return uploadFileList(bucketName, virtualDirectoryKeyPrefix, directory, files, metadataProvider);
     }
 
+    /**
+     * Uploads all files in the directory given to the bucket named, starting
+     * the uploads of the files of each directory while the rest of the tree
+     * is being walked.
+     *
+     * @see TransferManagerConfiguration#isPipelinedDirectoryUpload()
+     */
+    private MultipleFileUpload uploadDirectoryInPipeline(final String bucketName,
+            String virtualDirectoryKeyPrefix, File directory, boolean includeSubdirectories,
+            final ObjectMetadataProvider metadataProvider) {
+        if (virtualDirectoryKeyPrefix == null || virtualDirectoryKeyPrefix.length() == 0) {
+            virtualDirectoryKeyPrefix = "";
+        } else if ( !virtualDirectoryKeyPrefix.endsWith("/") ) {
+            virtualDirectoryKeyPrefix = virtualDirectoryKeyPrefix + "/";
+        }
+
+        /* This is the hook for adding additional progress listeners */
+        ProgressListenerChain additionalListeners = new ProgressListenerChain();
+        TransferProgress progress = new TransferProgress();
+        progress.setTotalBytesToTransfer(0);
+        // All the single-file uploads share the same
+        // MultipleFileTransferProgressUpdatingListener
+        final ProgressListener listener = new MultipleFileTransferProgressUpdatingListener(
+                progress, additionalListeners);
+
+        String description = "Uploading to " + bucketName + "/" + virtualDirectoryKeyPrefix;
+        PipelinedMultipleFileUploadImpl multipleFileUpload = new PipelinedMultipleFileUploadImpl(
+                description, progress, additionalListeners, s3, bucketName,
+                virtualDirectoryKeyPrefix, directory, includeSubdirectories,
+                configuration.isSkipUnchangedFilesInDirectoryUpload(),
+                configuration.getMultipartUploadThreshold(),
+                configuration.getSmallFileUploadConcurrency(), threadPool) {
+            @Override
+            protected Upload startUpload(File file, String key, ExecutorService executor,
+                    TransferStateChangeListener stateListener) {
+                ObjectMetadata metadata = new ObjectMetadata();
+                if (metadataProvider != null) {
+                    metadataProvider.provideObjectMetadata(file, metadata);
+                }
+                return doUpload(new PutObjectRequest(bucketName, key, file)
+                                .withMetadata(metadata)
+                                .<PutObjectRequest>withGeneralProgressListener(listener),
+                        stateListener, null, null, executor);
+            }
+        };
+        multipleFileUpload.start();
+        return multipleFileUpload;
+    }
+
     /**
      * Uploads all specified files to the bucket named, constructing
      * relative keys depending on the commonParentDirectory given.
@@ -1453,12 +1589,6 @@ public class TransferManager {
                 copyObjectRequest.getDestinationKey(),
                 "The destination object key must be specified when a copy request is initiated.");
 
-        String description = "Copying object from "
-                + copyObjectRequest.getSourceBucketName() + "/"
-                + copyObjectRequest.getSourceKey() + " to "
-                + copyObjectRequest.getDestinationBucketName() + "/"
-                + copyObjectRequest.getDestinationKey();
-
         GetObjectMetadataRequest getObjectMetadataRequest =
                 new GetObjectMetadataRequest(
                         copyObjectRequest.getSourceBucketName(),
@@ -1467,6 +1597,20 @@ public class TransferManager {
 
         ObjectMetadata metadata = s3.getObjectMetadata(getObjectMetadataRequest);
 
+        return doCopy(copyObjectRequest, stateChangeListener, metadata);
+    }
+
+    /**
+     * Schedules the copy of an object with the given metadata.
+     */
+    private Copy doCopy(CopyObjectRequest copyObjectRequest,
+            TransferStateChangeListener stateChangeListener, ObjectMetadata metadata) {
+        String description = "Copying object from "
+                + copyObjectRequest.getSourceBucketName() + "/"
+                + copyObjectRequest.getSourceKey() + " to "
+                + copyObjectRequest.getDestinationBucketName() + "/"
+                + copyObjectRequest.getDestinationKey();
+
         TransferProgress transferProgress = new TransferProgress();
         transferProgress.setTotalBytesToTransfer(metadata.getContentLength());
 
@@ -1483,6 +1627,144 @@ public class TransferManager {
         return copy;
     }
 
+    /**
+     * <p>
+     * Schedules the copy of all the objects under a key prefix to another key
+     * prefix, possibly in another bucket: the key of each copy is the key of
+     * its object with the source key prefix replaced by the destination key
+     * prefix. This method is non-blocking and returns immediately (i.e.
+     * before the copies have finished).
+     * </p>
+     * <p>
+     * The objects are copied as soon as they are listed, with the thread pool
+     * of this <code>TransferManager</code>. Objects larger than the multipart
+     * copy threshold are copied in parts, as with
+     * {@link #copy(CopyObjectRequest)}, while the others are copied in a
+     * single request without first looking up their metadata. A failed copy
+     * doesn't stop the others; the failures are reported by
+     * {@link MultipleObjectCopy#getFailures()} once all are done.
+     * </p>
+     * <p>
+     * Within a bucket, neither key prefix may start with the other, since the
+     * copies could then be listed and copied in turn.
+     * </p>
+     *
+     * @param sourceBucketName
+     *            The name of the bucket from where the objects are copied.
+     * @param sourceKeyPrefix
+     *            The key prefix of the objects to copy, or null for the
+     *            entire bucket.
+     * @param destinationBucketName
+     *            The name of the bucket to where the objects are copied.
+     * @param destinationKeyPrefix
+     *            The key prefix replacing the source key prefix in the keys
+     *            of the copies, or null to remove it.
+     * @return A new <code>MultipleObjectCopy</code> object to use to check
+     *         the state of the copies.
+     * @throws IllegalArgumentException
+     *             If the source and destination key prefixes of a copy within
+     *             a bucket overlap.
+     */
+    public MultipleObjectCopy copyPrefix(String sourceBucketName, String sourceKeyPrefix,
+            final String destinationBucketName, String destinationKeyPrefix) {
+        assertParameterNotNull(sourceBucketName,
+                "The source bucket name must be specified when a copy request is initiated.");
+        assertParameterNotNull(destinationBucketName,
+                "The destination bucket name must be specified when a copy request is initiated.");
+        if (sourceKeyPrefix == null)
+            sourceKeyPrefix = "";
+        if (destinationKeyPrefix == null)
+            destinationKeyPrefix = "";
+        // The copies would otherwise be listed and copied again
+        if (sourceBucketName.equals(destinationBucketName)
+                && (sourceKeyPrefix.startsWith(destinationKeyPrefix)
+                        || destinationKeyPrefix.startsWith(sourceKeyPrefix))) {
+            throw new IllegalArgumentException(
+                    "Please provide source and destination key prefixes that don't overlap"
+                            + " when copying within a bucket.");
+        }
+
+        /* This is the hook for adding additional progress listeners */
+        ProgressListenerChain additionalListeners = new ProgressListenerChain();
+        TransferProgress transferProgress = new TransferProgress();
+        transferProgress.setTotalBytesToTransfer(0);
+        ProgressListener listener = new MultipleFileTransferProgressUpdatingListener(
+                transferProgress, additionalListeners);
+
+        String description = "Copying objects from " + sourceBucketName + "/" + sourceKeyPrefix
+                + " to " + destinationBucketName + "/" + destinationKeyPrefix;
+        MultipleObjectCopyImpl multipleObjectCopy = new MultipleObjectCopyImpl(description,
+                transferProgress, additionalListeners, listener, s3, sourceBucketName,
+                sourceKeyPrefix, destinationBucketName, destinationKeyPrefix) {
+            @Override
+            protected Copy startCopy(S3ObjectSummary summary, String destinationKey,
+                    TransferStateChangeListener stateListener) {
+                CopyObjectRequest copyObjectRequest = new CopyObjectRequest(
+                        summary.getBucketName(), summary.getKey(),
+                        destinationBucketName, destinationKey);
+                if (summary.getSize() > configuration.getMultipartCopyThreshold()) {
+                    // A multipart copy needs the whole metadata of the source
+                    return copy(copyObjectRequest, stateListener);
+                }
+                appendSingleObjectUserAgent(copyObjectRequest);
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentLength(summary.getSize());
+                return doCopy(copyObjectRequest, stateListener, metadata);
+            }
+        };
+        multipleObjectCopy.start();
+        return multipleObjectCopy;
+    }
+
+    /**
+     * <p>
+     * Schedules the deletion of all the objects under a key prefix. This
+     * method is non-blocking and returns immediately (i.e. before the
+     * objects have been deleted).
+     * </p>
+     * <p>
+     * Each listed page of up to 1000 keys is deleted with a single
+     * multi-object delete request as soon as it's listed, and the requests
+     * of several pages run concurrently on the thread pool of this
+     * <code>TransferManager</code>. The keys that fail with a transient error
+     * are retried; the others are reported by
+     * {@link MultipleObjectDelete#getErrors()}. The progress is measured in
+     * bytes of the objects deleted.
+     * </p>
+     * <p>
+     * Versions of objects in a versioned bucket aren't deleted: deleting
+     * their keys only adds delete markers.
+     * </p>
+     *
+     * @param bucketName
+     *            The name of the bucket containing the objects to delete.
+     * @param keyPrefix
+     *            The key prefix of the objects to delete. Must not be null,
+     *            use the empty string to empty the entire bucket.
+     * @return A new <code>MultipleObjectDelete</code> object to use to check
+     *         the state of the deletion.
+     */
+    public MultipleObjectDelete deletePrefix(String bucketName, String keyPrefix) {
+        assertParameterNotNull(bucketName,
+                "The bucket name must be specified when a delete request is initiated.");
+        assertParameterNotNull(keyPrefix,
+                "The key prefix must be specified when a delete request is initiated.");
+
+        /* This is the hook for adding additional progress listeners */
+        ProgressListenerChain additionalListeners = new ProgressListenerChain();
+        TransferProgress transferProgress = new TransferProgress();
+        transferProgress.setTotalBytesToTransfer(0);
+        ProgressListener listener = new MultipleFileTransferProgressUpdatingListener(
+                transferProgress, additionalListeners);
+
+        String description = "Deleting objects from " + bucketName + "/" + keyPrefix;
+        MultipleObjectDeleteImpl multipleObjectDelete = new MultipleObjectDeleteImpl(
+                description, transferProgress, additionalListeners, listener, s3, threadPool,
+                bucketName, keyPrefix);
+        multipleObjectDelete.start();
+        return multipleObjectDelete;
+    }
+
     /**
      * Resumes an upload operation. This upload operation uses the same
      * configuration {@link TransferManagerConfiguration} as the original
@@ -39,6 +39,18 @@ public class TransferManagerConfiguration {
     /** Default minimum size of each part for multi-part copy. */
     private static final long DEFAULT_MINIMUM_COPY_PART_SIZE = 100 * MB;
 
+    /** Default number of part buffers of an upload of a stream of unknown length. */
+    private static final int DEFAULT_STREAMING_UPLOAD_BUFFER_COUNT = 5;
+
+    /** Default maximum number of small files of a pipelined directory upload uploading at once. */
+    private static final int DEFAULT_SMALL_FILE_UPLOAD_CONCURRENCY = 32;
+
+    /** Default maximum part size of an adaptive multipart upload. */
+    private static final long DEFAULT_MAXIMUM_UPLOAD_PART_SIZE = 256 * MB;
+
+    /** Default maximum number of parts of an adaptive multipart upload uploaded at once. */
+    private static final int DEFAULT_MAXIMUM_UPLOAD_PART_CONCURRENCY = 16;
+
     /**
      * The minimum part size for upload parts. Decreasing the minimum part size
      * will cause multipart uploads to be split into a larger number of smaller
@@ -77,6 +89,49 @@ public class TransferManagerConfiguration {
      */
     private long multipartCopyPartSize = DEFAULT_MINIMUM_COPY_PART_SIZE;
 
+    /**
+     * The maximum number of in-memory part buffers of an upload of a stream
+     * of unknown length, which bounds both its memory use and the number of
+     * its parts uploaded concurrently.
+     */
+    private int streamingUploadBufferCount = DEFAULT_STREAMING_UPLOAD_BUFFER_COUNT;
+
+    /**
+     * Whether directory downloads start downloading objects while the
+     * directory is still being listed.
+     */
+    private boolean pipelinedDirectoryDownload;
+
+    /**
+     * Whether directory uploads start uploading files while the directory is
+     * still being walked.
+     */
+    private boolean pipelinedDirectoryUpload;
+
+    /**
+     * The maximum number of files of a pipelined directory upload that are
+     * no larger than the multipart upload threshold uploading at once.
+     */
+    private int smallFileUploadConcurrency = DEFAULT_SMALL_FILE_UPLOAD_CONCURRENCY;
+
+    /**
+     * Whether pipelined directory uploads skip the files found unchanged in
+     * Amazon S3.
+     */
+    private boolean skipUnchangedFilesInDirectoryUpload;
+
+    /**
+     * Whether multipart uploads of files size their parts and choose their
+     * parallelism from the measured throughput and latency.
+     */
+    private boolean adaptiveMultipartUpload;
+
+    /** The maximum part size of an adaptive multipart upload. */
+    private long maximumUploadPartSize = DEFAULT_MAXIMUM_UPLOAD_PART_SIZE;
+
+    /** The maximum number of parts of an adaptive multipart upload uploaded at once. */
+    private int maximumUploadPartConcurrency = DEFAULT_MAXIMUM_UPLOAD_PART_CONCURRENCY;
+
     /**
      * Returns the minimum part size for upload parts.
      * Decreasing the minimum part size causes
@@ -192,4 +247,239 @@ public class TransferManagerConfiguration {
     public void setMultipartCopyThreshold(long multipartCopyThreshold) {
         this.multipartCopyThreshold = multipartCopyThreshold;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the maximum number of in-memory part buffers of an upload of a
+     * stream of unknown length. Such a stream is cut into parts of the
+     * minimum upload part size as it is read, and reading pauses while all
+     * the buffers are being uploaded, so that the upload holds at most this
+     * number of parts in memory.
+     *
+     * @return The maximum number of part buffers of a streaming upload.
+     */
+    public int getStreamingUploadBufferCount() {
+        return streamingUploadBufferCount;
+    }
+
+    /**
+     * Sets the maximum number of in-memory part buffers of an upload of a
+     * stream of unknown length. Such a stream is cut into parts of the
+     * minimum upload part size as it is read, and reading pauses while all
+     * the buffers are being uploaded, so that the upload holds at most this
+     * number of parts in memory.
+     *
+     * @param streamingUploadBufferCount
+     *            The maximum number of part buffers of a streaming upload,
+     *            at least 1.
+     */
+    public void setStreamingUploadBufferCount(int streamingUploadBufferCount) {
+        if (streamingUploadBufferCount < 1) {
+            throw new IllegalArgumentException(
+                    "Please provide at least one streaming upload buffer");
+        }
+        this.streamingUploadBufferCount = streamingUploadBufferCount;
+    }
+
+    /**
+     * Returns whether directory downloads are pipelined. A pipelined
+     * directory download starts downloading the objects of each listed page
+     * as soon as the page arrives, lists the virtual subdirectories in
+     * parallel, and bounds the number of downloads started but not finished,
+     * so that its memory use doesn't grow with the number of objects. The
+     * total number of bytes to transfer then grows as the directory is
+     * listed. By default, the whole directory is listed before any download
+     * starts.
+     *
+     * @return True if directory downloads are pipelined.
+     */
+    public boolean isPipelinedDirectoryDownload() {
+        return pipelinedDirectoryDownload;
+    }
+
+    /**
+     * Sets whether directory downloads are pipelined.
+     *
+     * @param pipelinedDirectoryDownload
+     *            True to start downloading objects while the directory is
+     *            still being listed.
+     * @see #isPipelinedDirectoryDownload()
+     */
+    public void setPipelinedDirectoryDownload(boolean pipelinedDirectoryDownload) {
+        this.pipelinedDirectoryDownload = pipelinedDirectoryDownload;
+    }
+
+    /**
+     * Returns whether directory uploads are pipelined. A pipelined directory
+     * upload starts uploading the files of each directory as soon as the
+     * directory is read, reads the subdirectories in parallel, and bounds the
+     * number of uploads started but not finished, so that its memory use
+     * doesn't grow with the number of files. The files no larger than the
+     * multipart upload threshold are uploaded at most
+     * {@link #getSmallFileUploadConcurrency()} at once, and all the files on
+     * the thread pool of the <code>TransferManager</code>.
+     * The total number of bytes to transfer then grows as the directory is
+     * walked. By default, the whole directory is walked before any upload
+     * starts.
+     *
+     * @return True if directory uploads are pipelined.
+     */
+    public boolean isPipelinedDirectoryUpload() {
+        return pipelinedDirectoryUpload;
+    }
+
+    /**
+     * Sets whether directory uploads are pipelined.
+     *
+     * @param pipelinedDirectoryUpload
+     *            True to start uploading files while the directory is still
+     *            being walked.
+     * @see #isPipelinedDirectoryUpload()
+     */
+    public void setPipelinedDirectoryUpload(boolean pipelinedDirectoryUpload) {
+        this.pipelinedDirectoryUpload = pipelinedDirectoryUpload;
+    }
+
+    /**
+     * Returns the maximum number of files of a pipelined directory upload
+     * that are no larger than the multipart upload threshold uploading at
+     * once. The upload of a small file is dominated by the latency of its
+     * request, so many more of them can be in flight than of large files.
+     * They run on the thread pool of the <code>TransferManager</code>, so
+     * they are also bounded by its number of threads, and share them with
+     * the other transfers according to its scheduling, such as the
+     * priorities of a {@link TransferScheduler}.
+     *
+     * @return The maximum number of small files uploading at once.
+     */
+    public int getSmallFileUploadConcurrency() {
+        return smallFileUploadConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of files of a pipelined directory upload that
+     * are no larger than the multipart upload threshold uploading at once.
+     *
+     * @param smallFileUploadConcurrency
+     *            The maximum number of small files uploading at once, at
+     *            least 1.
+     * @see #isPipelinedDirectoryUpload()
+     */
+    public void setSmallFileUploadConcurrency(int smallFileUploadConcurrency) {
+        if (smallFileUploadConcurrency < 1) {
+            throw new IllegalArgumentException(
+                    "Please provide at least one concurrent small file upload");
+        }
+        this.smallFileUploadConcurrency = smallFileUploadConcurrency;
+    }
+
+    /**
+     * Returns whether pipelined directory uploads skip unchanged files. Each
+     * directory is then listed in Amazon S3 before its files are uploaded,
+     * and a file is skipped when an object of its key has its size and was
+     * last modified no earlier than the file. Only applies when directory
+     * uploads are pipelined.
+     *
+     * @return True if pipelined directory uploads skip unchanged files.
+     * @see #isPipelinedDirectoryUpload()
+     */
+    public boolean isSkipUnchangedFilesInDirectoryUpload() {
+        return skipUnchangedFilesInDirectoryUpload;
+    }
+
+    /**
+     * Sets whether pipelined directory uploads skip unchanged files.
+     *
+     * @param skipUnchangedFilesInDirectoryUpload
+     *            True to skip the files whose object has the same size and
+     *            was last modified no earlier than the file.
+     * @see #isSkipUnchangedFilesInDirectoryUpload()
+     */
+    public void setSkipUnchangedFilesInDirectoryUpload(boolean skipUnchangedFilesInDirectoryUpload) {
+        this.skipUnchangedFilesInDirectoryUpload = skipUnchangedFilesInDirectoryUpload;
+    }
+
+    /**
+     * Returns whether multipart uploads of files are adaptive. The size of
+     * each part of an adaptive upload is chosen as it is cut, from the
+     * throughput measured on the parts uploaded so far and the round trip
+     * time of the request initiating the upload: parts are kept small on high
+     * latency or slow links, to spread the upload over more connections, and
+     * grow on fast links, to cut the overhead of each request. The number of
+     * parts uploaded at once grows while it increases the throughput of the
+     * upload. The parts are between the minimum and maximum upload part
+     * sizes.
+     * <p>
+     * As its parts are of different sizes, an adaptive upload can't be
+     * paused and resumed.
+     *
+     * @return True if multipart uploads of files are adaptive.
+     * @see #getMaximumUploadPartSize()
+     * @see #getMaximumUploadPartConcurrency()
+     */
+    public boolean isAdaptiveMultipartUpload() {
+        return adaptiveMultipartUpload;
+    }
+
+    /**
+     * Sets whether multipart uploads of files are adaptive.
+     *
+     * @param adaptiveMultipartUpload
+     *            True to size the parts and choose the parallelism of
+     *            multipart uploads of files from the measured throughput and
+     *            latency.
+     * @see #isAdaptiveMultipartUpload()
+     */
+    public void setAdaptiveMultipartUpload(boolean adaptiveMultipartUpload) {
+        this.adaptiveMultipartUpload = adaptiveMultipartUpload;
+    }
+
+    /**
+     * Returns the maximum part size of an adaptive multipart upload.
+     *
+     * @return The maximum part size of an adaptive multipart upload.
+     * @see #isAdaptiveMultipartUpload()
+     */
+    public long getMaximumUploadPartSize() {
+        return maximumUploadPartSize;
+    }
+
+    /**
+     * Sets the maximum part size of an adaptive multipart upload. Parts may
+     * still be larger to keep an upload within the maximum number of parts.
+     *
+     * @param maximumUploadPartSize
+     *            The maximum part size, in bytes.
+     * @see #isAdaptiveMultipartUpload()
+     */
+    public void setMaximumUploadPartSize(long maximumUploadPartSize) {
+        this.maximumUploadPartSize = maximumUploadPartSize;
+    }
+
+    /**
+     * Returns the maximum number of parts of an adaptive multipart upload
+     * uploaded at once. Fewer may be uploaded at once if the thread pool of
+     * the {@link TransferManager} has fewer threads.
+     *
+     * @return The maximum number of parts uploaded at once.
+     * @see #isAdaptiveMultipartUpload()
+     */
+    public int getMaximumUploadPartConcurrency() {
+        return maximumUploadPartConcurrency;
+    }
+
+    /**
+     * Sets the maximum number of parts of an adaptive multipart upload
+     * uploaded at once.
+     *
+     * @param maximumUploadPartConcurrency
+     *            The maximum number of parts uploaded at once, at least 1.
+     * @see #isAdaptiveMultipartUpload()
+     */
+    public void setMaximumUploadPartConcurrency(int maximumUploadPartConcurrency) {
+        if (maximumUploadPartConcurrency < 1) {
+            throw new IllegalArgumentException(
+                    "Please provide a maximum upload part concurrency of at least 1");
+        }
+        this.maximumUploadPartConcurrency = maximumUploadPartConcurrency;
+    }
+}
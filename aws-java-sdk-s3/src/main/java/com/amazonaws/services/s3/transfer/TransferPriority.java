@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+/**
+ * The priority class of the transfers submitted through a lane of a
+ * {@link TransferScheduler}. The tasks of the transfers are interleaved in
+ * proportion to the weight of their class, so a higher priority transfer is
+ * served ahead of a lower priority one without stopping it altogether.
+ *
+ * @see TransferScheduler#newLane(TransferPriority, long)
+ */
+public enum TransferPriority {
+
+    /** For small, latency sensitive transfers. */
+    HIGH(16),
+
+    /** The priority of the transfers submitted directly to a scheduler. */
+    NORMAL(4),
+
+    /** For bulk transfers, such as backups. */
+    LOW(1);
+
+    private final int weight;
+
+    private TransferPriority(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Returns the share of the threads of a scheduler given to a transfer of
+     * this priority, relative to the other priorities.
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.transfer.internal.ThrottlingProgressListener;
+import com.amazonaws.services.s3.transfer.internal.TokenBucket;
+
+/**
+ * A thread pool for {@link TransferManager} that shares its threads fairly
+ * between the transfers, by priority, and limits the bandwidth they use.
+ * <p>
+ * Each task submitted from outside the scheduler, such as the upload or
+ * download of a file, starts a flow, and the tasks it submits in turn, such as
+ * the parts of a multipart upload, belong to the same flow. The queued tasks
+ * of the flows are interleaved in proportion to the weights of their
+ * {@link TransferPriority}, so that a small transfer started behind a large
+ * one doesn't wait for all its parts to finish.
+ * <p>
+ * The bytes read from and written to Amazon S3 by the transfers are limited
+ * to an optional global rate, and to an optional rate per transfer of a lane.
+ * For example, backups sharing a network with a live service can be run with:
+ * <pre>
+ * TransferScheduler scheduler = new TransferScheduler(10, 50L * 1024 * 1024);
+ * TransferManager live = new TransferManager(s3, scheduler.newLane(TransferPriority.HIGH), false);
+ * TransferManager backup = new TransferManager(s3,
+ *         scheduler.newLane(TransferPriority.LOW, 5L * 1024 * 1024), false);
+ * </pre>
+ * The scheduler itself runs tasks with {@link TransferPriority#NORMAL}
+ * priority and no limit per transfer.
+ */
+@ThreadSafe
+public class TransferScheduler extends AbstractExecutorService {
+
+    /** The flow of the task running on the current thread, if any. */
+    private static final ThreadLocal<Flow> currentFlow = new ThreadLocal<Flow>();
+
+    private final ThreadPoolExecutor pool;
+    /** The global limit, or null if unlimited. */
+    private final TokenBucket bucket;
+    private final Lane defaultLane;
+
+    /**
+     * The start tag of the latest task to run; a new flow starts from here, so
+     * that it neither waits behind nor jumps over the whole backlog of the
+     * existing flows.
+     */
+    private double virtualTime;
+    private long sequence;
+
+    /**
+     * Creates a scheduler with the given number of threads, and no bandwidth
+     * limit.
+     */
+    public TransferScheduler(int threadCount) {
+        this(threadCount, 0);
+    }
+
+    /**
+     * Creates a scheduler with the given number of threads.
+     *
+     * @param threadCount
+     *            The number of threads to run the transfers on.
+     * @param maxBytesPerSecond
+     *            The maximum number of bytes per second to transfer over all
+     *            the transfers of the scheduler, or zero for no limit.
+     */
+    public TransferScheduler(int threadCount, long maxBytesPerSecond) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Please provide at least one thread");
+        }
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName("s3-transfer-scheduler-worker-" + threadCount.incrementAndGet());
+                return thread;
+            }
+        };
+        this.pool = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), threadFactory);
+        this.bucket = maxBytesPerSecond > 0 ? new TokenBucket(maxBytesPerSecond) : null;
+        this.defaultLane = new Lane(TransferPriority.NORMAL, 0);
+    }
+
+    /**
+     * Returns a view of this scheduler that runs its tasks with the given
+     * priority, to create a {@link TransferManager} with.
+     */
+    public ExecutorService newLane(TransferPriority priority) {
+        return newLane(priority, 0);
+    }
+
+    /**
+     * Returns a view of this scheduler that runs its tasks with the given
+     * priority, to create a {@link TransferManager} with. Shutting down the
+     * view only stops it from accepting tasks, and removes its queued tasks;
+     * the threads belong to the scheduler.
+     *
+     * @param priority
+     *            The priority of the transfers.
+     * @param maxBytesPerSecondPerTransfer
+     *            The maximum number of bytes per second to transfer for each
+     *            transfer, or zero for no limit.
+     */
+    public ExecutorService newLane(TransferPriority priority, long maxBytesPerSecondPerTransfer) {
+        if (priority == null) {
+            throw new IllegalArgumentException("Please provide a transfer priority");
+        }
+        return new Lane(priority, maxBytesPerSecondPerTransfer);
+    }
+
+    /**
+     * Returns the given listener of a transfer, throttled to the limits of the
+     * given executor if it is a scheduler or a lane of one.
+     */
+    static ProgressListener throttle(ExecutorService executor, ProgressListener listener) {
+        if (executor instanceof TransferScheduler) {
+            return ((TransferScheduler) executor).defaultLane.throttle(listener);
+        } else if (executor instanceof Lane) {
+            return ((Lane) executor).throttle(listener);
+        }
+        return listener;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        defaultLane.execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (Runnable task : pool.shutdownNow()) {
+            tasks.add(((ScheduledTask) task).task);
+        }
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    /** The tasks of a transfer. */
+    private final class Flow {
+        private final TransferScheduler scheduler = TransferScheduler.this;
+        private final double increment;
+        /** The finish tag of the latest task of the flow. */
+        private double finishTag;
+
+        private Flow(TransferPriority priority) {
+            this.increment = 1.0 / priority.getWeight();
+        }
+    }
+
+    private final class ScheduledTask implements Runnable, Comparable<ScheduledTask> {
+        private final Runnable task;
+        private final Flow flow;
+        private final Lane lane;
+        private final double startTag;
+        private final long sequenceNumber;
+
+        private ScheduledTask(Runnable task, Flow flow, Lane lane) {
+            this.task = task;
+            this.flow = flow;
+            this.lane = lane;
+            synchronized (TransferScheduler.this) {
+                this.startTag = Math.max(virtualTime, flow.finishTag);
+                flow.finishTag = startTag + flow.increment;
+                this.sequenceNumber = sequence++;
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (TransferScheduler.this) {
+                virtualTime = Math.max(virtualTime, startTag);
+            }
+            Flow previous = currentFlow.get();
+            currentFlow.set(flow);
+            try {
+                task.run();
+            } finally {
+                currentFlow.set(previous);
+                lane.finished();
+            }
+        }
+
+        @Override
+        public int compareTo(ScheduledTask other) {
+            if (startTag != other.startTag) {
+                return startTag < other.startTag ? -1 : 1;
+            }
+            return sequenceNumber < other.sequenceNumber ? -1
+                    : (sequenceNumber == other.sequenceNumber ? 0 : 1);
+        }
+    }
+
+    private final class Lane extends AbstractExecutorService {
+        private final TransferPriority priority;
+        private final long maxBytesPerSecondPerTransfer;
+        /** The number of tasks queued or running. */
+        private int pending;
+        private boolean shutdown;
+
+        private Lane(TransferPriority priority, long maxBytesPerSecondPerTransfer) {
+            this.priority = priority;
+            this.maxBytesPerSecondPerTransfer = maxBytesPerSecondPerTransfer;
+        }
+
+        private ProgressListener throttle(ProgressListener listener) {
+            List<TokenBucket> buckets = new ArrayList<TokenBucket>(2);
+            if (maxBytesPerSecondPerTransfer > 0) {
+                buckets.add(new TokenBucket(maxBytesPerSecondPerTransfer));
+            }
+            if (bucket != null) {
+                buckets.add(bucket);
+            }
+            if (buckets.isEmpty()) {
+                return listener;
+            }
+            return new ThrottlingProgressListener(listener,
+                    buckets.toArray(new TokenBucket[buckets.size()]));
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (command == null) {
+                throw new NullPointerException();
+            }
+            Flow flow = currentFlow.get();
+            if (flow == null || flow.scheduler != TransferScheduler.this) {
+                flow = new Flow(priority);
+            }
+            synchronized (this) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("The transfer lane has been shut down");
+                }
+                pending++;
+            }
+            try {
+                pool.execute(new ScheduledTask(command, flow, this));
+            } catch (RejectedExecutionException e) {
+                finished();
+                throw e;
+            }
+        }
+
+        private synchronized void finished() {
+            if (--pending == 0) {
+                notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown();
+            List<Runnable> tasks = new ArrayList<Runnable>();
+            for (Runnable queued : pool.getQueue()) {
+                ScheduledTask task = (ScheduledTask) queued;
+                if (task.lane == this && pool.remove(task)) {
+                    tasks.add(task.task);
+                    finished();
+                }
+            }
+            return tasks;
+        }
+
+        @Override
+        public synchronized boolean isShutdown() {
+            return shutdown || pool.isShutdown();
+        }
+
+        @Override
+        public synchronized boolean isTerminated() {
+            return isShutdown() && pending == 0;
+        }
+
+        @Override
+        public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import static com.amazonaws.event.SDKProgressPublisher.publishRequestBytesTransferred;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.transfer.Transfer;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+
+/**
+ * Bulk operation on all the objects under a key prefix, which lists the
+ * prefix on a thread of its own and hands each listing page to the
+ * operation as soon as it's listed. The number of tasks started by the
+ * operation but not finished is bounded, which pauses the listing while
+ * the tasks catch up.
+ * <p>
+ * The progress is measured in bytes of the objects processed, and the total
+ * number of bytes grows as the prefix is listed.
+ */
+public abstract class AbstractPrefixTransfer extends PipelinedTransfer<Transfer> {
+
+    protected final AmazonS3 s3;
+    /** Receives the bytes of the objects processed. */
+    private final ProgressListener progressListener;
+    private final ExecutorService listingExecutor;
+
+    /**
+     * @param progressListener
+     *            The listener to notify of the bytes of the objects
+     *            processed, which updates the given transfer progress.
+     * @param maxUnfinishedTasks
+     *            The maximum number of tasks started but not finished.
+     */
+    protected AbstractPrefixTransfer(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, ProgressListener progressListener,
+            AmazonS3 s3, String bucketName, String keyPrefix, int maxUnfinishedTasks) {
+        super(description, transferProgress, progressListenerChain, bucketName, keyPrefix,
+                maxUnfinishedTasks);
+        this.s3 = s3;
+        this.progressListener = progressListener;
+        this.listingExecutor = Executors.newSingleThreadExecutor(
+                newDaemonThreadFactory("s3-transfer-manager-lister-"));
+    }
+
+    /**
+     * Starts the tasks processing the given page of listed objects. Each
+     * task is started with {@link #startTask()}, and must call
+     * {@link #finishTask(long)} once finished.
+     */
+    protected abstract void processPage(List<S3ObjectSummary> summaries)
+            throws InterruptedException;
+
+    /**
+     * Returns whether any object failed to be processed.
+     */
+    @Override
+    protected abstract boolean hasFailures();
+
+    /**
+     * Returns the failure reported once the operation is done, if
+     * {@link #hasFailures()}.
+     */
+    @Override
+    protected abstract AmazonClientException getFailure();
+
+    /**
+     * Starts listing the key prefix.
+     */
+    public void start() {
+        try {
+            execute(listingExecutor, "Unable to list " + getBucketName() + "/" + getKeyPrefix(),
+                    new Step() {
+                        public void run() throws InterruptedException {
+                            setState(TransferState.InProgress);
+                            list();
+                        }
+                    });
+        } finally {
+            listingExecutor.shutdown();
+        }
+    }
+
+    private void list() throws InterruptedException {
+        ObjectListing listing = null;
+        do {
+            if (listing == null) {
+                listing = s3.listObjects(new ListObjectsRequest()
+                        .withBucketName(getBucketName())
+                        .withPrefix(getKeyPrefix()));
+            } else {
+                listing = s3.listNextBatchOfObjects(listing);
+            }
+            List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+            if (!summaries.isEmpty()) {
+                long bytes = 0;
+                for (S3ObjectSummary summary : summaries) {
+                    bytes += summary.getSize();
+                }
+                addTotalBytes(bytes);
+                processPage(summaries);
+            }
+        } while (listing.isTruncated());
+    }
+
+    /**
+     * Notes the end of a task, which processed objects of the given number
+     * of bytes.
+     */
+    protected void finishTask(long bytes) {
+        if (bytes > 0) {
+            publishRequestBytesTransferred(progressListener, bytes);
+        }
+        finishTask();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.annotation.ThreadSafe;
+
+/**
+ * A view of a thread pool that runs at most a given number of its tasks at
+ * once, and queues the others until a running one finishes. The tasks run on
+ * the threads of the thread pool, with whatever scheduling it applies, such
+ * as the priorities of a lane of a
+ * {@link com.amazonaws.services.s3.transfer.TransferScheduler}. Shutting down
+ * the view only stops it from accepting tasks; the thread pool is left alone.
+ */
+@ThreadSafe
+final class BoundedExecutor extends AbstractExecutorService {
+
+    private final ExecutorService executor;
+    private final int maxRunning;
+    private final Queue<Runnable> queued = new LinkedList<Runnable>();
+    /** The number of tasks handed to the thread pool and not finished. */
+    private int running;
+    private boolean shutdown;
+
+    BoundedExecutor(ExecutorService executor, int maxRunning) {
+        if (maxRunning < 1) {
+            throw new IllegalArgumentException("Please provide at least one running task");
+        }
+        this.executor = executor;
+        this.maxRunning = maxRunning;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        synchronized (this) {
+            if (shutdown) {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+            if (running >= maxRunning) {
+                queued.add(command);
+                return;
+            }
+            running++;
+        }
+        start(command);
+    }
+
+    /**
+     * Hands the given task to the thread pool, followed by the queued tasks
+     * as it finishes.
+     */
+    private void start(final Runnable command) {
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        command.run();
+                    } finally {
+                        // Handed over from a thread of the pool, the next task
+                        // joins the flow of the finished one in a TransferScheduler
+                        Runnable next = finished();
+                        if (next != null) {
+                            start(next);
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                running--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the next queued task to run in place of a finished one, if any.
+     */
+    private synchronized Runnable finished() {
+        Runnable next = queued.poll();
+        if (next == null) {
+            running--;
+            notifyAll();
+        }
+        return next;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> tasks = new ArrayList<Runnable>(queued);
+        queued.clear();
+        return tasks;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return shutdown && running == 0 && queued.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
+
+/**
+ * Sizes the parts and chooses the parallelism of an adaptive multipart upload.
+ * <p>
+ * The time of an upload part request is modeled as a round trip, measured on
+ * the request initiating the upload, plus the time to send the part at the
+ * throughput of a connection, measured on the parts uploaded so far. A part
+ * is sized to take long enough, relative to the round trip, for the overhead
+ * of its request to stay small, which keeps the parts small on slow or high
+ * latency links, where more parts then run in parallel, and makes them large
+ * on fast links.
+ * <p>
+ * The upload starts with as many parts at once as allowed, and its
+ * parallelism is then probed every round of as many parts: it shrinks when
+ * the throughput of the whole upload drops, as on a saturated link, and grows
+ * back while the throughput grows.
+ */
+@ThreadSafe
+public class MultipartUploadTuner {
+
+    private static final Log log = LogFactory.getLog(MultipartUploadTuner.class);
+
+    /** The minimum time to send a part. */
+    private static final long MIN_PART_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** The minimum time to send a part, in round trips. */
+    private static final int ROUND_TRIPS_PER_PART = 10;
+
+    /** The weight of the latest part in the throughput of a connection. */
+    private static final double SMOOTHING = 0.3;
+
+    /** The gain in throughput for which the parallelism keeps growing. */
+    private static final double GAIN = 1.05;
+
+    /** The loss in throughput for which the parallelism shrinks. */
+    private static final double LOSS = 0.9;
+
+    private final long minPartSize;
+    private final long maxPartSize;
+    private final int maxConcurrency;
+
+    /** The round trip time, or zero if not measured. */
+    private long roundTripNanos;
+    /** The throughput of a connection, or zero until a part is uploaded. */
+    private double bytesPerNano;
+    private int concurrency;
+
+    private long roundStartNanos = System.nanoTime();
+    private long roundBytes;
+    private int roundParts;
+    /** The throughput of the upload over the previous round. */
+    private double lastRoundBytesPerNano;
+
+    /**
+     * @param contentLength
+     *            The size of the upload.
+     * @param configuration
+     *            The configuration of the part sizes and parallelism.
+     */
+    public MultipartUploadTuner(long contentLength, TransferManagerConfiguration configuration) {
+        this.minPartSize = configuration.getMinimumUploadPartSize();
+        this.maxPartSize = Math.max(minPartSize, configuration.getMaximumUploadPartSize());
+        this.maxConcurrency = configuration.getMaximumUploadPartConcurrency();
+        long minParts = (contentLength + minPartSize - 1) / minPartSize;
+        this.concurrency = (int) Math.max(1, Math.min(maxConcurrency, minParts));
+    }
+
+    /**
+     * Records the time of a request without content, such as the one
+     * initiating the upload, as the round trip time.
+     */
+    public synchronized void recordRoundTrip(long nanos) {
+        roundTripNanos = nanos;
+    }
+
+    /**
+     * Records the upload of a part of the given size in the given time.
+     */
+    public synchronized void recordPart(long bytes, long nanos) {
+        long sendNanos = Math.max(nanos - roundTripNanos, nanos / 10 + 1);
+        double partBytesPerNano = (double) bytes / sendNanos;
+        bytesPerNano = bytesPerNano == 0
+                ? partBytesPerNano
+                : SMOOTHING * partBytesPerNano + (1 - SMOOTHING) * bytesPerNano;
+
+        roundBytes += bytes;
+        if (++roundParts < concurrency) {
+            return;
+        }
+        long now = System.nanoTime();
+        double roundBytesPerNano = (double) roundBytes / Math.max(1, now - roundStartNanos);
+        if (roundBytesPerNano >= lastRoundBytesPerNano * GAIN) {
+            concurrency = Math.min(maxConcurrency, concurrency + 1);
+        } else if (roundBytesPerNano < lastRoundBytesPerNano * LOSS) {
+            concurrency = Math.max(1, concurrency - 1);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Upload throughput " + (long) (roundBytesPerNano * 1e9)
+                    + " bytes/s, connection throughput " + (long) (bytesPerNano * 1e9)
+                    + " bytes/s, round trip " + TimeUnit.NANOSECONDS.toMillis(roundTripNanos)
+                    + " ms; uploading " + concurrency + " parts at once");
+        }
+        lastRoundBytesPerNano = roundBytesPerNano;
+        roundStartNanos = now;
+        roundBytes = 0;
+        roundParts = 0;
+    }
+
+    /**
+     * Returns the number of parts to upload at once.
+     */
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Returns the size of the next part.
+     *
+     * @param remainingBytes
+     *            The number of bytes left to upload, including the part.
+     * @param partNumber
+     *            The number of the part.
+     */
+    public synchronized long nextPartSize(long remainingBytes, int partNumber) {
+        long partSize = minPartSize;
+        if (bytesPerNano > 0) {
+            long partNanos = Math.max(MIN_PART_NANOS, ROUND_TRIPS_PER_PART * roundTripNanos);
+            partSize = (long) (bytesPerNano * partNanos);
+            // Leave enough parts to upload at the maximum parallelism
+            partSize = Math.min(partSize, remainingBytes / maxConcurrency);
+            partSize = Math.max(minPartSize, Math.min(maxPartSize, partSize));
+        }
+        // Stay within the maximum number of parts
+        long partsLeft = Math.max(1, MAXIMUM_UPLOAD_PARTS - partNumber + 1);
+        partSize = Math.max(partSize, (remainingBytes + partsLeft - 1) / partsLeft);
+        // Don't leave a last part smaller than the minimum
+        if (remainingBytes - partSize < minPartSize) {
+            partSize = remainingBytes;
+        }
+        return partSize;
+    }
+}
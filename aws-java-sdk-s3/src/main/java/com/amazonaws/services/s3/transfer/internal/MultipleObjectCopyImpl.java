@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.transfer.Copy;
+import com.amazonaws.services.s3.transfer.MultipleObjectCopy;
+import com.amazonaws.services.s3.transfer.Transfer;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+
+/**
+ * Copy of all the objects under a key prefix to another key prefix, which
+ * starts copying the objects of each listing page as soon as it's listed.
+ * The copies carry on after one of them fails, and the failures are
+ * reported by source key once all are done.
+ */
+public abstract class MultipleObjectCopyImpl extends AbstractPrefixTransfer implements MultipleObjectCopy {
+
+    /** The maximum number of copies started but not finished. */
+    private static final int MAX_UNFINISHED_COPIES = 1000;
+
+    private final String destinationBucketName;
+    private final String destinationKeyPrefix;
+    private final AtomicLong copiedObjects = new AtomicLong();
+    /** The copies that failed, by source key. */
+    private final ConcurrentSkipListMap<String, Copy> failedCopies =
+            new ConcurrentSkipListMap<String, Copy>();
+    private volatile boolean copyCanceled;
+
+    public MultipleObjectCopyImpl(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, ProgressListener progressListener,
+            AmazonS3 s3, String sourceBucketName, String sourceKeyPrefix,
+            String destinationBucketName, String destinationKeyPrefix) {
+        super(description, transferProgress, progressListenerChain, progressListener, s3,
+                sourceBucketName, sourceKeyPrefix, MAX_UNFINISHED_COPIES);
+        this.destinationBucketName = destinationBucketName;
+        this.destinationKeyPrefix = destinationKeyPrefix;
+    }
+
+    /**
+     * Starts the copy of the given object to the given key of the
+     * destination bucket, notifying the given listener of its state changes.
+     */
+    protected abstract Copy startCopy(S3ObjectSummary summary, String destinationKey,
+            TransferStateChangeListener stateListener);
+
+    @Override
+    protected void processPage(List<S3ObjectSummary> summaries) throws InterruptedException {
+        for (S3ObjectSummary summary : summaries) {
+            String destinationKey = destinationKeyPrefix
+                    + summary.getKey().substring(getSourceKeyPrefix().length());
+            startTask();
+            Copy copy = null;
+            try {
+                copy = startCopy(summary, destinationKey, new CopyStateListener(summary));
+            } finally {
+                if (copy == null) {
+                    finishTask(0);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getSourceBucketName() {
+        return getBucketName();
+    }
+
+    @Override
+    public String getSourceKeyPrefix() {
+        return getKeyPrefix();
+    }
+
+    @Override
+    public String getDestinationBucketName() {
+        return destinationBucketName;
+    }
+
+    @Override
+    public String getDestinationKeyPrefix() {
+        return destinationKeyPrefix;
+    }
+
+    @Override
+    public long getCopiedObjectCount() {
+        return copiedObjects.get();
+    }
+
+    @Override
+    public Map<String, AmazonClientException> getFailures() {
+        Map<String, AmazonClientException> failures =
+                new LinkedHashMap<String, AmazonClientException>();
+        for (Map.Entry<String, Copy> failed : failedCopies.entrySet()) {
+            failures.put(failed.getKey(), exceptionOf(failed.getValue()));
+        }
+        return Collections.unmodifiableMap(failures);
+    }
+
+    private static AmazonClientException exceptionOf(Copy copy) {
+        AmazonClientException e = null;
+        try {
+            e = copy.waitForException();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return e != null ? e : new AmazonClientException("Unable to complete "
+                + copy.getDescription());
+    }
+
+    @Override
+    protected boolean hasFailures() {
+        return !failedCopies.isEmpty();
+    }
+
+    @Override
+    protected AmazonClientException getFailure() {
+        Map.Entry<String, Copy> first = failedCopies.firstEntry();
+        return new AmazonClientException("Unable to copy " + failedCopies.size()
+                + " objects from " + getBucketName() + "/" + getKeyPrefix()
+                + ", such as " + first.getKey(), exceptionOf(first.getValue()));
+    }
+
+    @Override
+    protected boolean isCanceled() {
+        return copyCanceled;
+    }
+
+    /**
+     * Follows the state of one copy.
+     */
+    private final class CopyStateListener implements TransferStateChangeListener {
+        private final S3ObjectSummary summary;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        CopyStateListener(S3ObjectSummary summary) {
+            this.summary = summary;
+        }
+
+        @Override
+        public void transferStateChanged(Transfer copy, TransferState state) {
+            if ((state == TransferState.Completed
+                    || state == TransferState.Failed
+                    || state == TransferState.Canceled)
+                    && done.compareAndSet(false, true)) {
+                long copiedBytes = 0;
+                if (state == TransferState.Completed) {
+                    copiedObjects.incrementAndGet();
+                    copiedBytes = summary.getSize();
+                } else if (state == TransferState.Failed) {
+                    failedCopies.put(summary.getKey(), (Copy) copy);
+                } else {
+                    copyCanceled = true;
+                }
+                finishTask(copiedBytes);
+            }
+        }
+    }
+}
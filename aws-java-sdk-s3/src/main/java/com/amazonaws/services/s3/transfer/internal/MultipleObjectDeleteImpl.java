@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException.DeleteError;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.transfer.MultipleObjectDelete;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+
+/**
+ * Deletion of all the objects under a key prefix, which deletes each listing
+ * page of up to 1000 keys with a single multi-object delete request as soon
+ * as it's listed. The requests of several pages are in flight at once, and
+ * the keys that fail with a transient error are retried with a backoff.
+ */
+public class MultipleObjectDeleteImpl extends AbstractPrefixTransfer implements MultipleObjectDelete {
+
+    private static final Log log = LogFactory.getLog(MultipleObjectDeleteImpl.class);
+
+    /** The maximum number of delete requests started but not finished. */
+    private static final int MAX_UNFINISHED_BATCHES = 20;
+
+    /** The maximum number of attempts to delete a key. */
+    private static final int MAX_ATTEMPTS = 4;
+
+    /** The delay before the first retry, doubled for each retry after. */
+    private static final long BASE_RETRY_DELAY_MILLIS = 100;
+
+    /** The error codes of the keys worth retrying. */
+    private static final Set<String> TRANSIENT_ERROR_CODES = new HashSet<String>(Arrays.asList(
+            "InternalError", "OperationAborted", "RequestTimeout", "ServiceUnavailable",
+            "SlowDown"));
+
+    private final ExecutorService threadPool;
+    private final AtomicLong deletedObjects = new AtomicLong();
+    private final List<DeleteError> errors =
+            Collections.synchronizedList(new ArrayList<DeleteError>());
+
+    public MultipleObjectDeleteImpl(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, ProgressListener progressListener,
+            AmazonS3 s3, ExecutorService threadPool, String bucketName, String keyPrefix) {
+        super(description, transferProgress, progressListenerChain, progressListener, s3,
+                bucketName, keyPrefix, MAX_UNFINISHED_BATCHES);
+        this.threadPool = threadPool;
+    }
+
+    @Override
+    protected void processPage(List<S3ObjectSummary> summaries) throws InterruptedException {
+        final Map<String, Long> sizes = new HashMap<String, Long>();
+        for (S3ObjectSummary summary : summaries) {
+            sizes.put(summary.getKey(), summary.getSize());
+        }
+        startTask();
+        boolean submitted = false;
+        try {
+            threadPool.execute(new Runnable() {
+                public void run() {
+                    long deletedBytes = 0;
+                    try {
+                        deletedBytes = deleteBatch(sizes);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        finishTask(deletedBytes);
+                    }
+                }
+            });
+            submitted = true;
+        } finally {
+            if (!submitted) {
+                finishTask(0);
+            }
+        }
+    }
+
+    /**
+     * Deletes the given keys, retrying the transient errors, and returns the
+     * number of bytes deleted.
+     */
+    private long deleteBatch(Map<String, Long> sizes) throws InterruptedException {
+        Collection<String> keys = sizes.keySet();
+        long deletedBytes = 0;
+        for (int attempt = 1; !keys.isEmpty(); attempt++) {
+            if (attempt > 1) {
+                Thread.sleep(BASE_RETRY_DELAY_MILLIS << (attempt - 2));
+            }
+            List<DeleteError> failed = delete(keys);
+            Set<String> failedKeys = new HashSet<String>();
+            Set<String> retried = new HashSet<String>();
+            for (DeleteError error : failed) {
+                failedKeys.add(error.getKey());
+                if (attempt < MAX_ATTEMPTS && TRANSIENT_ERROR_CODES.contains(error.getCode())) {
+                    retried.add(error.getKey());
+                } else {
+                    errors.add(error);
+                }
+            }
+            for (String key : keys) {
+                if (!failedKeys.contains(key)) {
+                    deletedObjects.incrementAndGet();
+                    deletedBytes += sizes.get(key);
+                }
+            }
+            if (!retried.isEmpty() && log.isDebugEnabled()) {
+                log.debug("Retrying the deletion of " + retried.size() + " keys under "
+                        + getBucketName() + "/" + getKeyPrefix());
+            }
+            keys = retried;
+        }
+        return deletedBytes;
+    }
+
+    /**
+     * Deletes the given keys in a single request, and returns the errors of
+     * the keys not deleted.
+     */
+    private List<DeleteError> delete(Collection<String> keys) {
+        List<KeyVersion> keyVersions = new ArrayList<KeyVersion>(keys.size());
+        for (String key : keys) {
+            keyVersions.add(new KeyVersion(key));
+        }
+        try {
+            s3.deleteObjects(TransferManager.appendSingleObjectUserAgent(
+                    new DeleteObjectsRequest(getBucketName())
+                            .withKeys(keyVersions)
+                            .withQuiet(true)));
+            return Collections.emptyList();
+        } catch (MultiObjectDeleteException e) {
+            return e.getErrors();
+        } catch (AmazonClientException e) {
+            // The whole request failed, after the retries of the client
+            List<DeleteError> failed = new ArrayList<DeleteError>(keys.size());
+            for (String key : keys) {
+                DeleteError error = new DeleteError();
+                error.setKey(key);
+                if (e instanceof AmazonServiceException) {
+                    error.setCode(((AmazonServiceException) e).getErrorCode());
+                }
+                error.setMessage(e.getMessage());
+                failed.add(error);
+            }
+            return failed;
+        }
+    }
+
+    @Override
+    public long getDeletedObjectCount() {
+        return deletedObjects.get();
+    }
+
+    @Override
+    public List<DeleteError> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<DeleteError>(errors);
+        }
+    }
+
+    @Override
+    protected boolean hasFailures() {
+        return !errors.isEmpty();
+    }
+
+    @Override
+    protected AmazonClientException getFailure() {
+        DeleteError first = errors.get(0);
+        return new AmazonClientException("Unable to delete " + errors.size()
+                + " objects under " + getBucketName() + "/" + getKeyPrefix()
+                + ", such as " + first.getKey() + ": " + first.getCode() + " "
+                + first.getMessage());
+    }
+}
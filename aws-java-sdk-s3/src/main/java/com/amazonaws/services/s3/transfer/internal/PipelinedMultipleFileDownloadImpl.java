@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.transfer.Download;
+import com.amazonaws.services.s3.transfer.MultipleFileDownload;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+
+/**
+ * Download of all the objects under a key prefix, which starts downloading
+ * the objects of each listing page as soon as the page is listed, instead of
+ * after the whole prefix is listed. The common prefixes found are listed in
+ * parallel, and the number of downloads started but not finished is
+ * bounded, so that the memory used doesn't grow with the number of objects.
+ * <p>
+ * The total number of bytes to transfer grows as objects are listed, and is
+ * only final once the transfer is done.
+ */
+public abstract class PipelinedMultipleFileDownloadImpl extends PipelinedTransfer<Download>
+        implements MultipleFileDownload {
+
+    private static final Log log = LogFactory.getLog(PipelinedMultipleFileDownloadImpl.class);
+
+    private static final String DELIMITER = "/";
+
+    /** The number of prefixes listed in parallel. */
+    private static final int LISTING_THREADS = 4;
+
+    /** The maximum number of downloads started but not finished. */
+    private static final int MAX_UNFINISHED_DOWNLOADS = 1000;
+
+    private final AmazonS3 s3;
+    private final File destinationDirectory;
+    private final ExecutorService listingExecutor;
+
+    public PipelinedMultipleFileDownloadImpl(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, AmazonS3 s3, String bucketName,
+            String keyPrefix, File destinationDirectory) {
+        super(description, transferProgress, progressListenerChain, bucketName, keyPrefix,
+                MAX_UNFINISHED_DOWNLOADS);
+        this.s3 = s3;
+        this.destinationDirectory = destinationDirectory;
+        this.listingExecutor = Executors.newFixedThreadPool(LISTING_THREADS,
+                newDaemonThreadFactory("s3-transfer-manager-lister-"));
+    }
+
+    /**
+     * Starts the download of the given object to the given file, notifying
+     * the given listener of its state changes.
+     */
+    protected abstract Download startDownload(S3ObjectSummary summary, File file,
+            TransferStateChangeListener stateListener);
+
+    /**
+     * Starts listing the key prefix.
+     */
+    public void start() {
+        list(getKeyPrefix());
+    }
+
+    /**
+     * Stops listing, and cancels all the downloads in progress.
+     */
+    public void abort() throws IOException {
+        abortPipeline(listingExecutor);
+    }
+
+    @Override
+    protected void abortSubTransfers() throws IOException {
+        // As in MultipleFileDownloadImpl, abort all the downloads before
+        // notifying the state change listeners
+        for (Download download : getTransfers()) {
+            ((DownloadImpl) download).abortWithoutNotifyingStateChangeListener();
+        }
+        for (Download download : getTransfers()) {
+            ((DownloadImpl) download).notifyStateChangeListeners(TransferState.Canceled);
+        }
+    }
+
+    @Override
+    protected void shutdown() {
+        listingExecutor.shutdown();
+    }
+
+    private void list(final String prefix) {
+        execute(listingExecutor, "Unable to download " + prefix, new Step() {
+            public void run() throws InterruptedException {
+                listAndDownload(prefix);
+            }
+        });
+    }
+
+    private void listAndDownload(String prefix) throws InterruptedException {
+        ObjectListing listing = null;
+        do {
+            if (isStopped()) {
+                return;
+            }
+            if (listing == null) {
+                listing = s3.listObjects(new ListObjectsRequest()
+                        .withBucketName(getBucketName())
+                        .withDelimiter(DELIMITER)
+                        .withPrefix(prefix));
+            } else {
+                listing = s3.listNextBatchOfObjects(listing);
+            }
+
+            for (String commonPrefix : listing.getCommonPrefixes()) {
+                list(commonPrefix);
+            }
+            for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+                // Skip any files that are also virtual directories, since
+                // we can't save both a directory and a file of the same
+                // name.
+                if (summary.getKey().equals(prefix)
+                        || listing.getCommonPrefixes().contains(summary.getKey() + DELIMITER)) {
+                    log.debug("Skipping download for object " + summary.getKey()
+                            + " since it is also a virtual directory");
+                    continue;
+                }
+                download(summary);
+            }
+        } while (listing.isTruncated());
+    }
+
+    private void download(S3ObjectSummary summary) throws InterruptedException {
+        startTask();
+        if (isAborted()) {
+            finishTask();
+            return;
+        }
+        Download download = null;
+        try {
+            // TODO: non-standard delimiters
+            File file = new File(destinationDirectory, summary.getKey());
+            File parentFile = file.getParentFile();
+            if (!parentFile.exists() && !parentFile.mkdirs()) {
+                throw new AmazonClientException("Couldn't create parent directories for "
+                        + file.getAbsolutePath());
+            }
+            addTotalBytes(summary.getSize());
+            download = startDownload(summary, file, newSubTransferListener());
+        } finally {
+            if (download == null) {
+                finishTask();
+            }
+        }
+        addSubTransfer(download);
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.transfer.MultipleFileUpload;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+import com.amazonaws.services.s3.transfer.Upload;
+
+/**
+ * Upload of all the files of a directory, which starts uploading the files of
+ * each directory as soon as the directory is read, instead of after the whole
+ * tree is walked. The subdirectories found are read in parallel, and the
+ * number of uploads started but not finished is bounded, so that the memory
+ * used doesn't grow with the number of files.
+ * <p>
+ * Files no larger than the small file threshold are uploaded in a single
+ * request each, with their own bound on the number running at once, since
+ * their transfer time is dominated by the request latency; larger files are
+ * bounded by the thread pool alone, and use multipart uploads where they are
+ * large enough. Both run on the thread pool of the
+ * <code>TransferManager</code>, so a
+ * {@link com.amazonaws.services.s3.transfer.TransferScheduler} shares its
+ * threads between them and the other transfers, by priority.
+ * <p>
+ * Optionally, files are skipped when an object of the same key, size and a
+ * last modified date no earlier than that of the file is found by listing the
+ * virtual directory the file would be uploaded to.
+ * <p>
+ * The total number of bytes to transfer grows as directories are read, and is
+ * only final once the transfer is done.
+ */
+public abstract class PipelinedMultipleFileUploadImpl extends PipelinedTransfer<Upload>
+        implements MultipleFileUpload {
+
+    private static final Log log = LogFactory.getLog(PipelinedMultipleFileUploadImpl.class);
+
+    private static final String DELIMITER = "/";
+
+    /** The number of directories read in parallel. */
+    private static final int WALKING_THREADS = 4;
+
+    /** The maximum number of uploads started but not finished. */
+    private static final int MAX_UNFINISHED_UPLOADS = 1000;
+
+    private final AmazonS3 s3;
+    private final File directory;
+    private final boolean includeSubdirectories;
+    private final boolean skipUnchangedFiles;
+    private final long smallFileThreshold;
+    /** The thread pool the files are uploaded with. */
+    private final ExecutorService largeFileExecutor;
+
+    private final ExecutorService walkingExecutor;
+    /** The view of the thread pool the small files are uploaded with. */
+    private final ExecutorService smallFileExecutor;
+    private final AtomicLong skippedFiles = new AtomicLong();
+
+    /**
+     * @param keyPrefix
+     *            The key prefix of the virtual directory to upload to, either
+     *            empty or ending with the delimiter.
+     * @param smallFileThreshold
+     *            The size, in bytes, up to which files are uploaded on the
+     *            small file lane.
+     * @param smallFileConcurrency
+     *            The maximum number of small files uploading at once.
+     * @param largeFileExecutor
+     *            The thread pool to upload the files with.
+     */
+    public PipelinedMultipleFileUploadImpl(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, AmazonS3 s3, String bucketName,
+            String keyPrefix, File directory, boolean includeSubdirectories,
+            boolean skipUnchangedFiles, long smallFileThreshold, int smallFileConcurrency,
+            ExecutorService largeFileExecutor) {
+        super(description, transferProgress, progressListenerChain, bucketName, keyPrefix,
+                MAX_UNFINISHED_UPLOADS);
+        this.s3 = s3;
+        this.directory = directory;
+        this.includeSubdirectories = includeSubdirectories;
+        this.skipUnchangedFiles = skipUnchangedFiles;
+        this.smallFileThreshold = smallFileThreshold;
+        this.largeFileExecutor = largeFileExecutor;
+        this.walkingExecutor = Executors.newFixedThreadPool(WALKING_THREADS,
+                newDaemonThreadFactory("s3-transfer-manager-walker-"));
+        this.smallFileExecutor = new BoundedExecutor(largeFileExecutor, smallFileConcurrency);
+    }
+
+    /**
+     * Starts the upload of the given file to the given key with the given
+     * thread pool, notifying the given listener of its state changes.
+     */
+    protected abstract Upload startUpload(File file, String key, ExecutorService executor,
+            TransferStateChangeListener stateListener);
+
+    /**
+     * Starts walking the directory.
+     */
+    public void start() {
+        walk(directory);
+    }
+
+    /**
+     * Returns the number of files skipped so far because they were unchanged.
+     */
+    public long getSkippedFileCount() {
+        return skippedFiles.get();
+    }
+
+    @Override
+    public Collection<? extends Upload> getSubTransfers() {
+        return Collections.unmodifiableCollection(getTransfers());
+    }
+
+    @Override
+    protected void shutdown() {
+        walkingExecutor.shutdown();
+        smallFileExecutor.shutdown();
+        if (skippedFiles.get() > 0) {
+            log.debug("Skipped " + skippedFiles.get() + " unchanged files of " + directory);
+        }
+    }
+
+    private void walk(final File dir) {
+        execute(walkingExecutor, "Unable to upload " + dir, new Step() {
+            public void run() throws InterruptedException {
+                walkAndUpload(dir);
+            }
+        });
+    }
+
+    private void walkAndUpload(File dir) throws InterruptedException {
+        if (isStopped()) {
+            return;
+        }
+        File[] found = dir.listFiles();
+        if (found == null) {
+            return;
+        }
+        String dirKeyPrefix = getKeyPrefix() + relativeKey(dir);
+        Map<String, S3ObjectSummary> existing = skipUnchangedFiles
+                ? listExisting(dirKeyPrefix)
+                : Collections.<String, S3ObjectSummary>emptyMap();
+        for (File f : found) {
+            if (f.isDirectory()) {
+                if (includeSubdirectories) {
+                    walk(f);
+                }
+            } else if (f.isFile()) {
+                String key = dirKeyPrefix + f.getName();
+                if (isUnchanged(f, existing.get(key))) {
+                    skippedFiles.incrementAndGet();
+                    continue;
+                }
+                upload(f, key);
+            }
+            if (isStopped()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the key of the given directory relative to the uploaded
+     * directory, ending with the delimiter unless it's the uploaded directory.
+     */
+    private String relativeKey(File dir) {
+        String base = directory.getAbsolutePath();
+        String path = dir.getAbsolutePath();
+        if (path.length() <= base.length()) {
+            return "";
+        }
+        int start = base.endsWith(File.separator) ? base.length() : base.length() + 1;
+        return path.substring(start).replaceAll("\\\\", "/") + DELIMITER;
+    }
+
+    /**
+     * Lists the objects directly under the given key prefix, by key.
+     */
+    private Map<String, S3ObjectSummary> listExisting(String prefix) {
+        Map<String, S3ObjectSummary> existing = new HashMap<String, S3ObjectSummary>();
+        ObjectListing listing = null;
+        do {
+            if (listing == null) {
+                listing = s3.listObjects(new ListObjectsRequest()
+                        .withBucketName(getBucketName())
+                        .withDelimiter(DELIMITER)
+                        .withPrefix(prefix));
+            } else {
+                listing = s3.listNextBatchOfObjects(listing);
+            }
+            for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+                existing.put(summary.getKey(), summary);
+            }
+        } while (listing.isTruncated());
+        return existing;
+    }
+
+    private static boolean isUnchanged(File file, S3ObjectSummary summary) {
+        return summary != null
+                && summary.getSize() == file.length()
+                && summary.getLastModified() != null
+                && summary.getLastModified().getTime() >= file.lastModified();
+    }
+
+    private void upload(File file, String key) throws InterruptedException {
+        startTask();
+        Upload upload = null;
+        try {
+            long size = file.length();
+            addTotalBytes(size);
+            upload = startUpload(file, key,
+                    size <= smallFileThreshold ? smallFileExecutor : largeFileExecutor,
+                    newSubTransferListener());
+        } finally {
+            if (upload == null) {
+                finishTask();
+            }
+        }
+        addSubTransfer(upload);
+    }
+}
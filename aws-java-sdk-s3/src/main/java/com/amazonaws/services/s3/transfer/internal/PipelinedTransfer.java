@@ -0,0 +1,415 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListenerChain;
+import com.amazonaws.services.s3.transfer.Transfer;
+import com.amazonaws.services.s3.transfer.TransferProgress;
+
+/**
+ * Transfer which reads its source in steps run on threads of its own, and
+ * starts the tasks of what each step finds as soon as it's found, instead of
+ * after the whole source is read. The number of tasks started but not
+ * finished is bounded, which pauses the steps while the tasks catch up, so
+ * that the memory used doesn't grow with the size of the source.
+ * <p>
+ * The transfer is done once all the steps and tasks are. It fails if a step
+ * or a sub-transfer failed, and is canceled if it was aborted or a
+ * sub-transfer was canceled.
+ */
+public abstract class PipelinedTransfer<T extends Transfer> extends MultipleFileTransfer<T> {
+
+    private static final Log log = LogFactory.getLog(PipelinedTransfer.class);
+
+    private final String bucketName;
+    private final String keyPrefix;
+
+    /** The sub-transfers in progress. */
+    private final Set<T> transfers;
+    private final Semaphore unfinishedTasks;
+    /** The number of steps and tasks not finished. */
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private volatile boolean aborted;
+    private volatile boolean subTransferCanceled;
+    /** The first failure of a step or of the start of a task. */
+    private volatile AmazonClientException failure;
+    /** The first sub-transfer that failed. */
+    private volatile T failedSubTransfer;
+
+    /**
+     * A step reading part of the source of the transfer.
+     */
+    protected interface Step {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * @param maxUnfinishedTasks
+     *            The maximum number of tasks started but not finished.
+     */
+    protected PipelinedTransfer(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, String bucketName, String keyPrefix,
+            int maxUnfinishedTasks) {
+        this(description, transferProgress, progressListenerChain, bucketName, keyPrefix,
+                maxUnfinishedTasks, Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>()));
+    }
+
+    private PipelinedTransfer(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, String bucketName, String keyPrefix,
+            int maxUnfinishedTasks, Set<T> transfers) {
+        super(description, transferProgress, progressListenerChain, transfers);
+        this.bucketName = bucketName;
+        this.keyPrefix = keyPrefix;
+        this.transfers = transfers;
+        this.unfinishedTasks = new Semaphore(maxUnfinishedTasks);
+        setMonitor(new PipelineMonitor());
+    }
+
+    /**
+     * Returns a factory of daemon threads named with the given prefix.
+     */
+    protected static ThreadFactory newDaemonThreadFactory(final String namePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName(namePrefix + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    /**
+     * Runs the given step with the given thread pool. A step failing with
+     * anything but an {@link AmazonClientException} fails the transfer with
+     * the given error message.
+     */
+    protected void execute(ExecutorService executor, final String errorMessage,
+            final Step step) {
+        pending.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        step.run();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (AmazonClientException e) {
+                        fail(e);
+                    } catch (RuntimeException e) {
+                        fail(new AmazonClientException(errorMessage, e));
+                    } catch (Error e) {
+                        fail(new AmazonClientException(errorMessage, e));
+                        throw e;
+                    } finally {
+                        finishOne();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // The thread pool was shut down
+            finishOne();
+        }
+    }
+
+    /**
+     * Stops the steps not started yet by the given thread pool, and aborts
+     * the sub-transfers in progress.
+     */
+    protected void abortPipeline(ExecutorService executor) throws IOException {
+        aborted = true;
+        List<Runnable> neverRun = executor.shutdownNow();
+        for (int i = 0; i < neverRun.size(); i++) {
+            finishOne();
+        }
+        abortSubTransfers();
+    }
+
+    /**
+     * Aborts the sub-transfers in progress; they can't be aborted unless
+     * overridden.
+     */
+    protected void abortSubTransfers() throws IOException {
+    }
+
+    /**
+     * Returns the sub-transfers in progress.
+     */
+    protected Set<T> getTransfers() {
+        return transfers;
+    }
+
+    protected boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Returns whether the steps should stop, because the transfer was
+     * aborted or failed.
+     */
+    protected boolean isStopped() {
+        return aborted || failure != null;
+    }
+
+    /**
+     * Notes the first failure of the transfer, unless it was aborted.
+     */
+    protected void fail(AmazonClientException e) {
+        if (aborted) {
+            return;
+        }
+        synchronized (this) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Adds the given number of bytes to the total number of bytes to
+     * transfer.
+     */
+    protected void addTotalBytes(long bytes) {
+        getProgress().setTotalBytesToTransfer(totalBytes.addAndGet(bytes));
+    }
+
+    /**
+     * Waits until fewer than the maximum number of tasks are unfinished, and
+     * notes the start of a task, which must call {@link #finishTask()} once
+     * finished.
+     */
+    protected void startTask() throws InterruptedException {
+        unfinishedTasks.acquire();
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Notes the end of a task.
+     */
+    protected void finishTask() {
+        unfinishedTasks.release();
+        finishOne();
+    }
+
+    /**
+     * Returns a listener to start the sub-transfer of a task with, which
+     * finishes the task once the sub-transfer is done.
+     */
+    protected TransferStateChangeListener newSubTransferListener() {
+        return new SubTransferStateListener();
+    }
+
+    /**
+     * Follows the given sub-transfer, started with a listener of
+     * {@link #newSubTransferListener()}, until it's done.
+     */
+    protected void addSubTransfer(T transfer) {
+        transfers.add(transfer);
+        if (transfer.isDone()) {
+            // It finished before it was added
+            transfers.remove(transfer);
+        } else if (aborted) {
+            try {
+                abortSubTransfers();
+            } catch (IOException e) {
+                log.debug("Unable to abort the sub-transfers", e);
+            }
+        }
+    }
+
+    /**
+     * Returns whether any of the tasks failed, in a way not reported by a
+     * sub-transfer.
+     */
+    protected boolean hasFailures() {
+        return false;
+    }
+
+    /**
+     * Returns the failure reported once the transfer is done, if
+     * {@link #hasFailures()}.
+     */
+    protected AmazonClientException getFailure() {
+        return null;
+    }
+
+    /**
+     * Returns whether any of the tasks was canceled, in a way not reported
+     * by a sub-transfer.
+     */
+    protected boolean isCanceled() {
+        return false;
+    }
+
+    /**
+     * Releases the resources of the transfer once all its steps and tasks
+     * are finished.
+     */
+    protected void shutdown() {
+    }
+
+    /**
+     * Notes the end of a step or a task, and completes the transfer after the
+     * last one.
+     */
+    private void finishOne() {
+        if (pending.decrementAndGet() == 0) {
+            shutdown();
+            if (failure != null || failedSubTransfer != null || hasFailures()) {
+                setState(TransferState.Failed);
+            } else if (aborted || subTransferCanceled || isCanceled()) {
+                setState(TransferState.Canceled);
+            } else {
+                setState(TransferState.Completed);
+            }
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Follows the state of one sub-transfer.
+     */
+    private final class SubTransferStateListener implements TransferStateChangeListener {
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void transferStateChanged(Transfer transfer, TransferState state) {
+            if (state == TransferState.InProgress) {
+                synchronized (PipelinedTransfer.this) {
+                    if (getState() == TransferState.Waiting) {
+                        setState(TransferState.InProgress);
+                    }
+                }
+            } else if ((state == TransferState.Completed
+                    || state == TransferState.Failed
+                    || state == TransferState.Canceled)
+                    && done.compareAndSet(false, true)) {
+                transfers.remove(transfer);
+                if (state == TransferState.Failed) {
+                    synchronized (PipelinedTransfer.this) {
+                        if (failedSubTransfer == null) {
+                            failedSubTransfer = (T) transfer;
+                        }
+                    }
+                } else if (state == TransferState.Canceled) {
+                    subTransferCanceled = true;
+                }
+                finishTask();
+            }
+        }
+    }
+
+    /**
+     * Monitors the whole transfer, which is done once all the steps and
+     * tasks are.
+     */
+    private final class PipelineMonitor implements TransferMonitor {
+        private final Future<?> future = new Future<Object>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return true;
+            }
+
+            @Override
+            public Object get() throws InterruptedException, ExecutionException {
+                finished.await();
+                return result();
+            }
+
+            @Override
+            public Object get(long timeout, TimeUnit unit) throws InterruptedException,
+                    ExecutionException, TimeoutException {
+                if (!finished.await(timeout, unit)) {
+                    throw new TimeoutException();
+                }
+                return result();
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return getState() == TransferState.Canceled;
+            }
+
+            @Override
+            public boolean isDone() {
+                return PipelineMonitor.this.isDone();
+            }
+        };
+
+        private Object result() throws InterruptedException, ExecutionException {
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            if (failedSubTransfer != null) {
+                AmazonClientException e = failedSubTransfer.waitForException();
+                throw new ExecutionException(e != null ? e : new AmazonClientException(
+                        "Unable to complete " + failedSubTransfer.getDescription()));
+            }
+            if (hasFailures()) {
+                throw new ExecutionException(getFailure());
+            }
+            if (aborted || subTransferCanceled || isCanceled()) {
+                throw new CancellationException(getDescription() + " canceled");
+            }
+            return PipelinedTransfer.this;
+        }
+
+        @Override
+        public Future<?> getFuture() {
+            return future;
+        }
+
+        @Override
+        public boolean isDone() {
+            return finished.getCount() == 0;
+        }
+    }
+}
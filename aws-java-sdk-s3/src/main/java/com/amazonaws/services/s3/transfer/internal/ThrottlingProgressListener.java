@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
+import static com.amazonaws.event.SDKProgressPublisher.publishRequestBytesTransferred;
+import static com.amazonaws.event.SDKProgressPublisher.publishRequestContentLength;
+import static com.amazonaws.event.SDKProgressPublisher.publishRequestReset;
+import static com.amazonaws.event.SDKProgressPublisher.publishResponseBytesDiscarded;
+import static com.amazonaws.event.SDKProgressPublisher.publishResponseBytesTransferred;
+import static com.amazonaws.event.SDKProgressPublisher.publishResponseContentLength;
+import static com.amazonaws.event.SDKProgressPublisher.publishResponseReset;
+
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.event.SyncProgressListener;
+
+/**
+ * Throttles the content streams of a transfer. Being synchronous, the byte
+ * transfer events are delivered on the thread reading the request or response
+ * content, which is held back until the bytes fit in the token buckets. The
+ * events are then passed on to the listener of the transfer, which is
+ * delivered the way it would have been without throttling.
+ */
+public final class ThrottlingProgressListener extends SyncProgressListener {
+
+    private final ProgressListener listener;
+    private final TokenBucket[] buckets;
+
+    /**
+     * @param listener
+     *            The listener of the transfer.
+     * @param buckets
+     *            The token buckets to take the bytes from, in order.
+     */
+    public ThrottlingProgressListener(ProgressListener listener, TokenBucket... buckets) {
+        this.listener = listener;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public void progressChanged(ProgressEvent progressEvent) {
+        long bytes = progressEvent.getBytes();
+        switch (progressEvent.getEventType()) {
+            case REQUEST_BYTE_TRANSFER_EVENT:
+                acquire(bytes);
+                publishRequestBytesTransferred(listener, bytes);
+                return;
+            case RESPONSE_BYTE_TRANSFER_EVENT:
+                acquire(bytes);
+                publishResponseBytesTransferred(listener, bytes);
+                return;
+            case REQUEST_CONTENT_LENGTH_EVENT:
+                publishRequestContentLength(listener, bytes);
+                return;
+            case RESPONSE_CONTENT_LENGTH_EVENT:
+                publishResponseContentLength(listener, bytes);
+                return;
+            case HTTP_REQUEST_CONTENT_RESET_EVENT:
+                publishRequestReset(listener, bytes);
+                return;
+            case HTTP_RESPONSE_CONTENT_RESET_EVENT:
+                publishResponseReset(listener, bytes);
+                return;
+            case RESPONSE_BYTE_DISCARD_EVENT:
+                publishResponseBytesDiscarded(listener, bytes);
+                return;
+            default:
+                publishProgress(listener, progressEvent.getEventType());
+        }
+    }
+
+    private void acquire(long bytes) {
+        for (TokenBucket bucket : buckets) {
+            bucket.acquire(bytes);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.annotation.ThreadSafe;
+
+/**
+ * Limits the rate at which bytes are transferred. A bucket holds up to one
+ * second of bytes; a caller taking more bytes than are available goes into
+ * debt, and waits until the debt is paid off, so that the callers sharing
+ * the bucket are slowed down together.
+ */
+@ThreadSafe
+public class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long bytesPerSecond;
+    /** The bytes available, or owed if negative. */
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param bytesPerSecond
+     *            The maximum rate, which must be positive.
+     */
+    public TokenBucket(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException(
+                    "Please provide a positive number of bytes per second");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.tokens = bytesPerSecond;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Takes the given number of bytes from the bucket, waiting as long as
+     * necessary to stay within the rate. An interrupt ends the wait early, and
+     * is preserved for the caller to notice.
+     */
+    public void acquire(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(bytesPerSecond,
+                    tokens + (now - lastRefillNanos) * bytesPerSecond / NANOS_PER_SECOND);
+            lastRefillNanos = now;
+            tokens -= bytes;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens * NANOS_PER_SECOND / bytesPerSecond);
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -21,7 +21,9 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.transfer.PauseStatus;
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
@@ -71,6 +73,19 @@ public class TransferManagerUtils {
         return (getRequestFile(putObjectRequest) != null);
     }
 
+    /**
+     * Returns true if the specified upload request is of a stream of unknown
+     * length, which can be uploaded in parts cut as the stream is read.
+     * Encrypted uploads can't, since the last part must be known to be
+     * encrypted.
+     */
+    public static boolean isUploadStreamedInParts(final PutObjectRequest putObjectRequest, final boolean isUsingEncryption) {
+        if (isUsingEncryption) return false;
+        if (getRequestFile(putObjectRequest) != null || putObjectRequest.getInputStream() == null) return false;
+        ObjectMetadata metadata = putObjectRequest.getMetadata();
+        return metadata == null || metadata.getRawMetadataValue(Headers.CONTENT_LENGTH) == null;
+    }
+
     /**
      * Returns the size of the data in this request, otherwise -1 if the content
      * length is unknown.
@@ -15,20 +15,28 @@
 package com.amazonaws.services.s3.transfer.internal;
 
 import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.event.ProgressListenerChain;
 import com.amazonaws.services.s3.AmazonS3;
@@ -40,6 +48,7 @@ import com.amazonaws.services.s3.model.EncryptedInitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.EncryptedPutObjectRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PartETag;
 import com.amazonaws.services.s3.model.PartListing;
 import com.amazonaws.services.s3.model.PartSummary;
@@ -74,6 +83,18 @@ public class UploadCallable implements Callable<UploadResult> {
 
     private PersistableUpload persistableUpload;
 
+    /**
+     * True if this is the upload of a stream of unknown length, which turned
+     * out to be larger than a part.
+     */
+    private volatile boolean streamedInParts;
+
+    /**
+     * The first failure of the parts of a stream uploaded in parts, or of an
+     * adaptive upload, which stops the cutting of parts.
+     */
+    private volatile Exception partFailure;
+
     public UploadCallable(TransferManager transferManager,
             ExecutorService threadPool, UploadImpl upload,
             PutObjectRequest origReq,
@@ -111,12 +132,15 @@ public class UploadCallable implements Callable<UploadResult> {
      * @return True if this UploadCallable is processing a multipart upload.
      */
     public boolean isMultipartUpload() {
-        return TransferManagerUtils.shouldUseMultipartUpload(origReq, configuration);
+        return streamedInParts
+            || TransferManagerUtils.shouldUseMultipartUpload(origReq, configuration);
     }
 
     public UploadResult call() throws Exception {
         upload.setState(TransferState.InProgress);
-        if ( isMultipartUpload() ) {
+        if (TransferManagerUtils.isUploadStreamedInParts(origReq, s3 instanceof AmazonS3Encryption)) {
+            return uploadStreamInParts();
+        } else if ( isMultipartUpload() ) {
             publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
             return uploadInParts();
         } else {
@@ -174,16 +198,32 @@ public class UploadCallable implements Callable<UploadResult> {
         long optimalPartSize = getOptimalPartSize(isUsingEncryption);
 
         try {
+            boolean isResuming = multipartUploadId != null;
+            long initiateNanos = 0;
             if (multipartUploadId == null) {
+                long start = System.nanoTime();
                 multipartUploadId = initiateMultipartUpload(origReq,
                         isUsingEncryption);
+                initiateNanos = System.nanoTime() - start;
+            }
+
+            if (!isResuming && configuration.isAdaptiveMultipartUpload()
+                    && TransferManagerUtils.isUploadParallelizable(origReq, isUsingEncryption)) {
+                // Not persistable, as the parts can't be cut the same way again
+                MultipartUploadTuner tuner = new MultipartUploadTuner(
+                        TransferManagerUtils.getContentLength(origReq), configuration);
+                tuner.recordRoundTrip(initiateNanos);
+                uploadPartsAdaptively(new UploadPartRequestFactory(origReq,
+                        multipartUploadId, tuner), tuner);
+                return null;
             }
 
             UploadPartRequestFactory requestFactory = new UploadPartRequestFactory(origReq, multipartUploadId, optimalPartSize);
 
             if (TransferManagerUtils.isUploadParallelizable(origReq, isUsingEncryption)) {
                 captureUploadStateIfPossible();
-                uploadPartsInParallel(requestFactory, multipartUploadId);
+                // Only a resumed upload has parts to skip
+                uploadPartsInParallel(requestFactory, isResuming ? multipartUploadId : null);
                 return null;
             } else {
                 return uploadPartsInSeries(requestFactory);
@@ -201,6 +241,231 @@ public class UploadCallable implements Callable<UploadResult> {
         }
     }
 
+    /**
+     * Uploads a stream of unknown length in parts cut as the stream is read,
+     * each held in a buffer of a bounded set until it is uploaded. A part is
+     * uploaded by the thread pool while another buffer is available to read
+     * the next part into, or else by this thread, which also stops reading
+     * the stream until the part is uploaded. Returns the result of a stream
+     * smaller than a part, which is uploaded in one chunk, or null when the
+     * upload has to be completed once the parts are uploaded.
+     */
+    private UploadResult uploadStreamInParts() throws Exception {
+        final long partSize = configuration.getMinimumUploadPartSize();
+        if (partSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "The minimum upload part size of a stream of unknown length can't exceed "
+                    + Integer.MAX_VALUE + " bytes");
+        }
+        final InputStream input = origReq.getInputStream();
+        final PartBuffers buffers = new PartBuffers((int) partSize,
+                configuration.getStreamingUploadBufferCount());
+        try {
+            byte[] buffer = buffers.take();
+            int length = fill(input, buffer);
+            if (length < buffer.length) {
+                return uploadBufferInOneChunk(buffer, length);
+            }
+
+            streamedInParts = true;
+            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+            multipartUploadId = initiateMultipartUpload(origReq, false);
+            int partNumber = 1;
+            while (length > 0) {
+                if (threadPool.isShutdown()) throw new CancellationException("TransferManager has been shutdown");
+                if (partFailure != null) throw partFailure;
+                if (partNumber > MAXIMUM_UPLOAD_PARTS) {
+                    throw new AmazonClientException("The stream exceeds the maximum of "
+                            + MAXIMUM_UPLOAD_PARTS + " parts of " + partSize
+                            + " bytes; please configure a larger minimum upload part size");
+                }
+                BufferedPartCallable part = new BufferedPartCallable(
+                        newPartRequest(partNumber++, buffer, length), buffer, buffers);
+                if (buffers.isAvailable()) {
+                    futures.add(threadPool.submit(part));
+                } else {
+                    FutureTask<PartETag> task = new FutureTask<PartETag>(part);
+                    task.run();
+                    futures.add(task);
+                    if (partFailure != null) throw partFailure;
+                }
+                buffer = buffers.take();
+                length = fill(input, buffer);
+            }
+            return null;
+        } catch (Exception e) {
+            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            performAbortMultipartUpload();
+            throw e;
+        } finally {
+            try {input.close(); } catch (Exception e) {
+                log.warn("Unable to cleanly close input stream: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Reads the given stream into the given buffer until it is full or the
+     * stream ends, and returns the number of bytes read.
+     */
+    private static int fill(InputStream input, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = input.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * Uploads the whole of a stream, read into the given buffer, in a single
+     * chunk and returns the result.
+     */
+    private UploadResult uploadBufferInOneChunk(byte[] buffer, int length) {
+        PutObjectRequest req = origReq.clone();
+        ObjectMetadata metadata = req.getMetadata() == null
+                ? new ObjectMetadata()
+                : req.getMetadata();
+        metadata.setContentLength(length);
+        req.withInputStream(new ByteArrayInputStream(buffer, 0, length))
+           .withMetadata(metadata);
+        PutObjectResult putObjectResult = s3.putObject(req);
+
+        UploadResult uploadResult = new UploadResult();
+        uploadResult.setBucketName(origReq.getBucketName());
+        uploadResult.setKey(origReq.getKey());
+        uploadResult.setETag(putObjectResult.getETag());
+        uploadResult.setVersionId(putObjectResult.getVersionId());
+        return uploadResult;
+    }
+
+    private UploadPartRequest newPartRequest(int partNumber, byte[] buffer, int length) {
+        UploadPartRequest req = new UploadPartRequest()
+            .withBucketName(origReq.getBucketName())
+            .withKey(origReq.getKey())
+            .withUploadId(multipartUploadId)
+            .withInputStream(new ByteArrayInputStream(buffer, 0, length))
+            .withPartNumber(partNumber)
+            .withPartSize(length);
+        TransferManager.appendMultipartUserAgent(req);
+
+        if (origReq.getSSECustomerKey() != null) req.setSSECustomerKey(origReq.getSSECustomerKey());
+
+        req.withGeneralProgressListener(origReq.getGeneralProgressListener())
+           .withRequestMetricCollector(origReq.getRequestMetricCollector())
+           ;
+        req.getRequestClientOptions().setReadLimit(length);
+        return req;
+    }
+
+    /**
+     * The bounded set of part buffers of a stream uploaded in parts, allocated
+     * as needed.
+     */
+    private static final class PartBuffers {
+        private final int bufferSize;
+        private final int maxBuffers;
+        private final BlockingQueue<byte[]> free;
+        /** The number of buffers allocated; only accessed by the reader. */
+        private int allocated;
+
+        PartBuffers(int bufferSize, int maxBuffers) {
+            this.bufferSize = bufferSize;
+            this.maxBuffers = maxBuffers;
+            this.free = new ArrayBlockingQueue<byte[]>(maxBuffers);
+        }
+
+        /**
+         * Returns whether a buffer can be taken without waiting.
+         */
+        boolean isAvailable() {
+            return allocated < maxBuffers || !free.isEmpty();
+        }
+
+        byte[] take() throws InterruptedException {
+            byte[] buffer = free.poll();
+            if (buffer == null) {
+                if (allocated < maxBuffers) {
+                    allocated++;
+                    return new byte[bufferSize];
+                }
+                buffer = free.take();
+            }
+            return buffer;
+        }
+
+        void release(byte[] buffer) {
+            free.offer(buffer);
+        }
+    }
+
+    /**
+     * Uploads a part of a stream held in a buffer, then releases the buffer.
+     */
+    private final class BufferedPartCallable implements Callable<PartETag> {
+        private final UploadPartRequest request;
+        private final byte[] buffer;
+        private final PartBuffers buffers;
+
+        BufferedPartCallable(UploadPartRequest request, byte[] buffer, PartBuffers buffers) {
+            this.request = request;
+            this.buffer = buffer;
+            this.buffers = buffers;
+        }
+
+        public PartETag call() throws Exception {
+            try {
+                return s3.uploadPart(request).getPartETag();
+            } catch (Exception e) {
+                if (partFailure == null) {
+                    partFailure = e;
+                }
+                throw e;
+            } finally {
+                buffers.release(buffer);
+            }
+        }
+    }
+
+    /**
+     * Uploads a part of an adaptive upload, and records its time with the
+     * tuner.
+     */
+    private final class TunedPartCallable implements Callable<PartETag> {
+        private final UploadPartRequest request;
+        private final MultipartUploadTuner tuner;
+        /** The count of submitted parts in flight, or null if run inline. */
+        private final AtomicInteger submitted;
+
+        TunedPartCallable(UploadPartRequest request, MultipartUploadTuner tuner,
+                AtomicInteger submitted) {
+            this.request = request;
+            this.tuner = tuner;
+            this.submitted = submitted;
+        }
+
+        public PartETag call() throws Exception {
+            try {
+                long start = System.nanoTime();
+                PartETag partETag = s3.uploadPart(request).getPartETag();
+                tuner.recordPart(request.getPartSize(), System.nanoTime() - start);
+                return partETag;
+            } catch (Exception e) {
+                if (partFailure == null) {
+                    partFailure = e;
+                }
+                throw e;
+            } finally {
+                if (submitted != null) {
+                    submitted.decrementAndGet();
+                }
+            }
+        }
+    }
+
     /**
      * Performs an
      * {@link AmazonS3#abortMultipartUpload(AbortMultipartUploadRequest)}
@@ -294,6 +559,32 @@ public class UploadCallable implements Callable<UploadResult> {
         }
     }
 
+    /**
+     * Uploads the parts of an adaptive upload, each sized by the given tuner
+     * as it is cut. A part is uploaded by the thread pool while fewer parts
+     * than the tuned parallelism are in flight, or else by this thread, which
+     * cuts the next part once it is uploaded.
+     */
+    private void uploadPartsAdaptively(UploadPartRequestFactory requestFactory,
+            MultipartUploadTuner tuner) throws Exception {
+        AtomicInteger submitted = new AtomicInteger();
+        while (requestFactory.hasMoreRequests()) {
+            if (threadPool.isShutdown()) throw new CancellationException("TransferManager has been shutdown");
+            if (partFailure != null) throw partFailure;
+            UploadPartRequest request = requestFactory.getNextUploadPartRequest();
+            if (submitted.get() < tuner.getConcurrency() - 1) {
+                submitted.incrementAndGet();
+                futures.add(threadPool.submit(new TunedPartCallable(request, tuner, submitted)));
+            } else {
+                FutureTask<PartETag> task = new FutureTask<PartETag>(
+                        new TunedPartCallable(request, tuner, null));
+                task.run();
+                futures.add(task);
+                if (partFailure != null) throw partFailure;
+            }
+        }
+    }
+
     private Map<Integer, PartSummary> identifyExistingPartsForResume(
             String uploadId) {
         Map<Integer, PartSummary> partNumbers = new HashMap<Integer, PartSummary>();
@@ -45,6 +45,8 @@ public class UploadPartRequestFactory {
     private long remainingBytes;
     private SSECustomerKey sseCustomerKey;
     private final int totalNumberOfParts;
+    /** Sizes the parts of an adaptive upload, or null. */
+    private final MultipartUploadTuner tuner;
 
     /**
      * Wrapped to provide necessary mark-and-reset support for the underlying
@@ -54,7 +56,23 @@ public class UploadPartRequestFactory {
     private ReleasableInputStream wrappedStream;
 
     public UploadPartRequestFactory(PutObjectRequest origReq, String uploadId, long optimalPartSize) {
+        this(origReq, uploadId, optimalPartSize, null);
+    }
+
+    /**
+     * Creates a factory of the parts of an adaptive upload, each sized by the
+     * given tuner when it is created, for which the total number of parts is
+     * not known in advance.
+     */
+    public UploadPartRequestFactory(PutObjectRequest origReq, String uploadId,
+            MultipartUploadTuner tuner) {
+        this(origReq, uploadId, -1, tuner);
+    }
+
+    private UploadPartRequestFactory(PutObjectRequest origReq, String uploadId,
+            long optimalPartSize, MultipartUploadTuner tuner) {
         this.origReq = origReq;
+        this.tuner = tuner;
         this.uploadId = uploadId;
         this.optimalPartSize = optimalPartSize;
         this.bucketName = origReq.getBucketName();
@@ -62,8 +80,8 @@ public class UploadPartRequestFactory {
         this.file = TransferManagerUtils.getRequestFile(origReq);
         this.remainingBytes = TransferManagerUtils.getContentLength(origReq);
         this.sseCustomerKey = origReq.getSSECustomerKey();
-        this.totalNumberOfParts = (int) Math.ceil((double) this.remainingBytes
-                / this.optimalPartSize);
+        this.totalNumberOfParts = tuner != null ? -1
+                : (int) Math.ceil((double) this.remainingBytes / this.optimalPartSize);
         if (origReq.getInputStream() != null) {
             wrappedStream = ReleasableInputStream.wrap(origReq.getInputStream());
         }
@@ -74,7 +92,9 @@ public class UploadPartRequestFactory {
     }
 
     public synchronized UploadPartRequest getNextUploadPartRequest() {
-        long partSize = Math.min(optimalPartSize, remainingBytes);
+        long partSize = tuner != null
+                ? tuner.nextPartSize(remainingBytes, partNumber)
+                : Math.min(optimalPartSize, remainingBytes);
         boolean isLastPart = (remainingBytes - partSize <= 0);
 
         UploadPartRequest req = null;
@@ -112,6 +132,9 @@ public class UploadPartRequestFactory {
         return req;
     }
 
+    /**
+     * Returns the total number of parts, or -1 for an adaptive upload.
+     */
     public int getTotalNumberOfParts() {
         return totalNumberOfParts;
     }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Measures the single threaded, ie per core, encryption and decryption
+ * throughput of {@link CipherLiteInputStream} for AES/CBC and AES/GCM, when
+ * the stream is read and the cipher updated in 2 KB chunks, as the
+ * encryption client used to, and in 16 KB chunks, as it does now.
+ *
+ * <pre>
+ * java com.amazonaws.services.s3.internal.crypto.CipherLiteThroughputBenchmark [size in MB]
+ * </pre>
+ *
+ * AES/GCM is provided by Bouncy Castle, which must be on the class path.
+ */
+public class CipherLiteThroughputBenchmark {
+
+    private static final int MB = 1024 * 1024;
+    private static final int ROUNDS = 5;
+    private static final int[] CHUNK_SIZES = { 2 * 1024, 16 * 1024 };
+
+    public static void main(String[] args) throws Exception {
+        int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        SecureRandom random = new SecureRandom();
+        byte[] plaintext = new byte[sizeMb * MB];
+        random.nextBytes(plaintext);
+
+        run("AES/CBC", ContentCryptoScheme.AES_CBC, plaintext, random);
+        CryptoRuntime.enableBouncyCastle();
+        if (CryptoRuntime.isBouncyCastleAvailable()) {
+            run("AES/GCM", ContentCryptoScheme.AES_GCM, plaintext, random);
+        } else {
+            System.out.println("AES/GCM: skipped, Bouncy Castle is not on the class path");
+        }
+    }
+
+    private static void run(String name, ContentCryptoScheme scheme,
+            byte[] plaintext, SecureRandom random) throws Exception {
+        KeyGenerator generator = KeyGenerator.getInstance(scheme.getKeyGeneratorAlgorithm());
+        generator.init(scheme.getKeyLengthInBits(), random);
+        SecretKey cek = generator.generateKey();
+        byte[] iv = new byte[scheme.getIVLengthInBytes()];
+        random.nextBytes(iv);
+        byte[] ciphertext = process(scheme.createCipherLite(cek, iv, Cipher.ENCRYPT_MODE),
+                plaintext, CHUNK_SIZES[0], true);
+
+        System.out.println(name + ", " + plaintext.length / MB + " MB:");
+        for (int chunkSize : CHUNK_SIZES) {
+            // The first rounds warm up the JIT compiler; the best round is kept
+            double encrypt = 0;
+            double decrypt = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                encrypt = Math.max(encrypt, throughput(scheme, cek, iv,
+                        Cipher.ENCRYPT_MODE, plaintext, chunkSize));
+                decrypt = Math.max(decrypt, throughput(scheme, cek, iv,
+                        Cipher.DECRYPT_MODE, ciphertext, chunkSize));
+            }
+            System.out.println(String.format(
+                    "  %2d KB chunks: encrypt %7.1f MB/s, decrypt %7.1f MB/s",
+                    chunkSize / 1024, encrypt, decrypt));
+        }
+    }
+
+    /** Returns the MB/s of processing the input in the given mode. */
+    private static double throughput(ContentCryptoScheme scheme, SecretKey cek,
+            byte[] iv, int cipherMode, byte[] input, int chunkSize) throws Exception {
+        CipherLite cipherLite = scheme.createCipherLite(cek, iv, cipherMode);
+        long start = System.nanoTime();
+        process(cipherLite, input, chunkSize, false);
+        long nanos = System.nanoTime() - start;
+        return (double) input.length / MB / (nanos / 1e9);
+    }
+
+    /**
+     * Reads the input through a cipher lite input stream in chunks of the
+     * given size; returns the output if requested, or null.
+     */
+    private static byte[] process(CipherLite cipherLite, byte[] input,
+            int chunkSize, boolean keepOutput) throws IOException {
+        InputStream in = new CipherLiteInputStream(
+                new ByteArrayInputStream(input), cipherLite, chunkSize);
+        ByteArrayOutputStream out = keepOutput
+                ? new ByteArrayOutputStream(input.length + 32)
+                : null;
+        byte[] chunk = new byte[chunkSize];
+        try {
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                if (out != null) {
+                    out.write(chunk, 0, n);
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return out == null ? null : out.toByteArray();
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.S3ClientOptions;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Compares multipart uploads with fixed parts to adaptive multipart uploads,
+ * against a local Amazon S3 stub that simulates the round trip time of a
+ * request, the throughput of a connection and the capacity of the link
+ * shared by the connections. The stub only answers the requests of a
+ * multipart upload, and discards the content.
+ *
+ * <pre>
+ * java com.amazonaws.services.s3.transfer.AdaptiveMultipartUploadBenchmark [size in MB]
+ * </pre>
+ */
+public class AdaptiveMultipartUploadBenchmark {
+
+    private static final int MB = 1024 * 1024;
+
+    /** The round trip in ms, connection MB/s and link MB/s of each link. */
+    private static final int[][] LINKS = {
+        { 1, 200, 400 },
+        { 20, 50, 200 },
+        { 100, 8, 80 },
+    };
+    private static final String[] LINK_NAMES = { "local", "regional", "remote" };
+
+    public static void main(String[] args) throws Exception {
+        int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        File file = File.createTempFile("adaptive-upload-benchmark", ".bin");
+        file.deleteOnExit();
+        writeRandom(file, (long) sizeMb * MB);
+
+        for (int i = 0; i < LINKS.length; i++) {
+            S3Stub stub = new S3Stub(LINKS[i][0], (long) LINKS[i][1] * MB, (long) LINKS[i][2] * MB);
+            stub.start();
+            try {
+                System.out.println(LINK_NAMES[i] + " link: round trip " + LINKS[i][0]
+                        + " ms, " + LINKS[i][1] + " MB/s per connection, "
+                        + LINKS[i][2] + " MB/s shared");
+                run("  fixed parts:   ", stub, file, false);
+                run("  adaptive parts:", stub, file, true);
+            } finally {
+                stub.stop();
+            }
+        }
+    }
+
+    private static void run(String label, S3Stub stub, File file, boolean adaptive)
+            throws Exception {
+        AmazonS3Client s3 = new AmazonS3Client(new BasicAWSCredentials("akid", "skid"),
+                new ClientConfiguration().withMaxConnections(64));
+        s3.setEndpoint(stub.getEndpoint());
+        s3.setS3ClientOptions(new S3ClientOptions().withPathStyleAccess(true));
+        TransferManager tm = new TransferManager(s3);
+        TransferManagerConfiguration configuration = new TransferManagerConfiguration();
+        configuration.setAdaptiveMultipartUpload(adaptive);
+        tm.setConfiguration(configuration);
+
+        stub.reset();
+        long start = System.nanoTime();
+        tm.upload("bucket", "key", file).waitForCompletion();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        tm.shutdownNow();
+        if (stub.partBytes.get() != file.length()) {
+            throw new IllegalStateException("Uploaded " + stub.partBytes.get()
+                    + " bytes in parts instead of " + file.length());
+        }
+
+        System.out.println(label + " " + millis + " ms, "
+                + (file.length() * 1000 / MB / Math.max(1, millis)) + " MB/s, "
+                + stub.parts.get() + " parts, at most "
+                + stub.maxConcurrentParts.get() + " at once");
+    }
+
+    private static void writeRandom(File file, long size) throws IOException {
+        Random random = new Random(0);
+        byte[] buffer = new byte[MB];
+        OutputStream out = new FileOutputStream(file);
+        try {
+            for (long written = 0; written < size; written += buffer.length) {
+                random.nextBytes(buffer);
+                out.write(buffer, 0, (int) Math.min(buffer.length, size - written));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Answers the requests of multipart uploads over HTTP/1.1, reading each
+     * part no faster than a connection and the shared link allow.
+     */
+    private static final class S3Stub implements Runnable {
+        private static final int CHUNK_SIZE = 64 * 1024;
+
+        private final long roundTripMillis;
+        private final double connectionBytesPerNano;
+        private final double linkBytesPerNano;
+        private final ServerSocket server;
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+        /** The time when the link is free to take more bytes. */
+        private long linkFreeNanos;
+
+        private final AtomicInteger parts = new AtomicInteger();
+        private final AtomicLong partBytes = new AtomicLong();
+        private final AtomicInteger concurrentParts = new AtomicInteger();
+        private final AtomicInteger maxConcurrentParts = new AtomicInteger();
+        private final AtomicLong uploadIds = new AtomicLong();
+
+        S3Stub(long roundTripMillis, long connectionBytesPerSecond, long linkBytesPerSecond)
+                throws IOException {
+            this.roundTripMillis = roundTripMillis;
+            this.connectionBytesPerNano = connectionBytesPerSecond / 1e9;
+            this.linkBytesPerNano = linkBytesPerSecond / 1e9;
+            this.server = new ServerSocket(0);
+        }
+
+        void start() {
+            executor.execute(this);
+        }
+
+        void stop() throws IOException {
+            server.close();
+            executor.shutdownNow();
+        }
+
+        void reset() {
+            parts.set(0);
+            partBytes.set(0);
+            maxConcurrentParts.set(0);
+        }
+
+        String getEndpoint() {
+            return "http://localhost:" + server.getLocalPort();
+        }
+
+        @Override
+        public void run() {
+            while (!server.isClosed()) {
+                try {
+                    final Socket socket = server.accept();
+                    executor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                serve(socket);
+                            } catch (Exception e) {
+                                // The client closed the connection
+                            } finally {
+                                try {
+                                    socket.close();
+                                } catch (IOException ignored) {
+                                }
+                            }
+                        }
+                    });
+                } catch (IOException e) {
+                    // Stopped
+                }
+            }
+        }
+
+        /**
+         * Serves the requests of a persistent connection.
+         */
+        private void serve(Socket socket) throws IOException, InterruptedException {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            String requestLine;
+            while ((requestLine = readLine(in)) != null) {
+                String[] request = requestLine.split(" ");
+                String method = request[0];
+                String query = request[1].contains("?")
+                        ? request[1].substring(request[1].indexOf('?') + 1)
+                        : "";
+                long contentLength = 0;
+                boolean expectContinue = false;
+                String header;
+                while ((header = readLine(in)) != null && header.length() > 0) {
+                    String name = header.substring(0, header.indexOf(':')).trim();
+                    String value = header.substring(header.indexOf(':') + 1).trim();
+                    if (name.equalsIgnoreCase("Content-Length")) {
+                        contentLength = Long.parseLong(value);
+                    } else if (name.equalsIgnoreCase("Expect")) {
+                        expectContinue = value.equalsIgnoreCase("100-continue");
+                    }
+                }
+                Thread.sleep(roundTripMillis);
+                if (expectContinue) {
+                    out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StringUtils.UTF8));
+                    out.flush();
+                }
+
+                if ("PUT".equals(method) && query.contains("partNumber=")) {
+                    parts.incrementAndGet();
+                    partBytes.addAndGet(contentLength);
+                    int concurrent = concurrentParts.incrementAndGet();
+                    while (true) {
+                        int max = maxConcurrentParts.get();
+                        if (concurrent <= max || maxConcurrentParts.compareAndSet(max, concurrent)) {
+                            break;
+                        }
+                    }
+                    try {
+                        String md5 = BinaryUtils.toHex(readPaced(in, contentLength));
+                        send(out, 200, "ETag: \"" + md5 + "\"\r\n", "");
+                    } finally {
+                        concurrentParts.decrementAndGet();
+                    }
+                    continue;
+                }
+
+                readPaced(in, contentLength);
+                if ("POST".equals(method) && query.startsWith("uploads")) {
+                    send(out, 200, "", "<InitiateMultipartUploadResult>"
+                            + "<Bucket>bucket</Bucket><Key>key</Key>"
+                            + "<UploadId>upload-" + uploadIds.incrementAndGet() + "</UploadId>"
+                            + "</InitiateMultipartUploadResult>");
+                } else if ("POST".equals(method) && query.contains("uploadId=")) {
+                    send(out, 200, "", "<CompleteMultipartUploadResult>"
+                            + "<Location>" + getEndpoint() + "/bucket/key</Location>"
+                            + "<Bucket>bucket</Bucket><Key>key</Key>"
+                            + "<ETag>\"completed\"</ETag>"
+                            + "</CompleteMultipartUploadResult>");
+                } else if ("GET".equals(method) && query.contains("uploadId=")) {
+                    send(out, 200, "", "<ListPartsResult>"
+                            + "<Bucket>bucket</Bucket><Key>key</Key>"
+                            + "<IsTruncated>false</IsTruncated>"
+                            + "</ListPartsResult>");
+                } else if ("DELETE".equals(method)) {
+                    send(out, 204, "", "");
+                } else {
+                    send(out, 501, "", "<Error><Code>NotImplemented</Code>"
+                            + "<Message>Not supported by the stub</Message></Error>");
+                }
+            }
+        }
+
+        /**
+         * Reads the given number of bytes of content at the simulated
+         * throughput, and returns their MD5 digest.
+         */
+        private byte[] readPaced(InputStream in, long contentLength)
+                throws IOException, InterruptedException {
+            MessageDigest md5;
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            byte[] buffer = new byte[CHUNK_SIZE];
+            long start = System.nanoTime();
+            long total = 0;
+            while (total < contentLength) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, contentLength - total));
+                if (read == -1) {
+                    throw new EOFException();
+                }
+                md5.update(buffer, 0, read);
+                total += read;
+                long linkNanos;
+                synchronized (this) {
+                    linkFreeNanos = Math.max(linkFreeNanos, System.nanoTime())
+                            + (long) (read / linkBytesPerNano);
+                    linkNanos = linkFreeNanos;
+                }
+                long until = Math.max(linkNanos, start + (long) (total / connectionBytesPerNano));
+                long wait = until - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+            return md5.digest();
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == '\n') {
+                    return line.toString();
+                } else if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.length() == 0 ? null : line.toString();
+        }
+
+        private static void send(OutputStream out, int statusCode, String headers, String body)
+                throws IOException {
+            byte[] bytes = body.getBytes(StringUtils.UTF8);
+            out.write(("HTTP/1.1 " + statusCode + " Stub\r\n"
+                    + "Content-Type: application/xml\r\n"
+                    + "x-amz-request-id: stub\r\n"
+                    + headers
+                    + "Content-Length: " + bytes.length + "\r\n\r\n").getBytes(StringUtils.UTF8));
+            out.write(bytes);
+            out.flush();
+        }
+    }
+}